@@ -38,6 +38,8 @@ public class D2RQGraphDocumentSource extends OntGraphDocumentSource implements A
     public static final IRI DEFAULT_BASE_IRI = IRI.create(AVC.getURI());
 
     protected final Mapping mapping;
+    protected final boolean prefetch;
+    private volatile Graph prefetched;
 
     /**
      * The main constructor.
@@ -45,7 +47,17 @@ public class D2RQGraphDocumentSource extends OntGraphDocumentSource implements A
      * @param mapping {@link Mapping}, not {@code null}
      */
     protected D2RQGraphDocumentSource(Mapping mapping) {
+        this(mapping, false);
+    }
+
+    /**
+     * @param mapping  {@link Mapping}, not {@code null}
+     * @param prefetch if {@code true} the graph contains also the data, fetched in advance
+     * @see #withPrefetch()
+     */
+    protected D2RQGraphDocumentSource(Mapping mapping, boolean prefetch) {
         this.mapping = Objects.requireNonNull(mapping, "Null mapping");
+        this.prefetch = prefetch;
     }
 
     /**
@@ -137,7 +149,24 @@ public class D2RQGraphDocumentSource extends OntGraphDocumentSource implements A
             return this;
         }
         Model map = filter.build(mapping);
-        return wrap(MappingFactory.create(map));
+        return new D2RQGraphDocumentSource(MappingFactory.create(map), prefetch);
+    }
+
+    /**
+     * Makes a new {@link D2RQGraphDocumentSource D2RQ OGDS} with the same mapping,
+     * whose {@link #getGraph() graph} contains both the schema and the data.
+     * Since an OWL ontology manager makes a lot of fine-grained lookups while loading
+     * (declarations for each class, assertions for each individual, etc.),
+     * the data is fetched in advance, in a few batched scans (about one per class map),
+     * into a compact read-only in-memory graph, see {@link D2RQGraphUtils#toPrefetched(Graph)}.
+     * The loading then does not touch the database at all.
+     * Note: the graph is a snapshot that is built on the first demand,
+     * and it requires enough memory to hold all the data.
+     *
+     * @return {@link D2RQGraphDocumentSource D2RQ OGDS}
+     */
+    public D2RQGraphDocumentSource withPrefetch() {
+        return prefetch ? this : new D2RQGraphDocumentSource(mapping, true);
     }
 
     /**
@@ -166,13 +195,25 @@ public class D2RQGraphDocumentSource extends OntGraphDocumentSource implements A
      * then a D2RQ data graph does not supplied with a schema.
      * Also please remember: a D2RQ Data graph is unmodifiable and non-distinct:
      * it may contain duplicate triples reflecting the duplicated tuples in a db table.
+     * <p>
+     * In the {@link #withPrefetch() prefetch} mode, the graph is a read-only in-memory snapshot
+     * of both the schema and the data.
      *
      * @see Mapping#getSchema()
      * @see Mapping#getData()
+     * @see #withPrefetch()
      */
     @Override
     public Graph getGraph() {
-        return mapping.getSchema();
+        if (!prefetch) {
+            return mapping.getSchema();
+        }
+        Graph res = prefetched;
+        if (res != null) return res;
+        synchronized (this) {
+            if (prefetched != null) return prefetched;
+            return prefetched = D2RQGraphUtils.toPrefetched(mapping.getSchema());
+        }
     }
 
     /**
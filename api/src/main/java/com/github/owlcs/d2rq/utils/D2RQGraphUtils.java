@@ -4,6 +4,7 @@ import com.github.owlcs.ontapi.OntGraphUtils;
 import com.github.owlcs.ontapi.jena.UnionGraph;
 import com.github.owlcs.ontapi.jena.utils.Graphs;
 import de.fuberlin.wiwiss.d2rq.jena.CachingGraph;
+import de.fuberlin.wiwiss.d2rq.jena.CompactGraph;
 import de.fuberlin.wiwiss.d2rq.jena.GraphD2RQ;
 import de.fuberlin.wiwiss.d2rq.jena.MappingGraph;
 import de.fuberlin.wiwiss.d2rq.map.Mapping;
@@ -97,6 +98,61 @@ public class D2RQGraphUtils {
         };
     }
 
+    /**
+     * Makes a {@link MappingGraph} from the given one, that contains both the schema and the data fetched in advance.
+     * The data is read in a few batched scans (about one per class map) into a {@link CompactGraph},
+     * so the subsequent fine-grained lookups (e.g. when an OWL ontology is assembled) do not go to the database.
+     * The data part is a read-only snapshot: it does not reflect any later changes in the database.
+     * The schema part is the {@link Mapping#getSchema() schema graph} itself,
+     * all changes are passed to it, and therefore to the mapping.
+     *
+     * @param g {@link Graph}, not {@code null}
+     * @return {@link MappingGraph}, not {@code null}
+     * @throws IllegalArgumentException in case the given graph is not Mapping
+     * @see #isMappingGraph(Graph)
+     * @see MappingHelper#prefetchData(Mapping)
+     */
+    public static MappingGraph toPrefetched(Graph g) throws IllegalArgumentException {
+        Mapping m = getMapping(g);
+        Graph schema = m.getSchema();
+        CompactGraph.Builder builder = CompactGraph.builder();
+        MappingHelper.fetchData(m, builder::add);
+        CompactGraph data = builder.build();
+        MappingGraph res = new MappingGraph(MappingHelper.asConnectingMapping(m)) {
+            @Override
+            public ExtendedIterator<Triple> graphBaseFind(Triple t) {
+                return schema.find(t).andThen(data.find(t));
+            }
+
+            @Override
+            public void performAdd(Triple t) {
+                schema.add(t);
+            }
+
+            @Override
+            public void performDelete(Triple t) {
+                schema.delete(t);
+            }
+
+            @Override
+            protected int graphBaseSize() {
+                return schema.size() + data.size();
+            }
+
+            @Override
+            public boolean isEmpty() {
+                return schema.isEmpty() && data.isEmpty();
+            }
+
+            @Override
+            public String toString() {
+                return String.format("Prefetched[%s, %s]", schema, data);
+            }
+        };
+        res.getPrefixMapping().setNsPrefixes(schema.getPrefixMapping());
+        return res;
+    }
+
     /**
      * Extracts a Data {@link Graph} from the given graph, if it contains a reference to a {@link Mapping D2RQ Mapping}.
      * The returning {@code Graph} is either {@link GraphD2RQ D2RQ Data Graph} or {@link CachingGraph Caching Graph},
@@ -98,6 +98,8 @@ public class D2RQException extends JenaException {
     public static final int PROPERTYBRIDGE_MISSING_PREDICATESPEC = 85;
     public static final int SQL_COLUMN_NOT_FOUND = 86;
     public static final int STARTUP_UNKNOWN_FORMAT = 87;
+    public static final int CLASSMAP_INVALID_WATERMARK = 88;
+    public static final int DATABASE_INVALID_REPLICA = 89;
 
     private int code;
 
@@ -0,0 +1,205 @@
+package de.fuberlin.wiwiss.d2rq;
+
+import de.fuberlin.wiwiss.d2rq.jena.SwitchableGraph;
+import de.fuberlin.wiwiss.d2rq.map.Mapping;
+import de.fuberlin.wiwiss.d2rq.map.MappingHelper;
+import de.fuberlin.wiwiss.d2rq.map.impl.MappingImpl;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+import org.apache.jena.graph.Graph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Watches a mapping file and reloads the {@link Mapping} when the file is changed, without any downtime.
+ * The new mapping is built and compiled in the background,
+ * it reuses the {@link ConnectedDB connections} (and therefore their metadata caches) of the current mapping
+ * for all {@code d2rq:Database}s whose connection settings have not been changed.
+ * The new mapping does not change anything in the shared connections until it is in use:
+ * the table keys implied by its joins are kept with its own compilation result,
+ * and its configuration is applied to the connections after the switch.
+ * Then the {@link #getGraph() served graph} is switched at once:
+ * the queries, that are already running, finish on the old mapping, the new queries go to the new one.
+ * The old mapping is closed once all its queries are finished (the check is done on each {@link #refresh()}),
+ * so the running queries do not lose their connections.
+ * If the new mapping cannot be built or compiled, the error is logged, the new mapping is discarded
+ * without touching the shared connections, and the current mapping continues to serve.
+ *
+ * @see SystemLoader#build()
+ */
+@SuppressWarnings("WeakerAccess")
+public class MappingWatcher implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappingWatcher.class);
+
+    private final Path file;
+    private final Supplier<Mapping> factory;
+    private final Function<Mapping, Graph> view;
+    private final SwitchableGraph graph;
+    private volatile Mapping current;
+    // the replaced mappings by their graphs, to close when their queries are finished:
+    private final Map<Graph, Mapping> retired = new LinkedHashMap<>();
+    private Object stamp;
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param file    {@link Path} to the mapping file to watch, not {@code null}
+     * @param factory {@link Supplier} that loads a fresh {@link Mapping} from the file, e.g. {@code loader::build}
+     * @param view    {@link Function} that makes a {@link Graph} to serve from the mapping, e.g. {@code Mapping::getData}
+     * @throws D2RQException if the initial mapping is wrong
+     */
+    public MappingWatcher(Path file, Supplier<Mapping> factory, Function<Mapping, Graph> view) {
+        this.file = Objects.requireNonNull(file);
+        this.factory = Objects.requireNonNull(factory);
+        this.view = Objects.requireNonNull(view);
+        this.stamp = stamp(file);
+        Mapping m = factory.get();
+        MappingHelper.asConnectingMapping(m).connect();
+        this.current = m;
+        this.graph = new SwitchableGraph(view.apply(m));
+    }
+
+    /**
+     * Returns a graph that always answers from the most recent successfully loaded mapping.
+     *
+     * @return {@link Graph}
+     */
+    public Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the {@link Mapping} that is served at the moment
+     */
+    public Mapping getMapping() {
+        return current;
+    }
+
+    /**
+     * Starts a daemon thread that {@link #refresh() checks} the mapping file periodically.
+     *
+     * @param period long, the delay between checks
+     * @param unit   {@link TimeUnit}
+     * @return this instance
+     */
+    public synchronized MappingWatcher start(long period, TimeUnit unit) {
+        if (executor != null) {
+            throw new IllegalStateException("Already started");
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread res = new Thread(r, "d2rq-mapping-watcher");
+            res.setDaemon(true);
+            return res;
+        });
+        executor.scheduleWithFixedDelay(this::refresh, period, period, unit);
+        return this;
+    }
+
+    /**
+     * Reloads the mapping if the file has been changed since the last check,
+     * and closes the replaced mappings that have no running queries.
+     *
+     * @return {@code true} if the new mapping is in use now
+     */
+    public synchronized boolean refresh() {
+        closeRetired();
+        Object stamp = stamp(file);
+        if (stamp == null || stamp.equals(this.stamp)) {
+            return false;
+        }
+        return reload();
+    }
+
+    /**
+     * Unconditionally builds and compiles a new mapping and, if it succeeds, switches the served graph to it.
+     *
+     * @return {@code true} if the new mapping is in use now
+     */
+    public synchronized boolean reload() {
+        this.stamp = stamp(file);
+        MappingImpl prev = (MappingImpl) current;
+        MappingImpl next;
+        Set<ConnectedDB> shared;
+        try {
+            next = (MappingImpl) factory.get();
+        } catch (RuntimeException e) {
+            LOGGER.error("Can't load the mapping <{}>: {}", file, e.getMessage());
+            return false;
+        }
+        shared = next.shareConnections(prev);
+        Graph res;
+        try {
+            next.connect();
+            // warm up the schema, so the first queries do not pay for it
+            next.getSchema().size();
+            res = view.apply(next);
+        } catch (RuntimeException e) {
+            LOGGER.error("Can't compile the mapping <{}>: {}", file, e.getMessage());
+            // the shared connections still belong to the current mapping
+            next.releaseConnections(shared);
+            next.close();
+            return false;
+        }
+        retired.put(graph.set(res), prev);
+        current = next;
+        prev.releaseConnections(shared);
+        next.configureConnections();
+        closeRetired();
+        LOGGER.info("The mapping <{}> is reloaded, {} connection(s) reused", file, shared.size());
+        return true;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        closeRetired();
+        if (!retired.isEmpty()) {
+            LOGGER.warn("{} replaced mapping(s) still have running queries, closing anyway", retired.size());
+            retired.values().forEach(Mapping::close);
+            retired.clear();
+        }
+        current.close();
+    }
+
+    /**
+     * Closes the replaced mappings whose graphs are not used by any query.
+     */
+    private void closeRetired() {
+        Iterator<Map.Entry<Graph, Mapping>> it = retired.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Graph, Mapping> e = it.next();
+            if (!graph.retire(e.getKey())) {
+                LOGGER.debug("The replaced mapping {} still has running queries", e.getValue());
+                continue;
+            }
+            e.getValue().close();
+            it.remove();
+        }
+    }
+
+    private static Object stamp(Path file) {
+        try {
+            BasicFileAttributes res = Files.readAttributes(file, BasicFileAttributes.class);
+            return res.lastModifiedTime() + "/" + res.size();
+        } catch (IOException e) {
+            LOGGER.warn("Can't read attributes of <{}>: {}", file, e.getMessage());
+            return null;
+        }
+    }
+}
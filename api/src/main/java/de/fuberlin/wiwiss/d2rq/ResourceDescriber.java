@@ -4,7 +4,9 @@ import de.fuberlin.wiwiss.d2rq.algebra.Relation;
 import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
 import de.fuberlin.wiwiss.d2rq.find.FindQuery;
 import de.fuberlin.wiwiss.d2rq.find.TripleQueryIter;
+import de.fuberlin.wiwiss.d2rq.find.TripleRelationIndex;
 import de.fuberlin.wiwiss.d2rq.map.ConnectingMapping;
+import de.fuberlin.wiwiss.d2rq.sql.QueryDeadline;
 import org.apache.jena.atlas.lib.Alarm;
 import org.apache.jena.atlas.lib.AlarmClock;
 import org.apache.jena.graph.Graph;
@@ -14,6 +16,9 @@ import org.apache.jena.graph.Triple;
 import org.apache.jena.mem.GraphMem;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.iterator.QueryIterConcat;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
 
 import java.util.Collection;
 
@@ -24,7 +29,6 @@ public class ResourceDescriber {
     private final int limit;
     private final long timeout;
     private final Graph result = new GraphMem();
-    private final ExecutionContext context;
     private boolean executed = false;
 
     public ResourceDescriber(ConnectingMapping mapping, Node resource) {
@@ -37,44 +41,80 @@ public class ResourceDescriber {
         this.onlyOutgoing = onlyOutgoing;
         this.limit = limit;
         this.timeout = timeout;
-        this.context = null;
     }
 
     public Graph description() {
         if (executed) return result;
         executed = true;
+        GraphUtil.add(result, triples());
+        return result;
+    }
 
+    /**
+     * Streams the description without collecting it into a graph.
+     * Only the property bridges that can produce the described URI are queried
+     * (see {@link ConnectingMapping#compiledPropertyBridgesIndex()}),
+     * the bridges that share the same table are combined into a single SQL statement.
+     * The returned iterator must be closed or exhausted.
+     *
+     * @return {@link ExtendedIterator} over {@link Triple}s, possibly with duplicates
+     */
+    public ExtendedIterator<Triple> triples() {
+        final ExecutionContext context = createExecutionContext();
         final QueryIterConcat qIter = new QueryIterConcat(context);
-        Alarm pingback = null;
-        if (timeout > 0) {
-            pingback = AlarmClock.get().add(qIter::cancel, timeout);
+        TripleRelationIndex index = mapping.compiledPropertyBridgesIndex();
+        add(qIter, index, Triple.create(node, Node.ANY, Node.ANY), context);
+        if (!onlyOutgoing) {
+            add(qIter, index, Triple.create(Node.ANY, Node.ANY, node), context);
+            add(qIter, index, Triple.create(Node.ANY, node, Node.ANY), context);
         }
+        ExtendedIterator<Triple> res = TripleQueryIter.create(qIter);
+        if (timeout <= 0) {
+            return res;
+        }
+        Alarm pingback = AlarmClock.get().add(qIter::cancel, timeout);
+        return new NiceIterator<Triple>() {
+            private boolean closed;
 
-        Collection<TripleRelation> tripleRelations = mapping.compiledPropertyBridges();
-        FindQuery outgoing = new FindQuery(
-                Triple.create(node, Node.ANY, Node.ANY),
-                tripleRelations, limit, context);
-        qIter.add(outgoing.iterator());
+            @Override
+            public boolean hasNext() {
+                if (res.hasNext()) return true;
+                close();
+                return false;
+            }
 
-        if (!onlyOutgoing) {
-            FindQuery incoming = new FindQuery(
-                    Triple.create(Node.ANY, Node.ANY, node),
-                    tripleRelations, limit, context);
-            qIter.add(incoming.iterator());
+            @Override
+            public Triple next() {
+                return res.next();
+            }
 
-            FindQuery triples = new FindQuery(
-                    Triple.create(Node.ANY, node, Node.ANY),
-                    tripleRelations, limit, context);
-            qIter.add(triples.iterator());
-        }
-        // todo: no more com.hp.hpl.jena.graph.BulkUpdateHandler. Use org.apache.jena.graph.GraphUtil:
-        //result.getBulkUpdateHandler().add(TripleQueryIter.create(qIter));
-        GraphUtil.add(result, TripleQueryIter.create(qIter));
+            @Override
+            public void close() {
+                if (closed) return;
+                closed = true;
+                AlarmClock.get().cancel(pingback);
+                res.close();
+            }
+        };
+    }
 
-        if (pingback != null) {
-            AlarmClock.get().cancel(pingback);
-        }
+    private void add(QueryIterConcat res, TripleRelationIndex index, Triple pattern, ExecutionContext context) {
+        Collection<TripleRelation> relations = index.select(pattern);
+        if (relations.isEmpty()) return;
+        res.add(new FindQuery(pattern, relations, limit, context).iterator());
+    }
 
-        return result;
+    /**
+     * Creates an execution context that carries the deadline of this description, if there is a timeout.
+     * The deadline makes the SQL statements time out on the database side,
+     * the alarm only takes care of the iterators.
+     *
+     * @return {@link ExecutionContext} or {@code null} if there is no timeout
+     */
+    private ExecutionContext createExecutionContext() {
+        if (timeout <= 0) return null;
+        Context res = new Context();
+        QueryDeadline.set(res, timeout);
+        return new ExecutionContext(res, null, null, null);
     }
 }
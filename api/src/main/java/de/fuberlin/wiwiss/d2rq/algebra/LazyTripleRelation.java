@@ -0,0 +1,103 @@
+package de.fuberlin.wiwiss.d2rq.algebra;
+
+import de.fuberlin.wiwiss.d2rq.nodes.NodeMaker;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A {@link TripleRelation} whose base {@link Relation} is compiled on demand,
+ * the first time it is needed by a query.
+ * The {@link NodeMaker}s are known from the very beginning,
+ * so the relation can be indexed and {@link #selectTriple(Triple) selected} without touching the database:
+ * a triple pattern that cannot be produced by the node makers does not trigger the compilation.
+ * <p>
+ * Several relations (e.g. the relations of the same property bridge) may share the same compiled base,
+ * use {@link #once(Supplier)} to create it.
+ *
+ * @see de.fuberlin.wiwiss.d2rq.vocab.AVC#lazyCompilation
+ */
+@SuppressWarnings("WeakerAccess")
+public class LazyTripleRelation extends TripleRelation {
+    private final Supplier<Relation> base;
+
+    /**
+     * @param base           {@link Supplier} of the base {@link Relation}, it is called each time, so it should cache
+     * @param subjectMaker   {@link NodeMaker} for subjects
+     * @param predicateMaker {@link NodeMaker} for predicates
+     * @param objectMaker    {@link NodeMaker} for objects
+     * @see #once(Supplier)
+     */
+    public LazyTripleRelation(Supplier<Relation> base,
+                              NodeMaker subjectMaker, NodeMaker predicateMaker, NodeMaker objectMaker) {
+        super(null, subjectMaker, predicateMaker, objectMaker);
+        this.base = Objects.requireNonNull(base);
+    }
+
+    /**
+     * Wraps the given factory so that it is called at most once, when it succeeds, and the result is reused.
+     * If the factory fails, the error is rethrown and the next call tries again.
+     * The returned supplier is thread-safe.
+     *
+     * @param factory {@link Supplier} that compiles a {@link Relation}
+     * @return {@link Supplier}
+     */
+    public static Supplier<Relation> once(Supplier<Relation> factory) {
+        Objects.requireNonNull(factory);
+        return new Supplier<Relation>() {
+            private volatile Relation res;
+
+            @Override
+            public Relation get() {
+                Relation r = res;
+                if (r != null) return r;
+                synchronized (this) {
+                    if (res == null) {
+                        res = Objects.requireNonNull(factory.get());
+                    }
+                    return res;
+                }
+            }
+        };
+    }
+
+    @Override
+    public Relation baseRelation() {
+        return base.get();
+    }
+
+    @Override
+    public TripleRelation selectTriple(Triple t) {
+        if (!canMatch(t)) {
+            return null;
+        }
+        return super.selectTriple(t);
+    }
+
+    /**
+     * Answers {@code false} if the node makers cannot produce any triple that matches the given pattern.
+     * No compilation is performed.
+     *
+     * @param t {@link Triple} pattern
+     * @return boolean
+     */
+    public boolean canMatch(Triple t) {
+        return canMatch(nodeMaker(SUBJECT), t.getSubject())
+                && canMatch(nodeMaker(PREDICATE), t.getPredicate())
+                && canMatch(nodeMaker(OBJECT), t.getObject());
+    }
+
+    private static boolean canMatch(NodeMaker maker, Node node) {
+        // the conditions are collected into a throwaway relation
+        return !maker.selectNode(node, new MutableRelation(Relation.TRUE)).equals(NodeMaker.EMPTY);
+    }
+
+    @Override
+    public String toString() {
+        // do not compile the base relation just to print it
+        return String.format("LazyTripleRelation(%s %s %s)",
+                nodeMaker(SUBJECT), nodeMaker(PREDICATE), nodeMaker(OBJECT));
+    }
+}
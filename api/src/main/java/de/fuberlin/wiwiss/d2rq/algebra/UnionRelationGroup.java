@@ -0,0 +1,122 @@
+package de.fuberlin.wiwiss.d2rq.algebra;
+
+import de.fuberlin.wiwiss.d2rq.engine.BindingMaker;
+import de.fuberlin.wiwiss.d2rq.sql.UnionStatementBuilder;
+
+import java.util.*;
+
+/**
+ * A group of {@link CompatibleRelationGroup}s that can be evaluated
+ * with a single <code>SELECT ... UNION ALL SELECT ...</code> statement.
+ * <p>
+ * {@link CompatibleRelationGroup} merges relations only if they have the same joins over the same tables,
+ * so a <code>find(ANY, ANY, ANY)</code> or a resource description still produces one group per table combination.
+ * This class consolidates such groups further:
+ * relations accessing the same database are combined as the branches of one union statement,
+ * rows are demultiplexed back to the {@link BindingMaker}s of the originating branch
+ * by the {@link UnionStatementBuilder#BRANCH discriminator} column.
+ * This reduces the number of SQL round trips.
+ *
+ * @see UnionStatementBuilder
+ */
+@SuppressWarnings("WeakerAccess")
+public class UnionRelationGroup {
+
+    /**
+     * The maximum number of branches in one union statement,
+     * to keep statements (and the number of padded columns) in reasonable bounds.
+     */
+    public static final int MAX_BRANCHES = 32;
+
+    public static Collection<UnionRelationGroup> groupRelationGroups(Collection<CompatibleRelationGroup> groups) {
+        Collection<UnionRelationGroup> result = new ArrayList<>();
+        for (CompatibleRelationGroup group : groups) {
+            Collection<BindingMaker> bindingMakers = group.bindingMakers();
+            if (bindingMakers.isEmpty()) continue;
+            Relation relation = group.baseRelation();
+            if (Relation.EMPTY.equals(relation) || relation.condition().isFalse() || relation.limit() == 0) {
+                continue;
+            }
+            addRelation(relation, bindingMakers, result);
+        }
+        return result;
+    }
+
+    private static void addRelation(Relation relation,
+                                    Collection<BindingMaker> bindingMakers,
+                                    Collection<UnionRelationGroup> unions) {
+        if (UnionStatementBuilder.isCombinable(relation)) {
+            for (UnionRelationGroup union : unions) {
+                if (union.isCompatible(relation)) {
+                    union.add(relation, bindingMakers);
+                    return;
+                }
+            }
+        }
+        UnionRelationGroup newUnion = new UnionRelationGroup();
+        newUnion.add(relation, bindingMakers);
+        unions.add(newUnion);
+    }
+
+    private final List<Relation> relations = new ArrayList<>();
+    private final List<Collection<BindingMaker>> bindingMakers = new ArrayList<>();
+    private final Map<ProjectionSpec, Relation> columns = new HashMap<>();
+
+    public boolean isCompatible(Relation otherRelation) {
+        if (relations.isEmpty()) {
+            throw new IllegalStateException();
+        }
+        if (relations.size() >= MAX_BRANCHES) {
+            return false;
+        }
+        Relation first = relations.get(0);
+        if (!UnionStatementBuilder.isCombinable(first) || !UnionStatementBuilder.isCombinable(otherRelation)) {
+            return false;
+        }
+        if (!first.database().equals(otherRelation.database())) {
+            return false;
+        }
+        for (ProjectionSpec projection : otherRelation.projections()) {
+            Relation owner = columns.get(projection);
+            if (owner != null && !UnionStatementBuilder.canShareColumn(projection, owner, otherRelation)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void add(Relation relation, Collection<BindingMaker> makers) {
+        relations.add(relation);
+        bindingMakers.add(makers);
+        for (ProjectionSpec projection : relation.projections()) {
+            columns.putIfAbsent(projection, relation);
+        }
+    }
+
+    /**
+     * Answers {@code true} if this group consists of a single relation that should be queried on its own.
+     *
+     * @return boolean
+     */
+    public boolean isSingle() {
+        return relations.size() == 1;
+    }
+
+    /**
+     * Returns the relations, one per branch of the union.
+     *
+     * @return List of {@link Relation}s
+     */
+    public List<Relation> relations() {
+        return relations;
+    }
+
+    /**
+     * Returns the binding makers, the list is parallel to the {@link #relations()} list.
+     *
+     * @return List of Collections of {@link BindingMaker}s
+     */
+    public List<Collection<BindingMaker>> bindingMakers() {
+        return bindingMakers;
+    }
+}
@@ -8,6 +8,14 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -23,7 +31,11 @@ import java.util.Objects;
  */
 public class TranslationTableParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(TranslationTableParser.class);
+    // the max number of bytes of a file mapped at once:
+    private static final long MAX_REGION_SIZE = 64 * 1024 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 8192;
     private BufferedReader reader;
+    private File file;
     private CSV csvLineParser = new CSV();
     private String url;
 
@@ -34,28 +46,35 @@ public class TranslationTableParser {
     public TranslationTableParser(String url) {
         try {
             this.url = IRIResolver.resolveFileURL(url);
-            this.reader = new BufferedReader(new FileReader(new File(new URI(this.url))));
-        } catch (FileNotFoundException fnfex) {
-            throw new D2RQException("File not found at URL: " + this.url);
+            this.file = new File(new URI(this.url));
         } catch (URISyntaxException usynex) {
             throw new D2RQException("Malformed URI: " + this.url);
         }
+        if (!this.file.isFile()) {
+            throw new D2RQException("File not found at URL: " + this.url);
+        }
     }
 
+    /**
+     * Parses the rows.
+     * A file is read through a memory-mapped buffer and decoded as UTF-8 on the fly,
+     * so the table is neither copied into the heap as a whole nor read through a stream.
+     *
+     * @return Collection of {@link Row}s
+     */
     public Collection<Row> parseTranslations() {
+        List<Row> result = new ArrayList<>();
         try {
-            List<Row> result = new ArrayList<>();
+            if (this.file != null) {
+                parseFile(this.file, MAX_REGION_SIZE, result);
+                return result;
+            }
             while (true) {
                 String line = this.reader.readLine();
                 if (line == null) {
                     break;
                 }
-                String[] fields = this.csvLineParser.parse(line);
-                if (fields.length != 2) {
-                    LOGGER.warn("Skipping line with {} instead of 2 columns in CSV file {}", fields.length, url);
-                    continue;
-                }
-                result.add(new Row(fields[0], fields[1]));
+                parseLine(line, result);
             }
             return result;
         } catch (IOException iex) {
@@ -63,6 +82,101 @@ public class TranslationTableParser {
         }
     }
 
+    /**
+     * Maps the file region by region and splits the decoded text into lines
+     * the same way as {@link BufferedReader#readLine()} does.
+     * A multibyte character that crosses the end of a region is decoded from the start of the next region.
+     *
+     * @param file       {@link File}
+     * @param regionSize long, the max number of bytes mapped at once, at least {@code 4}
+     * @param result     List of {@link Row}s to fill
+     * @throws IOException if the file can't be read or is not valid UTF-8
+     */
+    void parseFile(File file, long regionSize, List<Row> result) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+        LineSplitter lines = new LineSplitter(result);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            boolean last;
+            do {
+                long length = Math.min(Math.max(regionSize, 4), size - position);
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                last = position + length == size;
+                CoderResult res;
+                do {
+                    res = decoder.decode(bytes, chars, last);
+                    if (res.isError()) {
+                        res.throwException();
+                    }
+                    lines.append(chars);
+                } while (res.isOverflow());
+                position += bytes.position();
+            } while (!last);
+            decoder.flush(chars);
+            lines.append(chars);
+            lines.finish();
+        }
+    }
+
+    private void parseLine(String line, List<Row> result) {
+        String[] fields = this.csvLineParser.parse(line);
+        if (fields.length != 2) {
+            LOGGER.warn("Skipping line with {} instead of 2 columns in CSV file {}", fields.length, url);
+            return;
+        }
+        result.add(new Row(fields[0], fields[1]));
+    }
+
+    /**
+     * Collects the decoded characters into lines, a line ends with {@code \n}, {@code \r} or {@code \r\n}.
+     */
+    private class LineSplitter {
+        private final List<Row> result;
+        private final StringBuilder line = new StringBuilder();
+        private boolean skipLF;
+
+        private LineSplitter(List<Row> result) {
+            this.result = result;
+        }
+
+        /**
+         * Consumes the decoded characters and clears the buffer.
+         *
+         * @param chars {@link CharBuffer} in the write mode
+         */
+        private void append(CharBuffer chars) {
+            chars.flip();
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (skipLF) {
+                    skipLF = false;
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+                if (c == '\n' || c == '\r') {
+                    parseLine(line.toString(), result);
+                    line.setLength(0);
+                    skipLF = c == '\r';
+                } else {
+                    line.append(c);
+                }
+            }
+            chars.clear();
+        }
+
+        private void finish() {
+            if (line.length() > 0) {
+                parseLine(line.toString(), result);
+                line.setLength(0);
+            }
+        }
+    }
+
     public static class Row {
         private final String first;
         private final String second;
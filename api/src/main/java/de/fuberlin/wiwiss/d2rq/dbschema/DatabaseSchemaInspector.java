@@ -52,19 +52,83 @@ public class DatabaseSchemaInspector {
             if (!rs.next()) {
                 throw new D2RQException("Column " + column + " not found in database", D2RQException.SQL_COLUMN_NOT_FOUND);
             }
-            int type = rs.getInt("DATA_TYPE");
-            String name = rs.getString("TYPE_NAME").toUpperCase();
-            int size = rs.getInt("COLUMN_SIZE");
-            DataType result = db.vendor().getDataType(type, name, size);
-            if (result == null) {
-                LOGGER.warn("Unknown datatype '" + (size == 0 ? name : (name + "(" + size + ")")) + "' (" + type + ")");
+            return toDataType(rs);
+        } catch (SQLException ex) {
+            throw new D2RQException("Database exception", ex, D2RQException.D2RQ_SQLEXCEPTION);
+        }
+    }
+
+    private DataType toDataType(ResultSet rs) throws SQLException {
+        int type = rs.getInt("DATA_TYPE");
+        String name = rs.getString("TYPE_NAME").toUpperCase();
+        int size = rs.getInt("COLUMN_SIZE");
+        DataType result = db.vendor().getDataType(type, name, size);
+        if (result == null) {
+            LOGGER.warn("Unknown datatype '" + (size == 0 ? name : (name + "(" + size + ")")) + "' (" + type + ")");
+        }
+        return result;
+    }
+
+    /**
+     * Describes all columns of a table with a single catalog query.
+     * This is the bulk equivalent of the {@link #columnType(Attribute)} and {@link #isNullable(Attribute)} methods.
+     * <p>
+     * The answer is empty if it can be ambiguous: if a name contains a search pattern wildcard
+     * that the driver can't escape, or if the columns come from more than one table,
+     * e.g. a table without schema exists in several schemas.
+     * The caller is to look such columns up one by one.
+     *
+     * @param tableName {@link RelationName}
+     * @return Map from column to its description, in the order reported by the database,
+     * the columns have the names reported by the database
+     */
+    public Map<Attribute, ColumnInfo> describeColumns(RelationName tableName) {
+        try {
+            String escape = this.schema.getSearchStringEscape();
+            String schemaPattern = escapePattern(schemaName(tableName), escape);
+            String tablePattern = escapePattern(tableName(tableName), escape);
+            if (tablePattern == null || (schemaPattern == null && schemaName(tableName) != null)) {
+                LOGGER.debug("Can't describe columns of {}: the name is a search pattern", tableName);
+                return Collections.emptyMap();
+            }
+            try (ResultSet rs = this.schema.getColumns(null, schemaPattern, tablePattern, null)) {
+                Map<Attribute, ColumnInfo> result = new LinkedHashMap<>();
+                Set<List<String>> tables = new HashSet<>();
+                while (rs.next()) {
+                    tables.add(Arrays.asList(rs.getString("TABLE_CAT"), rs.getString("TABLE_SCHEM"),
+                            rs.getString("TABLE_NAME")));
+                    Attribute column = new Attribute(tableName, rs.getString("COLUMN_NAME"));
+                    boolean nullable = rs.getInt("NULLABLE") == DatabaseMetaData.columnNullable;
+                    result.put(column, new ColumnInfo(toDataType(rs), nullable));
+                }
+                if (tables.size() > 1) {
+                    LOGGER.debug("Can't describe columns of {}: ambiguous name, found {}", tableName, tables);
+                    return Collections.emptyMap();
+                }
+                return result;
             }
-            return result;
         } catch (SQLException ex) {
             throw new D2RQException("Database exception", ex, D2RQException.D2RQ_SQLEXCEPTION);
         }
     }
 
+    /**
+     * Escapes the wildcards of a catalog search pattern.
+     *
+     * @param name   String, can be {@code null}
+     * @param escape String, the driver's search string escape, can be {@code null}
+     * @return the pattern matching the name only, or {@code null} if there is no such pattern
+     */
+    private static String escapePattern(String name, String escape) {
+        if (name == null || (name.indexOf('_') < 0 && name.indexOf('%') < 0)) {
+            return name;
+        }
+        if (escape == null || escape.isEmpty()) {
+            return null;
+        }
+        return name.replace(escape, escape + escape).replace("_", escape + "_").replace("%", escape + "%");
+    }
+
     public boolean isNullable(Attribute column) {
         try (ResultSet rs = this.schema.getColumns(null, column.schemaName(), column.tableName(), column.attributeName())) {
             if (!rs.next()) {
@@ -175,6 +239,60 @@ public class DatabaseSchemaInspector {
         }
     }
 
+    /**
+     * Reads the size estimates of a table from the catalog statistics.
+     * The number of rows is taken from the {@link Vendor#getRowCountEstimateStatement(RelationName) vendor-specific}
+     * statistics query, or from the JDBC index statistics, if the driver reports them.
+     * The numbers of distinct values are known for columns that have a single-column index.
+     * No rows are counted, so this is cheap, but the results can be outdated or missing.
+     * Since the statistics are optional, database errors are not propagated.
+     *
+     * @param tableName Name of a table
+     * @return {@link TableStatistics}, not {@code null}
+     */
+    public TableStatistics tableStatistics(RelationName tableName) {
+        long rows = TableStatistics.UNKNOWN;
+        String sql = db.vendor().getRowCountEstimateStatement(tableName);
+        if (sql != null) {
+            try (Statement stmt = db.connection().createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+                if (rs.next()) {
+                    double res = rs.getDouble(1);
+                    if (!rs.wasNull()) rows = Math.round(res);
+                }
+            } catch (SQLException ex) {
+                LOGGER.debug("Can't read the row count estimate of {}: {}", tableName, ex.getMessage());
+            }
+        }
+        Map<String, List<String>> indexColumns = new HashMap<>();
+        Map<String, Long> indexCardinalities = new HashMap<>();
+        Set<String> uniqueIndexes = new HashSet<>();
+        // approximate = true: exact statistics could require an ANALYZE run
+        try (ResultSet rs = this.schema.getIndexInfo(null, schemaName(tableName), tableName(tableName), false, true)) {
+            while (rs.next()) {
+                long cardinality = rs.getLong("CARDINALITY");
+                if (rs.wasNull()) cardinality = TableStatistics.UNKNOWN;
+                String index = rs.getString("INDEX_NAME");
+                if (rs.getShort("TYPE") == DatabaseMetaData.tableIndexStatistic || index == null) {
+                    if (rows == TableStatistics.UNKNOWN) rows = cardinality;
+                    continue;
+                }
+                indexColumns.computeIfAbsent(index, k -> new ArrayList<>()).add(rs.getString("COLUMN_NAME"));
+                if (cardinality > 0) indexCardinalities.put(index, cardinality);
+                if (!rs.getBoolean("NON_UNIQUE")) uniqueIndexes.add(index);
+            }
+        } catch (SQLException ex) {
+            LOGGER.debug("Can't read the index statistics of {}: {}", tableName, ex.getMessage());
+        }
+        Map<String, Long> distinct = new HashMap<>();
+        for (Map.Entry<String, List<String>> e : indexColumns.entrySet()) {
+            if (e.getValue().size() != 1) continue;
+            String index = e.getKey();
+            long res = uniqueIndexes.contains(index) ? rows : indexCardinalities.getOrDefault(index, TableStatistics.UNKNOWN);
+            if (res != TableStatistics.UNKNOWN) distinct.merge(e.getValue().get(0), res, Math::max);
+        }
+        return new TableStatistics(rows, distinct);
+    }
+
     /**
      * Returns a list of imported or exported (foreign) keys for a table.
      *
@@ -235,6 +353,30 @@ public class DatabaseSchemaInspector {
         return new RelationName(schema, table, db.lowerCaseTableNames());
     }
 
+    /**
+     * A column description as reported by the database catalog.
+     */
+    public static class ColumnInfo {
+        private final DataType type;
+        private final boolean nullable;
+
+        ColumnInfo(DataType type, boolean nullable) {
+            this.type = type;
+            this.nullable = nullable;
+        }
+
+        /**
+         * @return The column's datatype, or <code>null</code> if unknown
+         */
+        public DataType type() {
+            return type;
+        }
+
+        public boolean isNullable() {
+            return nullable;
+        }
+    }
+
     /**
      * A foreign key. Supports adding (local column, other column) pairs. The pairs
      * can be added out of order and will be re-ordered internally. When all
@@ -0,0 +1,78 @@
+package de.fuberlin.wiwiss.d2rq.dbschema;
+
+import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The candidate keys implied by one compiled mapping,
+ * i.e. the referenced columns of its directed {@code d2rq:join}s
+ * (a foreign key always references a key, so these columns functionally determine the row).
+ * <p>
+ * The keys belong to the compilation result, not to the {@link ConnectedDB}:
+ * a connection may outlive the mapping (e.g. it is passed to the next version of the mapping on reload),
+ * and a recompiled mapping must not see the joins it no longer has.
+ * The keys from the database catalog are still answered by {@link ConnectedDB#tableKeys(RelationName)},
+ * this class combines both.
+ * This class is thread-safe.
+ *
+ * @see de.fuberlin.wiwiss.d2rq.map.impl.MappingSnapshot#declaredKeys()
+ */
+@SuppressWarnings("WeakerAccess")
+public class DeclaredKeys {
+    private final Map<ConnectedDB, Map<RelationName, TableKeys>> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a candidate key implied by the mapping.
+     *
+     * @param db      {@link ConnectedDB}, not {@code null}
+     * @param table   {@link RelationName}, the original name of the table, not {@code null}
+     * @param columns Collection of column names, an empty collection is ignored
+     * @return this instance
+     */
+    public DeclaredKeys declareKey(ConnectedDB db, RelationName table, Collection<String> columns) {
+        keys.computeIfAbsent(Objects.requireNonNull(db), d -> new ConcurrentHashMap<>())
+                .computeIfAbsent(Objects.requireNonNull(table), t -> new TableKeys()).addKey(columns);
+        return this;
+    }
+
+    /**
+     * Answers the keys of the table declared by the mapping, the catalog keys are not included.
+     *
+     * @param db    {@link ConnectedDB}
+     * @param table {@link RelationName}, the original name of the table
+     * @return {@link TableKeys}, possibly empty, not {@code null}
+     */
+    public TableKeys keys(ConnectedDB db, RelationName table) {
+        Map<RelationName, TableKeys> res = keys.get(db);
+        TableKeys found = res == null ? null : res.get(table);
+        return found == null ? new TableKeys() : found;
+    }
+
+    /**
+     * Answers {@code true} if the combination of the given columns is unique in the table,
+     * i.e. if the columns include some candidate key either from the database catalog or from the mapping.
+     *
+     * @param db      {@link ConnectedDB}, can be {@code null}
+     * @param table   {@link RelationName}, the original name of the table
+     * @param columns Set of column names
+     * @return boolean
+     */
+    public boolean isUnique(ConnectedDB db, RelationName table, Set<String> columns) {
+        if (db == null) return false;
+        if (db.tableKeys(table).isUnique(columns)) return true;
+        Map<RelationName, TableKeys> res = keys.get(db);
+        TableKeys found = res == null ? null : res.get(table);
+        return found != null && found.isUnique(columns);
+    }
+
+    @Override
+    public String toString() {
+        return "DeclaredKeys" + keys;
+    }
+}
@@ -0,0 +1,71 @@
+package de.fuberlin.wiwiss.d2rq.dbschema;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The uniqueness model of a table: its candidate keys, i.e. the sets of columns whose values identify a row.
+ * The {@link de.fuberlin.wiwiss.d2rq.sql.ConnectedDB#tableKeys(de.fuberlin.wiwiss.d2rq.algebra.RelationName)
+ * model of a connection} holds the primary key and the unique indexes reported by the database catalog;
+ * the keys implied by a mapping are kept with its compilation result, see {@link DeclaredKeys}.
+ * <p>
+ * The model is built once, when the property bridges are compiled,
+ * so that answering {@link #isUnique(Set)} during query planning doesn't need any catalog queries.
+ * The answers are memoized, so a repeated question costs a single hash lookup.
+ * This class is thread-safe.
+ *
+ * @see de.fuberlin.wiwiss.d2rq.sql.ConnectedDB#tableKeys(de.fuberlin.wiwiss.d2rq.algebra.RelationName)
+ */
+@SuppressWarnings("WeakerAccess")
+public class TableKeys {
+    private final List<Set<String>> keys = new CopyOnWriteArrayList<>();
+    private final Map<Set<String>, Boolean> answers = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a candidate key.
+     *
+     * @param columns Collection of column names, an empty collection is ignored
+     * @return this instance
+     */
+    public TableKeys addKey(Collection<String> columns) {
+        if (columns.isEmpty()) {
+            return this;
+        }
+        Set<String> key = Collections.unmodifiableSet(new HashSet<>(columns));
+        if (!keys.contains(key)) {
+            keys.add(key);
+            // a new key can only turn a "not unique" into a "unique"
+            answers.values().removeIf(b -> !b);
+        }
+        return this;
+    }
+
+    /**
+     * Answers {@code true} if the combination of the given columns is unique in the table,
+     * i.e. if the columns include some candidate key.
+     *
+     * @param columns Set of column names
+     * @return boolean
+     */
+    public boolean isUnique(Set<String> columns) {
+        Boolean res = answers.get(columns);
+        if (res == null) {
+            res = keys.stream().anyMatch(columns::containsAll);
+            answers.put(Collections.unmodifiableSet(new HashSet<>(columns)), res);
+        }
+        return res;
+    }
+
+    /**
+     * @return List of candidate keys, each is a set of column names
+     */
+    public List<Set<String>> keys() {
+        return Collections.unmodifiableList(keys);
+    }
+
+    @Override
+    public String toString() {
+        return "TableKeys" + keys;
+    }
+}
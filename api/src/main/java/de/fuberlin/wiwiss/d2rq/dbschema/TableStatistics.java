@@ -0,0 +1,62 @@
+package de.fuberlin.wiwiss.d2rq.dbschema;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Size estimates of a table, as reported by the statistics of the database catalog:
+ * the number of rows and the numbers of distinct values of some (indexed) columns.
+ * The values are estimates only, they can be outdated or missing.
+ *
+ * @see DatabaseSchemaInspector#tableStatistics(de.fuberlin.wiwiss.d2rq.algebra.RelationName)
+ */
+@SuppressWarnings("WeakerAccess")
+public class TableStatistics {
+    public static final long UNKNOWN = -1;
+    public static final TableStatistics NONE = new TableStatistics(UNKNOWN, Collections.emptyMap());
+
+    private final long rowCount;
+    private final Map<String, Long> distinctValues;
+
+    /**
+     * @param rowCount       long, the estimated number of rows or {@link #UNKNOWN}
+     * @param distinctValues Map from column name to the estimated number of distinct values
+     */
+    public TableStatistics(long rowCount, Map<String, Long> distinctValues) {
+        this.rowCount = rowCount < 0 ? UNKNOWN : rowCount;
+        this.distinctValues = Collections.unmodifiableMap(new HashMap<>(distinctValues));
+    }
+
+    /**
+     * @return long, the estimated number of rows, or {@link #UNKNOWN}
+     */
+    public long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the estimated number of distinct values of the column.
+     *
+     * @param columnName String, not {@code null}
+     * @return long, or {@link #UNKNOWN}
+     */
+    public long distinctValues(String columnName) {
+        Long res = distinctValues.get(columnName);
+        if (res == null) return UNKNOWN;
+        // an estimate can not be greater than the number of rows
+        return rowCount == UNKNOWN ? res : Math.min(res, rowCount);
+    }
+
+    /**
+     * @return {@code true} if the number of rows is known
+     */
+    public boolean isKnown() {
+        return rowCount != UNKNOWN;
+    }
+
+    @Override
+    public String toString() {
+        return "TableStatistics(rows=" + rowCount + ", distinct=" + distinctValues + ")";
+    }
+}
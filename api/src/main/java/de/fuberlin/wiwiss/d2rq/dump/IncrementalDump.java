@@ -0,0 +1,264 @@
+package de.fuberlin.wiwiss.d2rq.dump;
+
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.algebra.MutableRelation;
+import de.fuberlin.wiwiss.d2rq.algebra.Relation;
+import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
+import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
+import de.fuberlin.wiwiss.d2rq.expr.AttributeExpr;
+import de.fuberlin.wiwiss.d2rq.expr.Constant;
+import de.fuberlin.wiwiss.d2rq.expr.Equality;
+import de.fuberlin.wiwiss.d2rq.expr.Expression;
+import de.fuberlin.wiwiss.d2rq.expr.GreaterThanOrEqual;
+import de.fuberlin.wiwiss.d2rq.expr.LessThan;
+import de.fuberlin.wiwiss.d2rq.find.FindQuery;
+import de.fuberlin.wiwiss.d2rq.find.TripleQueryIter;
+import de.fuberlin.wiwiss.d2rq.map.impl.ClassMapImpl;
+import de.fuberlin.wiwiss.d2rq.map.impl.MappingImpl;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+import de.fuberlin.wiwiss.d2rq.sql.ReplicaRouter;
+import de.fuberlin.wiwiss.d2rq.sql.SQL;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * A helper to dump only those triples of a mapping that come from the rows
+ * which have been inserted or updated since the previous run.
+ * <p>
+ * Each class map that has an {@link de.fuberlin.wiwiss.d2rq.vocab.AVC#watermarkColumn avc:watermarkColumn}
+ * is dumped with the condition {@code previous <= column <= current},
+ * where {@code current} is the maximum value of the column at the start of the run.
+ * The rows with {@code column = previous} are scanned again, since a transaction, that has not been committed
+ * at the moment of the previous run, may add more rows with this value later;
+ * the triples of these rows, that have been already passed by the previous run, are skipped.
+ * For this, each run remembers the fingerprints of the triples of the rows with {@code column = current}.
+ * The watermarks (and the fingerprints) are kept in a {@link Properties} object with the class map URIs as keys,
+ * which should be stored after a successful run and passed to the next one.
+ * A class map without watermark (or an anonymous one) is dumped completely only once,
+ * i.e. when it has no entry in the watermarks yet, and is skipped by all subsequent runs.
+ * So the first run with empty watermarks is a complete dump.
+ * <p>
+ * The watermarks tell nothing about the deleted rows and the previous values of the updated rows,
+ * so the result contains the current triples of all changed rows, but no triples to remove.
+ * Only the table of the watermark column is watched:
+ * a change in a joined table (e.g. a referenced label) is not detected, unless it also moves the watermark column.
+ * Since a re-added triple changes nothing, it is safe to repeat a run if it has failed.
+ * <p>
+ * All statements of a run are executed on the primary database, even if it has
+ * {@link de.fuberlin.wiwiss.d2rq.vocab.AVC#replicaJdbcDSN read replicas}:
+ * a replica may lag behind the watermark read from the primary, and the missed rows would never be dumped.
+ */
+@SuppressWarnings("WeakerAccess")
+public class IncrementalDump {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalDump.class);
+
+    private final MappingImpl mapping;
+    private final Properties watermarks;
+
+    /**
+     * @param mapping    {@link MappingImpl}, not {@code null}
+     * @param watermarks {@link Properties} with the watermarks of the previous run, not {@code null},
+     *                   will be updated by {@link #dump(Consumer)}
+     */
+    public IncrementalDump(MappingImpl mapping, Properties watermarks) {
+        this.mapping = Objects.requireNonNull(mapping);
+        this.watermarks = Objects.requireNonNull(watermarks);
+    }
+
+    /**
+     * Answers the watermarks, that are updated after each dumped class map.
+     *
+     * @return {@link Properties}
+     */
+    public Properties getWatermarks() {
+        return watermarks;
+    }
+
+    /**
+     * Passes the triples of all changed rows to the given consumer and moves the watermarks forward.
+     *
+     * @param sink {@link Consumer} for {@link Triple}s, not {@code null}
+     * @return the number of triples, possibly with duplicates
+     * @throws D2RQException in case of database error
+     */
+    public long dump(Consumer<? super Triple> sink) throws D2RQException {
+        Objects.requireNonNull(sink);
+        mapping.connect();
+        long res = 0;
+        for (ClassMapImpl classMap : mapping.listClassMaps().toList()) {
+            res += dump(classMap, sink);
+        }
+        return res;
+    }
+
+    private long dump(ClassMapImpl classMap, Consumer<? super Triple> sink) {
+        if (!classMap.asResource().isURIResource()) {
+            LOGGER.warn("Anonymous {} can't be dumped incrementally, skip", classMap);
+            return 0;
+        }
+        String key = classMap.asResource().getURI();
+        String previous = watermarks.getProperty(key);
+        String column = classMap.getWatermarkColumn();
+        Collection<TripleRelation> relations = classMap.toTripleRelations();
+        if (column == null) {
+            if (previous != null) {
+                LOGGER.warn("{} has no watermark column and has been already dumped, skip", classMap);
+                return 0;
+            }
+            long res = dump(relations, sink, t -> true);
+            watermarks.setProperty(key, "");
+            return res;
+        }
+        ConnectedDB db = mapping.getConnectedDB(classMap.getDatabase());
+        Attribute attribute = SQL.parseAttribute(column);
+        if (db.columnType(attribute) == null) {
+            throw new D2RQException("Watermark column " + column + " of " + classMap + " is not found",
+                    D2RQException.SQL_COLUMN_NOT_FOUND);
+        }
+        String current = selectMax(db, attribute);
+        if (current == null) {
+            // no rows at all
+            watermarks.setProperty(key, previous == null ? "" : previous);
+            return 0;
+        }
+        boolean initial = previous == null || previous.isEmpty();
+        Map<TripleRelation, Attribute> watched = new LinkedHashMap<>();
+        List<TripleRelation> unwatched = new ArrayList<>();
+        for (TripleRelation r : relations) {
+            Attribute a = find(r.baseRelation(), attribute);
+            if (a != null) {
+                watched.put(r, a);
+            } else if (previous == null) {
+                unwatched.add(r);
+            } else {
+                LOGGER.warn("{}: the relation {} does not contain the watermark column {}, skip",
+                        classMap, r, attribute);
+            }
+        }
+        Set<String> seen = initial ? Collections.emptySet() : fingerprints(watermarks.getProperty(boundaryKey(key)));
+        Set<String> boundary = new HashSet<>();
+        LOGGER.debug("Dump {} from watermark '{}' to '{}'", classMap, previous, current);
+        long res = dump(unwatched, sink, t -> true);
+        if (!current.equals(previous)) {
+            res += dump(restrict(watched, a -> initial ? lessThan(a, current) :
+                            new GreaterThanOrEqual(new AttributeExpr(a), new Constant(previous, a)).and(lessThan(a, current))),
+                    sink, t -> !seen.contains(fingerprint(t)));
+        }
+        res += dump(restrict(watched, a -> Equality.createAttributeValue(a, current)), sink, t -> {
+            String f = fingerprint(t);
+            boundary.add(f);
+            return !seen.contains(f);
+        });
+        watermarks.setProperty(key, current);
+        watermarks.setProperty(boundaryKey(key), String.join(" ", boundary));
+        return res;
+    }
+
+    /**
+     * Passes the triples of the relations, that are accepted by the filter, to the sink.
+     * All statements are executed on the primary database.
+     */
+    private static long dump(Collection<TripleRelation> relations,
+                             Consumer<? super Triple> sink,
+                             Predicate<Triple> filter) {
+        if (relations.isEmpty()) return 0;
+        long res = 0;
+        ExecutionContext context = new ExecutionContext(ReplicaRouter.setPrimaryOnly(new Context()), null, null, null);
+        ExtendedIterator<Triple> triples = TripleQueryIter.create(new FindQuery(Triple.ANY, relations, context).iterator());
+        try {
+            while (triples.hasNext()) {
+                Triple t = triples.next();
+                if (!filter.test(t)) continue;
+                sink.accept(t);
+                res++;
+            }
+        } finally {
+            triples.close();
+        }
+        return res;
+    }
+
+    /**
+     * Restricts the relations that contain the table of the watermark column to the rows of the given range.
+     * The condition uses the name under which the relation knows the table, i.e. its {@code d2rq:alias} if any.
+     * A relation without the table (or with several aliases of it) can't be restricted,
+     * it is dumped only by the first run, as a class map without watermark.
+     */
+    private static List<TripleRelation> restrict(Map<TripleRelation, Attribute> relations,
+                                                 Function<Attribute, Expression> condition) {
+        List<TripleRelation> res = new ArrayList<>();
+        relations.forEach((r, a) -> res.add(new TripleRelation(new MutableRelation(r.baseRelation())
+                .select(condition.apply(a)), r.nodeMaker(TripleRelation.SUBJECT),
+                r.nodeMaker(TripleRelation.PREDICATE), r.nodeMaker(TripleRelation.OBJECT))));
+        return res;
+    }
+
+    private static Expression lessThan(Attribute attribute, String value) {
+        return new LessThan(new AttributeExpr(attribute), new Constant(value, attribute));
+    }
+
+    private static String boundaryKey(String key) {
+        return key + "#boundary";
+    }
+
+    private static Set<String> fingerprints(String value) {
+        if (value == null || value.isEmpty()) return Collections.emptySet();
+        return new HashSet<>(Arrays.asList(value.split(" ")));
+    }
+
+    /**
+     * Answers a short (64-bit) fingerprint of the triple to keep in the watermarks.
+     */
+    private static String fingerprint(Triple triple) {
+        UUID res = UUID.nameUUIDFromBytes(triple.toString().getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(res.getMostSignificantBits() ^ res.getLeastSignificantBits());
+    }
+
+    /**
+     * Answers the column as the relation knows it:
+     * the column itself if the relation uses its table directly,
+     * the aliased column if the relation uses exactly one alias of the table,
+     * or {@code null} otherwise.
+     */
+    private static Attribute find(Relation relation, Attribute column) {
+        Set<RelationName> tables = relation.tables();
+        RelationName table = column.relationName();
+        if (tables.contains(table) && !relation.aliases().isAlias(table)) {
+            return column;
+        }
+        List<RelationName> aliases = tables.stream()
+                .filter(t -> relation.aliases().isAlias(t) && table.equals(relation.aliases().originalOf(t)))
+                .collect(Collectors.toList());
+        return aliases.size() == 1 ? new Attribute(aliases.get(0), column.attributeName()) : null;
+    }
+
+    /**
+     * Reads the watermark through the connection of the primary database.
+     */
+    private static String selectMax(ConnectedDB db, Attribute column) {
+        String sql = "SELECT MAX(" + db.vendor().quoteAttribute(column) + ") FROM " +
+                db.vendor().quoteRelationName(column.relationName());
+        LOGGER.debug(sql);
+        try (Statement stmt = db.connection().createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? db.columnType(column).value(rs, 1) : null;
+        } catch (SQLException ex) {
+            throw new D2RQException("Can't read the watermark " + column + ": " + ex.getMessage(), ex,
+                    D2RQException.D2RQ_SQLEXCEPTION);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package de.fuberlin.wiwiss.d2rq.engine;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingBase;
+
+import java.util.*;
+
+/**
+ * A compact immutable {@link Binding} without parent, that holds its nodes in a plain array.
+ * The variables are described by a {@link Vars table} that is shared by all bindings of the same shape,
+ * so a new binding costs only the node array and does not need any hashing.
+ *
+ * @see BindingMaker
+ */
+@SuppressWarnings("WeakerAccess")
+public class ArrayBinding extends BindingBase {
+    private final Vars vars;
+    private final Node[] nodes;
+
+    /**
+     * @param vars  {@link Vars} the shared variables table
+     * @param nodes array of {@link Node}s in the order of the table, all must be not {@code null};
+     *              the array is not copied and must not be changed after the call
+     */
+    public ArrayBinding(Vars vars, Node[] nodes) {
+        super(null);
+        if (vars.size() != nodes.length) {
+            throw new IllegalArgumentException("Expected " + vars.size() + " nodes, got " + nodes.length);
+        }
+        this.vars = vars;
+        this.nodes = nodes;
+    }
+
+    @Override
+    protected Iterator<Var> vars1() {
+        return vars.list.iterator();
+    }
+
+    @Override
+    protected int size1() {
+        return nodes.length;
+    }
+
+    @Override
+    protected boolean isEmpty1() {
+        return nodes.length == 0;
+    }
+
+    @Override
+    protected boolean contains1(Var var) {
+        return vars.indexOf(var) >= 0;
+    }
+
+    @Override
+    protected Node get1(Var var) {
+        int i = vars.indexOf(var);
+        return i < 0 ? null : nodes[i];
+    }
+
+    /**
+     * An immutable ordered set of variables with fast index lookup.
+     */
+    public static class Vars {
+        private final List<Var> list;
+        private final Map<Var, Integer> index;
+
+        /**
+         * @param vars {@code Collection} of {@link Var}s without duplicates
+         */
+        public Vars(Collection<Var> vars) {
+            this.list = Collections.unmodifiableList(new ArrayList<>(vars));
+            Map<Var, Integer> index = new HashMap<>();
+            for (int i = 0; i < list.size(); i++) {
+                if (index.put(list.get(i), i) != null) {
+                    throw new IllegalArgumentException("Duplicate variable " + list.get(i));
+                }
+            }
+            this.index = index;
+        }
+
+        /**
+         * @return unmodifiable List of {@link Var}s
+         */
+        public List<Var> list() {
+            return list;
+        }
+
+        /**
+         * @return the number of variables
+         */
+        public int size() {
+            return list.size();
+        }
+
+        /**
+         * @param var {@link Var}
+         * @return the position of the variable or {@code -1}
+         */
+        public int indexOf(Var var) {
+            Integer res = index.get(var);
+            return res == null ? -1 : res;
+        }
+    }
+}
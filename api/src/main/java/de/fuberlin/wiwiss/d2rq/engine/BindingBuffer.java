@@ -0,0 +1,57 @@
+package de.fuberlin.wiwiss.d2rq.engine;
+
+import org.apache.jena.sparql.engine.binding.Binding;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A FIFO queue of {@link Binding}s over a growable circular array.
+ * Unlike {@link java.util.LinkedList} it allocates nothing per element,
+ * and the array is reused for all batches of the query.
+ * Not thread-safe.
+ */
+class BindingBuffer {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Binding[] elements = new Binding[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(Binding binding) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[(head + size) & (elements.length - 1)] = binding;
+        size++;
+    }
+
+    Binding removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        Binding res = elements[head];
+        // release the reference for GC
+        elements[head] = null;
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return res;
+    }
+
+    private void grow() {
+        // the capacity is always a power of two, so the index wrap is a bit mask
+        Binding[] res = new Binding[elements.length << 1];
+        int tail = elements.length - head;
+        System.arraycopy(elements, head, res, 0, tail);
+        System.arraycopy(elements, 0, res, tail, head);
+        elements = res;
+        head = 0;
+    }
+}
@@ -3,16 +3,13 @@ package de.fuberlin.wiwiss.d2rq.engine;
 import de.fuberlin.wiwiss.d2rq.algebra.NodeRelation;
 import de.fuberlin.wiwiss.d2rq.algebra.ProjectionSpec;
 import de.fuberlin.wiwiss.d2rq.nodes.NodeMaker;
+import de.fuberlin.wiwiss.d2rq.sql.ResultBatch;
 import de.fuberlin.wiwiss.d2rq.sql.ResultRow;
 import org.apache.jena.graph.Node;
 import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.engine.binding.Binding;
-import org.apache.jena.sparql.engine.binding.BindingHashMap;
-import org.apache.jena.sparql.engine.binding.BindingMap;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 /**
  * Produces {@link Binding}s from {@link ResultRow}s.
@@ -31,10 +28,22 @@ public class BindingMaker {
 
     private final Map<Var, NodeMaker> nodeMakers;
     private final ProjectionSpec condition;
+    // the variables and their node makers in the same fixed order, shared by all produced bindings:
+    private final ArrayBinding.Vars vars;
+    private final NodeMaker[] makers;
 
     public BindingMaker(Map<Var, NodeMaker> nodeMakers, ProjectionSpec condition) {
         this.nodeMakers = nodeMakers;
         this.condition = condition;
+        this.vars = new ArrayBinding.Vars(nodeMakers.keySet());
+        this.makers = vars.list().stream().map(nodeMakers::get).toArray(NodeMaker[]::new);
+    }
+
+    private BindingMaker(BindingMaker other, ProjectionSpec condition) {
+        this.nodeMakers = other.nodeMakers;
+        this.condition = condition;
+        this.vars = other.vars;
+        this.makers = other.makers;
     }
 
     public Binding makeBinding(ResultRow row) {
@@ -44,15 +53,105 @@ public class BindingMaker {
                 return null;
             }
         }
-        BindingMap result = new BindingHashMap();
-        for (Var variableName : nodeMakers.keySet()) {
-            Node node = nodeMakers.get(variableName).makeNode(row);
+        Node[] nodes = new Node[makers.length];
+        for (int i = 0; i < makers.length; i++) {
+            Node node = makers[i].makeNode(row);
             if (node == null) {
                 return null;
             }
-            result.add(Var.alloc(variableName), node);
+            nodes[i] = node;
+        }
+        return new ArrayBinding(vars, nodes);
+    }
+
+    /**
+     * Produces the bindings for the whole batch of rows at once.
+     * Each node maker is applied column-wise, over all rows of the batch,
+     * and a node is made only once for every distinct combination of the values it depends on,
+     * so the repeated values (e.g. the same subject for several rows of a join) cost a single map lookup.
+     *
+     * @param batch {@link ResultBatch}
+     * @return array of {@link Binding}s, one per row, with {@code null} for a row that produces no binding
+     */
+    public Binding[] makeBindings(ResultBatch batch) {
+        int size = batch.size();
+        Binding[] res = new Binding[size];
+        boolean[] skip = new boolean[size];
+        if (condition != null) {
+            for (int i = 0; i < size; i++) {
+                String value = batch.get(i, condition);
+                skip[i] = value == null || "false".equals(value) || "0".equals(value) || "".equals(value);
+            }
+        }
+        Node[][] nodes = new Node[makers.length][];
+        for (int v = 0; v < makers.length; v++) {
+            nodes[v] = makeNodes(makers[v], batch, skip);
+        }
+        rows:
+        for (int i = 0; i < size; i++) {
+            if (skip[i]) continue;
+            Node[] row = new Node[makers.length];
+            for (int v = 0; v < makers.length; v++) {
+                Node node = nodes[v][i];
+                if (node == null) {
+                    continue rows;
+                }
+                row[v] = node;
+            }
+            res[i] = new ArrayBinding(vars, row);
+        }
+        return res;
+    }
+
+    /**
+     * Makes a column of nodes for the given batch.
+     *
+     * @param maker {@link NodeMaker}
+     * @param batch {@link ResultBatch}
+     * @param skip  array of flags to mark the rows that need no node
+     * @return array of {@link Node}s, with {@code null}s for the skipped rows and for the rows that produce no node
+     */
+    private static Node[] makeNodes(NodeMaker maker, ResultBatch batch, boolean[] skip) {
+        int size = batch.size();
+        Node[] res = new Node[size];
+        List<String[]> columns = new ArrayList<>();
+        for (ProjectionSpec spec : maker.projectionSpecs()) {
+            String[] column = batch.column(spec);
+            if (column == null) {
+                // not a plain SELECT list entry: no deduplication is possible
+                for (int i = 0; i < size; i++) {
+                    if (!skip[i]) res[i] = maker.makeNode(batch.row(i));
+                }
+                return res;
+            }
+            columns.add(column);
+        }
+        Map<Object, Node> cache = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            if (skip[i]) continue;
+            Object key = key(columns, i);
+            Node node = cache.get(key);
+            if (node == null && !cache.containsKey(key)) {
+                cache.put(key, node = maker.makeNode(batch.row(i)));
+            }
+            res[i] = node;
+        }
+        return res;
+    }
+
+    private static Object key(List<String[]> columns, int row) {
+        switch (columns.size()) {
+            case 0:
+                return Collections.emptyList();
+            case 1:
+                return columns.get(0)[row];
+            default:
+                List<String> res = new ArrayList<>(columns.size());
+                for (String[] column : columns) {
+                    res.add(column[row]);
+                }
+                return res;
         }
-        return result;
     }
 
     public Set<Var> variableNames() {
@@ -86,6 +185,6 @@ public class BindingMaker {
     }
 
     public BindingMaker makeConditional(ProjectionSpec condition) {
-        return new BindingMaker(nodeMakers, condition);
+        return new BindingMaker(this, condition);
     }
 }
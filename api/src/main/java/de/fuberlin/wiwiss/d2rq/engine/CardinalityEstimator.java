@@ -0,0 +1,95 @@
+package de.fuberlin.wiwiss.d2rq.engine;
+
+import de.fuberlin.wiwiss.d2rq.algebra.*;
+import de.fuberlin.wiwiss.d2rq.dbschema.TableStatistics;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+
+import java.util.Collection;
+
+/**
+ * Estimates the number of rows of relations from the catalog statistics of their tables
+ * (see {@link ConnectedDB#tableStatistics(RelationName)}), using the classic textbook formulas:
+ * the size of an equi-join is the product of the table sizes divided by
+ * the larger number of distinct values of the join columns,
+ * and a condition on a column keeps one row per distinct value of that column.
+ * The estimates are rough, they are only meant to tell a 5-row lookup table from a 100M-row fact table.
+ * <p>
+ * If the database does not {@link ConnectedDB#useTableStatistics() use statistics},
+ * or the number of rows of some table is not known, the estimate is {@link #UNKNOWN}.
+ */
+@SuppressWarnings("WeakerAccess")
+public class CardinalityEstimator {
+    public static final double UNKNOWN = -1;
+
+    /**
+     * The fraction of rows that satisfy a condition on a column with unknown statistics.
+     */
+    static final double DEFAULT_SELECTIVITY = 0.1;
+
+    /**
+     * Estimates the number of rows of the relation.
+     *
+     * @param relation {@link Relation}
+     * @return double, not negative, or {@link #UNKNOWN}
+     */
+    public static double estimate(Relation relation) {
+        if (Relation.EMPTY.equals(relation)) {
+            return 0;
+        }
+        if (Relation.TRUE.equals(relation) || relation.isTrivial()) {
+            return 1;
+        }
+        ConnectedDB db = relation.database();
+        if (db == null || !db.useTableStatistics()) {
+            return UNKNOWN;
+        }
+        AliasMap aliases = relation.aliases();
+        double res = 1;
+        for (RelationName table : relation.tables()) {
+            long rows = db.tableStatistics(aliases.originalOf(table)).rowCount();
+            if (rows == TableStatistics.UNKNOWN) {
+                return UNKNOWN;
+            }
+            res *= rows;
+        }
+        for (Join join : relation.joinConditions()) {
+            Attribute a1 = join.attributes1().get(0);
+            Attribute a2 = join.equalAttribute(a1);
+            TableStatistics s1 = db.tableStatistics(aliases.originalOf(a1.relationName()));
+            TableStatistics s2 = db.tableStatistics(aliases.originalOf(a2.relationName()));
+            long distinct = Math.max(s1.distinctValues(a1.attributeName()), s2.distinctValues(a2.attributeName()));
+            if (distinct == TableStatistics.UNKNOWN) {
+                // assume a foreign key to the key of the smaller table
+                distinct = Math.min(s1.rowCount(), s2.rowCount());
+            }
+            res /= Math.max(1, distinct);
+        }
+        for (Attribute column : relation.condition().attributes()) {
+            long distinct = db.tableStatistics(aliases.originalOf(column.relationName()))
+                    .distinctValues(column.attributeName());
+            res = distinct > 0 ? res / distinct : res * DEFAULT_SELECTIVITY;
+        }
+        if (relation.limit() != Relation.NO_LIMIT) {
+            res = Math.min(res, relation.limit());
+        }
+        return res;
+    }
+
+    /**
+     * Estimates the total number of rows of a union of node relations.
+     *
+     * @param relations Collection of {@link NodeRelation}s
+     * @return double, not negative, or {@link #UNKNOWN} if any of the estimates is unknown
+     */
+    public static double estimate(Collection<NodeRelation> relations) {
+        double res = 0;
+        for (NodeRelation relation : relations) {
+            double rows = estimate(relation.baseRelation());
+            if (rows == UNKNOWN) {
+                return UNKNOWN;
+            }
+            res += rows;
+        }
+        return res;
+    }
+}
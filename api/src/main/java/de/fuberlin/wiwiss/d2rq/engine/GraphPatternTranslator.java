@@ -3,6 +3,8 @@ package de.fuberlin.wiwiss.d2rq.engine;
 import de.fuberlin.wiwiss.d2rq.algebra.NodeRelation;
 import de.fuberlin.wiwiss.d2rq.algebra.Relation;
 import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
+import de.fuberlin.wiwiss.d2rq.dbschema.DeclaredKeys;
+import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 
 import java.util.*;
@@ -14,34 +16,106 @@ import java.util.*;
  * The node relations produce the same bindings that one would
  * get from matching the BGP against the materialized triples
  * produced by the triple relations.
+ * <p>
+ * If the databases provide {@link de.fuberlin.wiwiss.d2rq.dbschema.TableStatistics table statistics},
+ * the triple patterns are joined in order of their {@link CardinalityEstimator estimated} number of rows,
+ * so the smallest relation drives the evaluation; otherwise in order of their number of candidate relations.
+ * <p>
+ * To keep planning time and memory predictable, the number of node relations can be limited:
+ * a BGP that would translate to more of them is split into several {@link Block}s,
+ * which are to be joined by the query engine (see {@link TransformOpBGP}).
  *
  * @author Richard Cyganiak (richard@cyganiak.de)
  */
 public class GraphPatternTranslator {
     private final List<Triple> triplePatterns;
     private final Collection<TripleRelation> tripleRelations;
-    private boolean useAllOptimizations;
+    private final boolean useAllOptimizations;
+    private final int maxUnionBranches;
+    private final DeclaredKeys declaredKeys;
 
     public GraphPatternTranslator(List<Triple> triplePatterns,
                                   Collection<TripleRelation> tripleRelations,
                                   boolean useAllOptimizations) {
+        this(triplePatterns, tripleRelations, useAllOptimizations, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param triplePatterns      List of {@link Triple} patterns of the BGP
+     * @param tripleRelations     Collection of {@link TripleRelation}s to match against
+     * @param useAllOptimizations boolean
+     * @param maxUnionBranches    positive int, the maximum number of {@link NodeRelation}s in one {@link Block}
+     */
+    public GraphPatternTranslator(List<Triple> triplePatterns,
+                                  Collection<TripleRelation> tripleRelations,
+                                  boolean useAllOptimizations,
+                                  int maxUnionBranches) {
+        this(triplePatterns, tripleRelations, useAllOptimizations, maxUnionBranches, new DeclaredKeys());
+    }
+
+    /**
+     * @param triplePatterns      List of {@link Triple} patterns of the BGP
+     * @param tripleRelations     Collection of {@link TripleRelation}s to match against
+     * @param useAllOptimizations boolean
+     * @param maxUnionBranches    positive int, the maximum number of {@link NodeRelation}s in one {@link Block}
+     * @param declaredKeys        {@link DeclaredKeys} of the mapping the relations are compiled from,
+     *                            to decide on self-join elimination
+     */
+    public GraphPatternTranslator(List<Triple> triplePatterns,
+                                  Collection<TripleRelation> tripleRelations,
+                                  boolean useAllOptimizations,
+                                  int maxUnionBranches,
+                                  DeclaredKeys declaredKeys) {
+        if (maxUnionBranches <= 0) {
+            throw new IllegalArgumentException("Max union branches must be positive: " + maxUnionBranches);
+        }
         this.triplePatterns = triplePatterns;
         this.tripleRelations = tripleRelations;
         this.useAllOptimizations = useAllOptimizations;
+        this.maxUnionBranches = maxUnionBranches;
+        this.declaredKeys = Objects.requireNonNull(declaredKeys);
     }
 
     /**
+     * Translates the whole BGP into a single union of node relations, ignoring the branch limit.
+     *
      * @return A list of {@link NodeRelation}s
      */
     public List<NodeRelation> translate() {
+        List<Block> res = translate(Integer.MAX_VALUE);
+        return res.isEmpty() ? Collections.emptyList() : res.get(0).tables();
+    }
+
+    /**
+     * Translates the BGP into one or more {@link Block}s, each having no more than
+     * {@code maxUnionBranches} node relations.
+     * The bindings of the BGP are the join of the bindings of all the blocks.
+     * The first block is the most selective one, so it should drive the evaluation.
+     *
+     * @return A list of {@link Block}s, empty if the BGP cannot match anything
+     */
+    public List<Block> translateBlocks() {
+        return translate(maxUnionBranches);
+    }
+
+    /**
+     * Joins the candidates of the triple patterns one pattern at a time,
+     * always picking the most selective remaining pattern that is connected to the current block,
+     * and dropping unsatisfiable combinations right away.
+     * If the next join step would produce more than {@code maxBranches} combinations,
+     * the current block is closed and a new one is started.
+     *
+     * @param maxBranches positive int
+     * @return A list of {@link Block}s
+     */
+    private List<Block> translate(int maxBranches) {
         if (triplePatterns.isEmpty()) {
-            return Collections.singletonList(NodeRelation.TRUE);
+            return Collections.singletonList(new Block(Collections.emptyList(),
+                    Collections.singletonList(NodeRelation.TRUE)));
         }
-        Iterator<Triple> it = triplePatterns.iterator();
-        List<CandidateList> candidateLists = new ArrayList<>(triplePatterns.size());
+        List<CandidateList> remaining = new ArrayList<>(triplePatterns.size());
         int index = 1;
-        while (it.hasNext()) {
-            Triple triplePattern = it.next();
+        for (Triple triplePattern : triplePatterns) {
             // use always index
             // index is now unique over one sparq-query-execution
             CandidateList candidates = new CandidateList(
@@ -49,41 +123,144 @@ public class GraphPatternTranslator {
             if (candidates.isEmpty()) {
                 return Collections.emptyList();
             }
-            candidateLists.add(candidates);
+            remaining.add(candidates);
             // inc value
             index++;
         }
-        Collections.sort(candidateLists);
-        List<TripleRelationJoiner> joiners = new ArrayList<>();
-        joiners.add(TripleRelationJoiner.create(this.useAllOptimizations));
-        for (CandidateList candidates : candidateLists) {
-            List<TripleRelationJoiner> nextJoiners = new ArrayList<>();
+        if (remaining.stream().anyMatch(c -> c.cost == CardinalityEstimator.UNKNOWN)) {
+            // order by the number of candidates only, costs are not comparable to candidate counts
+            remaining.forEach(c -> c.cost = CardinalityEstimator.UNKNOWN);
+        }
+        Collections.sort(remaining);
+        List<Block> results = new ArrayList<>();
+        while (!remaining.isEmpty()) {
+            List<Triple> patterns = new ArrayList<>();
+            Set<Node> variables = new HashSet<>();
+            List<TripleRelationJoiner> joiners =
+                    Collections.singletonList(TripleRelationJoiner.create(this.useAllOptimizations, declaredKeys));
+            while (!remaining.isEmpty()) {
+                CandidateList candidates = selectNext(remaining, variables);
+                List<TripleRelationJoiner> nextJoiners =
+                        joinAll(joiners, candidates, patterns.isEmpty() ? Integer.MAX_VALUE : maxBranches);
+                if (nextJoiners == null) {
+                    // too many branches, continue with a new block
+                    break;
+                }
+                if (nextJoiners.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                joiners = nextJoiners;
+                remaining.remove(candidates);
+                patterns.add(candidates.triplePattern());
+                variables.addAll(candidates.variables());
+            }
+            List<NodeRelation> tables = new ArrayList<>(joiners.size());
             for (TripleRelationJoiner joiner : joiners) {
-                nextJoiners.addAll(joiner.joinAll(candidates.triplePattern(), candidates.all()));
+                NodeRelation nodeRelation = joiner.toNodeRelation();
+                if (!nodeRelation.baseRelation().equals(Relation.EMPTY) || !useAllOptimizations)
+                    tables.add(nodeRelation);
+            }
+            if (tables.isEmpty()) {
+                return Collections.emptyList();
+            }
+            results.add(new Block(patterns, tables));
+        }
+        return results;
+    }
+
+    /**
+     * Chooses the next triple pattern to join:
+     * the most selective one among those that share a variable with the already joined patterns,
+     * or the most selective one at all, if there is no such pattern.
+     * Patterns that are not connected would only produce a cross product.
+     *
+     * @param remaining sorted List of {@link CandidateList}s, not empty
+     * @param variables Set of variables of the already joined patterns
+     * @return {@link CandidateList}
+     */
+    private static CandidateList selectNext(List<CandidateList> remaining, Set<Node> variables) {
+        if (!variables.isEmpty()) {
+            for (CandidateList candidates : remaining) {
+                if (!Collections.disjoint(variables, candidates.variables())) {
+                    return candidates;
+                }
             }
-            joiners = nextJoiners;
         }
-        List<NodeRelation> results = new ArrayList<>(joiners.size());
+        return remaining.get(0);
+    }
+
+    /**
+     * Joins each joiner with each candidate of the triple pattern.
+     *
+     * @param joiners     List of {@link TripleRelationJoiner}s
+     * @param candidates  {@link CandidateList}
+     * @param maxBranches int, the maximum number of results
+     * @return List of {@link TripleRelationJoiner}s, or {@code null} if there are more than {@code maxBranches}
+     */
+    private static List<TripleRelationJoiner> joinAll(List<TripleRelationJoiner> joiners,
+                                                      CandidateList candidates,
+                                                      int maxBranches) {
+        List<TripleRelationJoiner> results = new ArrayList<>();
         for (TripleRelationJoiner joiner : joiners) {
-            NodeRelation nodeRelation = joiner.toNodeRelation();
-            if (!nodeRelation.baseRelation().equals(Relation.EMPTY) || !useAllOptimizations)
-                results.add(nodeRelation);
+            results.addAll(joiner.joinAll(candidates.triplePattern(), candidates.all()));
+            if (results.size() > maxBranches) {
+                return null;
+            }
         }
         return results;
     }
 
+    /**
+     * A part of the BGP: triple patterns and the union of node relations they translate to.
+     */
+    public static class Block {
+        private final List<Triple> patterns;
+        private final List<NodeRelation> tables;
+
+        Block(List<Triple> patterns, List<NodeRelation> tables) {
+            this.patterns = patterns;
+            this.tables = tables;
+        }
+
+        /**
+         * @return List of {@link Triple} patterns, in order of joining
+         */
+        public List<Triple> patterns() {
+            return patterns;
+        }
+
+        /**
+         * @return A list of {@link NodeRelation}s
+         */
+        public List<NodeRelation> tables() {
+            return tables;
+        }
+
+        @Override
+        public String toString() {
+            return "Block(" + patterns + ")[" + tables.size() + "]";
+        }
+    }
+
     private class CandidateList implements Comparable<CandidateList> {
         private final Triple triplePattern;
         private final List<NodeRelation> candidates;
+        private final Set<Node> variables = new HashSet<>();
+        private double cost;
 
         CandidateList(Triple triplePattern, boolean useIndex, int index) {
             this.triplePattern = triplePattern;
+            for (Node node : Arrays.asList(triplePattern.getSubject(), triplePattern.getPredicate(),
+                    triplePattern.getObject())) {
+                if (node.isVariable()) variables.add(node);
+            }
             List<NodeRelation> matches = findMatchingTripleRelations(triplePattern);
             if (useIndex) {
                 candidates = prefixTripleRelations(matches, index);
             } else {
                 candidates = matches;
             }
+            cost = CardinalityEstimator.estimate(candidates);
         }
 
         boolean isEmpty() {
@@ -98,9 +275,20 @@ public class GraphPatternTranslator {
             return candidates;
         }
 
+        Set<Node> variables() {
+            return variables;
+        }
+
+        /**
+         * Fewer estimated rows first, if the table statistics are known;
+         * then fewer candidates first; for the same number, the pattern with more bound nodes first.
+         */
         @Override
         public int compareTo(CandidateList other) {
-            return Integer.compare(candidates.size(), other.candidates.size());
+            int res = Double.compare(cost, other.cost);
+            if (res != 0) return res;
+            res = Integer.compare(candidates.size(), other.candidates.size());
+            return res != 0 ? res : Integer.compare(variables.size(), other.variables.size());
         }
 
         private List<NodeRelation> findMatchingTripleRelations(Triple triplePattern) {
@@ -9,7 +9,6 @@ import org.apache.jena.sparql.algebra.op.OpTable;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
-import org.apache.jena.sparql.engine.iterator.QueryIterRepeatApply;
 import org.apache.jena.sparql.serializer.SerializationContext;
 import org.apache.jena.sparql.util.NodeIsomorphismMap;
 
@@ -47,9 +46,9 @@ public class OpTableSQL extends OpExt {
 
     @Override
     public QueryIterator eval(QueryIterator input, final ExecutionContext execCxt) {
-        return new QueryIterRepeatApply(input, execCxt) {
+        return new QueryIterRepeatApplySQL(input, execCxt) {
             @Override
-            protected QueryIterator nextStage(Binding binding) {
+            protected QueryIterator createStage(Binding binding) {
                 return QueryIterTableSQL.create(table.extendWith(binding), execCxt);
             }
         };
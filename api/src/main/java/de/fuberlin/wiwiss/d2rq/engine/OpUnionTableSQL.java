@@ -10,8 +10,6 @@ import org.apache.jena.sparql.algebra.op.OpTable;
 import org.apache.jena.sparql.engine.ExecutionContext;
 import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.binding.Binding;
-import org.apache.jena.sparql.engine.iterator.QueryIterConcat;
-import org.apache.jena.sparql.engine.iterator.QueryIterRepeatApply;
 import org.apache.jena.sparql.serializer.SerializationContext;
 import org.apache.jena.sparql.sse.writers.WriterOp;
 import org.apache.jena.sparql.util.NodeIsomorphismMap;
@@ -63,18 +61,14 @@ public class OpUnionTableSQL extends OpExt {
 
     @Override
     public QueryIterator eval(QueryIterator input, final ExecutionContext execCxt) {
-        return new QueryIterRepeatApply(input, execCxt) {
+        return new QueryIterRepeatApplySQL(input, execCxt) {
             @Override
-            protected QueryIterator nextStage(Binding binding) {
-                QueryIterConcat resultIt = new QueryIterConcat(execCxt);
+            protected QueryIterator createStage(Binding binding) {
                 Collection<NodeRelation> tables = new ArrayList<>();
                 for (OpTableSQL tableOp : tableOps) {
                     tables.add(tableOp.table().extendWith(binding));
                 }
-                for (CompatibleRelationGroup group : CompatibleRelationGroup.groupNodeRelations(tables)) {
-                    resultIt.add(QueryIterTableSQL.create(group.baseRelation(), group.bindingMakers(), execCxt));
-                }
-                return resultIt;
+                return QueryIterUnionTableSQL.create(CompatibleRelationGroup.groupNodeRelations(tables), execCxt);
             }
         };
     }
@@ -2,6 +2,9 @@ package de.fuberlin.wiwiss.d2rq.engine;
 
 import de.fuberlin.wiwiss.d2rq.jena.GraphD2RQ;
 import de.fuberlin.wiwiss.d2rq.map.ConnectingMapping;
+import de.fuberlin.wiwiss.d2rq.sql.QueryDeadline;
+import de.fuberlin.wiwiss.d2rq.sql.QueryMetrics;
+import de.fuberlin.wiwiss.d2rq.sql.SlowQueryLog;
 import org.apache.jena.atlas.io.PrintUtils;
 import org.apache.jena.query.Query;
 import org.apache.jena.sparql.algebra.Op;
@@ -42,12 +45,18 @@ public class QueryEngineD2RQ extends QueryEngineMain {
         super(query, DatasetGraphFactory.wrap(graph), input, context);
         this.mapping = graph.getMapping();
         this.inputBinding = input;
+        // the engine is created when the execution starts, so the clock of a configured timeout starts here
+        QueryDeadline.init(this.context);
+        SlowQueryLog.setOrigin(this.context, query);
     }
 
     public QueryEngineD2RQ(GraphD2RQ graph, Op op, Binding input, Context context) {
         super(op, DatasetGraphFactory.wrap(graph), input, context);
         this.mapping = graph.getMapping();
         this.inputBinding = input;
+        // the engine is created when the execution starts, so the clock of a configured timeout starts here
+        QueryDeadline.init(this.context);
+        SlowQueryLog.setOrigin(this.context, op);
     }
 
     @Override
@@ -62,7 +71,14 @@ public class QueryEngineD2RQ extends QueryEngineMain {
         // TODO: Apply all or some of ARQ's standard transforms?
         // op = super.modifyOp(op);
 
-        return translate(op);
+        QueryMetrics metrics = QueryMetrics.get(this.context);
+        if (metrics == null) {
+            return translate(op);
+        }
+        long start = System.nanoTime();
+        op = translate(op);
+        metrics.recordTranslation(System.nanoTime() - start);
+        return op;
     }
 
     /**
@@ -0,0 +1,52 @@
+package de.fuberlin.wiwiss.d2rq.engine;
+
+import de.fuberlin.wiwiss.d2rq.sql.QueryDeadline;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIterRepeatApply;
+
+/**
+ * A {@link QueryIterRepeatApply} for nested-loop evaluation of SQL-backed operators.
+ * Before each new stage (i.e. before each new SQL statement) it makes sure
+ * that the iterator has not been cancelled and that the {@link QueryDeadline} of the query has not expired,
+ * so that a cancelled or timed-out query does not keep sending statements to the database.
+ *
+ * @see OpTableSQL
+ * @see OpUnionTableSQL
+ */
+public abstract class QueryIterRepeatApplySQL extends QueryIterRepeatApply {
+    private final QueryDeadline deadline;
+    private volatile boolean cancelled;
+
+    public QueryIterRepeatApplySQL(QueryIterator input, ExecutionContext execCxt) {
+        super(input, execCxt);
+        this.deadline = QueryDeadline.get(execCxt);
+    }
+
+    /**
+     * Creates the iterator of the next stage.
+     *
+     * @param binding {@link Binding} from the input
+     * @return {@link QueryIterator}
+     */
+    protected abstract QueryIterator createStage(Binding binding);
+
+    @Override
+    protected final QueryIterator nextStage(Binding binding) {
+        if (cancelled) {
+            throw new QueryCancelledException();
+        }
+        if (deadline != null) {
+            deadline.check();
+        }
+        return createStage(binding);
+    }
+
+    @Override
+    protected void requestSubCancel() {
+        cancelled = true;
+        super.requestSubCancel();
+    }
+}
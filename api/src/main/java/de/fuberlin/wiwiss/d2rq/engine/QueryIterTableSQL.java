@@ -2,6 +2,8 @@ package de.fuberlin.wiwiss.d2rq.engine;
 
 import de.fuberlin.wiwiss.d2rq.algebra.NodeRelation;
 import de.fuberlin.wiwiss.d2rq.algebra.Relation;
+import de.fuberlin.wiwiss.d2rq.sql.QueryMetrics;
+import de.fuberlin.wiwiss.d2rq.sql.ResultBatch;
 import de.fuberlin.wiwiss.d2rq.sql.ResultRow;
 import de.fuberlin.wiwiss.d2rq.sql.SQLIterator;
 import de.fuberlin.wiwiss.d2rq.sql.SelectStatementBuilder;
@@ -12,13 +14,13 @@ import org.apache.jena.sparql.engine.iterator.QueryIter;
 import org.apache.jena.sparql.engine.iterator.QueryIterNullIterator;
 import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper;
 import org.apache.jena.sparql.engine.iterator.QueryIterSingleton;
+import org.apache.jena.sparql.util.Context;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
 
 /**
  * A {@link QueryIterator} over the bindings produced by a {@link Relation}.
@@ -75,26 +77,57 @@ public class QueryIterTableSQL extends QueryIter {
                 Collections.singleton(BindingMaker.createFor(table)), execCxt);
     }
 
+    /**
+     * The size of the first batch of rows that is read from the database.
+     */
+    static final int MIN_BATCH_SIZE = 16;
+    /**
+     * The maximum number of rows that are read from the database and converted into bindings at once.
+     */
+    static final int MAX_BATCH_SIZE = 1024;
+
     private final SQLIterator wrapped;
+    private final QueryMetrics metrics;
     private final Collection<BindingMaker> bindingMakers;
-    private final LinkedList<Binding> queue = new LinkedList<>();
+    private final BindingBuffer queue = new BindingBuffer();
+    private int batchSize = MIN_BATCH_SIZE;
 
     private QueryIterTableSQL(Relation relation, Collection<BindingMaker> bindingMakers, ExecutionContext execCxt) {
         super(execCxt);
         this.bindingMakers = bindingMakers;
         SelectStatementBuilder builder = new SelectStatementBuilder(relation);
-        wrapped = new SQLIterator(
-                builder.getSQLStatement(), builder.getColumnSpecs(), relation.database());
+        Context context = execCxt == null ? null : execCxt.getContext();
+        this.metrics = QueryMetrics.get(context);
+        wrapped = new SQLIterator(builder.getSQLStatement(), builder.getColumnSpecs(), relation.database(), context);
     }
 
     @Override
     protected boolean hasNextBinding() {
         while (queue.isEmpty() && wrapped.hasNext()) {
-            enqueueBindings(wrapped.next());
+            ResultBatch batch = wrapped.nextBatch(batchSize);
+            batchSize = nextBatchSize(batchSize);
+            if (metrics == null) {
+                enqueueBindings(batch);
+                continue;
+            }
+            long start = System.nanoTime();
+            enqueueBindings(batch);
+            metrics.recordNodes(System.nanoTime() - start);
         }
         return !queue.isEmpty();
     }
 
+    /**
+     * Returns the size of the next batch: the batches grow from {@link #MIN_BATCH_SIZE} to {@link #MAX_BATCH_SIZE},
+     * so a query, that needs only a few first results, does not fetch and convert a lot of unnecessary rows.
+     *
+     * @param current int, the size of the current batch
+     * @return int
+     */
+    static int nextBatchSize(int current) {
+        return Math.min(current * 2, MAX_BATCH_SIZE);
+    }
+
     @Override
     protected Binding moveToNextBinding() {
         return queue.removeFirst();
@@ -114,15 +147,22 @@ public class QueryIterTableSQL extends QueryIter {
     }
 
     /**
-     * Create bindings from one database result row and put them onto the queue
-
-     * @param row {@link ResultRow}
+     * Create bindings from a batch of database result rows and put them onto the queue, row by row.
+     *
+     * @param batch {@link ResultBatch}
      */
-    private void enqueueBindings(ResultRow row) {
+    private void enqueueBindings(ResultBatch batch) {
+        Binding[][] bindings = new Binding[bindingMakers.size()][];
+        int i = 0;
         for (BindingMaker bindingMaker : bindingMakers) {
-            Binding binding = bindingMaker.makeBinding(row);
-            if (binding == null) continue;
-            queue.add(binding);
+            bindings[i++] = bindingMaker.makeBindings(batch);
+        }
+        for (int row = 0; row < batch.size(); row++) {
+            for (Binding[] column : bindings) {
+                Binding binding = column[row];
+                if (binding == null) continue;
+                queue.add(binding);
+            }
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package de.fuberlin.wiwiss.d2rq.engine;
+
+import de.fuberlin.wiwiss.d2rq.algebra.CompatibleRelationGroup;
+import de.fuberlin.wiwiss.d2rq.algebra.UnionRelationGroup;
+import de.fuberlin.wiwiss.d2rq.sql.QueryMetrics;
+import de.fuberlin.wiwiss.d2rq.sql.ResultBatch;
+import de.fuberlin.wiwiss.d2rq.sql.SQLIterator;
+import de.fuberlin.wiwiss.d2rq.sql.UnionStatementBuilder;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.iterator.QueryIter;
+import org.apache.jena.sparql.engine.iterator.QueryIterConcat;
+import org.apache.jena.sparql.util.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A {@link QueryIterator} over the bindings produced by a {@link UnionRelationGroup}.
+ * Works by running a single <code>UNION ALL</code> SQL query using a {@link SQLIterator},
+ * and dispatching each result row to the {@link BindingMaker}s of the branch that produced it.
+ *
+ * @see UnionStatementBuilder
+ */
+public class QueryIterUnionTableSQL extends QueryIter {
+    private final static Logger LOGGER = LoggerFactory.getLogger(QueryIterUnionTableSQL.class);
+
+    /**
+     * Creates a query iterator over the results of all the given groups,
+     * combining them into as few SQL statements as possible.
+     *
+     * @param groups  Collection of {@link CompatibleRelationGroup}s
+     * @param execCxt {@link ExecutionContext}
+     * @return {@link QueryIterConcat}
+     */
+    public static QueryIterConcat create(Collection<CompatibleRelationGroup> groups, ExecutionContext execCxt) {
+        QueryIterConcat result = new QueryIterConcat(execCxt);
+        for (UnionRelationGroup union : UnionRelationGroup.groupRelationGroups(groups)) {
+            result.add(create(union, execCxt));
+        }
+        return result;
+    }
+
+    /**
+     * Creates an instance, or a simpler QueryIterator if the group consists of a single relation.
+     *
+     * @param union   {@link UnionRelationGroup}
+     * @param execCxt {@link ExecutionContext}
+     * @return A query iterator over the contents of all the relations in the group
+     */
+    public static QueryIterator create(UnionRelationGroup union, ExecutionContext execCxt) {
+        if (union.isSingle()) {
+            return QueryIterTableSQL.create(union.relations().get(0), union.bindingMakers().get(0), execCxt);
+        }
+        return new QueryIterUnionTableSQL(union, execCxt);
+    }
+
+    private final SQLIterator wrapped;
+    private final QueryMetrics metrics;
+    private final List<Collection<BindingMaker>> bindingMakers;
+    private final BindingBuffer queue = new BindingBuffer();
+    private int batchSize = QueryIterTableSQL.MIN_BATCH_SIZE;
+
+    private QueryIterUnionTableSQL(UnionRelationGroup union, ExecutionContext execCxt) {
+        super(execCxt);
+        this.bindingMakers = new ArrayList<>(union.bindingMakers());
+        UnionStatementBuilder builder = new UnionStatementBuilder(union.relations());
+        Context context = execCxt == null ? null : execCxt.getContext();
+        this.metrics = QueryMetrics.get(context);
+        wrapped = new SQLIterator(builder.getSQLStatement(), builder.getColumnSpecs(),
+                union.relations().get(0).database(), context);
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        while (queue.isEmpty() && wrapped.hasNext()) {
+            ResultBatch batch = wrapped.nextBatch(batchSize);
+            batchSize = QueryIterTableSQL.nextBatchSize(batchSize);
+            if (metrics == null) {
+                enqueueBindings(batch);
+                continue;
+            }
+            long start = System.nanoTime();
+            enqueueBindings(batch);
+            metrics.recordNodes(System.nanoTime() - start);
+        }
+        return !queue.isEmpty();
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        return queue.removeFirst();
+    }
+
+    @Override
+    protected void closeIterator() {
+        if (LOGGER.isDebugEnabled())
+            LOGGER.debug("closeIterator() called ...");
+        wrapped.close();
+    }
+
+    @Override
+    protected void requestCancel() {
+        LOGGER.info("requestCancel() called ...");
+        wrapped.cancel();
+    }
+
+    /**
+     * Create bindings from a batch of database result rows using the binding makers of their branches
+     * and put them onto the queue, row by row.
+     * The rows of each branch are converted together, as a separate sub-batch.
+     *
+     * @param batch {@link ResultBatch}
+     */
+    private void enqueueBindings(ResultBatch batch) {
+        int size = batch.size();
+        int branches = bindingMakers.size();
+        int[] branch = new int[size];
+        int[] position = new int[size];
+        int[][] rows = new int[branches][];
+        int[] counts = new int[branches];
+        for (int i = 0; i < size; i++) {
+            int b = UnionStatementBuilder.branchOf(batch.row(i));
+            if (rows[b] == null) {
+                rows[b] = new int[size];
+            }
+            branch[i] = b;
+            position[i] = counts[b];
+            rows[b][counts[b]++] = i;
+        }
+        Binding[][][] bindings = new Binding[branches][][];
+        for (int b = 0; b < branches; b++) {
+            if (counts[b] == 0) continue;
+            ResultBatch part = counts[b] == size ? batch : batch.select(rows[b], counts[b]);
+            Collection<BindingMaker> makers = bindingMakers.get(b);
+            bindings[b] = new Binding[makers.size()][];
+            int m = 0;
+            for (BindingMaker bindingMaker : makers) {
+                bindings[b][m++] = bindingMaker.makeBindings(part);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            for (Binding[] column : bindings[branch[i]]) {
+                Binding binding = column[position[i]];
+                if (binding == null) continue;
+                queue.add(binding);
+            }
+        }
+    }
+}
@@ -4,17 +4,20 @@ import de.fuberlin.wiwiss.d2rq.algebra.NodeRelation;
 import de.fuberlin.wiwiss.d2rq.expr.Expression;
 import de.fuberlin.wiwiss.d2rq.map.ConnectingMapping;
 import de.fuberlin.wiwiss.d2rq.optimizer.expr.TransformExprToSQLApplyer;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.sparql.algebra.Op;
 import org.apache.jena.sparql.algebra.TransformCopy;
 import org.apache.jena.sparql.algebra.op.OpBGP;
 import org.apache.jena.sparql.algebra.op.OpFilter;
+import org.apache.jena.sparql.algebra.op.OpSequence;
+import org.apache.jena.sparql.core.Var;
 import org.apache.jena.sparql.expr.Expr;
 import org.apache.jena.sparql.expr.ExprList;
+import org.apache.jena.sparql.util.VarUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * Translates an OpBGP to an OpUnionTableSQL over a GraphD2RQ.
@@ -55,9 +58,13 @@ public class TransformOpBGP extends TransformCopy {
     }
 
     public Op createOpD2RQ(OpBGP opBGP, ExprList filters) {
-        List<NodeRelation> tables = new GraphPatternTranslator(
+        List<GraphPatternTranslator.Block> blocks = new GraphPatternTranslator(
                 opBGP.getPattern().getList(), mapping.compiledPropertyBridges(),
-                useAllOptimizations).translate();
+                useAllOptimizations, mapping.maxUnionBranches(), mapping.declaredKeys()).translateBlocks();
+        if (blocks.size() > 1) {
+            return createOpSequence(blocks, filters);
+        }
+        List<NodeRelation> tables = blocks.isEmpty() ? Collections.emptyList() : blocks.get(0).tables();
 
         if (useAllOptimizations) {
             if (LOGGER.isDebugEnabled()) {
@@ -80,6 +87,43 @@ public class TransformOpBGP extends TransformCopy {
         return op;
     }
 
+    /**
+     * Creates an {@link OpSequence} of the SQL unions of the given blocks,
+     * so that the bindings of each block are fed into the evaluation of the next one.
+     * Filters are only pushed into a block that binds all the variables they mention.
+     *
+     * @param blocks  List of {@link GraphPatternTranslator.Block}s, in order of evaluation
+     * @param filters {@link ExprList}, the converted filters are removed
+     * @return {@link Op}
+     */
+    private Op createOpSequence(List<GraphPatternTranslator.Block> blocks, ExprList filters) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("BGP is split into {} blocks: {}", blocks.size(), blocks);
+        }
+        OpSequence sequence = OpSequence.create();
+        for (GraphPatternTranslator.Block block : blocks) {
+            List<NodeRelation> tables = block.tables();
+            if (useAllOptimizations) {
+                Set<Var> variables = new HashSet<>();
+                for (Triple pattern : block.patterns()) {
+                    VarUtils.addVarsFromTriple(variables, pattern);
+                }
+                ExprList copy = new ExprList();
+                copy.addAll(filters);
+                for (Expr filter : copy) {
+                    if (!variables.containsAll(filter.getVarsMentioned())) continue;
+                    tables = applyFilter(tables, filter, filters);
+                }
+            }
+            sequence.add(OpUnionTableSQL.create(tables));
+        }
+        Op op = sequence;
+        if (!filters.isEmpty()) {
+            op = OpFilter.filterBy(filters, op);
+        }
+        return op;
+    }
+
     private List<NodeRelation> applyFilter(List<NodeRelation> nodeRelations, Expr filter, ExprList allFilters) {
         List<NodeRelation> result = new ArrayList<>();
         boolean convertable = true;
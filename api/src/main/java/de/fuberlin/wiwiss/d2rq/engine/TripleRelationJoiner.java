@@ -2,7 +2,7 @@ package de.fuberlin.wiwiss.d2rq.engine;
 
 import de.fuberlin.wiwiss.d2rq.algebra.*;
 import de.fuberlin.wiwiss.d2rq.algebra.AliasMap.Alias;
-import de.fuberlin.wiwiss.d2rq.dbschema.DatabaseSchemaInspector;
+import de.fuberlin.wiwiss.d2rq.dbschema.DeclaredKeys;
 import de.fuberlin.wiwiss.d2rq.expr.Conjunction;
 import de.fuberlin.wiwiss.d2rq.expr.Expression;
 import de.fuberlin.wiwiss.d2rq.nodes.NodeMaker;
@@ -14,27 +14,31 @@ import java.util.*;
 
 class TripleRelationJoiner {
 
-    public static TripleRelationJoiner create(boolean allOptimizations) {
+    public static TripleRelationJoiner create(boolean allOptimizations, DeclaredKeys declaredKeys) {
         return new TripleRelationJoiner(
                 new VariableConstraints(),
                 Collections.emptyList(),
                 Collections.emptyList(),
-                allOptimizations);
+                allOptimizations,
+                declaredKeys);
     }
 
     private final VariableConstraints nodeSets;
     private final List<Triple> joinedTriplePatterns;
     private final List<NodeRelation> joinedTripleRelations;
     private final boolean useAllOptimizations;
+    private final DeclaredKeys declaredKeys;
 
     private TripleRelationJoiner(VariableConstraints nodeSets,
                                  List<Triple> patterns,
                                  List<NodeRelation> relations,
-                                 boolean useAllOptimizations) {
+                                 boolean useAllOptimizations,
+                                 DeclaredKeys declaredKeys) {
         this.nodeSets = nodeSets;
         this.joinedTriplePatterns = patterns;
         this.joinedTripleRelations = relations;
         this.useAllOptimizations = useAllOptimizations;
+        this.declaredKeys = declaredKeys;
     }
 
     public List<TripleRelationJoiner> joinAll(Triple pattern, List<NodeRelation> candidates) {
@@ -48,26 +52,8 @@ class TripleRelationJoiner {
         return results;
     }
 
-    private static boolean isUnique(ConnectedDB database, RelationName originalName, Set<String> attributeNames) {
-        Map<String, List<String>> uniqueKeys = database.getUniqueKeyColumns(originalName);
-        if (uniqueKeys != null) {
-            for (List<String> indexColumns : uniqueKeys.values()) {
-                if (attributeNames.containsAll(indexColumns)) {
-                    return true;
-                }
-            }
-        }
-        DatabaseSchemaInspector schemaInspector = database.schemaInspector();
-        if (schemaInspector == null) return false;
-        List<Attribute> primaryKeys = schemaInspector.primaryKeyColumns(originalName);
-        if (primaryKeys != null) {
-            for (Attribute attr : primaryKeys) {
-                if (!attributeNames.contains(attr.attributeName()))
-                    return false;
-            }
-            return true;
-        }
-        return false;
+    private boolean isUnique(ConnectedDB database, RelationName originalName, Set<String> attributeNames) {
+        return declaredKeys.isUnique(database, originalName, attributeNames);
     }
 
     private static class AttributeSet {
@@ -252,7 +238,7 @@ class TripleRelationJoiner {
         if (!nodeSets.satisfiable()) {
             return null;
         }
-        return new TripleRelationJoiner(nodeSets, newPatterns, newRelations, useAllOptimizations);
+        return new TripleRelationJoiner(nodeSets, newPatterns, newRelations, useAllOptimizations, declaredKeys);
     }
 
     public NodeRelation toNodeRelation() {
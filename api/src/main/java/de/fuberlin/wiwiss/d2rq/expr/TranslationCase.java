@@ -0,0 +1,128 @@
+package de.fuberlin.wiwiss.d2rq.expr;
+
+import de.fuberlin.wiwiss.d2rq.algebra.AliasMap;
+import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.algebra.ColumnRenamer;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+import de.fuberlin.wiwiss.d2rq.sql.types.DataType;
+import de.fuberlin.wiwiss.d2rq.sql.types.DataType.GenericType;
+import de.fuberlin.wiwiss.d2rq.values.TableTranslator;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A CASE statement that translates the values of a column through a static translation table,
+ * i.e. {@code CASE column WHEN 'db1' THEN 'rdf1' WHEN 'db2' THEN 'rdf2' END}.
+ * Values that are not in the table become {@code NULL}, just like {@code null} is returned
+ * by {@link TableTranslator#toRDFValue(String)}.
+ * <p>
+ * A CASE expression is used instead of a derived table ({@code VALUES} or {@code UNION ALL})
+ * since it is supported by all vendors and needs no extra entry in the FROM clause.
+ * Since the whole table is pasted into every statement, a table larger than {@link #MAX_INLINE_SIZE}
+ * is not compiled, it is applied on the Java side instead.
+ *
+ * @see TableTranslator
+ */
+@SuppressWarnings("WeakerAccess")
+public class TranslationCase extends Expression {
+    /**
+     * The maximum number of table entries to inline into SQL.
+     */
+    public static final int MAX_INLINE_SIZE = 256;
+
+    private final Attribute attribute;
+    private final TableTranslator translator;
+
+    /**
+     * @param attribute  {@link Attribute} with database values
+     * @param translator {@link TableTranslator}, not {@code null}
+     */
+    public TranslationCase(Attribute attribute, TableTranslator translator) {
+        this.attribute = attribute;
+        this.translator = translator;
+    }
+
+    public Attribute attribute() {
+        return attribute;
+    }
+
+    public TableTranslator translator() {
+        return translator;
+    }
+
+    /**
+     * Creates an expression that is TRUE iff this expression has the given RDF value.
+     * Unlike an equality with the whole CASE statement, the result compares the bare column,
+     * so the database can use an index.
+     *
+     * @param rdfValue String
+     * @return {@link Expression}
+     */
+    public Expression valueExpression(String rdfValue) {
+        String dbValue = translator.toDBValue(rdfValue);
+        if (dbValue == null) {
+            return Expression.FALSE;
+        }
+        return Equality.createAttributeValue(attribute, dbValue);
+    }
+
+    @Override
+    public Set<Attribute> attributes() {
+        return Collections.singleton(attribute);
+    }
+
+    @Override
+    public boolean isFalse() {
+        return false;
+    }
+
+    @Override
+    public boolean isTrue() {
+        return false;
+    }
+
+    @Override
+    public Expression renameAttributes(ColumnRenamer columnRenamer) {
+        return new TranslationCase(columnRenamer.applyTo(attribute), translator);
+    }
+
+    @Override
+    public String toSQL(ConnectedDB database, AliasMap aliases) {
+        Iterator<Map.Entry<String, String>> it = translator.translations().entrySet().iterator();
+        if (!it.hasNext()) {
+            return "NULL";
+        }
+        DataType dbType = database.columnType(aliases.originalOf(attribute));
+        DataType rdfType = GenericType.CHARACTER.dataTypeFor(database.vendor());
+        StringBuilder res = new StringBuilder("(CASE ").append(database.vendor().quoteAttribute(attribute));
+        while (it.hasNext()) {
+            Map.Entry<String, String> e = it.next();
+            res.append(" WHEN ").append(dbType.toSQLLiteral(e.getKey()))
+                    .append(" THEN ").append(rdfType.toSQLLiteral(e.getValue()));
+        }
+        return res.append(" END)").toString();
+    }
+
+    @Override
+    public String toString() {
+        return "TranslationCase(" + attribute + ", " + translator + ")";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof TranslationCase)) {
+            return false;
+        }
+        TranslationCase otherExpression = (TranslationCase) other;
+        return attribute.equals(otherExpression.attribute) && translator.equals(otherExpression.translator);
+    }
+
+    @Override
+    public int hashCode() {
+        return attribute.hashCode() ^ translator.hashCode();
+    }
+}
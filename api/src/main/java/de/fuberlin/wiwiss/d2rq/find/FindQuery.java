@@ -1,32 +1,66 @@
 package de.fuberlin.wiwiss.d2rq.find;
 
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
 import de.fuberlin.wiwiss.d2rq.algebra.CompatibleRelationGroup;
+import de.fuberlin.wiwiss.d2rq.algebra.ExpressionProjectionSpec;
 import de.fuberlin.wiwiss.d2rq.algebra.JoinOptimizer;
+import de.fuberlin.wiwiss.d2rq.algebra.MutableRelation;
+import de.fuberlin.wiwiss.d2rq.algebra.NodeRelation;
+import de.fuberlin.wiwiss.d2rq.algebra.ProjectionSpec;
 import de.fuberlin.wiwiss.d2rq.algebra.Relation;
 import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
 import de.fuberlin.wiwiss.d2rq.engine.QueryIterTableSQL;
+import de.fuberlin.wiwiss.d2rq.engine.QueryIterUnionTableSQL;
+import de.fuberlin.wiwiss.d2rq.expr.Conjunction;
+import de.fuberlin.wiwiss.d2rq.expr.Expression;
+import de.fuberlin.wiwiss.d2rq.expr.NotNull;
+import de.fuberlin.wiwiss.d2rq.expr.SQLExpression;
+import de.fuberlin.wiwiss.d2rq.expr.TranslationCase;
 import de.fuberlin.wiwiss.d2rq.find.URIMakerRule.URIMakerRuleChecker;
+import de.fuberlin.wiwiss.d2rq.nodes.NodeSetFilter;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+import de.fuberlin.wiwiss.d2rq.sql.SQLIterator;
+import de.fuberlin.wiwiss.d2rq.sql.SelectStatementBuilder;
+import de.fuberlin.wiwiss.d2rq.sql.SlowQueryLog;
+import de.fuberlin.wiwiss.d2rq.values.BlankNodeID;
+import de.fuberlin.wiwiss.d2rq.values.Pattern;
+import de.fuberlin.wiwiss.d2rq.values.Translator;
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
 import org.apache.jena.sparql.engine.iterator.QueryIter;
-import org.apache.jena.sparql.engine.iterator.QueryIterConcat;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 
 /**
  * A find query on a collection of {@link TripleRelation}s. Results are
  * delivered as a {@link QueryIter} over three-variable s/p/o bindings.
  * Will combine queries on multiple
- * relations into one SQL statement where possible.
+ * relations into one SQL statement where possible,
+ * either as a single SELECT or as a <code>UNION ALL</code> of several SELECTs.
  * An option for limiting the number of triples returned from each
  * {@link TripleRelation} is available.
+ * <p>
+ * The query can be also answered without fetching the triples:
+ * {@link #count()} pushes a <code>COUNT(*)</code> down to the database for each relation,
+ * and {@link #exists()} fetches at most one row per relation.
  *
  * @author Richard Cyganiak (richard@cyganiak.de)
  */
 public class FindQuery {
+    private static final ProjectionSpec COUNT = new ExpressionProjectionSpec(SQLExpression.create("COUNT(*)"));
+
     private final Triple triplePattern;
     private final Collection<TripleRelation> tripleRelations;
     private final int limitPerRelation;
@@ -75,14 +109,215 @@ public class FindQuery {
     }
 
     public QueryIter iterator() {
-        QueryIterConcat qIter = new QueryIterConcat(context);
-        for (CompatibleRelationGroup group :
-                CompatibleRelationGroup.groupNodeRelations(selectedTripleRelations())) {
-            if (!group.baseRelation().equals(Relation.EMPTY) && group.baseRelation().limit() != 0) {
-                qIter.add(QueryIterTableSQL.create(
-                        group.baseRelation(), group.bindingMakers(), context));
+        return QueryIterUnionTableSQL.create(
+                CompatibleRelationGroup.groupNodeRelations(selectedTripleRelations()),
+                SlowQueryLog.withOrigin(context, triplePattern));
+    }
+
+    /**
+     * Counts the triples matching the pattern.
+     * Each relation is counted by a separate <code>SELECT COUNT(*)</code> statement,
+     * with the same DISTINCT, NOT NULL and LIMIT conditions as the statement that would fetch the triples.
+     * A relation whose node makers can reject a database value (i.e. Java-side translators and validated datatypes,
+     * like {@code xsd:date}) can't be counted by the database, its rows are fetched and checked one by one.
+     * A translation table that is done in SQL is counted by the database with an extra {@code IS NOT NULL} condition.
+     * As with {@link #iterator()}, a triple that is produced by several relations is counted several times.
+     *
+     * @return long, the number of triples
+     * @throws D2RQException in case of database error
+     */
+    public long count() throws D2RQException {
+        long res = 0;
+        for (TripleRelation relation : selectedTripleRelations()) {
+            res += count(relation);
+        }
+        return res;
+    }
+
+    /**
+     * Answers {@code true} if there is at least one triple matching the pattern.
+     * The relations are probed one by one with a <code>LIMIT 1</code> query, until the first match is found.
+     *
+     * @return boolean
+     * @throws D2RQException in case of database error
+     */
+    public boolean exists() throws D2RQException {
+        for (TripleRelation relation : selectedTripleRelations()) {
+            if (exists(relation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long count(TripleRelation relation) {
+        Relation base = relation.baseRelation();
+        if (isEmpty(base)) {
+            return 0;
+        }
+        ExecutionContext context = SlowQueryLog.withOrigin(this.context, triplePattern);
+        Expression check = RowCheck.condition(relation);
+        if (base.isTrivial() || check == null) {
+            QueryIterator it = QueryIterTableSQL.create(relation, context);
+            try {
+                long res = 0;
+                while (it.hasNext()) {
+                    it.next();
+                    res++;
+                }
+                return res;
+            } finally {
+                it.close();
+            }
+        }
+        Relation counted = new MutableRelation(base).select(check);
+        if (isEmpty(counted)) {
+            return 0;
+        }
+        return selectCount(counted.database(), new SelectStatementBuilder(counted).getSQLCountStatement(), context);
+    }
+
+    private boolean exists(TripleRelation relation) {
+        Relation base = relation.baseRelation();
+        if (isEmpty(base)) {
+            return false;
+        }
+        ExecutionContext context = SlowQueryLog.withOrigin(this.context, triplePattern);
+        Expression check = RowCheck.condition(relation);
+        if (check != null) {
+            return probe(relation.select(check).limit(1), context);
+        }
+        // the first row is usually good, but a rejected row must not hide the next one
+        return probe(relation.limit(1), context) || probe(relation, context);
+    }
+
+    private static boolean probe(NodeRelation relation, ExecutionContext context) {
+        QueryIterator it = QueryIterTableSQL.create(relation, context);
+        try {
+            return it.hasNext();
+        } finally {
+            it.close();
+        }
+    }
+
+    private static boolean isEmpty(Relation relation) {
+        return Relation.EMPTY.equals(relation) || relation.condition().isFalse();
+    }
+
+    /**
+     * Runs a statement with a single numeric column through the {@link SQLIterator},
+     * so that it is subject to the deadline, metrics, slow query log and replica routing of the query.
+     */
+    private static long selectCount(ConnectedDB db, String sql, ExecutionContext context) {
+        SQLIterator it = new SQLIterator(sql, Collections.singletonList(COUNT), db,
+                context == null ? null : context.getContext());
+        try {
+            String res = it.hasNext() ? it.next().get(COUNT) : null;
+            return res == null ? 0 : Long.parseLong(res.trim());
+        } catch (NumberFormatException ex) {
+            throw new D2RQException(ex.getMessage() + ": " + sql, ex, D2RQException.D2RQ_SQLEXCEPTION);
+        } finally {
+            it.close();
+        }
+    }
+
+    /**
+     * Checks whether every row of a relation's SQL result becomes a triple.
+     * The NULLs are excluded by the SQL statement itself,
+     * but a translator or a validated datatype may still reject a value.
+     * A translation table that is compiled into SQL rejects a value by producing {@code NULL},
+     * so its rows can be filtered by the database too.
+     */
+    private static class RowCheck implements NodeSetFilter {
+        private static final Set<RDFDatatype> VALIDATED_DATATYPES = new HashSet<>(Arrays.asList(
+                XSDDatatype.XSDdate, XSDDatatype.XSDtime, XSDDatatype.XSDdateTime, XSDDatatype.XSDboolean));
+
+        private boolean validated;
+        private final Set<Translator> translators = new HashSet<>();
+        private final List<TranslationCase> compiled = new ArrayList<>();
+
+        /**
+         * Answers the SQL condition that selects exactly the rows that become triples.
+         *
+         * @param relation {@link TripleRelation}
+         * @return {@link Expression} ({@link Expression#TRUE} if all rows are good)
+         * or {@code null} if the rows must be checked on the Java side
+         */
+        static Expression condition(TripleRelation relation) {
+            RowCheck res = new RowCheck();
+            relation.nodeMaker(TripleRelation.SUBJECT).describeSelf(res);
+            relation.nodeMaker(TripleRelation.PREDICATE).describeSelf(res);
+            relation.nodeMaker(TripleRelation.OBJECT).describeSelf(res);
+            return res.condition();
+        }
+
+        private Expression condition() {
+            if (validated) {
+                return null;
+            }
+            Set<Translator> inSQL = new HashSet<>();
+            List<Expression> res = new ArrayList<>();
+            for (TranslationCase c : compiled) {
+                inSQL.add(c.translator());
+                res.add(NotNull.create(c));
+            }
+            for (Translator t : translators) {
+                if (!Translator.IDENTITY.equals(t) && !inSQL.contains(t)) {
+                    return null;
+                }
+            }
+            return Conjunction.create(res);
+        }
+
+        @Override
+        public void limitTo(Node node) {
+        }
+
+        @Override
+        public void limitToBlankNodes() {
+        }
+
+        @Override
+        public void limitToEmptySet() {
+        }
+
+        @Override
+        public void limitToLiterals(String language, RDFDatatype datatype) {
+            if (datatype != null && VALIDATED_DATATYPES.contains(datatype)) {
+                validated = true;
             }
         }
-        return qIter;
+
+        @Override
+        public void limitToURIs() {
+        }
+
+        @Override
+        public void limitValues(String constant) {
+        }
+
+        @Override
+        public void limitValuesToAttribute(Attribute attribute) {
+        }
+
+        @Override
+        public void limitValuesToBlankNodeID(BlankNodeID id) {
+        }
+
+        @Override
+        public void limitValuesToPattern(Pattern pattern) {
+        }
+
+        @Override
+        public void limitValuesToExpression(Expression expression) {
+            if (expression instanceof TranslationCase) {
+                compiled.add((TranslationCase) expression);
+            }
+        }
+
+        @Override
+        public void setUsesTranslator(Translator translator) {
+            translators.add(translator);
+        }
     }
 }
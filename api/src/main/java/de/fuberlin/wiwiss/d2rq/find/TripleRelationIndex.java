@@ -0,0 +1,234 @@
+package de.fuberlin.wiwiss.d2rq.find;
+
+import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
+import de.fuberlin.wiwiss.d2rq.expr.Expression;
+import de.fuberlin.wiwiss.d2rq.nodes.NodeMaker;
+import de.fuberlin.wiwiss.d2rq.nodes.NodeSetFilter;
+import de.fuberlin.wiwiss.d2rq.values.BlankNodeID;
+import de.fuberlin.wiwiss.d2rq.values.Pattern;
+import de.fuberlin.wiwiss.d2rq.values.Translator;
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.core.Var;
+
+import java.util.*;
+
+/**
+ * An index over a collection of {@link TripleRelation}s (usually the compiled property bridges of a mapping),
+ * that allows to find the relations which can produce a given URI in the subject, predicate or object position
+ * without selecting the URI against each of them.
+ * <p>
+ * For each position, the node makers are classified once:
+ * a fixed URI (e.g. {@code d2rq:property}) is indexed by the URI itself,
+ * a {@code d2rq:uriPattern} is indexed by its first literal part,
+ * a node maker that produces only blank nodes or literals is never a candidate,
+ * and anything else (e.g. {@code d2rq:uriColumn}, {@code d2rq:uriSqlExpression}, translated values)
+ * is always a candidate.
+ * Then a lookup requires only a few hash lookups, one for each distinct length of the indexed prefixes.
+ * The answer is a superset of the relations that can match, the final check is still done by
+ * {@link TripleRelation#selectTriple(Triple)}.
+ * <p>
+ * The index is immutable and thread-safe.
+ *
+ * @see FindQuery
+ */
+@SuppressWarnings("WeakerAccess")
+public class TripleRelationIndex {
+    private static final Var[] POSITIONS = {TripleRelation.SUBJECT, TripleRelation.PREDICATE, TripleRelation.OBJECT};
+
+    private final Collection<TripleRelation> relations;
+    private final TripleRelation[] array;
+    private final PositionIndex[] positions = new PositionIndex[POSITIONS.length];
+
+    /**
+     * @param relations {@code Collection} of {@link TripleRelation}s, not {@code null}
+     */
+    public TripleRelationIndex(Collection<TripleRelation> relations) {
+        this.relations = Objects.requireNonNull(relations);
+        this.array = relations.toArray(new TripleRelation[0]);
+        for (int i = 0; i < POSITIONS.length; i++) {
+            positions[i] = new PositionIndex(array, POSITIONS[i]);
+        }
+    }
+
+    /**
+     * Answers the indexed relations.
+     *
+     * @return {@code Collection} of {@link TripleRelation}s, the same that was passed into the constructor
+     */
+    public Collection<TripleRelation> relations() {
+        return relations;
+    }
+
+    /**
+     * Selects the relations that can produce triples matching the given pattern.
+     * Only concrete URIs in the pattern are taken into account,
+     * if there are no URIs, all relations are returned.
+     * The relative order of the relations is preserved.
+     *
+     * @param pattern {@link Triple}, not {@code null}
+     * @return {@code Collection} of {@link TripleRelation}s
+     */
+    public Collection<TripleRelation> select(Triple pattern) {
+        BitSet res = null;
+        res = select(res, 0, pattern.getSubject());
+        res = select(res, 1, pattern.getPredicate());
+        res = select(res, 2, pattern.getObject());
+        if (res == null) {
+            return relations;
+        }
+        List<TripleRelation> list = new ArrayList<>(res.cardinality());
+        for (int i = res.nextSetBit(0); i >= 0; i = res.nextSetBit(i + 1)) {
+            list.add(array[i]);
+        }
+        return list;
+    }
+
+    private BitSet select(BitSet res, int position, Node node) {
+        if (!node.isURI()) {
+            return res;
+        }
+        BitSet found = positions[position].find(node.getURI());
+        if (res == null) {
+            return found;
+        }
+        res.and(found);
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TripleRelationIndex(%d relations)", array.length);
+    }
+
+    /**
+     * An index over the node makers of a single triple position.
+     */
+    private static class PositionIndex {
+        private final int size;
+        private final BitSet any = new BitSet();
+        private final Map<String, BitSet> fixed = new HashMap<>();
+        private final Map<String, BitSet> prefixes = new HashMap<>();
+        private final int[] prefixLengths;
+
+        PositionIndex(TripleRelation[] relations, Var position) {
+            this.size = relations.length;
+            Map<NodeMaker, URIKind> kinds = new HashMap<>();
+            SortedSet<Integer> lengths = new TreeSet<>();
+            for (int i = 0; i < relations.length; i++) {
+                URIKind kind = kinds.computeIfAbsent(relations[i].nodeMaker(position), URIKind::new);
+                if (kind.isEmpty()) {
+                    continue;
+                }
+                if (kind.fixed != null) {
+                    fixed.computeIfAbsent(kind.fixed, x -> new BitSet()).set(i);
+                } else if (kind.hasPrefix()) {
+                    prefixes.computeIfAbsent(kind.prefix, x -> new BitSet()).set(i);
+                    lengths.add(kind.prefix.length());
+                } else {
+                    any.set(i);
+                }
+            }
+            this.prefixLengths = lengths.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        BitSet find(String uri) {
+            BitSet res = new BitSet(size);
+            res.or(any);
+            BitSet f = fixed.get(uri);
+            if (f != null) {
+                res.or(f);
+            }
+            for (int length : prefixLengths) {
+                if (length > uri.length()) {
+                    break;
+                }
+                BitSet p = prefixes.get(uri.substring(0, length));
+                if (p != null) {
+                    res.or(p);
+                }
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Describes which URIs a node maker can produce.
+     */
+    private static class URIKind implements NodeSetFilter {
+        private boolean empty;
+        private boolean uris;
+        private boolean translated;
+        private String fixed;
+        private String prefix;
+
+        URIKind(NodeMaker nodeMaker) {
+            nodeMaker.describeSelf(this);
+        }
+
+        boolean isEmpty() {
+            return empty;
+        }
+
+        boolean hasPrefix() {
+            return uris && !translated && prefix != null;
+        }
+
+        @Override
+        public void limitTo(Node node) {
+            if (node.isURI()) {
+                fixed = node.getURI();
+            } else {
+                empty = true;
+            }
+        }
+
+        @Override
+        public void limitToBlankNodes() {
+            empty = true;
+        }
+
+        @Override
+        public void limitToEmptySet() {
+            empty = true;
+        }
+
+        @Override
+        public void limitToLiterals(String language, RDFDatatype datatype) {
+            empty = true;
+        }
+
+        @Override
+        public void limitToURIs() {
+            uris = true;
+        }
+
+        @Override
+        public void limitValues(String constant) {
+        }
+
+        @Override
+        public void limitValuesToAttribute(Attribute attribute) {
+        }
+
+        @Override
+        public void limitValuesToBlankNodeID(BlankNodeID id) {
+        }
+
+        @Override
+        public void limitValuesToPattern(Pattern pattern) {
+            prefix = pattern.firstLiteralPart();
+        }
+
+        @Override
+        public void limitValuesToExpression(Expression expression) {
+        }
+
+        @Override
+        public void setUsesTranslator(Translator translator) {
+            translated = true;
+        }
+    }
+}
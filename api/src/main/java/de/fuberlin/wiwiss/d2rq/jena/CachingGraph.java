@@ -1,6 +1,7 @@
 package de.fuberlin.wiwiss.d2rq.jena;
 
 import com.github.owlcs.ontapi.jena.utils.Iter;
+import de.fuberlin.wiwiss.d2rq.sql.QueryMetrics;
 import de.fuberlin.wiwiss.d2rq.vocab.VocabularySummarizer;
 import org.apache.jena.atlas.lib.Cache;
 import org.apache.jena.atlas.lib.CacheFactory;
@@ -11,9 +12,15 @@ import org.apache.jena.graph.Triple;
 import org.apache.jena.graph.impl.GraphBase;
 import org.apache.jena.graph.impl.GraphWithPerform;
 import org.apache.jena.mem.GraphMem;
+import org.apache.jena.query.ARQ;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.core.BasicPattern;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.engine.QueryIterator;
+import org.apache.jena.sparql.engine.main.StageBuilder;
+import org.apache.jena.sparql.engine.main.StageGenerator;
 import org.apache.jena.util.iterator.ExtendedIterator;
 import org.apache.jena.util.iterator.NullIterator;
 
@@ -50,6 +57,13 @@ import java.util.stream.Collectors;
 @SuppressWarnings({"WeakerAccess"})
 public class CachingGraph extends GraphBase {
 
+    static {
+        StageGenerator other = StageBuilder.chooseStageGenerator(ARQ.getContext());
+        if (!(other instanceof StageGeneratorCaching)) {
+            StageBuilder.setGenerator(ARQ.getContext(), new StageGeneratorCaching(other));
+        }
+    }
+
     // value-marker, used to indicate that retrieved Triples Set is too large to be stored in-memory
     protected static final Bucket OUT_OF_SPACE = new EmptyBucketImpl() {
 
@@ -352,7 +366,21 @@ public class CachingGraph extends GraphBase {
 
     @Override
     public ExtendedIterator<Triple> graphBaseFind(Triple m) {
-        ExtendedIterator<Triple> res = findIterator(m);
+        return find(m, QueryMetrics.global());
+    }
+
+    /**
+     * Finds the triples matching the pattern and records the cache lookup into the given metrics.
+     * A SPARQL query calls this method with the per-query {@link QueryMetrics} of its context
+     * (see {@link #withMetrics(QueryMetrics)}), the plain {@link #find(Triple)} records into the global metrics.
+     *
+     * @param m       {@link Triple} pattern, not {@code null}
+     * @param metrics {@link QueryMetrics} or {@code null} if nothing is to be recorded
+     * @return {@link ExtendedIterator} of {@link Triple}s
+     */
+    public ExtendedIterator<Triple> find(Triple m, QueryMetrics metrics) {
+        checkOpen();
+        ExtendedIterator<Triple> res = findIterator(m, metrics);
         if (res != null) {
             return res;
         }
@@ -361,10 +389,11 @@ public class CachingGraph extends GraphBase {
         try {
             lock.lock();
             // double checking:
-            res = findIterator(m);
+            res = findIterator(m, metrics);
             if (res != null) {
                 return res;
             }
+            recordCacheLookup(metrics, false);
             // prepare data for caching:
             Bucket list = createTripleBucket(m);
             Iterator<Triple> it = base.find(m);
@@ -396,6 +425,22 @@ public class CachingGraph extends GraphBase {
         }
     }
 
+    /**
+     * The size is not cached, it is delegated to the base graph,
+     * which can compute it without fetching all triples (see {@link GraphD2RQ#size()}).
+     *
+     * @return int
+     */
+    @Override
+    protected int graphBaseSize() {
+        return base.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return base.isEmpty();
+    }
+
     @Override
     public boolean graphBaseContains(Triple m) {
         return containsCache.getOrFill(m, () -> {
@@ -417,27 +462,106 @@ public class CachingGraph extends GraphBase {
     /**
      * Finds a {@link ExtendedIterator} by the {@link Triple} pattern.
      *
-     * @param m {@link Triple} to search, not {@code null}
+     * @param m       {@link Triple} to search, not {@code null}
+     * @param metrics {@link QueryMetrics} to record the lookup, can be {@code null}
      * @return {@link ExtendedIterator} of {@link Triple}s or {@code null}
      */
-    protected ExtendedIterator<Triple> findIterator(Triple m) {
+    protected ExtendedIterator<Triple> findIterator(Triple m, QueryMetrics metrics) {
         if (tooLongChains.contains(m)) {
+            recordCacheLookup(metrics, false);
             return base.find(m);
         }
         Bucket res = findCache.get(m);
         if (OUT_OF_SPACE == res) {
+            recordCacheLookup(metrics, false);
             return base.find(m);
         } else if (res != null) {
+            recordCacheLookup(metrics, true);
             return res.iterator();
         }
 
         res = findBucket(m);
         if (res != null) {
+            recordCacheLookup(metrics, true);
             return res.iterator(m);
         }
         return null;
     }
 
+    /**
+     * Records the outcome of a find cache lookup.
+     *
+     * @param metrics {@link QueryMetrics}, can be {@code null}
+     * @param hit     boolean
+     */
+    protected static void recordCacheLookup(QueryMetrics metrics, boolean hit) {
+        if (metrics != null) {
+            metrics.recordCacheLookup(hit);
+        }
+    }
+
+    /**
+     * Returns a read-only view of this graph, that records the find cache lookups into the given metrics.
+     *
+     * @param metrics {@link QueryMetrics}, not {@code null}
+     * @return {@link Graph}
+     */
+    public Graph withMetrics(QueryMetrics metrics) {
+        Objects.requireNonNull(metrics);
+        CachingGraph graph = this;
+        return new GraphBase() {
+            @Override
+            protected ExtendedIterator<Triple> graphBaseFind(Triple m) {
+                return graph.find(m, metrics);
+            }
+
+            @Override
+            protected boolean graphBaseContains(Triple t) {
+                return graph.contains(t);
+            }
+
+            @Override
+            protected int graphBaseSize() {
+                return graph.size();
+            }
+
+            @Override
+            public PrefixMapping getPrefixMapping() {
+                return graph.getPrefixMapping();
+            }
+
+            @Override
+            public String toString() {
+                return graph.toString();
+            }
+        };
+    }
+
+    /**
+     * A {@link StageGenerator} that lets the triple patterns of a SPARQL query over a {@link CachingGraph}
+     * record into the per-query {@link QueryMetrics} of the query context, if there are any.
+     * Any other query is passed to the wrapped generator as is.
+     */
+    private static class StageGeneratorCaching implements StageGenerator {
+        private final StageGenerator other;
+
+        private StageGeneratorCaching(StageGenerator other) {
+            this.other = other;
+        }
+
+        @Override
+        public QueryIterator execute(BasicPattern pattern, QueryIterator input, ExecutionContext execCxt) {
+            Graph graph = execCxt.getActiveGraph();
+            Object metrics = execCxt.getContext().get(QueryMetrics.SYMBOL);
+            if (graph instanceof CachingGraph && metrics instanceof QueryMetrics) {
+                execCxt = new ExecutionContext(execCxt.getContext(),
+                        ((CachingGraph) graph).withMetrics((QueryMetrics) metrics),
+                        execCxt.getDataset(), execCxt.getExecutor());
+            }
+            return other.execute(pattern, input, execCxt);
+        }
+    }
+
     /**
      * Finds a {@link Bucket} by the {@link Triple} pattern.
      *
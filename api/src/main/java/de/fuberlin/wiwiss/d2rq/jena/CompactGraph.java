@@ -0,0 +1,320 @@
+package de.fuberlin.wiwiss.d2rq.jena;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.shared.impl.PrefixMappingImpl;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
+import org.apache.jena.util.iterator.NullIterator;
+
+import java.util.*;
+
+/**
+ * An in-memory read-only {@code Graph}, that is built once and is optimized for lookups and memory footprint.
+ * <p>
+ * Each distinct {@link Node} is stored only once and is referred by its integer number,
+ * so a triple takes three {@code int}s in the main {@code SPO} table, which is sorted and has no duplicates,
+ * and one {@code int} in each of the two additional indexes, {@code POS} and {@code OSP}.
+ * Any triple pattern is answered with a binary search in one of these three tables,
+ * the nodes are compared by {@link Node#equals(Object)}.
+ * <p>
+ * The graph is immutable and thread-safe,
+ * any attempt to modify it causes {@link org.apache.jena.shared.JenaException}.
+ * To create an instance use the {@link Builder}.
+ *
+ * @see MappingGraph#toMemory()
+ */
+@SuppressWarnings("WeakerAccess")
+public class CompactGraph extends GraphBase {
+    private static final int S = 0;
+    private static final int P = 1;
+    private static final int O = 2;
+
+    private final Node[] nodes;
+    private final Map<Node, Integer> ids;
+    // triples as (s, p, o) numbers, sorted
+    private final int[] spo;
+    // the row numbers of the spo table, sorted by (p, o, s) and (o, s, p)
+    private final int[] pos;
+    private final int[] osp;
+
+    private CompactGraph(Node[] nodes, Map<Node, Integer> ids, int[] spo) {
+        this.nodes = nodes;
+        this.ids = ids;
+        this.spo = spo;
+        this.pos = index(spo, P, O, S);
+        this.osp = index(spo, O, S, P);
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return {@link Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Makes a compact copy of the given graph.
+     *
+     * @param g {@link Graph}, not {@code null}
+     * @return {@link CompactGraph}
+     */
+    public static CompactGraph copyOf(Graph g) {
+        Builder res = builder();
+        g.find().forEachRemaining(res::add);
+        res.getPrefixMapping().setNsPrefixes(g.getPrefixMapping());
+        return res.build();
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple pattern) {
+        int s = id(pattern.getSubject());
+        int p = id(pattern.getPredicate());
+        int o = id(pattern.getObject());
+        if (s == -1 || p == -1 || o == -1) {
+            return NullIterator.instance();
+        }
+        if (s >= 0 && (p >= 0 || o < 0)) {
+            return p >= 0 ? lookup(null, S, s, P, p, O, o) : lookup(null, S, s, -1, -1, -1, -1);
+        }
+        if (s >= 0) {
+            return lookup(osp, O, o, S, s, -1, -1);
+        }
+        if (p >= 0) {
+            return lookup(pos, P, p, O, o, -1, -1);
+        }
+        if (o >= 0) {
+            return lookup(osp, O, o, -1, -1, -1, -1);
+        }
+        return rows(null, 0, size());
+    }
+
+    /**
+     * Answers the number of the given node, {@code -1} if there is no such node,
+     * or {@code -2} if it is not concrete.
+     *
+     * @param node {@link Node}
+     * @return int
+     */
+    private int id(Node node) {
+        if (node == null || !node.isConcrete()) {
+            return -2;
+        }
+        Integer res = ids.get(node);
+        return res == null ? -1 : res;
+    }
+
+    /**
+     * Finds the rows, that have the given node numbers at the given positions.
+     * The positions must form a prefix of the key of the index,
+     * a negative value means the end of the prefix.
+     */
+    private ExtendedIterator<Triple> lookup(int[] index, int i1, int v1, int i2, int v2, int i3, int v3) {
+        int from = 0;
+        int to = size();
+        int[] positions = {i1, i2, i3};
+        int[] values = {v1, v2, v3};
+        for (int k = 0; k < 3 && values[k] >= 0; k++) {
+            int position = positions[k];
+            int value = values[k];
+            from = bound(index, position, value, from, to, false);
+            to = bound(index, position, value, from, to, true);
+            if (from == to) {
+                return NullIterator.instance();
+            }
+        }
+        return rows(index, from, to);
+    }
+
+    /**
+     * Answers the first index in the range {@code [from, to)},
+     * whose value at the given position is not less (or greater if {@code upper}) than the given one.
+     * Within the range all preceding components of the key are equal, so the values are sorted.
+     */
+    private int bound(int[] index, int position, int value, int from, int to, boolean upper) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            int v = spo[row(index, mid) * 3 + position];
+            if (v < value || upper && v == value) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    private static int row(int[] index, int i) {
+        return index == null ? i : index[i];
+    }
+
+    private ExtendedIterator<Triple> rows(int[] index, int from, int to) {
+        return new NiceIterator<Triple>() {
+            private int next = from;
+
+            @Override
+            public boolean hasNext() {
+                return next < to;
+            }
+
+            @Override
+            public Triple next() {
+                if (next >= to) {
+                    throw new NoSuchElementException();
+                }
+                int i = row(index, next++) * 3;
+                return Triple.create(nodes[spo[i]], nodes[spo[i + 1]], nodes[spo[i + 2]]);
+            }
+        };
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        return spo.length / 3;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return spo.length == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompactGraph(%d triples, %d nodes)", size(), nodes.length);
+    }
+
+    private static int[] index(int[] spo, int k1, int k2, int k3) {
+        int[] res = new int[spo.length / 3];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = i;
+        }
+        sort(res, (a, b) -> compare(spo, a, b, k1, k2, k3));
+        return res;
+    }
+
+    private static int compare(int[] spo, int a, int b, int k1, int k2, int k3) {
+        int res = Integer.compare(spo[a * 3 + k1], spo[b * 3 + k1]);
+        if (res != 0) return res;
+        res = Integer.compare(spo[a * 3 + k2], spo[b * 3 + k2]);
+        if (res != 0) return res;
+        return Integer.compare(spo[a * 3 + k3], spo[b * 3 + k3]);
+    }
+
+    /**
+     * Sorts the array of row numbers (a stable merge sort), without boxing.
+     */
+    private static void sort(int[] array, IntComparator comparator) {
+        int[] buffer = new int[array.length];
+        int[] src = array;
+        int[] dst = buffer;
+        for (int width = 1; width < array.length; width *= 2) {
+            for (int left = 0; left < array.length; left += 2 * width) {
+                int mid = Math.min(left + width, array.length);
+                int right = Math.min(left + 2 * width, array.length);
+                int i = left, j = mid, k = left;
+                while (i < mid && j < right) {
+                    dst[k++] = comparator.compare(src[i], src[j]) <= 0 ? src[i++] : src[j++];
+                }
+                while (i < mid) dst[k++] = src[i++];
+                while (j < right) dst[k++] = src[j++];
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        if (src != array) {
+            System.arraycopy(src, 0, array, 0, array.length);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntComparator {
+        int compare(int a, int b);
+    }
+
+    /**
+     * A builder to collect triples.
+     * Duplicates are allowed, they are eliminated by {@link #build()}.
+     * Not thread-safe.
+     */
+    public static class Builder {
+        private final List<Node> nodes = new ArrayList<>();
+        private final Map<Node, Integer> ids = new HashMap<>();
+        private final PrefixMapping prefixes = new PrefixMappingImpl();
+        private int[] triples = new int[3 * 1024];
+        private int size;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a triple.
+         *
+         * @param t {@link Triple}, concrete, not {@code null}
+         * @return this builder
+         * @throws IllegalArgumentException if the triple is not concrete
+         */
+        public Builder add(Triple t) {
+            if (!t.isConcrete()) {
+                throw new IllegalArgumentException("Not concrete triple: " + t);
+            }
+            if (size == triples.length) {
+                triples = Arrays.copyOf(triples, size * 2);
+            }
+            triples[size++] = intern(t.getSubject());
+            triples[size++] = intern(t.getPredicate());
+            triples[size++] = intern(t.getObject());
+            return this;
+        }
+
+        private int intern(Node node) {
+            Integer res = ids.get(node);
+            if (res == null) {
+                ids.put(node, res = nodes.size());
+                nodes.add(node);
+            }
+            return res;
+        }
+
+        /**
+         * Answers the prefixes to pass to the graph.
+         *
+         * @return {@link PrefixMapping}
+         */
+        public PrefixMapping getPrefixMapping() {
+            return prefixes;
+        }
+
+        /**
+         * Builds a new graph.
+         * The builder should not be used after this call.
+         *
+         * @return {@link CompactGraph}
+         */
+        public CompactGraph build() {
+            int[] all = Arrays.copyOf(triples, size);
+            triples = null;
+            int[] spo = new int[size];
+            int length = 0;
+            for (int row : index(all, S, P, O)) {
+                int i = row * 3;
+                if (length > 0 && spo[length - 3] == all[i]
+                        && spo[length - 2] == all[i + 1] && spo[length - 1] == all[i + 2]) {
+                    continue;
+                }
+                spo[length++] = all[i];
+                spo[length++] = all[i + 1];
+                spo[length++] = all[i + 2];
+            }
+            CompactGraph res = new CompactGraph(nodes.toArray(new Node[0]), ids,
+                    length == spo.length ? spo : Arrays.copyOf(spo, length));
+            res.getPrefixMapping().setNsPrefixes(prefixes);
+            return res;
+        }
+    }
+}
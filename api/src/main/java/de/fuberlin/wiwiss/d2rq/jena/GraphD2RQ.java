@@ -111,7 +111,8 @@ public class GraphD2RQ extends MappingGraph implements Graph {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Find pattern: {}", PrettyPrinter.toString(triplePattern, getPrefixMapping()));
         }
-        Collection<TripleRelation> relations = mapping.compiledPropertyBridges();
+        // only the bridges that can produce the URIs of the pattern:
+        Collection<TripleRelation> relations = mapping.compiledPropertyBridgesIndex().select(triplePattern);
         FindQuery query = new FindQuery(triplePattern, relations, null);
         ExtendedIterator<Triple> data = TripleQueryIter.create(query.iterator());
         if (schema != null) {
@@ -120,6 +121,48 @@ public class GraphD2RQ extends MappingGraph implements Graph {
         return data;
     }
 
+    /**
+     * Answers {@code true} if the graph contains a triple matching the given one,
+     * which is not necessarily concrete.
+     * Unlike {@link #find(Triple)}, the triples are not fetched:
+     * each candidate property bridge is probed with a query which returns at most one row.
+     *
+     * @param t {@link Triple}, not {@code null}
+     * @return boolean
+     */
+    @Override
+    protected boolean graphBaseContains(Triple t) {
+        checkOpen();
+        if (schema != null && schema.contains(t)) {
+            return true;
+        }
+        return new FindQuery(t, mapping.compiledPropertyBridgesIndex().select(t), null).exists();
+    }
+
+    /**
+     * Answers the number of triples, that is computed by the database:
+     * a <code>SELECT COUNT(*)</code> for each property bridge (see {@link FindQuery#count()}).
+     * Note that a triple, which is produced by several property bridges, is counted several times.
+     *
+     * @return int
+     */
+    @Override
+    protected int graphBaseSize() {
+        checkOpen();
+        long res = new FindQuery(Triple.ANY, mapping.compiledPropertyBridges(), null).count();
+        if (schema != null) {
+            res += schema.size();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, res);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        checkOpen();
+        return (schema == null || schema.isEmpty())
+                && !new FindQuery(Triple.ANY, mapping.compiledPropertyBridges(), null).exists();
+    }
+
     @Override
     protected void checkOpen() {
         mapping.connect();
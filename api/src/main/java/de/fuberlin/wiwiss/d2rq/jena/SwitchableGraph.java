@@ -0,0 +1,183 @@
+package de.fuberlin.wiwiss.d2rq.jena;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A read-only {@code Graph} that delegates to another graph, which can be replaced at any moment.
+ * The replacement is a single volatile write:
+ * an iterator, that is already opened, continues to read the old graph,
+ * while any next call goes to the new one.
+ * The operations in progress are counted for each underlying graph (an iterator is in progress until it is
+ * exhausted or closed), so that a replaced graph can be {@link #retire(Graph) retired} once it is drained.
+ * Any mutation is prohibited and an attempt to modify the graph will lead to {@link org.apache.jena.shared.JenaException}.
+ *
+ * @see de.fuberlin.wiwiss.d2rq.MappingWatcher
+ */
+@SuppressWarnings("WeakerAccess")
+public class SwitchableGraph extends GraphBase {
+    // the number of operations in progress, or RETIRED:
+    private static final int RETIRED = -1;
+
+    private volatile Slot current;
+    // the replaced graphs, that are not retired yet:
+    private final Map<Graph, Slot> replaced = new IdentityHashMap<>();
+
+    public SwitchableGraph(Graph base) {
+        this.current = new Slot(Objects.requireNonNull(base));
+    }
+
+    /**
+     * Returns the graph that answers queries at the moment.
+     *
+     * @return {@link Graph}, not {@code null}
+     */
+    public Graph get() {
+        return current.graph;
+    }
+
+    /**
+     * Replaces the underlying graph.
+     *
+     * @param base {@link Graph}, not {@code null}
+     * @return {@link Graph} the previous graph
+     */
+    public Graph set(Graph base) {
+        Objects.requireNonNull(base);
+        synchronized (this) {
+            Slot res = current;
+            current = new Slot(base);
+            replaced.put(res.graph, res);
+            return res.graph;
+        }
+    }
+
+    /**
+     * Retires a replaced graph, if it has no operations in progress.
+     * Once this method has answered {@code true}, the graph is never used again, so it can be closed.
+     *
+     * @param base {@link Graph}, that has been replaced by {@link #set(Graph)}
+     * @return {@code true} if the graph is not in use, {@code false} if it is still current or has running operations
+     */
+    public synchronized boolean retire(Graph base) {
+        if (current.graph == base) {
+            return false;
+        }
+        Slot res = replaced.get(base);
+        if (res == null) {
+            return true;
+        }
+        if (!res.active.compareAndSet(0, RETIRED)) {
+            return false;
+        }
+        replaced.remove(base);
+        return true;
+    }
+
+    /**
+     * Takes the current slot for an operation.
+     * A slot can be retired between reading the field and taking it, then the new current one is taken.
+     *
+     * @return {@link Slot}
+     */
+    private Slot acquire() {
+        while (true) {
+            Slot res = current;
+            int n = res.active.get();
+            if (n != RETIRED && res.active.compareAndSet(n, n + 1)) {
+                return res;
+            }
+        }
+    }
+
+    @Override
+    protected ExtendedIterator<Triple> graphBaseFind(Triple m) {
+        Slot slot = acquire();
+        ExtendedIterator<Triple> res;
+        try {
+            res = slot.graph.find(m);
+        } catch (RuntimeException e) {
+            slot.active.decrementAndGet();
+            throw e;
+        }
+        return new WrappedIterator<Triple>(res, true) {
+            private final AtomicBoolean released = new AtomicBoolean();
+
+            @Override
+            public boolean hasNext() {
+                if (super.hasNext()) {
+                    return true;
+                }
+                release();
+                return false;
+            }
+
+            @Override
+            public void close() {
+                try {
+                    super.close();
+                } finally {
+                    release();
+                }
+            }
+
+            private void release() {
+                if (released.compareAndSet(false, true)) {
+                    slot.active.decrementAndGet();
+                }
+            }
+        };
+    }
+
+    @Override
+    protected boolean graphBaseContains(Triple t) {
+        Slot slot = acquire();
+        try {
+            return slot.graph.contains(t);
+        } finally {
+            slot.active.decrementAndGet();
+        }
+    }
+
+    @Override
+    protected int graphBaseSize() {
+        Slot slot = acquire();
+        try {
+            return slot.graph.size();
+        } finally {
+            slot.active.decrementAndGet();
+        }
+    }
+
+    @Override
+    public PrefixMapping getPrefixMapping() {
+        return current.graph.getPrefixMapping();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SwitchableGraph(%s)", current.graph);
+    }
+
+    /**
+     * An underlying graph with the number of its operations in progress.
+     */
+    private static class Slot {
+        private final Graph graph;
+        private final AtomicInteger active = new AtomicInteger();
+
+        private Slot(Graph graph) {
+            this.graph = graph;
+        }
+    }
+}
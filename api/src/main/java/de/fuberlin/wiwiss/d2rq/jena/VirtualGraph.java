@@ -11,7 +11,7 @@ import org.apache.jena.util.iterator.ClosableIterator;
 import org.apache.jena.util.iterator.ExtendedIterator;
 import org.apache.jena.util.iterator.NullIterator;
 
-import java.util.Objects;
+import java.util.*;
 import java.util.function.BiPredicate;
 
 /**
@@ -227,6 +227,9 @@ public abstract class VirtualGraph implements Graph {
     /**
      * A functional interface that is used to transform triples to another form.
      * <p>
+     * A rule may declare the {@link #predicates() predicates} of the triples it produces,
+     * this allows to skip it quickly when it is combined with other rules (see {@link #concat(DynamicTriples, DynamicTriples)}).
+     * <p>
      * Created by @ssz on 22.09.2018.
      */
     public interface DynamicTriples {
@@ -240,7 +243,7 @@ public abstract class VirtualGraph implements Graph {
             if (right == EMPTY) {
                 return left;
             }
-            return (g, t) -> left.find(g, t).andThen(right.find(g, t));
+            return new Union(left, right);
         }
 
         default boolean test(Triple m) {
@@ -253,8 +256,79 @@ public abstract class VirtualGraph implements Graph {
             return test(m) ? list(g, m) : NullIterator.instance();
         }
 
+        /**
+         * Answers all predicates, that the triples produced by this rule can have.
+         *
+         * @return {@code Set} of concrete {@link Node}s, or {@code null} if the predicates are not known in advance
+         */
+        default Set<Node> predicates() {
+            return null;
+        }
+
         default DynamicTriples andThen(DynamicTriples right) {
             return concat(this, right);
         }
     }
+
+    /**
+     * A composition of {@link DynamicTriples} rules, that are indexed by their {@link DynamicTriples#predicates()}.
+     * If the predicate of a triple pattern is concrete,
+     * then only the rules that can produce it and the rules with unknown predicates are invoked,
+     * in the same order as they have been added.
+     */
+    protected static class Union implements DynamicTriples {
+        private final DynamicTriples[] rules;
+        private final DynamicTriples[] any;
+        private final Map<Node, DynamicTriples[]> index;
+        private final Set<Node> predicates;
+
+        protected Union(DynamicTriples left, DynamicTriples right) {
+            List<DynamicTriples> all = new ArrayList<>();
+            add(all, left);
+            add(all, right);
+            this.rules = all.toArray(new DynamicTriples[0]);
+            Map<Node, List<DynamicTriples>> res = new HashMap<>();
+            List<DynamicTriples> any = new ArrayList<>();
+            for (DynamicTriples r : rules) {
+                Set<Node> predicates = r.predicates();
+                if (predicates == null) {
+                    any.add(r);
+                    // the rules with unknown predicates are applicable to any pattern
+                    res.values().forEach(list -> list.add(r));
+                    continue;
+                }
+                for (Node p : predicates) {
+                    res.computeIfAbsent(p, x -> new ArrayList<>(any)).add(r);
+                }
+            }
+            this.any = any.toArray(new DynamicTriples[0]);
+            this.index = new HashMap<>();
+            res.forEach((p, list) -> index.put(p, list.toArray(new DynamicTriples[0])));
+            this.predicates = any.isEmpty() ? Collections.unmodifiableSet(index.keySet()) : null;
+        }
+
+        private static void add(List<DynamicTriples> res, DynamicTriples r) {
+            if (r instanceof Union) {
+                res.addAll(Arrays.asList(((Union) r).rules));
+            } else {
+                res.add(r);
+            }
+        }
+
+        @Override
+        public ExtendedIterator<Triple> list(Graph g, Triple m) {
+            Node p = m.getPredicate();
+            DynamicTriples[] rules = p.isConcrete() ? index.getOrDefault(p, any) : this.rules;
+            ExtendedIterator<Triple> res = NullIterator.instance();
+            for (DynamicTriples r : rules) {
+                res = res.andThen(r.find(g, m));
+            }
+            return res;
+        }
+
+        @Override
+        public Set<Node> predicates() {
+            return predicates;
+        }
+    }
 }
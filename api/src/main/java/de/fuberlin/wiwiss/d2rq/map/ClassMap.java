@@ -51,6 +51,27 @@ public interface ClassMap extends MapObject,
      */
     boolean containsDuplicates();
 
+    /**
+     * Sets the {@code avc:watermarkColumn} literal,
+     * that is a column whose value grows with each insert or update of a row of this class map,
+     * e.g. a last-modified timestamp or an auto-increment key.
+     * The column is used by the incremental dump to select the rows that have been changed since the previous run.
+     *
+     * @param column String, a column in the form {@code table.column}, or {@code null} to remove
+     * @return this instance to allow cascading calls
+     * @see #getWatermarkColumn()
+     * @see de.fuberlin.wiwiss.d2rq.dump.IncrementalDump
+     */
+    ClassMap setWatermarkColumn(String column);
+
+    /**
+     * Answers the {@code avc:watermarkColumn} literal.
+     *
+     * @return String or {@code null} if there is no watermark
+     * @see #setWatermarkColumn(String)
+     */
+    String getWatermarkColumn();
+
     /**
      * Produces a blank node as {@code d2rq:constantValue}.
      *
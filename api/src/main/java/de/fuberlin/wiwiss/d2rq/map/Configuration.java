@@ -153,4 +153,79 @@ public interface Configuration extends MapObject {
      */
     long getCacheLengthLimit();
 
+    /**
+     * Sets the maximum number of union branches a basic graph pattern may be translated to.
+     *
+     * @param branches a positive int
+     * @return this instance
+     * @see de.fuberlin.wiwiss.d2rq.vocab.AVC#maxUnionBranches
+     */
+    Configuration setMaxUnionBranches(int branches);
+
+    /**
+     * Gets the maximum number of union branches (i.e. SQL-backed relations)
+     * a basic graph pattern may be translated to,
+     * before it is split into parts that are joined by the query engine.
+     * <b>The default value is set to {@code 256}</b>
+     *
+     * @return int, either an encoded limit or the given by default
+     * @see de.fuberlin.wiwiss.d2rq.vocab.AVC#maxUnionBranches
+     */
+    int getMaxUnionBranches();
+
+    /**
+     * Sets the {@link de.fuberlin.wiwiss.d2rq.vocab.AVC#useTableStatistics avc:useTableStatistics} setting.
+     * Takes effect when the mapping connects to its databases.
+     *
+     * @param useTableStatistics boolean
+     * @return this instance
+     */
+    Configuration setUseTableStatistics(boolean useTableStatistics);
+
+    /**
+     * Answers whether to use the catalog statistics of the database tables to plan SQL queries.
+     * <b>The default value is {@code false}</b>
+     *
+     * @return boolean
+     * @see de.fuberlin.wiwiss.d2rq.vocab.AVC#useTableStatistics
+     */
+    boolean getUseTableStatistics();
+
+    /**
+     * Sets the max number of memoized results of each custom translator.
+     *
+     * @param size a positive int
+     * @return this instance
+     * @see de.fuberlin.wiwiss.d2rq.vocab.AVC#translatorCacheSize
+     */
+    Configuration setTranslatorCacheSize(int size);
+
+    /**
+     * Gets the max number of memoized results of each custom translator ({@code d2rq:javaClass}), in each direction.
+     * <b>The default value is set to {@code 10_000}</b>
+     *
+     * @return int, either an encoded limit or the given by default
+     * @see de.fuberlin.wiwiss.d2rq.vocab.AVC#translatorCacheSize
+     */
+    int getTranslatorCacheSize();
+
+    /**
+     * Sets the {@link de.fuberlin.wiwiss.d2rq.vocab.AVC#lazyCompilation avc:lazyCompilation} setting.
+     * Takes effect when the mapping is compiled.
+     *
+     * @param lazyCompilation boolean
+     * @return this instance
+     */
+    Configuration setLazyCompilation(boolean lazyCompilation);
+
+    /**
+     * Answers whether to compile and validate each property bridge on demand,
+     * the first time a query selects it, instead of all property bridges before the first query.
+     * <b>The default value is {@code false}</b>
+     *
+     * @return boolean
+     * @see de.fuberlin.wiwiss.d2rq.vocab.AVC#lazyCompilation
+     */
+    boolean getLazyCompilation();
+
 }
@@ -2,6 +2,8 @@ package de.fuberlin.wiwiss.d2rq.map;
 
 import de.fuberlin.wiwiss.d2rq.D2RQException;
 import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
+import de.fuberlin.wiwiss.d2rq.dbschema.DeclaredKeys;
+import de.fuberlin.wiwiss.d2rq.find.TripleRelationIndex;
 import org.apache.jena.graph.Graph;
 
 import java.util.Collection;
@@ -19,6 +21,26 @@ public interface ConnectingMapping {
      */
     Collection<TripleRelation> compiledPropertyBridges();
 
+    /**
+     * Gets an index over the {@link #compiledPropertyBridges() compiled property bridges},
+     * that allows to select the bridges which can produce a given URI.
+     *
+     * @return {@link TripleRelationIndex}
+     */
+    default TripleRelationIndex compiledPropertyBridgesIndex() {
+        return new TripleRelationIndex(compiledPropertyBridges());
+    }
+
+    /**
+     * Gets the table keys implied by the {@code d2rq:join}s of the {@link #compiledPropertyBridges() compiled bridges},
+     * that are used to eliminate self-joins together with the keys from the database catalog.
+     *
+     * @return {@link DeclaredKeys}
+     */
+    default DeclaredKeys declaredKeys() {
+        return new DeclaredKeys();
+    }
+
     /**
      * Connects all databases.
      * This is done automatically if needed.
@@ -40,4 +62,12 @@ public interface ConnectingMapping {
      */
     boolean withAllOptimizations();
 
+    /**
+     * Answers the maximum number of union branches a basic graph pattern may be translated to.
+     *
+     * @return positive int
+     * @see Configuration#getMaxUnionBranches()
+     */
+    int maxUnionBranches();
+
 }
@@ -173,6 +173,43 @@ public interface Database extends MapObject {
      */
     Properties getConnectionProperties();
 
+    /**
+     * Adds a JDBC URL of a read replica of the database ({@code avc:replicaJdbcDSN}).
+     * The SQL statements, that fetch the RDF data, are spread across the replicas,
+     * the primary {@code d2rq:jdbcDSN} is used if all of them are unavailable.
+     *
+     * @param uri String, not {@code null}
+     * @return this instance to allow cascading calls
+     * @see de.fuberlin.wiwiss.d2rq.vocab.AVC#replicaJdbcDSN
+     */
+    Database addReplicaJDBCDSN(String uri);
+
+    /**
+     * Lists all JDBC URLs of the read replicas.
+     *
+     * @return Stream of Strings
+     * @see #addReplicaJDBCDSN(String)
+     */
+    Stream<String> replicaJDBCDSNs();
+
+    /**
+     * Sets the policy to choose a read replica for a statement ({@code avc:replicaRouting}),
+     * either {@code "round-robin"} or {@code "least-outstanding"}.
+     *
+     * @param policy String or {@code null} to use the default {@code "round-robin"}
+     * @return this instance to allow cascading calls
+     * @see de.fuberlin.wiwiss.d2rq.vocab.AVC#replicaRouting
+     */
+    Database setReplicaRouting(String policy);
+
+    /**
+     * Gets the policy to choose a read replica.
+     *
+     * @return String or {@code null} if it is not specified
+     * @see #setReplicaRouting(String)
+     */
+    String getReplicaRouting();
+
     /**
      * Sets a column property as plain literal into the statement with the {@link Column#getPredicate()} predicate.
      *
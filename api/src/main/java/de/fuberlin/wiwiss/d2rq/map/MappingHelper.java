@@ -1,11 +1,19 @@
 package de.fuberlin.wiwiss.d2rq.map;
 
 import de.fuberlin.wiwiss.d2rq.download.DownloadContentQuery;
+import de.fuberlin.wiwiss.d2rq.dump.IncrementalDump;
+import de.fuberlin.wiwiss.d2rq.jena.CompactGraph;
 import de.fuberlin.wiwiss.d2rq.map.impl.DatabaseImpl;
 import de.fuberlin.wiwiss.d2rq.map.impl.DownloadMapImpl;
 import de.fuberlin.wiwiss.d2rq.map.impl.MappingImpl;
 import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
 
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+
+import java.util.Properties;
+import java.util.function.Consumer;
+
 /**
  * Various utility methods to work with {@link Mapping D2RQ Mapping Model} and with some its components.
  * Created by @ssz on 17.10.2018.
@@ -78,4 +86,48 @@ public class MappingHelper {
     public static DownloadContentQuery getDownloadContentQuery(DownloadMap downloadMap, String uri) {
         return new DownloadContentQuery((DownloadMapImpl) downloadMap, uri);
     }
+
+    /**
+     * Creates a helper to dump the triples of the rows that have been changed since the previous run.
+     *
+     * @param m          {@link Mapping}, not {@code null}
+     * @param watermarks {@link Properties} with the watermarks of the previous run, not {@code null}
+     * @return {@link IncrementalDump}
+     * @see ClassMap#setWatermarkColumn(String)
+     */
+    public static IncrementalDump getIncrementalDump(Mapping m, Properties watermarks) {
+        return new IncrementalDump((MappingImpl) m, watermarks);
+    }
+
+    /**
+     * Passes all data triples of the mapping to the given consumer, reading them in batched scans.
+     *
+     * @param m    {@link Mapping}, not {@code null}
+     * @param sink {@link Consumer} for {@link Triple}s, not {@code null}
+     * @see MappingImpl#fetchData(Consumer)
+     */
+    public static void fetchData(Mapping m, Consumer<? super Triple> sink) {
+        ((MappingImpl) m).fetchData(sink);
+    }
+
+    /**
+     * Reads the whole data of the mapping into a {@link CompactGraph compact in-memory graph}
+     * with the batched scans described in {@link MappingImpl#fetchData(Consumer)}.
+     * The result is a read-only snapshot, that contains no duplicates,
+     * it includes the schema only if {@link Configuration#getServeVocabulary()} is {@code true}.
+     *
+     * @param m {@link Mapping}, not {@code null}
+     * @return {@link CompactGraph}
+     * @see Mapping#getData()
+     */
+    public static CompactGraph prefetchData(Mapping m) {
+        CompactGraph.Builder res = CompactGraph.builder();
+        Graph schema = m.getSchema();
+        if (m.getConfiguration().getServeVocabulary()) {
+            schema.find().forEachRemaining(res::add);
+        }
+        fetchData(m, res::add);
+        res.getPrefixMapping().setNsPrefixes(schema.getPrefixMapping());
+        return res.build();
+    }
 }
@@ -6,6 +6,7 @@ import de.fuberlin.wiwiss.d2rq.algebra.Relation;
 import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
 import de.fuberlin.wiwiss.d2rq.map.*;
 import de.fuberlin.wiwiss.d2rq.pp.PrettyPrinter;
+import de.fuberlin.wiwiss.d2rq.vocab.AVC;
 import de.fuberlin.wiwiss.d2rq.vocab.D2RQ;
 import org.apache.jena.rdf.model.*;
 import org.apache.jena.util.iterator.ExtendedIterator;
@@ -165,6 +166,16 @@ public class ClassMapImpl extends ResourceMap implements ClassMap {
         return setBoolean(D2RQ.containsDuplicates, b);
     }
 
+    @Override
+    public ClassMapImpl setWatermarkColumn(String column) {
+        return setNullable(AVC.watermarkColumn, column);
+    }
+
+    @Override
+    public String getWatermarkColumn() {
+        return getString(AVC.watermarkColumn);
+    }
+
     @Override
     public void validate() throws D2RQException {
         Validator v = new Validator(this);
@@ -181,6 +192,11 @@ public class ClassMapImpl extends ResourceMap implements ClassMap {
             containsDuplicates.requireHasNoDuplicates(D2RQException.RESOURCEMAP_ILLEGAL_CONTAINSDUPLICATE)
                     .requireIsBooleanLiteral(D2RQException.RESOURCEMAP_ILLEGAL_CONTAINSDUPLICATE);
         }
+        Validator.ForProperty watermark = v.forProperty(AVC.watermarkColumn);
+        if (watermark.exists()) {
+            watermark.requireHasNoDuplicates(D2RQException.CLASSMAP_INVALID_WATERMARK)
+                    .requireIsStringLiteral(D2RQException.CLASSMAP_INVALID_WATERMARK);
+        }
         commonValidateURI();
         commonValidateSQLAdditions();
         commonValidateUnclassifiedAdditions();
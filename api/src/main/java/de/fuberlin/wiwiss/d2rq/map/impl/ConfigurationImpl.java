@@ -16,6 +16,8 @@ import java.util.stream.Stream;
  */
 @SuppressWarnings("WeakerAccess")
 public class ConfigurationImpl extends MapObjectImpl implements Configuration {
+    public static final int DEFAULT_MAX_UNION_BRANCHES = 256;
+    public static final int DEFAULT_TRANSLATOR_CACHE_SIZE = 10_000;
 
     public ConfigurationImpl(Resource resource, MappingImpl mapping) {
         super(resource, mapping);
@@ -91,6 +93,46 @@ public class ConfigurationImpl extends MapObjectImpl implements Configuration {
         return setInteger(AVC.cacheLengthLimit, String.valueOf(length));
     }
 
+    @Override
+    public int getMaxUnionBranches() {
+        return getInteger(AVC.maxUnionBranches, DEFAULT_MAX_UNION_BRANCHES);
+    }
+
+    @Override
+    public ConfigurationImpl setMaxUnionBranches(int branches) {
+        return setInteger(AVC.maxUnionBranches, branches);
+    }
+
+    @Override
+    public boolean getUseTableStatistics() {
+        return getBoolean(AVC.useTableStatistics, false);
+    }
+
+    @Override
+    public ConfigurationImpl setUseTableStatistics(boolean useTableStatistics) {
+        return setBoolean(AVC.useTableStatistics, useTableStatistics);
+    }
+
+    @Override
+    public int getTranslatorCacheSize() {
+        return getInteger(AVC.translatorCacheSize, DEFAULT_TRANSLATOR_CACHE_SIZE);
+    }
+
+    @Override
+    public ConfigurationImpl setTranslatorCacheSize(int size) {
+        return setInteger(AVC.translatorCacheSize, size);
+    }
+
+    @Override
+    public boolean getLazyCompilation() {
+        return getBoolean(AVC.lazyCompilation, false);
+    }
+
+    @Override
+    public ConfigurationImpl setLazyCompilation(boolean lazyCompilation) {
+        return setBoolean(AVC.lazyCompilation, lazyCompilation);
+    }
+
     @Override
     public String toString() {
         return "d2rq:Configuration " + super.toString();
@@ -100,12 +142,13 @@ public class ConfigurationImpl extends MapObjectImpl implements Configuration {
     public void validate() throws D2RQException {
         Validator v = new Validator(this);
         Stream.of(D2RQ.serveVocabulary, D2RQ.useAllOptimizations,
-                AVC.controlOWL, AVC.withCache, AVC.generateNamedIndividuals)
+                AVC.controlOWL, AVC.withCache, AVC.generateNamedIndividuals, AVC.useTableStatistics,
+                AVC.lazyCompilation)
                 .map(v::forProperty)
                 .filter(Validator.ForProperty::exists)
                 .forEach(p -> p.requireHasNoDuplicates(D2RQException.UNSPECIFIED)
                         .requireIsBooleanLiteral(D2RQException.UNSPECIFIED));
-        Stream.of(AVC.cacheLengthLimit, AVC.cacheMaxSize)
+        Stream.of(AVC.cacheLengthLimit, AVC.cacheMaxSize, AVC.maxUnionBranches, AVC.translatorCacheSize)
                 .map(v::forProperty)
                 .filter(Validator.ForProperty::exists)
                 .forEach(p -> p.requireHasNoDuplicates(D2RQException.UNSPECIFIED)
@@ -4,15 +4,19 @@ import com.github.owlcs.ontapi.jena.utils.Iter;
 import de.fuberlin.wiwiss.d2rq.D2RQException;
 import de.fuberlin.wiwiss.d2rq.map.Database;
 import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+import de.fuberlin.wiwiss.d2rq.sql.ReplicaRouter;
 import de.fuberlin.wiwiss.d2rq.sql.types.DataType.GenericType;
+import de.fuberlin.wiwiss.d2rq.vocab.AVC;
 import de.fuberlin.wiwiss.d2rq.vocab.D2RQ;
 import de.fuberlin.wiwiss.d2rq.vocab.JDBC;
 import org.apache.jena.rdf.model.Resource;
 
 import java.sql.Driver;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 
@@ -177,9 +181,34 @@ public class DatabaseImpl extends MapObjectImpl implements Database {
         return res;
     }
 
+    @Override
+    public Database addReplicaJDBCDSN(String uri) {
+        return addLiteral(AVC.replicaJdbcDSN, uri);
+    }
+
+    @Override
+    public Stream<String> replicaJDBCDSNs() {
+        return Iter.asStream(listStrings(AVC.replicaJdbcDSN));
+    }
+
+    @Override
+    public Database setReplicaRouting(String policy) {
+        return setNullable(AVC.replicaRouting, policy);
+    }
+
+    @Override
+    public String getReplicaRouting() {
+        return getString(AVC.replicaRouting);
+    }
+
     public ConnectedDB toConnectionDB() {
-        return new ConnectedDB(getJDBCDSN(), getUsername(), getPassword(),
+        ConnectedDB res = new ConnectedDB(getJDBCDSN(), getUsername(), getPassword(),
                 getColumns(), getResultSizeLimit(), getFetchSize(), getConnectionProperties());
+        List<String> replicas = replicaJDBCDSNs().collect(Collectors.toList());
+        if (!replicas.isEmpty()) {
+            res.setReadReplicas(replicas, ReplicaRouter.Policy.parse(getReplicaRouting()));
+        }
+        return res;
     }
 
     @Override
@@ -224,6 +253,18 @@ public class DatabaseImpl extends MapObjectImpl implements Database {
         } else if (p.exists()) {
             throw new D2RQException("Password without username", D2RQException.UNSPECIFIED);
         }
+        // read replicas:
+        v.forProperty(AVC.replicaJdbcDSN).requireContainsOnlyStrings(D2RQException.DATABASE_INVALID_REPLICA);
+        Validator.ForProperty r = v.forProperty(AVC.replicaRouting);
+        if (r.exists()) {
+            r.requireHasNoDuplicates(D2RQException.DATABASE_INVALID_REPLICA)
+                    .requireIsStringLiteral(D2RQException.DATABASE_INVALID_REPLICA);
+            try {
+                ReplicaRouter.Policy.parse(getReplicaRouting());
+            } catch (IllegalArgumentException e) {
+                throw new D2RQException(e.getMessage() + " for " + this, D2RQException.DATABASE_INVALID_REPLICA);
+            }
+        }
     }
 
 
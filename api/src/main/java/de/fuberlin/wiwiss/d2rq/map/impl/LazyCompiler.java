@@ -0,0 +1,162 @@
+package de.fuberlin.wiwiss.d2rq.map.impl;
+
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.algebra.LazyTripleRelation;
+import de.fuberlin.wiwiss.d2rq.algebra.Relation;
+import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
+import de.fuberlin.wiwiss.d2rq.dbschema.DeclaredKeys;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Compiles the property bridges of a lazily compiled mapping on demand.
+ * <p>
+ * The mapping RDF of each bridge is resolved at the compilation time into a {@link RelationBuilder},
+ * so a later change of the mapping model does not affect the already compiled bridges;
+ * only the SQL relation is built on demand.
+ * The first time a bridge is selected, its relation is built and validated,
+ * after the column metadata and the catalog keys of its own tables are loaded.
+ * The keys implied by the joins of all registered bridges are collected at that moment too (no catalog query is needed),
+ * so the query planning knows them regardless of which bridges have been compiled.
+ * The first demand also starts the same preparation for the rest of the bridges in the background,
+ * so that the next bridges don't wait for the catalog.
+ *
+ * @see MappingImpl#withLazyCompilation()
+ * @see LazyTripleRelation
+ */
+@SuppressWarnings("WeakerAccess")
+public class LazyCompiler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LazyCompiler.class);
+
+    private static volatile ExecutorService background;
+
+    private final List<RelationBuilder> builders = new ArrayList<>();
+    private final Set<RelationBuilder> prepared = ConcurrentHashMap.newKeySet();
+    private final DeclaredKeys keys;
+    private final Executor executor;
+    // the number of builders whose join keys have been declared:
+    private int declared;
+    private boolean scheduled;
+    private volatile boolean closed;
+
+    /**
+     * @param keys {@link DeclaredKeys} of the compilation, where the keys implied by the joins are collected
+     */
+    public LazyCompiler(DeclaredKeys keys) {
+        this(keys, null);
+    }
+
+    /**
+     * @param keys     {@link DeclaredKeys} of the compilation, where the keys implied by the joins are collected
+     * @param executor {@link Executor} to prepare the rest of the bridges, {@code null} for the shared daemon thread
+     */
+    protected LazyCompiler(DeclaredKeys keys, Executor executor) {
+        this.keys = Objects.requireNonNull(keys);
+        this.executor = executor;
+    }
+
+    /**
+     * Registers a property bridge relation to compile on demand.
+     *
+     * @param builder {@link RelationBuilder} with the resolved mapping RDF, not {@code null}
+     * @return {@link Supplier} of the compiled {@link Relation}, it is safe to share it
+     */
+    public synchronized Supplier<Relation> register(RelationBuilder builder) {
+        builders.add(Objects.requireNonNull(builder));
+        return LazyTripleRelation.once(() -> compile(builder));
+    }
+
+    /**
+     * Stops the background preparation, e.g. when the mapping is closed.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    private Relation compile(RelationBuilder builder) throws D2RQException {
+        declareKeys();
+        if (prepared.add(builder)) {
+            prepare(builder);
+        }
+        Relation res = builder.buildRelation();
+        MappingImpl.validateRelation(res);
+        return res;
+    }
+
+    /**
+     * Collects the keys implied by the joins of the builders registered so far,
+     * and schedules the preparation of the builders in the background on the first call.
+     */
+    private void declareKeys() {
+        synchronized (this) {
+            for (; declared < builders.size(); declared++) {
+                RelationBuilder b = builders.get(declared);
+                MappingImpl.declareKeys(b.database(), b.aliases(), b.joinConditions(), keys);
+            }
+            if (scheduled) return;
+            scheduled = true;
+        }
+        try {
+            (executor == null ? background() : executor).execute(this::prepareAll);
+        } catch (RuntimeException e) {
+            // rejected: the rest will be prepared on demand
+            if (LOGGER.isDebugEnabled())
+                LOGGER.debug("Background preparation is not started: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Pre-warms the column metadata and loads the catalog keys of the tables of the given builder.
+     * Called once for each builder; the metadata caches are thread-safe, so no lock is held.
+     *
+     * @param builder {@link RelationBuilder}
+     */
+    protected void prepare(RelationBuilder builder) {
+        Map<ConnectedDB, Set<RelationName>> tables = new HashMap<>();
+        MappingImpl.collectTables(builder.database(), builder.aliases(), builder.tables(), tables);
+        tables.forEach(ConnectedDB::prefetchColumnMetadata);
+        MappingImpl.buildUniquenessModel(builder.database(), builder.aliases(), builder.tables(),
+                Collections.emptySet(), keys);
+    }
+
+    private void prepareAll() {
+        List<RelationBuilder> rest;
+        synchronized (this) {
+            rest = new ArrayList<>(builders);
+        }
+        for (RelationBuilder builder : rest) {
+            if (closed) return;
+            if (!prepared.add(builder)) continue;
+            try {
+                prepare(builder);
+            } catch (RuntimeException e) {
+                // e.g. the mapping has been closed in the meantime, the bridge will report it when selected
+                if (LOGGER.isDebugEnabled())
+                    LOGGER.debug("Can't prepare {}: {}", builder.tables(), e.getMessage());
+            }
+        }
+    }
+
+    private static ExecutorService background() {
+        ExecutorService res = background;
+        if (res != null) return res;
+        synchronized (LazyCompiler.class) {
+            if (background == null) {
+                background = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "d2rq-lazy-compiler");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            return background;
+        }
+    }
+}
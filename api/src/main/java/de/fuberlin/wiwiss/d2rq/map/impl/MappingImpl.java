@@ -4,9 +4,17 @@ import com.github.owlcs.ontapi.jena.utils.Iter;
 import com.github.owlcs.ontapi.jena.vocabulary.RDF;
 import de.fuberlin.wiwiss.d2rq.ClassMapLister;
 import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.algebra.AliasMap;
 import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.algebra.Join;
+import de.fuberlin.wiwiss.d2rq.algebra.LazyTripleRelation;
 import de.fuberlin.wiwiss.d2rq.algebra.Relation;
+import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
 import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
+import de.fuberlin.wiwiss.d2rq.dbschema.DeclaredKeys;
+import de.fuberlin.wiwiss.d2rq.find.FindQuery;
+import de.fuberlin.wiwiss.d2rq.find.TripleQueryIter;
+import de.fuberlin.wiwiss.d2rq.find.TripleRelationIndex;
 import de.fuberlin.wiwiss.d2rq.jena.CachingGraph;
 import de.fuberlin.wiwiss.d2rq.jena.ControlledGraph;
 import de.fuberlin.wiwiss.d2rq.jena.GraphD2RQ;
@@ -15,6 +23,9 @@ import de.fuberlin.wiwiss.d2rq.pp.PrettyPrinter;
 import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
 import de.fuberlin.wiwiss.d2rq.sql.SQLScriptLoader;
 import de.fuberlin.wiwiss.d2rq.sql.types.DataType;
+import de.fuberlin.wiwiss.d2rq.values.CachingTranslator;
+import de.fuberlin.wiwiss.d2rq.values.TableTranslator;
+import de.fuberlin.wiwiss.d2rq.values.Translator;
 import de.fuberlin.wiwiss.d2rq.vocab.AVC;
 import de.fuberlin.wiwiss.d2rq.vocab.D2RQ;
 import de.fuberlin.wiwiss.d2rq.vocab.VocabularySummarizer;
@@ -36,6 +47,7 @@ import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -61,10 +73,14 @@ public class MappingImpl implements Mapping, ConnectingMapping {
     protected volatile boolean isGraphLocked;
     // cache-collection of connected DBs:
     protected final Map<Node, ConnectedDB> connections = new ConcurrentHashMap<>();
-    // collection of compiled property bridges, if it is not null, then a physical connection is present:
-    protected volatile Collection<TripleRelation> compiledPropertyBridges;
-    // an in-memory schema cache to optimize dynamic schema calculations
-    protected volatile Graph schemaGraph;
+    // the compiled property bridges with their index and settings, if it is not null, then a physical connection is present:
+    protected volatile MappingSnapshot compiled;
+    // the property bridges that are compiled on demand, renewed with each compilation:
+    protected volatile LazyCompiler lazyCompiler;
+    // translators shared by all property bridges with the same d2rq:TranslationTable, reset together with the bridges:
+    protected final Map<Node, Translator> translators = new ConcurrentHashMap<>();
+    // an in-memory schema cache to optimize dynamic schema calculations, it follows the mapping graph changes
+    protected volatile SchemaCache schemaCache;
     // a graph-reference to conduct a possibility to share db RDF data between threads
     protected volatile Graph dataGraph;
     // the mapping graph that contains all the physical information:
@@ -88,6 +104,11 @@ public class MappingImpl implements Mapping, ConnectingMapping {
                 return getCache().find(m);
             }
 
+            @Override
+            protected int graphBaseSize() {
+                return getCache().size();
+            }
+
             @Override
             public PrefixMapping getPrefixMapping() {
                 return dynamic.getPrefixMapping();
@@ -105,16 +126,19 @@ public class MappingImpl implements Mapping, ConnectingMapping {
 
             @Override
             public Graph toMemory() {
-                return getCache();
+                GraphMem res = new GraphMem();
+                GraphUtil.addInto(res, getCache());
+                return res;
             }
 
             public Graph getCache() {
-                if (schemaGraph != null) return schemaGraph;
+                SchemaCache res = schemaCache;
+                if (res != null) return res.getGraph();
                 synchronized (lockObject) {
-                    if (schemaGraph != null) return schemaGraph;
-                    GraphMem res = new GraphMem();
-                    GraphUtil.addInto(res, dynamic);
-                    return schemaGraph = res;
+                    if ((res = schemaCache) != null) return res.getGraph();
+                    res = createSchemaCache();
+                    schemaCache = res;
+                    return res.getGraph();
                 }
             }
 
@@ -147,6 +171,31 @@ public class MappingImpl implements Mapping, ConnectingMapping {
         return res;
     }
 
+    /**
+     * Passes all triples, that are produced by the property bridges, to the given consumer, class map by class map.
+     * The property bridges of a class map usually share the same relation and are fetched by a single SQL statement,
+     * so the whole data is read in about as many scans as there are class maps,
+     * instead of a query per triple pattern.
+     * The schema is not included, the triples may contain duplicates.
+     *
+     * @param sink {@link Consumer} for {@link Triple}s, not {@code null}
+     * @throws D2RQException in case of database error
+     * @see de.fuberlin.wiwiss.d2rq.jena.CompactGraph
+     */
+    public void fetchData(Consumer<? super Triple> sink) throws D2RQException {
+        Objects.requireNonNull(sink);
+        // the compiled relations, not the mapping graph: compilation may generate new property bridges
+        for (Collection<TripleRelation> relations : compile().classMapRelations()) {
+            if (relations.isEmpty()) continue;
+            ExtendedIterator<Triple> triples = TripleQueryIter.create(new FindQuery(Triple.ANY, relations, null).iterator());
+            try {
+                triples.forEachRemaining(sink);
+            } finally {
+                triples.close();
+            }
+        }
+    }
+
     /**
      * A factory method to produce virtual DB graph instance.
      *
@@ -179,6 +228,16 @@ public class MappingImpl implements Mapping, ConnectingMapping {
         return schemaController.inferSchema(this);
     }
 
+    /**
+     * Creates an in-memory copy of the {@link #createSchemaGraph() Schema-Graph},
+     * that can be updated incrementally while the mapping graph is changing.
+     *
+     * @return {@link SchemaCache}
+     */
+    public SchemaCache createSchemaCache() {
+        return schemaController.materializeSchema(this);
+    }
+
     @Override
     public Model getDataModel() {
         return new ModelCom(getData()) {
@@ -194,9 +253,19 @@ public class MappingImpl implements Mapping, ConnectingMapping {
 
     @Override
     public boolean withAllOptimizations() {
+        MappingSnapshot res = compiled;
+        if (res != null) return res.withAllOptimizations();
         return findConfiguration().map(ConfigurationImpl::getUseAllOptimizations).orElse(false);
     }
 
+    @Override
+    public int maxUnionBranches() {
+        MappingSnapshot res = compiled;
+        if (res != null) return res.maxUnionBranches();
+        return findConfiguration().map(ConfigurationImpl::getMaxUnionBranches)
+                .orElse(ConfigurationImpl.DEFAULT_MAX_UNION_BRANCHES);
+    }
+
     /**
      * Has been moved from {@link de.fuberlin.wiwiss.d2rq.SystemLoader}
      * TODO: it seems we don't need it at all, going to delete.
@@ -209,6 +278,27 @@ public class MappingImpl implements Mapping, ConnectingMapping {
         return new ClassMapLister(this);
     }
 
+    /**
+     * Answers the {@link Translator} for the given {@code d2rq:TranslationTable}.
+     * The translator is created once and then shared by all property bridges that refer to the table,
+     * so a CSV file is read and a {@code d2rq:javaClass} is instantiated only once.
+     * A custom translator is wrapped in a {@link CachingTranslator},
+     * with the {@link ConfigurationImpl#getTranslatorCacheSize() configured} size.
+     *
+     * @param table {@link TranslationTable}, not {@code null}
+     * @return {@link Translator}
+     */
+    public Translator getTranslator(TranslationTable table) {
+        return translators.computeIfAbsent(table.asResource().asNode(), n -> {
+            Translator res = table.asTranslator();
+            if (res instanceof TableTranslator) {
+                return res;
+            }
+            return new CachingTranslator(res, findConfiguration().map(ConfigurationImpl::getTranslatorCacheSize)
+                    .orElse(ConfigurationImpl.DEFAULT_TRANSLATOR_CACHE_SIZE));
+        });
+    }
+
     public ConnectedDB getConnectedDB(DatabaseImpl db) {
         return connections.computeIfAbsent(db.asResource().asNode(), n -> createConnectionDB(db));
     }
@@ -224,6 +314,69 @@ public class MappingImpl implements Mapping, ConnectingMapping {
         connections.put(db.asResource().asNode(), c);
     }
 
+    /**
+     * Makes this mapping use the already opened connections of the other mapping
+     * for every {@code d2rq:Database} that has exactly the same connection settings.
+     * The shared {@link ConnectedDB}s keep their metadata caches,
+     * so compilation of this mapping does not need to inspect the database schema once again.
+     * The shared connections are not changed, so the other mapping can continue to use them as before:
+     * the table keys declared by the {@code d2rq:join}s belong to the compiled mappings,
+     * and the configuration of this mapping is applied only by {@link #configureConnections()}.
+     * The connections are still owned by the other mapping,
+     * use {@link #releaseConnections(Collection)} to pass the ownership.
+     *
+     * @param other {@link MappingImpl}, not {@code null}
+     * @return {@code Set} of shared {@link ConnectedDB}s, possibly empty
+     */
+    public Set<ConnectedDB> shareConnections(MappingImpl other) {
+        Set<ConnectedDB> res = Collections.newSetFromMap(new IdentityHashMap<>());
+        other.connections.forEach((node, c) -> {
+            if (!c.isConnected()) return;
+            DatabaseImpl from = other.asDatabase(other.model.wrapAsResource(node));
+            databases().map(DatabaseImpl.class::cast)
+                    .filter(d -> !connections.containsKey(d.asResource().asNode()))
+                    .filter(d -> hasSameConnection(from, d))
+                    .forEach(d -> {
+                        registerConnectedDB(d, c);
+                        res.add(c);
+                    });
+        });
+        return res;
+    }
+
+    /**
+     * Applies the configuration of this mapping (e.g. {@code avc:useTableStatistics})
+     * to all its connections, including the ones {@link #shareConnections(MappingImpl) taken} from another mapping.
+     */
+    public void configureConnections() {
+        connections.values().forEach(this::configure);
+    }
+
+    /**
+     * Forgets the given connections without closing them,
+     * after this operation the {@link #close()} method does not touch them.
+     *
+     * @param shared {@code Collection} of {@link ConnectedDB}s that are owned by another mapping now
+     * @see #shareConnections(MappingImpl)
+     */
+    public void releaseConnections(Collection<ConnectedDB> shared) {
+        connections.values().removeIf(c -> shared.stream().anyMatch(x -> x == c));
+    }
+
+    private static boolean hasSameConnection(DatabaseImpl left, DatabaseImpl right) {
+        return Objects.equals(left.getJDBCDSN(), right.getJDBCDSN())
+                && Objects.equals(left.getJDBCDriver(), right.getJDBCDriver())
+                && Objects.equals(left.getUsername(), right.getUsername())
+                && Objects.equals(left.getPassword(), right.getPassword())
+                && Objects.equals(left.getColumns(), right.getColumns())
+                && left.getResultSizeLimit() == right.getResultSizeLimit()
+                && left.getFetchSize() == right.getFetchSize()
+                && Objects.equals(left.getConnectionProperties(), right.getConnectionProperties())
+                && Objects.equals(left.replicaJDBCDSNs().collect(Collectors.toSet()),
+                right.replicaJDBCDSNs().collect(Collectors.toSet()))
+                && Objects.equals(left.getReplicaRouting(), right.getReplicaRouting());
+    }
+
     /**
      * Creates a fresh {@link ConnectedDB} for the given {@link DatabaseImpl}.
      * Note: if the database {@code MapObject} has a {@code d2rq:startupSQLScript},
@@ -234,6 +387,7 @@ public class MappingImpl implements Mapping, ConnectingMapping {
      */
     protected ConnectedDB createConnectionDB(DatabaseImpl db) {
         ConnectedDB res = db.toConnectionDB();
+        configure(res);
         String script = db.getStartupSQLScript();
         if (script == null) {
             return res;
@@ -247,6 +401,10 @@ public class MappingImpl implements Mapping, ConnectingMapping {
         return res;
     }
 
+    private void configure(ConnectedDB db) {
+        db.setUseTableStatistics(findConfiguration().map(ConfigurationImpl::getUseTableStatistics).orElse(false));
+    }
+
     /**
      * Ensures the mapping is connected.
      *
@@ -262,6 +420,9 @@ public class MappingImpl implements Mapping, ConnectingMapping {
         if (!isConnected()) return;
         synchronized (lockObject) {
             if (!isConnected()) return;
+            if (lazyCompiler != null) {
+                lazyCompiler.close();
+            }
             connections.values().forEach(ConnectedDB::close);
             clearAutoGenerated();
         }
@@ -273,7 +434,7 @@ public class MappingImpl implements Mapping, ConnectingMapping {
      * @return boolean
      */
     public boolean isConnected() {
-        return compiledPropertyBridges != null
+        return compiled != null
                 || !connections.isEmpty() && connections.values().stream().anyMatch(ConnectedDB::isConnected);
     }
 
@@ -462,26 +623,75 @@ public class MappingImpl implements Mapping, ConnectingMapping {
      */
     @Override
     public Collection<TripleRelation> compiledPropertyBridges() {
-        if (compiledPropertyBridges != null) return compiledPropertyBridges;
+        return compile().relations();
+    }
+
+    /**
+     * Answers the index over the {@link #compiledPropertyBridges() compiled property bridges}.
+     * The index is built once and rebuilt only when the mapping is recompiled.
+     *
+     * @return {@link TripleRelationIndex}
+     */
+    @Override
+    public TripleRelationIndex compiledPropertyBridgesIndex() {
+        return compile().index();
+    }
+
+    /**
+     * Answers the table keys implied by the {@code d2rq:join}s of the compiled mapping.
+     *
+     * @return {@link DeclaredKeys}
+     */
+    @Override
+    public DeclaredKeys declaredKeys() {
+        return compile().declaredKeys();
+    }
+
+    /**
+     * Compiles the mapping, if it is not compiled yet, and answers the result.
+     * The returned snapshot is immutable and is not affected by the subsequent changes of the mapping.
+     * Please note: this method establishes physical connections to the databases.
+     *
+     * @return {@link MappingSnapshot}
+     */
+    public MappingSnapshot compile() {
+        MappingSnapshot res = compiled;
+        if (res != null) return res;
         synchronized (lockObject) {
-            if (compiledPropertyBridges != null) return compiledPropertyBridges;
+            if ((res = compiled) != null) return res;
             // validate only RDF:
             validate(false);
             // clear auto-generated resources:
             clearAutoGenerated();
             // populate OWL declarations and axioms:
             compileSchema();
-            // compile and validate all bridges (note: it requires connection):
-            List<TripleRelation> res = Iter.peek(tripleRelations(), tr -> {
+            // compile and validate all bridges (note: it requires connection),
+            // in the lazy mode each bridge is compiled the first time it is selected, see LazyCompiler
+            DeclaredKeys keys = new DeclaredKeys();
+            lazyCompiler = withLazyCompilation() ? new LazyCompiler(keys) : null;
+            List<Collection<TripleRelation>> classMapRelations = listClassMaps()
+                    .mapWith(ClassMapImpl::toTripleRelations).toList();
+            List<TripleRelation> relations = classMapRelations.stream()
+                    .flatMap(Collection::stream).collect(Collectors.toList());
+            if (!withLazyCompilation()) {
+                prefetchMetadata(relations);
+                buildUniquenessModel(relations, keys);
+            }
+            relations.forEach(tr -> {
                 if (LOGGER.isDebugEnabled()) {
                     LOGGER.debug("TR={}", tr);
                 }
-                validateRelation(tr);
-            }).toList();
+                if (!(tr instanceof LazyTripleRelation)) {
+                    validateRelation(tr);
+                }
+            });
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Compiled {} property bridges", res.size());
+                LOGGER.debug("Compiled {} property bridges", relations.size());
             }
-            return compiledPropertyBridges = res;
+            ConfigurationImpl conf = findConfiguration().orElse(null);
+            return compiled = new MappingSnapshot(classMapRelations, keys,
+                    conf != null && conf.getUseAllOptimizations(),
+                    conf != null ? conf.getMaxUnionBranches() : ConfigurationImpl.DEFAULT_MAX_UNION_BRANCHES);
         }
     }
 
@@ -491,7 +701,7 @@ public class MappingImpl implements Mapping, ConnectingMapping {
      * @see SchemaController#compileSchema(MappingImpl)
      */
     public void compileSchema() {
-        if (compiledPropertyBridges != null) {
+        if (compiled != null) {
             // then already compiled
             return;
         }
@@ -542,6 +752,128 @@ public class MappingImpl implements Mapping, ConnectingMapping {
             tripleRelations().forEachRemaining(MappingImpl::validateRelation);
     }
 
+    /**
+     * Answers {@code true} if the property bridges are to be compiled on demand.
+     *
+     * @return boolean
+     * @see ConfigurationImpl#getLazyCompilation()
+     */
+    public boolean withLazyCompilation() {
+        return findConfiguration().map(ConfigurationImpl::getLazyCompilation).orElse(false);
+    }
+
+    /**
+     * Answers the collector of the property bridges that are compiled on demand.
+     *
+     * @return {@link LazyCompiler}
+     * @see #withLazyCompilation()
+     */
+    protected LazyCompiler lazyCompiler() {
+        LazyCompiler res = lazyCompiler;
+        if (res != null) return res;
+        synchronized (lockObject) {
+            if ((res = lazyCompiler) == null) {
+                // not a part of any compilation, the declared keys will never be used for queries
+                lazyCompiler = res = new LazyCompiler(new DeclaredKeys());
+            }
+            return res;
+        }
+    }
+
+    /**
+     * Pre-warms the metadata caches of the databases with the columns of all tables used by the given relations,
+     * so that the validation and the query planning don't need a catalog query per column.
+     *
+     * @param relations Collection of {@link TripleRelation}s
+     * @see ConnectedDB#prefetchColumnMetadata(Collection)
+     */
+    protected static void prefetchMetadata(Collection<TripleRelation> relations) {
+        Map<ConnectedDB, Set<RelationName>> tables = new HashMap<>();
+        for (TripleRelation tripleRelation : relations) {
+            collectTables(tripleRelation.baseRelation(), tables);
+        }
+        tables.forEach(ConnectedDB::prefetchColumnMetadata);
+    }
+
+    private static void collectTables(Relation relation, Map<ConnectedDB, Set<RelationName>> res) {
+        collectTables(relation.database(), relation.aliases(), relation.tables(), res);
+    }
+
+    static void collectTables(ConnectedDB db,
+                              AliasMap aliases,
+                              Set<RelationName> tables,
+                              Map<ConnectedDB, Set<RelationName>> res) {
+        if (db == null) return;
+        Set<RelationName> names = res.computeIfAbsent(db, d -> new HashSet<>());
+        for (RelationName table : tables) {
+            names.add(aliases.originalOf(table));
+        }
+    }
+
+    /**
+     * Builds the {@link de.fuberlin.wiwiss.d2rq.dbschema.TableKeys uniqueness model} of all tables used by the given relations:
+     * loads the primary keys and unique indexes from the catalog,
+     * and collects the keys implied by the directed joins of the mapping (the referenced columns).
+     * After that, the query planning can decide on uniqueness without catalog queries.
+     *
+     * @param relations Collection of {@link TripleRelation}s
+     * @param keys      {@link DeclaredKeys} of the compilation to collect the keys of the joins
+     * @see ConnectedDB#tableKeys(RelationName)
+     */
+    protected static void buildUniquenessModel(Collection<TripleRelation> relations, DeclaredKeys keys) {
+        for (TripleRelation tripleRelation : relations) {
+            buildUniquenessModel(tripleRelation.baseRelation(), keys);
+        }
+    }
+
+    private static void buildUniquenessModel(Relation relation, DeclaredKeys keys) {
+        buildUniquenessModel(relation.database(), relation.aliases(), relation.tables(), relation.joinConditions(), keys);
+    }
+
+    static void buildUniquenessModel(ConnectedDB db,
+                                     AliasMap aliases,
+                                     Set<RelationName> tables,
+                                     Collection<Join> joins,
+                                     DeclaredKeys keys) {
+        if (db == null) return;
+        try {
+            for (RelationName table : tables) {
+                db.tableKeys(aliases.originalOf(table));
+            }
+        } catch (D2RQException ex) {
+            // will be reported with the validation or retried when needed
+            LOGGER.warn("Can't build uniqueness model for {}: {}", tables, ex.getMessage());
+        }
+        declareKeys(db, aliases, joins, keys);
+    }
+
+    /**
+     * Collects the keys implied by the directed joins (the referenced columns), the database is not touched.
+     *
+     * @param db      {@link ConnectedDB}
+     * @param aliases {@link AliasMap} of the relation
+     * @param joins   Collection of {@link Join}s of the relation
+     * @param keys    {@link DeclaredKeys} of the compilation
+     */
+    static void declareKeys(ConnectedDB db, AliasMap aliases, Collection<Join> joins, DeclaredKeys keys) {
+        if (db == null) return;
+        for (Join join : joins) {
+            if (join.joinDirection() == Join.DIRECTION_RIGHT) {
+                declareKey(db, aliases, join.attributes2(), keys);
+            } else if (join.joinDirection() == Join.DIRECTION_LEFT) {
+                declareKey(db, aliases, join.attributes1(), keys);
+            }
+        }
+    }
+
+    private static void declareKey(ConnectedDB db, AliasMap aliases, List<Attribute> columns, DeclaredKeys keys) {
+        List<String> names = new ArrayList<>(columns.size());
+        for (Attribute column : columns) {
+            names.add(column.attributeName());
+        }
+        keys.declareKey(db, aliases.originalOf(columns.get(0).relationName()), names);
+    }
+
     public static void validateRelation(TripleRelation tripleRelation) throws D2RQException {
         validateRelation(tripleRelation.baseRelation());
     }
@@ -607,13 +939,18 @@ public class MappingImpl implements Mapping, ConnectingMapping {
                         "Can't perform " + event + " operation for the triple '" +
                         PrettyPrinter.toString(triple, model) + "'");
             }
-            // reset the schema cache -> any mapping triple may be related to the schema,
-            // so any change in the mapping graph must invalidate that cache
-            schemaGraph = null;
+            // update the schema cache -> a triple, that is not a D2RQ instruction, goes to the schema as is,
+            // any other change in the mapping graph must invalidate that cache
+            SchemaCache schema = schemaCache;
+            if (schema != null && !schema.update(triple, event)) {
+                schemaCache = null;
+            }
             Node s = triple.getSubject();
             Node p = triple.getPredicate();
             if (ControlledGraph.Event.CLEAR == event || D2RQ_PREDICATES.contains(p) || connections.containsKey(s)) {
-                compiledPropertyBridges = null;
+                // drop the snapshot -> the running queries keep the old one, the next compilation makes a new one
+                compiled = null;
+                translators.clear();
                 // reset the data -> it is possible that change is in the configuration
                 // (anyway if the primary graph is not locked the preserving the same reference has a little sense)
                 dataGraph = null;
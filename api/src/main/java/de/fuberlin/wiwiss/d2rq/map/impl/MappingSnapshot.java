@@ -0,0 +1,109 @@
+package de.fuberlin.wiwiss.d2rq.map.impl;
+
+import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
+import de.fuberlin.wiwiss.d2rq.dbschema.DeclaredKeys;
+import de.fuberlin.wiwiss.d2rq.find.TripleRelationIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable result of the {@link MappingImpl#compiledPropertyBridges() mapping compilation}:
+ * the compiled property bridges, the index over them, the table keys implied by their joins,
+ * and the configuration settings that are needed while answering queries.
+ * <p>
+ * A snapshot is published by a single volatile write, so the query threads read it without any locks
+ * and never go to the mapping graph.
+ * Any change of D2RQ instructions just drops the current snapshot, the next compilation produces a new one,
+ * while the queries, that are already running, continue with the old one.
+ */
+@SuppressWarnings("WeakerAccess")
+public class MappingSnapshot {
+    private final List<Collection<TripleRelation>> classMapRelations;
+    private final Collection<TripleRelation> relations;
+    private final TripleRelationIndex index;
+    private final DeclaredKeys declaredKeys;
+    private final boolean withAllOptimizations;
+    private final int maxUnionBranches;
+
+    /**
+     * @param classMapRelations    List of the compiled {@link TripleRelation}s of each class map
+     * @param declaredKeys         {@link DeclaredKeys} implied by the joins of the relations
+     * @param withAllOptimizations boolean
+     * @param maxUnionBranches     positive int
+     */
+    protected MappingSnapshot(List<? extends Collection<TripleRelation>> classMapRelations,
+                              DeclaredKeys declaredKeys,
+                              boolean withAllOptimizations,
+                              int maxUnionBranches) {
+        this.classMapRelations = Collections.unmodifiableList(classMapRelations.stream()
+                .map(c -> Collections.unmodifiableList(new ArrayList<>(c)))
+                .collect(Collectors.toList()));
+        this.relations = Collections.unmodifiableList(this.classMapRelations.stream()
+                .flatMap(Collection::stream).collect(Collectors.toList()));
+        this.index = new TripleRelationIndex(this.relations);
+        this.declaredKeys = Objects.requireNonNull(declaredKeys);
+        this.withAllOptimizations = withAllOptimizations;
+        this.maxUnionBranches = maxUnionBranches;
+    }
+
+    /**
+     * @return unmodifiable {@code Collection} of compiled {@link TripleRelation}s
+     */
+    public Collection<TripleRelation> relations() {
+        return relations;
+    }
+
+    /**
+     * Answers the compiled relations grouped by class map, in the order of the class maps;
+     * the property bridges of a class map usually share the same relation.
+     *
+     * @return unmodifiable {@code List} of unmodifiable {@code Collection}s of {@link TripleRelation}s
+     */
+    public List<Collection<TripleRelation>> classMapRelations() {
+        return classMapRelations;
+    }
+
+    /**
+     * @return {@link TripleRelationIndex} over the {@link #relations()}
+     */
+    public TripleRelationIndex index() {
+        return index;
+    }
+
+    /**
+     * Answers the table keys implied by the directed joins of the {@link #relations()}.
+     * In the lazy mode the keys are collected when the relations are first used,
+     * otherwise they are complete when the snapshot is published.
+     *
+     * @return {@link DeclaredKeys}
+     */
+    public DeclaredKeys declaredKeys() {
+        return declaredKeys;
+    }
+
+    /**
+     * @return boolean
+     * @see ConfigurationImpl#getUseAllOptimizations()
+     */
+    public boolean withAllOptimizations() {
+        return withAllOptimizations;
+    }
+
+    /**
+     * @return positive int
+     * @see ConfigurationImpl#getMaxUnionBranches()
+     */
+    public int maxUnionBranches() {
+        return maxUnionBranches;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MappingSnapshot(%d relations)", relations.size());
+    }
+}
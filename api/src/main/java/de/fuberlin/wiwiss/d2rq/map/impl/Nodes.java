@@ -31,6 +31,7 @@ class Nodes {
     static final Node XSD_STRING = XSD.xstring.asNode();
     static final Node XSD_BOOLEAN_TRUE = Models.TRUE.asNode();
 
+    static final Node OWL_ONTOLOGY = OWL.Ontology.asNode();
     static final Node OWL_CLASS = OWL.Class.asNode();
     static final Node OWL_NAMED_INDIVIDUAL = OWL.NamedIndividual.asNode();
     static final Node OWL_OBJECT_PROPERTY = OWL.ObjectProperty.asNode();
@@ -2,6 +2,7 @@ package de.fuberlin.wiwiss.d2rq.map.impl;
 
 import com.github.owlcs.ontapi.jena.utils.Iter;
 import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.algebra.LazyTripleRelation;
 import de.fuberlin.wiwiss.d2rq.algebra.OrderSpec;
 import de.fuberlin.wiwiss.d2rq.algebra.Relation;
 import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
@@ -24,6 +25,8 @@ import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.util.iterator.ExtendedIterator;
 
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 @SuppressWarnings("WeakerAccess")
@@ -364,6 +367,16 @@ public class PropertyBridgeImpl extends ResourceMap implements PropertyBridge {
 
     @Override
     protected Relation buildRelation() {
+        return createRelationBuilder().buildRelation();
+    }
+
+    /**
+     * Resolves the mapping RDF of this bridge (its class maps, joins, conditions, aliases, limits and ordering)
+     * into a {@link RelationBuilder}, the database is not touched.
+     *
+     * @return {@link RelationBuilder}
+     */
+    protected RelationBuilder createRelationBuilder() {
         ClassMapImpl belongsToClassMap = getBelongsToClassMap();
         ClassMapImpl refersToClassMap = getRefersToClassMap();
         ConnectedDB db = mapping.getConnectedDB(belongsToClassMap.getDatabase());
@@ -388,7 +401,7 @@ public class PropertyBridgeImpl extends ResourceMap implements PropertyBridge {
         if (order != null) {
             builder.setOrderSpecs(Collections.singletonList(new OrderSpec(new AttributeExpr(SQL.parseAttribute(order)), getOrderDesc())));
         }
-        return builder.buildRelation();
+        return builder;
     }
 
     public Collection<TripleRelation> toTripleRelations() {
@@ -396,20 +409,40 @@ public class PropertyBridgeImpl extends ResourceMap implements PropertyBridge {
         Collection<TripleRelation> res = new ArrayList<>();
         NodeMaker s = getBelongsToClassMap().nodeMaker();
         NodeMaker o = this.nodeMaker();
-        Relation base = buildRelation();
+        Function<NodeMaker, TripleRelation> factory = tripleRelationFactory(s, o);
         listProperties()
                 .mapWith(FrontsNode::asNode)
                 .mapWith(p -> new FixedNodeMaker(p, false))
-                .mapWith(p -> new TripleRelation(base, s, p, o))
+                .mapWith(factory::apply)
                 .forEachRemaining(res::add);
         listDynamicProperties()
                 .mapWith(PropertyMap::new)
                 .mapWith(PropertyMap::nodeMaker)
-                .mapWith(p -> new TripleRelation(base, s, p, o))
+                .mapWith(factory::apply)
                 .forEachRemaining(res::add);
         return res;
     }
 
+    /**
+     * Creates a factory to produce {@link TripleRelation}s with the given subject and object and any predicate,
+     * all of them share the same base relation.
+     * If the mapping is compiled lazily, the mapping RDF is resolved right now,
+     * while the SQL relation is built and validated on the first demand.
+     *
+     * @param s {@link NodeMaker} for subjects
+     * @param o {@link NodeMaker} for objects
+     * @return {@link Function} that accepts a predicate {@link NodeMaker}
+     * @see MappingImpl#withLazyCompilation()
+     */
+    protected Function<NodeMaker, TripleRelation> tripleRelationFactory(NodeMaker s, NodeMaker o) {
+        if (!mapping.withLazyCompilation()) {
+            Relation base = buildRelation();
+            return p -> new TripleRelation(base, s, p, o);
+        }
+        Supplier<Relation> base = mapping.lazyCompiler().register(createRelationBuilder());
+        return p -> new LazyTripleRelation(base, s, p, o);
+    }
+
     @Override
     public String toString() {
         return String.format("d2rq:PropertyBridge %s", PrettyPrinter.toString(this.resource));
@@ -154,4 +154,38 @@ public class RelationBuilder {
     public AliasMap aliases() {
         return new AliasMap(this.aliases);
     }
+
+    public ConnectedDB database() {
+        return database;
+    }
+
+    public Set<Join> joinConditions() {
+        return Collections.unmodifiableSet(joinConditions);
+    }
+
+    /**
+     * Answers the tables (or their aliases) the relation will use;
+     * unlike {@link #buildRelation()}, this does not need the database.
+     *
+     * @return Set of {@link RelationName}s
+     * @see Relation#tables()
+     */
+    public Set<RelationName> tables() {
+        Set<Attribute> attributes = new HashSet<>(condition.attributes());
+        for (Join join : joinConditions) {
+            attributes.addAll(join.attributes1());
+            attributes.addAll(join.attributes2());
+        }
+        for (ProjectionSpec projection : projections) {
+            attributes.addAll(projection.requiredAttributes());
+        }
+        for (OrderSpec order : orderSpecs) {
+            attributes.addAll(order.expression().attributes());
+        }
+        Set<RelationName> res = new HashSet<>();
+        for (Attribute attribute : attributes) {
+            res.add(attribute.relationName());
+        }
+        return res;
+    }
 }
\ No newline at end of file
@@ -377,7 +377,7 @@ abstract class ResourceMap extends MapObjectImpl {
             }
             return new ValueDecorator(values, constraints);
         }
-        return new ValueDecorator(values, constraints, translateWith.asTranslator());
+        return new ValueDecorator(values, constraints, mapping.getTranslator(translateWith));
     }
 
     protected NodeMaker buildNodeMaker(ValueMaker values, boolean isUnique) {
@@ -59,6 +59,11 @@ public class SchemaBuilder {
                 return m.getObject().matches(type) && m.getPredicate().matches(Nodes.RDF_FTYPE);
             }
 
+            @Override
+            public Set<Node> predicates() {
+                return Collections.singleton(Nodes.RDF_FTYPE);
+            }
+
             @Override
             public ExtendedIterator<Triple> list(Graph g, Triple m) {
                 return distinctMatch(get.apply(g)
@@ -68,21 +73,29 @@ public class SchemaBuilder {
     }
 
     protected VirtualGraph.DynamicTriples ontologyID() {
-        return (g, m) -> {
-            Node ms = m.getSubject();
-            Node mp = m.getPredicate();
-            if (!mp.matches(Nodes.RDFS_IS_DEFINED_BY) && !mp.matches(Nodes.RDF_FTYPE)) {
-                return NullIterator.instance();
+        return new VirtualGraph.DynamicTriples() {
+            @Override
+            public boolean test(Triple m) {
+                return m.getPredicate().matches(Nodes.RDFS_IS_DEFINED_BY);
             }
-            Node s = Graphs.ontologyNode(g).orElse(null);
-            if (s == null) return NullIterator.instance();
-            if (!ms.matches(s)) {
-                return NullIterator.instance();
+
+            @Override
+            public Set<Node> predicates() {
+                return Collections.singleton(Nodes.RDFS_IS_DEFINED_BY);
+            }
+
+            @Override
+            public ExtendedIterator<Triple> list(Graph g, Triple m) {
+                Node s = Graphs.ontologyNode(g).orElse(null);
+                if (s == null) return NullIterator.instance();
+                if (!m.getSubject().matches(s)) {
+                    return NullIterator.instance();
+                }
+                ExtendedIterator<Triple> res = listJdbsNodes(g)
+                        .mapWith(n -> Triple.create(s, Nodes.RDFS_IS_DEFINED_BY,
+                                NodeFactory.createURI(n.getLiteralValue().toString())));
+                return res.filterKeep(m::matches);
             }
-            ExtendedIterator<Triple> res = listJdbsNodes(g)
-                    .mapWith(n -> Triple.create(s, Nodes.RDFS_IS_DEFINED_BY,
-                            NodeFactory.createURI(n.getLiteralValue().toString())));
-            return res.filterKeep(m::matches);
         };
     }
 
@@ -93,6 +106,11 @@ public class SchemaBuilder {
                 return m.getObject().matches(Nodes.OWL_CLASS) && m.getPredicate().matches(Nodes.RDF_FTYPE);
             }
 
+            @Override
+            public Set<Node> predicates() {
+                return Collections.singleton(Nodes.RDF_FTYPE);
+            }
+
             @Override
             public ExtendedIterator<Triple> list(Graph g, Triple m) {
                 return distinctMatch(listOWLClasses(g)
@@ -109,6 +127,11 @@ public class SchemaBuilder {
                 return m.getPredicate().matches(Nodes.OWL_EQUIVALENT_CLASS);
             }
 
+            @Override
+            public Set<Node> predicates() {
+                return Collections.singleton(Nodes.OWL_EQUIVALENT_CLASS);
+            }
+
             @Override
             public ExtendedIterator<Triple> list(Graph g, Triple m) {
                 return distinctMatch(Iter.flatMap(listClassMaps(g), c -> listEquivalentClasses(g, c)), m);
@@ -124,6 +147,11 @@ public class SchemaBuilder {
                 return m.getPredicate().matches(Nodes.OWL_EQUIVALENT_PROPERTY);
             }
 
+            @Override
+            public Set<Node> predicates() {
+                return Collections.singleton(Nodes.OWL_EQUIVALENT_PROPERTY);
+            }
+
             @Override
             public ExtendedIterator<Triple> list(Graph g, Triple m) {
                 return distinctMatch(Iter.flatMap(listPropertyBridges(g).filterDrop(p -> isAnnotationProperty(g, p)),
@@ -139,6 +167,11 @@ public class SchemaBuilder {
                 return m.getPredicate().matches(Nodes.RDFS_DOMAIN);
             }
 
+            @Override
+            public Set<Node> predicates() {
+                return Collections.singleton(Nodes.RDFS_DOMAIN);
+            }
+
             @Override
             public ExtendedIterator<Triple> list(Graph g, Triple m) {
                 return distinctMatch(Iter.flatMap(g.find(Node.ANY, Nodes.D2RQ_BELONGS_TO_CLASS_MAP, Node.ANY),
@@ -157,6 +190,11 @@ public class SchemaBuilder {
                 return m.getPredicate().matches(Nodes.RDFS_RANGE);
             }
 
+            @Override
+            public Set<Node> predicates() {
+                return Collections.singleton(Nodes.RDFS_RANGE);
+            }
+
             @Override
             public ExtendedIterator<Triple> list(Graph g, Triple m) {
                 return distinctMatch(Iter.flatMap(listPropertyBridges(g),
@@ -200,6 +238,11 @@ public class SchemaBuilder {
                 return m.getPredicate().matches(desiredPredicate);
             }
 
+            @Override
+            public Set<Node> predicates() {
+                return Collections.singleton(desiredPredicate);
+            }
+
             @Override
             public ExtendedIterator<Triple> list(Graph graph, Triple m) {
                 ExtendedIterator<Triple> a = listLiteralAnnotations(graph, desiredPredicate, mappingClassPredicate,
@@ -0,0 +1,157 @@
+package de.fuberlin.wiwiss.d2rq.map.impl;
+
+import de.fuberlin.wiwiss.d2rq.jena.ControlledGraph;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.mem.GraphMem;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A materialized (in-memory) {@link SchemaController#inferSchema(MappingImpl) schema},
+ * that follows the changes of the mapping graph incrementally.
+ * <p>
+ * A change of a triple, that is not a D2RQ instruction (e.g. an OWL axiom added by some tool),
+ * does not affect the inferred part of the schema, so it is just applied to the in-memory copy.
+ * Any other change makes the cache invalid, in that case the {@link #update(Triple, ControlledGraph.Event)}
+ * method returns {@code false} and the whole schema has to be materialized again.
+ * <p>
+ * The graph returned by {@link #getGraph()} is a read-only view and is never modified,
+ * so the iterators, that are already opened, remain valid.
+ * The materialized schema is not copied on a change: the view is the materialized schema
+ * plus the accumulated additions and minus the accumulated deletions.
+ * Only when the accumulated changes become large compared to the schema,
+ * they are merged into a fresh copy of the materialized schema.
+ *
+ * @see SchemaController#materializeSchema(MappingImpl)
+ */
+@SuppressWarnings("WeakerAccess")
+public class SchemaCache {
+    // the min number of accumulated changes to merge them into the materialized schema:
+    private static final int MIN_MERGE_SIZE = 1024;
+
+    private final SchemaController controller;
+    private final Graph mapping;
+    // the inferred (right) part of the schema
+    private final Graph inferred;
+    // the materialized schema, it is not modified once published
+    private Graph base;
+    // the changes of the base, that are not merged yet: the triples absent in the base and present in the base
+    private final Set<Triple> added = new HashSet<>();
+    private final Set<Triple> deleted = new HashSet<>();
+    // the published view, null if there are new changes
+    private volatile Graph schema;
+
+    protected SchemaCache(SchemaController controller, Graph mapping, Graph schema, Graph inferred) {
+        this.controller = Objects.requireNonNull(controller);
+        this.mapping = Objects.requireNonNull(mapping);
+        this.base = Objects.requireNonNull(schema);
+        this.schema = schema;
+        this.inferred = Objects.requireNonNull(inferred);
+    }
+
+    /**
+     * Answers the current in-memory schema graph.
+     *
+     * @return {@link Graph}, not {@code null}, read-only
+     */
+    public Graph getGraph() {
+        Graph res = schema;
+        if (res != null) return res;
+        synchronized (this) {
+            if ((res = schema) != null) return res;
+            if (added.size() + deleted.size() >= Math.max(MIN_MERGE_SIZE, base.size() / 4)) {
+                GraphMem merged = new GraphMem();
+                GraphUtil.addInto(merged, base);
+                added.forEach(merged::add);
+                deleted.forEach(merged::delete);
+                added.clear();
+                deleted.clear();
+                return schema = base = merged;
+            }
+            if (added.isEmpty() && deleted.isEmpty()) {
+                return schema = base;
+            }
+            return schema = new Overlay(base, new HashSet<>(added), new HashSet<>(deleted));
+        }
+    }
+
+    /**
+     * Reflects the change of the mapping graph, that is going to be performed.
+     *
+     * @param triple {@link Triple}, not {@code null}
+     * @param event  {@link ControlledGraph.Event}, not {@code null}
+     * @return {@code false} if the change cannot be handled incrementally and the cache is no longer valid
+     */
+    public boolean update(Triple triple, ControlledGraph.Event event) {
+        if (ControlledGraph.Event.CLEAR == event || !triple.isConcrete()
+                || controller.isSchemaInstruction(mapping, triple)) {
+            return false;
+        }
+        if (controller.isHidden(mapping, triple)) {
+            // belongs to a D2RQ resource, it is not a part of the schema
+            return true;
+        }
+        boolean add = ControlledGraph.Event.ADD == event;
+        if (!add && inferred.contains(triple)) {
+            // still inferred
+            return true;
+        }
+        synchronized (this) {
+            if (base.contains(triple)) {
+                if (add) {
+                    deleted.remove(triple);
+                } else {
+                    deleted.add(triple);
+                }
+            } else if (add) {
+                added.add(triple);
+            } else {
+                added.remove(triple);
+            }
+            schema = null;
+        }
+        return true;
+    }
+
+    /**
+     * An immutable view of a graph with some triples added and some triples deleted.
+     * The added triples are absent in the base graph, the deleted triples are present in the base graph.
+     */
+    private static class Overlay extends GraphBase {
+        private final Graph base;
+        private final Set<Triple> added;
+        private final Set<Triple> deleted;
+
+        private Overlay(Graph base, Set<Triple> added, Set<Triple> deleted) {
+            this.base = base;
+            this.added = added;
+            this.deleted = deleted;
+        }
+
+        @Override
+        protected ExtendedIterator<Triple> graphBaseFind(Triple m) {
+            return base.find(m).filterDrop(deleted::contains)
+                    .andThen(WrappedIterator.create(added.iterator()).filterKeep(m::matches));
+        }
+
+        @Override
+        protected boolean graphBaseContains(Triple t) {
+            if (!t.isConcrete()) {
+                return super.graphBaseContains(t);
+            }
+            return added.contains(t) || !deleted.contains(t) && base.contains(t);
+        }
+
+        @Override
+        protected int graphBaseSize() {
+            return base.size() - deleted.size() + added.size();
+        }
+    }
+}
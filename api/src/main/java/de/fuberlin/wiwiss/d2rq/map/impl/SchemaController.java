@@ -12,8 +12,10 @@ import de.fuberlin.wiwiss.d2rq.vocab.AVC;
 import de.fuberlin.wiwiss.d2rq.vocab.D2RQ;
 import org.apache.jena.graph.FrontsNode;
 import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphUtil;
 import org.apache.jena.graph.Node;
 import org.apache.jena.graph.Triple;
+import org.apache.jena.mem.GraphMem;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.Resource;
@@ -175,6 +177,59 @@ public class SchemaController {
         };
     }
 
+    /**
+     * Materializes the {@link #inferSchema(MappingImpl) schema} of the given mapping into memory.
+     * The returned cache can be kept up to date while the mapping graph is changing,
+     * see {@link SchemaCache#update(Triple, de.fuberlin.wiwiss.d2rq.jena.ControlledGraph.Event)}.
+     *
+     * @param impl {@link MappingImpl}, not {@code null}, a mapping impl containing D2RQ instructions
+     * @return {@link SchemaCache}
+     */
+    public SchemaCache materializeSchema(MappingImpl impl) {
+        Graph map = Objects.requireNonNull(impl, "Null mapping").asModel().getGraph();
+        impl.compileSchema();
+        Graph inferred = new GraphMem();
+        GraphUtil.addInto(inferred, VirtualGraph.createDynamicGraph(map, virtualGraphBuilder));
+        Graph res = new GraphMem();
+        GraphUtil.addInto(res, VirtualGraph.createMaskGraph(map, maskGraphBuilder));
+        GraphUtil.addInto(res, inferred);
+        return new SchemaCache(this, map, res, inferred);
+    }
+
+    /**
+     * Answers {@code true} if the given triple of the mapping graph may affect the inferred part of the schema
+     * or the visibility of other triples: it is a D2RQ instruction, a D2RQ resource declaration,
+     * or it belongs to the ontology header.
+     * Note that the default {@link SchemaBuilder} rules read only such triples,
+     * a controller with other rules may need to override this method.
+     *
+     * @param map    {@link Graph} the mapping graph
+     * @param triple {@link Triple}, concrete
+     * @return boolean
+     */
+    public boolean isSchemaInstruction(Graph map, Triple triple) {
+        Node p = triple.getPredicate();
+        if (MappingImpl.D2RQ_PREDICATES.contains(p)) {
+            return true;
+        }
+        Node o = triple.getObject();
+        if (Nodes.RDF_FTYPE.equals(p) && (Nodes.D2RQ_TYPES.contains(o) || Nodes.OWL_ONTOLOGY.equals(o))) {
+            return true;
+        }
+        return map.contains(triple.getSubject(), Nodes.RDF_FTYPE, Nodes.OWL_ONTOLOGY);
+    }
+
+    /**
+     * Answers {@code true} if the given triple of the mapping graph is hidden from the schema.
+     *
+     * @param map    {@link Graph} the mapping graph
+     * @param triple {@link Triple}
+     * @return boolean
+     */
+    public boolean isHidden(Graph map, Triple triple) {
+        return maskGraphBuilder.test(map, triple);
+    }
+
     /**
      * Compiles the schema for the given mapping.
      * This method generates additional different {@link ClassMap}s and {@link PropertyBridge}s in order
@@ -3,14 +3,11 @@ package de.fuberlin.wiwiss.d2rq.map.impl;
 import de.fuberlin.wiwiss.d2rq.D2RQException;
 import de.fuberlin.wiwiss.d2rq.csv.TranslationTableParser;
 import de.fuberlin.wiwiss.d2rq.map.TranslationTable;
+import de.fuberlin.wiwiss.d2rq.values.TableTranslator;
 import de.fuberlin.wiwiss.d2rq.values.Translator;
 import org.apache.jena.rdf.model.Resource;
 
 import java.lang.reflect.Constructor;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -40,11 +37,11 @@ class TranslatorHelper {
         // file:
         String href = table.getHref();
         if (href != null) {
-            return new Table(new TranslationTableParser(href).parseTranslations(),
+            return new TableTranslator(new TranslationTableParser(href).parseTranslations(),
                     TranslationTableParser.Row::first, TranslationTableParser.Row::second);
         }
         // rdf:
-        return new Table(table.translations().collect(Collectors.toSet()),
+        return new TableTranslator(table.translations().collect(Collectors.toSet()),
                 TranslationTable.Entry::getDatabaseValue, TranslationTable.Entry::getRDFValue);
     }
 
@@ -93,26 +90,4 @@ class TranslatorHelper {
         }
         throw new D2RQException("No suitable public constructor found on d2rq:javaClass " + classPath);
     }
-
-    private static class Table implements Translator {
-        private Map<String, String> translationsByDBValue = new HashMap<>();
-        private Map<String, String> translationsByRDFValue = new HashMap<>();
-
-        <X> Table(Collection<X> map, Function<X, String> key, Function<X, String> value) {
-            for (X p : map) {
-                translationsByDBValue.put(key.apply(p), value.apply(p));
-                translationsByRDFValue.put(value.apply(p), key.apply(p));
-            }
-        }
-
-        @Override
-        public String toDBValue(String rdfValue) {
-            return translationsByRDFValue.get(rdfValue);
-        }
-
-        @Override
-        public String toRDFValue(String dbValue) {
-            return translationsByDBValue.get(dbValue);
-        }
-    }
 }
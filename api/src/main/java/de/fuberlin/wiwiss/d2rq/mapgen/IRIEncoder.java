@@ -1,7 +1,5 @@
 package de.fuberlin.wiwiss.d2rq.mapgen;
 
-import java.nio.charset.StandardCharsets;
-
 public class IRIEncoder {
 
     /**
@@ -12,26 +10,41 @@ public class IRIEncoder {
      * @return String
      */
     public static String encode(String s) {
-        StringBuilder sbuffer = new StringBuilder(s.length());
-        for (int i = 0; i < s.length(); i++) {
+        int length = s.length();
+        int i = 0;
+        while (i < length && isUnreserved(s.charAt(i))) {
+            i++;
+        }
+        if (i == length) {
+            // nothing to encode
+            return s;
+        }
+        StringBuilder sbuffer = new StringBuilder(length + 16).append(s, 0, i);
+        for (; i < length; i++) {
             char c = s.charAt(i);
-            int cCode = (int) c;
-
-            if (c == '-' || c == '_' || c == '~' || c == '.'
-                    || isDigit(cCode) || isLetter(cCode)
-                    || cCode >= 0x00A0) {
+            if (isUnreserved(c)) {
                 sbuffer.append(c);
+            } else if (c < 0x80) {
+                appendByte(sbuffer, c);
             } else {
-                for (byte b : s.substring(i, i + 1).getBytes(StandardCharsets.UTF_8)) {
-                    sbuffer.append('%');
-                    sbuffer.append(hexDigits[(b >> 4) & 0x0F]);
-                    sbuffer.append(hexDigits[b & 0x0F]);
-                }
+                // U+0080..U+009F, two bytes in UTF-8
+                appendByte(sbuffer, 0xC0 | (c >> 6));
+                appendByte(sbuffer, 0x80 | (c & 0x3F));
             }
         }
         return sbuffer.toString();
     }
 
+    private static boolean isUnreserved(char c) {
+        return c == '-' || c == '_' || c == '~' || c == '.' || isDigit(c) || isLetter(c) || c >= 0x00A0;
+    }
+
+    private static void appendByte(StringBuilder sbuffer, int b) {
+        sbuffer.append('%');
+        sbuffer.append(hexDigits[(b >> 4) & 0x0F]);
+        sbuffer.append(hexDigits[b & 0x0F]);
+    }
+
     private static char[] hexDigits = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'A', 'B', 'C', 'D', 'E', 'F'};
 
     private static boolean isDigit(int c) {
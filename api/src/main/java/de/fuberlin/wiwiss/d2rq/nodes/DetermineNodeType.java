@@ -100,10 +100,11 @@ public class DetermineNodeType implements NodeSetFilter {
         LOGGER.warn("TODO DetermineNodeType.limitValuesToBlankNodeID() {}", id);
     }
 
-    // FIXME Implement!
     @Override
     public void limitValuesToExpression(Expression expression) {
-        LOGGER.warn("TODO DetermineNodeType.limitValuesToExpression() {}", expression);
+        // an expression (e.g. a compiled d2rq:TranslationTable) does not change the node type
+        if (LOGGER.isDebugEnabled())
+            LOGGER.debug("limitting values to expression {}", expression);
     }
 
     // FIXME Implement!
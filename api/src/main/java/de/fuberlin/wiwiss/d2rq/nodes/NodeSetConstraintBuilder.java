@@ -5,6 +5,7 @@ import de.fuberlin.wiwiss.d2rq.expr.AttributeExpr;
 import de.fuberlin.wiwiss.d2rq.expr.Conjunction;
 import de.fuberlin.wiwiss.d2rq.expr.Equality;
 import de.fuberlin.wiwiss.d2rq.expr.Expression;
+import de.fuberlin.wiwiss.d2rq.expr.TranslationCase;
 import de.fuberlin.wiwiss.d2rq.values.BlankNodeID;
 import de.fuberlin.wiwiss.d2rq.values.Pattern;
 import de.fuberlin.wiwiss.d2rq.values.Translator;
@@ -44,6 +45,8 @@ public class NodeSetConstraintBuilder implements NodeSetFilter {
     private Collection<Expression> expressions = new HashSet<>();
     private Collection<BlankNodeID> blankNodeIDs = new HashSet<>();
     private Set<Translator> translators = new HashSet<>();
+    // translators that are done in SQL (see TranslationCase), they can be joined with anything
+    private Set<Translator> compiledTranslators = new HashSet<>();
     private String valueStart = "";
     private String valueEnd = "";
 
@@ -195,14 +198,26 @@ public class NodeSetConstraintBuilder implements NodeSetFilter {
     public void limitValuesToExpression(Expression expression) {
         if (isEmpty) return;
         expressions.add(expression);
+        if (expression instanceof TranslationCase) {
+            compiledTranslators.add(((TranslationCase) expression).translator());
+        }
     }
 
     @Override
     public void setUsesTranslator(Translator translator) {
         translators.add(translator);
-        if (translators.size() > 1) {
-            unsupported = true;
+    }
+
+    private boolean joinsJavaTranslators() {
+        if (translators.size() < 2) {
+            return false;
         }
+        for (Translator t : translators) {
+            if (!Translator.IDENTITY.equals(t) && !compiledTranslators.contains(t)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public boolean isEmpty() {
@@ -286,7 +301,9 @@ public class NodeSetConstraintBuilder implements NodeSetFilter {
             }
             if (!expressions.isEmpty()) {
                 Expression first = expressions.iterator().next();
-                translated.add(Equality.createExpressionValue(first, constantValue));
+                translated.add(first instanceof TranslationCase
+                        ? ((TranslationCase) first).valueExpression(constantValue)
+                        : Equality.createExpressionValue(first, constantValue));
             }
         } else if (!attributes.isEmpty()) {
             AttributeExpr attribute = new AttributeExpr(attributes.iterator().next());
@@ -321,7 +338,8 @@ public class NodeSetConstraintBuilder implements NodeSetFilter {
             checkUsesColumnFunctions(firstPattern);
         }
         // FIXME: Actually handle this properly, see https://github.com/d2rq/d2rq/issues/22
-        if (translators.size() > 1) {
+        if (joinsJavaTranslators()) {
+            unsupported = true;
             LOGGER.warn("Join involving multiple translators (d2rq:translateWith) is not supported");
         }
         return Conjunction.create(translated);
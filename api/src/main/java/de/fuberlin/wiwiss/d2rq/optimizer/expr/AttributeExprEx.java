@@ -1,26 +1,46 @@
 package de.fuberlin.wiwiss.d2rq.optimizer.expr;
 
+import de.fuberlin.wiwiss.d2rq.algebra.AliasMap;
 import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
 import de.fuberlin.wiwiss.d2rq.expr.AttributeExpr;
+import de.fuberlin.wiwiss.d2rq.expr.Expression;
 import de.fuberlin.wiwiss.d2rq.nodes.NodeMaker;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
 
 /**
  * Extends <code>AttributeExpr</code> with a <code>NodeMaker</code>.
+ * If the values of the attribute are translated (see {@link de.fuberlin.wiwiss.d2rq.expr.TranslationCase}),
+ * the SQL is that of the translated values.
  *
  * @author G. Mels
  */
 public class AttributeExprEx extends AttributeExpr {
 
     private final NodeMaker nodeMaker;
+    private final Expression translated;
 
     public AttributeExprEx(Attribute attribute, NodeMaker nodeMaker) {
+        this(attribute, nodeMaker, null);
+    }
+
+    public AttributeExprEx(Attribute attribute, NodeMaker nodeMaker, Expression translated) {
         super(attribute);
 
         this.nodeMaker = nodeMaker;
+        this.translated = translated;
     }
 
     public NodeMaker getNodeMaker() {
         return nodeMaker;
     }
 
+    public Expression getTranslated() {
+        return translated;
+    }
+
+    @Override
+    public String toSQL(ConnectedDB database, AliasMap aliases) {
+        return translated == null ? super.toSQL(database, aliases) : translated.toSQL(database, aliases);
+    }
+
 }
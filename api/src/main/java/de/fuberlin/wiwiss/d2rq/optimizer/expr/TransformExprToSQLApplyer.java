@@ -3,6 +3,7 @@ package de.fuberlin.wiwiss.d2rq.optimizer.expr;
 import de.fuberlin.wiwiss.d2rq.algebra.*;
 import de.fuberlin.wiwiss.d2rq.expr.*;
 import de.fuberlin.wiwiss.d2rq.nodes.*;
+import de.fuberlin.wiwiss.d2rq.values.ValueDecorator;
 import de.fuberlin.wiwiss.d2rq.values.ValueMaker;
 import org.apache.jena.datatypes.RDFDatatype;
 import org.apache.jena.datatypes.xsd.XSDDatatype;
@@ -244,7 +245,15 @@ public final class TransformExprToSQLApplyer implements ExprVisitor {
                     return Collections.emptyList();
 
                 if (projectionSpec instanceof Attribute) {
-                    result.add(new AttributeExprEx((Attribute) projectionSpec, nodeMaker));
+                    ValueMaker valueMaker = typedNodeMaker.valueMaker();
+                    Expression translated = null;
+                    if (valueMaker instanceof ValueDecorator && ((ValueDecorator) valueMaker).usesTranslator()) {
+                        // the raw column can't be compared with RDF values, unless the translation is done in SQL
+                        translated = ((ValueDecorator) valueMaker).translatedExpression();
+                        if (translated == null)
+                            return Collections.emptyList();
+                    }
+                    result.add(new AttributeExprEx((Attribute) projectionSpec, nodeMaker, translated));
                 } else {
                     // projectionSpec is a ExpressionProjectionSpec
                     ExpressionProjectionSpec expressionProjectionSpec = (ExpressionProjectionSpec) projectionSpec;
@@ -791,7 +800,7 @@ public final class TransformExprToSQLApplyer implements ExprVisitor {
             TypedNodeMaker newNodeMaker = new TypedNodeMaker(TypedNodeMaker.PLAIN_LITERAL, nodeMaker.valueMaker(), nodeMaker.isUnique());
             if (LOGGER.isDebugEnabled())
                 LOGGER.debug("changing nodemaker {} to {}", nodeMaker, newNodeMaker);
-            expression.push(new AttributeExprEx(attribute.attributes().iterator().next(), newNodeMaker));
+            expression.push(new AttributeExprEx(attribute.attributes().iterator().next(), newNodeMaker, attribute.getTranslated()));
         } else if (arg instanceof ConstantEx) {
             ConstantEx constant = (ConstantEx) arg;
             Node node = constant.getNode();
@@ -4,19 +4,41 @@ package de.fuberlin.wiwiss.d2rq.sql;
  * A class for capturing performance information.
  * We grant read/write access to instance variables.
  * <p>
- * TODO: Remove?
+ * The values are taken from the {@link QueryMetrics#globalInstance() global metrics},
+ * which must be enabled to get anything other than zeros.
+ * The static {@code total*} fields are kept for compatibility,
+ * the global metrics copy their counters into them on each update.
  *
  * @author jgarbers
+ * @deprecated use {@link QueryMetrics} instead
  */
+@Deprecated
 @SuppressWarnings("WeakerAccess")
 public class BeanCounter implements Cloneable {
 
-    // Static global state information to be copied into an instance with update(). 
+    /**
+     * The number of statements counted by the global metrics.
+     *
+     * @deprecated use {@link QueryMetrics#getStatementCount()} of {@link QueryMetrics#globalInstance()}
+     */
+    @Deprecated
     public static int totalNumberOfExecutedSQLQueries = 0;
+    /**
+     * The number of rows counted by the global metrics.
+     *
+     * @deprecated use {@link QueryMetrics#getRowCount()} of {@link QueryMetrics#globalInstance()}
+     */
+    @Deprecated
     public static int totalNumberOfReturnedRows = 0;
+    /**
+     * The number of fields counted by the global metrics.
+     *
+     * @deprecated use {@link QueryMetrics#getFieldCount()} of {@link QueryMetrics#globalInstance()}
+     */
+    @Deprecated
     public static int totalNumberOfReturnedFields = 0;
 
-    // instance fields corresponding to static fields
+    // instance fields corresponding to the global metrics
     public int numberOfExecutedSQLQueries = 0;
     public int numberOfReturnedRows = 0;
     public int numberOfReturnedFields = 0;
@@ -26,12 +48,13 @@ public class BeanCounter implements Cloneable {
     // Operations on instances
 
     /**
-     * Updates the instance fields with current static values.
+     * Updates the instance fields with current global values.
      */
     public void update() {
-        numberOfExecutedSQLQueries = totalNumberOfExecutedSQLQueries;
-        numberOfReturnedRows = totalNumberOfReturnedRows;
-        numberOfReturnedFields = totalNumberOfReturnedFields;
+        QueryMetrics metrics = QueryMetrics.globalInstance();
+        numberOfExecutedSQLQueries = (int) metrics.getStatementCount();
+        numberOfReturnedRows = (int) metrics.getRowCount();
+        numberOfReturnedFields = (int) metrics.getFieldCount();
         timeMillis = System.currentTimeMillis();
     }
 
@@ -71,7 +94,7 @@ public class BeanCounter implements Cloneable {
     }
 
     /**
-     * Gets a copy of the static fields.
+     * Gets a copy of the global values.
      *
      * @return an instance
      */
@@ -84,7 +107,7 @@ public class BeanCounter implements Cloneable {
     /**
      * Gets a difference instance.
      * @param minus {@link BeanCounter}
-     * @return a new (static - minus) instance
+     * @return a new (global - minus) instance
      */
     public static BeanCounter instanceMinus(BeanCounter minus) {
         BeanCounter inst = instance();
@@ -4,6 +4,8 @@ import de.fuberlin.wiwiss.d2rq.D2RQException;
 import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
 import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
 import de.fuberlin.wiwiss.d2rq.dbschema.DatabaseSchemaInspector;
+import de.fuberlin.wiwiss.d2rq.dbschema.TableKeys;
+import de.fuberlin.wiwiss.d2rq.dbschema.TableStatistics;
 import de.fuberlin.wiwiss.d2rq.map.Database;
 import de.fuberlin.wiwiss.d2rq.sql.types.DataType;
 import de.fuberlin.wiwiss.d2rq.sql.types.DataType.GenericType;
@@ -17,6 +19,7 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TODO Move all engine-specific code from here to {@link Vendor} and its implementations
@@ -36,21 +39,27 @@ public class ConnectedDB implements AutoCloseable {
     private String jdbcURL;
     private String username;
     private String password;
-    private final Map<Attribute, Boolean> cachedColumnNullability = new HashMap<>();
-    private final Map<Attribute, DataType> cachedColumnTypes = new HashMap<>();
+    private final MetadataCache<Attribute, Boolean> cachedColumnNullability = new MetadataCache<>(this::loadNullability);
+    private final MetadataCache<Attribute, DataType> cachedColumnTypes = new MetadataCache<>(this::loadColumnType);
     private final Map<Attribute, GenericType> overriddenColumnTypes = new HashMap<>();
-    private Connection connection;
-    private DatabaseSchemaInspector schemaInspector;
+    // the column metadata fetched in bulk by #prefetchColumnMetadata, keyed by #metadataKey:
+    private final Map<Attribute, DatabaseSchemaInspector.ColumnInfo> prefetchedColumns = new ConcurrentHashMap<>();
+    private volatile Connection connection;
+    private volatile DatabaseSchemaInspector schemaInspector;
 
     // Lazy initialization -- use vendor() for access!
-    private Vendor vendor;
+    private volatile Vendor vendor;
 
     private int limit;
     private int fetchSize;
     private int defaultFetchSize = Database.NO_FETCH_SIZE;
-    private Map<Attribute, Boolean> zerofillCache = new HashMap<>();
-    private Map<RelationName, Map<String, List<String>>> uniqueIndexCache = new HashMap<>();
+    private final MetadataCache<Attribute, Boolean> zerofillCache = new MetadataCache<>(this::loadZerofill);
+    private final MetadataCache<RelationName, Map<String, List<String>>> uniqueIndexCache = new MetadataCache<>(this::loadUniqueKeyColumns);
+    private final MetadataCache<RelationName, TableKeys> keysCache = new MetadataCache<>(this::loadTableKeys);
+    private final MetadataCache<RelationName, TableStatistics> statisticsCache = new MetadataCache<>(this::loadTableStatistics);
+    private volatile boolean useTableStatistics;
     private final Properties connectionProperties;
+    private volatile ReplicaRouter replicaRouter;
 
     private class KeepAliveAgent extends Thread {
         private final int interval;
@@ -127,7 +136,7 @@ public class ConnectedDB implements AutoCloseable {
         }
     }
 
-    private void resetConnection() {
+    void resetConnection() {
         if (this.connection == null) {
             return;
         }
@@ -209,16 +218,59 @@ public class ConnectedDB implements AutoCloseable {
     }
 
     public Connection connection() {
-        if (this.connection == null) {
-            connect();
+        if (this.connection != null) {
+            return this.connection;
+        }
+        synchronized (this) {
+            if (this.connection == null) {
+                connect();
+            }
+            return this.connection;
         }
-        return this.connection;
     }
 
     public boolean isConnected() {
         return connection != null;
     }
 
+    /**
+     * Declares the read replicas of this database.
+     * The replicas get the same credentials, limits and connection properties (except the keep-alive settings),
+     * they are connected lazily, when the first statement is routed to them.
+     *
+     * @param jdbcURLs {@code Collection} of JDBC URLs, not empty
+     * @param policy   {@link ReplicaRouter.Policy}
+     * @see #replicaRouter()
+     */
+    public void setReadReplicas(Collection<String> jdbcURLs, ReplicaRouter.Policy policy) {
+        Properties properties = null;
+        if (connectionProperties != null) {
+            properties = (Properties) connectionProperties.clone();
+            // a failed replica is checked by the router
+            properties.remove(KEEP_ALIVE_PROPERTY);
+            properties.remove(KEEP_ALIVE_QUERY_PROPERTY);
+        }
+        List<ConnectedDB> replicas = new ArrayList<>();
+        for (String url : jdbcURLs) {
+            replicas.add(new ConnectedDB(url, username, password, Collections.emptyMap(), limit, fetchSize, properties));
+        }
+        ReplicaRouter prev = replicaRouter;
+        replicaRouter = new ReplicaRouter(this, replicas, policy);
+        if (prev != null) {
+            prev.close();
+        }
+    }
+
+    /**
+     * Returns the router over the read replicas of this database.
+     *
+     * @return {@link ReplicaRouter} or {@code null} if there are no replicas
+     * @see #setReadReplicas(Collection, ReplicaRouter.Policy)
+     */
+    public ReplicaRouter replicaRouter() {
+        return replicaRouter;
+    }
+
     public int limit() {
         return this.limit;
     }
@@ -295,38 +347,158 @@ public class ConnectedDB implements AutoCloseable {
     }
 
     public DatabaseSchemaInspector schemaInspector() {
-        if (schemaInspector == null && jdbcURL != null) {
-            schemaInspector = new DatabaseSchemaInspector(this);
+        if (schemaInspector != null || jdbcURL == null) {
+            return this.schemaInspector;
+        }
+        synchronized (this) {
+            if (schemaInspector == null) {
+                schemaInspector = new DatabaseSchemaInspector(this);
+            }
+            return this.schemaInspector;
         }
-        return this.schemaInspector;
     }
 
     /**
      * Returns a column's datatype. Caches the types for performance.
+     * The cache is thread-safe, concurrent requests for the same column trigger only one catalog query.
      *
      * @param column Attribute
      * @return The column's datatype, or <code>null</code> if unknown
      */
     public DataType columnType(Attribute column) {
-        if (!cachedColumnTypes.containsKey(column)) {
-            if (overriddenColumnTypes.containsKey(column)) {
-                cachedColumnTypes.put(column, overriddenColumnTypes.get(column).dataTypeFor(vendor()));
-            } else if (schemaInspector() == null) {
-                cachedColumnTypes.put(column, GenericType.CHARACTER.dataTypeFor(vendor()));
-            } else {
-                cachedColumnTypes.put(column, schemaInspector().columnType(column));
-            }
-        }
         return cachedColumnTypes.get(column);
     }
 
     public boolean isNullable(Attribute column) {
-        if (!cachedColumnNullability.containsKey(column)) {
-            cachedColumnNullability.put(column, schemaInspector() == null || schemaInspector().isNullable(column));
-        }
         return cachedColumnNullability.get(column);
     }
 
+    private DataType loadColumnType(Attribute column) {
+        if (overriddenColumnTypes.containsKey(column)) {
+            return overriddenColumnTypes.get(column).dataTypeFor(vendor());
+        }
+        if (schemaInspector() == null) {
+            return GenericType.CHARACTER.dataTypeFor(vendor());
+        }
+        DatabaseSchemaInspector.ColumnInfo info = prefetchedColumns.get(metadataKey(column));
+        if (info != null) {
+            return info.type();
+        }
+        return schemaInspector().columnType(column);
+    }
+
+    private Boolean loadNullability(Attribute column) {
+        if (schemaInspector() == null) {
+            return true;
+        }
+        DatabaseSchemaInspector.ColumnInfo info = prefetchedColumns.get(metadataKey(column));
+        if (info != null) {
+            return info.isNullable();
+        }
+        return schemaInspector().isNullable(column);
+    }
+
+    /**
+     * Normalises a column name the way the catalog lookup matches it:
+     * MySQL compares column names (and, {@link #lowerCaseTableNames() sometimes}, table names) case-insensitively,
+     * other databases compare them exactly.
+     *
+     * @param column {@link Attribute}
+     * @return {@link Attribute}
+     */
+    private Attribute metadataKey(Attribute column) {
+        if (!Vendor.MySQL.equals(vendor())) {
+            return column;
+        }
+        RelationName table = column.relationName();
+        if (lowerCaseTableNames()) {
+            table = new RelationName(table.schemaName() == null ? null : table.schemaName().toLowerCase(Locale.ROOT),
+                    table.tableName().toLowerCase(Locale.ROOT), true);
+        }
+        return new Attribute(table, column.attributeName().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Pre-warms the column type and nullability caches for all columns of the given tables,
+     * using a single catalog query per table instead of two queries per column.
+     * The prefetched metadata is used when a column is looked up for the first time;
+     * overridden column types take precedence, ambiguous tables are not prefetched.
+     *
+     * @param tables Collection of {@link RelationName}s, physical (not aliased) table names
+     */
+    public void prefetchColumnMetadata(Collection<RelationName> tables) {
+        DatabaseSchemaInspector inspector = schemaInspector();
+        if (inspector == null) {
+            return;
+        }
+        for (RelationName table : tables) {
+            Map<Attribute, DatabaseSchemaInspector.ColumnInfo> columns;
+            try {
+                columns = inspector.describeColumns(table);
+            } catch (D2RQException ex) {
+                // will be reported with the per-column lookups
+                LOGGER.warn("Can't prefetch metadata for {}: {}", table, ex.getMessage());
+                continue;
+            }
+            // the caches are keyed by the names of the mapping, the names reported by the database may differ in case,
+            // so the columns are kept aside and found by the normalised names, when the caches are filled
+            columns.forEach((column, info) -> prefetchedColumns.putIfAbsent(metadataKey(column), info));
+        }
+    }
+
+    /**
+     * Forgets all cached metadata, including the prefetched columns, e.g. after the database schema has been changed.
+     * The metadata is loaded again on demand.
+     */
+    public void invalidateMetadata() {
+        prefetchedColumns.clear();
+        cachedColumnTypes.clear();
+        cachedColumnNullability.clear();
+        zerofillCache.clear();
+        uniqueIndexCache.clear();
+        keysCache.clear();
+        statisticsCache.clear();
+    }
+
+    /**
+     * Specifies whether the catalog statistics of the tables should be used to plan queries.
+     *
+     * @param useTableStatistics boolean
+     * @see #tableStatistics(RelationName)
+     */
+    public void setUseTableStatistics(boolean useTableStatistics) {
+        this.useTableStatistics = useTableStatistics;
+    }
+
+    public boolean useTableStatistics() {
+        return useTableStatistics;
+    }
+
+    /**
+     * Returns the size estimates of a table, if the use of statistics is enabled.
+     * The statistics are read from the catalog once per table and then cached.
+     *
+     * @param table {@link RelationName}, physical (not aliased) table name
+     * @return {@link TableStatistics}, not {@code null}; {@link TableStatistics#NONE} if disabled or unknown
+     * @see #setUseTableStatistics(boolean)
+     */
+    public TableStatistics tableStatistics(RelationName table) {
+        if (!useTableStatistics) {
+            return TableStatistics.NONE;
+        }
+        return statisticsCache.get(table);
+    }
+
+    private TableStatistics loadTableStatistics(RelationName table) {
+        if (schemaInspector() == null) {
+            return TableStatistics.NONE;
+        }
+        TableStatistics res = schemaInspector().tableStatistics(table);
+        if (LOGGER.isDebugEnabled())
+            LOGGER.debug("Statistics of {}: {}", table, res);
+        return res;
+    }
+
     /**
      * @return a helper for generating SQL statements conforming to the syntax
      * of the database engine used in this connection
@@ -342,6 +514,13 @@ public class ConnectedDB implements AutoCloseable {
 
     private void ensureVendorInitialized() {
         if (vendor != null) return;
+        synchronized (this) {
+            if (vendor != null) return;
+            initVendor();
+        }
+    }
+
+    private void initVendor() {
         try {
             String productName = getDatabaseProductType();
             LOGGER.info("JDBC database product type: {}", productName);
@@ -399,18 +578,51 @@ public class ConnectedDB implements AutoCloseable {
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     private boolean isZerofillColumn(Attribute column) {
         if (!Vendor.MySQL.equals(vendor())) return false;
-        if (!zerofillCache.containsKey(column)) {
-            zerofillCache.put(column, schemaInspector().isZerofillColumn(column));
-        }
         return zerofillCache.get(column);
     }
 
+    private Boolean loadZerofill(Attribute column) {
+        return schemaInspector().isZerofillColumn(column);
+    }
+
     public Map<String, List<String>> getUniqueKeyColumns(RelationName tableName) {
-        if (!uniqueIndexCache.containsKey(tableName) && schemaInspector() != null)
-            uniqueIndexCache.put(tableName, schemaInspector().uniqueColumns(tableName));
         return uniqueIndexCache.get(tableName);
     }
 
+    private Map<String, List<String>> loadUniqueKeyColumns(RelationName tableName) {
+        if (schemaInspector() == null) {
+            return null;
+        }
+        return Collections.unmodifiableMap(schemaInspector().uniqueColumns(tableName));
+    }
+
+    /**
+     * Returns the uniqueness model of a table.
+     * On the first call for a table, the primary key and the unique indexes are read from the catalog;
+     * after that, the model is answered from memory.
+     *
+     * @param tableName {@link RelationName}, physical (not aliased) table name
+     * @return {@link TableKeys}, not {@code null}
+     */
+    public TableKeys tableKeys(RelationName tableName) {
+        return keysCache.get(tableName);
+    }
+
+    private TableKeys loadTableKeys(RelationName tableName) {
+        TableKeys res = new TableKeys();
+        DatabaseSchemaInspector inspector = schemaInspector();
+        if (inspector == null) {
+            return res;
+        }
+        List<String> primaryKey = new ArrayList<>();
+        for (Attribute column : inspector.primaryKeyColumns(tableName)) {
+            primaryKey.add(column.attributeName());
+        }
+        res.addKey(primaryKey);
+        getUniqueKeyColumns(tableName).values().forEach(res::addKey);
+        return res;
+    }
+
     /**
      * In some situations, MySQL stores table names using lowercase only, and then performs case-insensitive comparison.
      * We need to account for this when comparing table names reported by MySQL and those from the mapping.
@@ -461,6 +673,8 @@ public class ConnectedDB implements AutoCloseable {
     public void close() {
         if (keepAliveAgent != null)
             keepAliveAgent.shutdown();
+        if (replicaRouter != null)
+            replicaRouter.close();
         if (connection == null) return;
         try {
             LOGGER.info("Closing connection to {}", jdbcURL);
@@ -471,6 +685,7 @@ public class ConnectedDB implements AutoCloseable {
         } finally {
             schemaInspector = null;
             connection = null;
+            invalidateMetadata();
         }
     }
 
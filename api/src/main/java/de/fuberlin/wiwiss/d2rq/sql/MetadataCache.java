@@ -0,0 +1,75 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Function;
+
+/**
+ * A thread-safe compute-once cache for database metadata, used by {@link ConnectedDB}.
+ * <p>
+ * Loading is single-flight: if several threads ask for the same absent key concurrently,
+ * the loader is called only once, and the other threads wait for its result.
+ * Different keys are loaded independently of each other.
+ * A failed load is not cached, the next call will try again.
+ * Unlike {@link ConcurrentHashMap#computeIfAbsent(Object, Function)}, {@code null} values are allowed.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ */
+public class MetadataCache<K, V> {
+    private final Map<K, FutureTask<V>> map = new ConcurrentHashMap<>();
+    private final Function<? super K, ? extends V> loader;
+
+    /**
+     * @param loader {@link Function} to load a value for a key, not {@code null}
+     */
+    public MetadataCache(Function<? super K, ? extends V> loader) {
+        this.loader = Objects.requireNonNull(loader);
+    }
+
+    /**
+     * Returns the cached value for the key, loading it if necessary.
+     *
+     * @param key not {@code null}
+     * @return the value, can be {@code null}
+     */
+    public V get(K key) {
+        FutureTask<V> res = map.get(key);
+        if (res == null) {
+            FutureTask<V> task = new FutureTask<>(() -> loader.apply(key));
+            res = map.putIfAbsent(key, task);
+            if (res == null) {
+                res = task;
+                task.run();
+            }
+        }
+        try {
+            return res.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new D2RQException("Interrupted while loading metadata for " + key, e);
+        } catch (ExecutionException e) {
+            map.remove(key, res);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new D2RQException("Can't load metadata for " + key, cause);
+        }
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    public void clear() {
+        map.clear();
+    }
+}
@@ -0,0 +1,187 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.vocab.D2RQ;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time after which a query must not keep running.
+ * <p>
+ * A deadline is carried in the ARQ {@link Context} of a query execution (see {@link #SYMBOL}),
+ * so that every SQL statement issued on behalf of the query,
+ * including the statements of nested-loop stages and of all union branches,
+ * share the same time budget.
+ * Each {@link SQLIterator} passes the remaining time to the JDBC driver
+ * through {@link Statement#setQueryTimeout(int)},
+ * and the iterators check the deadline between statements and result rows.
+ * An expired deadline surfaces as {@link QueryCancelledException}, like an ordinary cancellation.
+ */
+@SuppressWarnings("WeakerAccess")
+public class QueryDeadline {
+    private final static Logger LOGGER = LoggerFactory.getLogger(QueryDeadline.class);
+
+    /**
+     * The context symbol under which a {@link QueryDeadline} is stored.
+     */
+    public static final Symbol SYMBOL = Symbol.create(D2RQ.NS + "queryDeadline");
+
+    private final long deadlineNanos;
+    private final long timeoutMillis;
+
+    private QueryDeadline(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Creates a deadline that expires the given number of milliseconds from now.
+     *
+     * @param timeoutMillis positive long
+     * @return {@link QueryDeadline}
+     */
+    public static QueryDeadline after(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Timeout must be positive: " + timeoutMillis);
+        }
+        return new QueryDeadline(timeoutMillis);
+    }
+
+    /**
+     * Puts a new deadline, which expires the given number of milliseconds from now, into the context.
+     *
+     * @param context       {@link Context}, not {@code null}
+     * @param timeoutMillis positive long
+     * @return {@link QueryDeadline}
+     */
+    public static QueryDeadline set(Context context, long timeoutMillis) {
+        QueryDeadline res = after(timeoutMillis);
+        context.set(SYMBOL, res);
+        return res;
+    }
+
+    /**
+     * Makes sure the context carries a deadline if ARQ's {@link ARQ#queryTimeout} setting is present.
+     * The overall timeout is used, i.e. the second value of a {@code "timeout1,timeout2"} setting.
+     * Does nothing if there is a deadline already.
+     *
+     * @param context {@link Context}, can be {@code null}
+     */
+    public static void init(Context context) {
+        if (context == null || context.isDefined(SYMBOL)) return;
+        Object value = context.get(ARQ.queryTimeout);
+        if (value == null) return;
+        long timeout;
+        try {
+            if (value instanceof Number) {
+                timeout = ((Number) value).longValue();
+            } else {
+                String[] parts = value.toString().split(",");
+                timeout = Long.parseLong(parts[parts.length - 1].trim());
+            }
+        } catch (NumberFormatException e) {
+            LOGGER.warn("Can't parse {} value '{}'", ARQ.queryTimeout, value);
+            return;
+        }
+        if (timeout > 0) {
+            set(context, timeout);
+        }
+    }
+
+    /**
+     * Returns the deadline of the context.
+     *
+     * @param context {@link Context}, can be {@code null}
+     * @return {@link QueryDeadline} or {@code null} if there is no deadline
+     */
+    public static QueryDeadline get(Context context) {
+        if (context == null) return null;
+        Object res = context.get(SYMBOL);
+        return res instanceof QueryDeadline ? (QueryDeadline) res : null;
+    }
+
+    /**
+     * Returns the deadline of the execution context.
+     *
+     * @param execCxt {@link ExecutionContext}, can be {@code null}
+     * @return {@link QueryDeadline} or {@code null} if there is no deadline
+     */
+    public static QueryDeadline get(ExecutionContext execCxt) {
+        return execCxt == null ? null : get(execCxt.getContext());
+    }
+
+    /**
+     * Throws {@link QueryCancelledException} if the deadline of the execution context has expired.
+     *
+     * @param execCxt {@link ExecutionContext}, can be {@code null}
+     * @throws QueryCancelledException if the deadline has expired
+     */
+    public static void check(ExecutionContext execCxt) throws QueryCancelledException {
+        QueryDeadline res = get(execCxt);
+        if (res != null) {
+            res.check();
+        }
+    }
+
+    /**
+     * @return the timeout this deadline was created with, in milliseconds
+     */
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return the time left, in milliseconds, negative if the deadline has expired
+     */
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * @throws QueryCancelledException if the deadline has expired
+     */
+    public void check() throws QueryCancelledException {
+        if (isExpired()) {
+            throw new QueryCancelledException();
+        }
+    }
+
+    /**
+     * Passes the remaining time to the JDBC statement, rounded up to whole seconds.
+     * Drivers that do not support query timeouts are tolerated,
+     * the deadline is then only enforced between result rows and statements.
+     *
+     * @param statement {@link Statement}
+     * @throws QueryCancelledException if the deadline has expired
+     */
+    public void applyTo(Statement statement) throws QueryCancelledException {
+        long remaining = remainingMillis();
+        if (remaining <= 0) {
+            throw new QueryCancelledException();
+        }
+        int seconds = (int) Math.min(Integer.MAX_VALUE, (remaining + 999) / 1000);
+        try {
+            statement.setQueryTimeout(seconds);
+        } catch (SQLException | UnsupportedOperationException e) {
+            if (LOGGER.isDebugEnabled())
+                LOGGER.debug("Can't set query timeout: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "QueryDeadline(" + timeoutMillis + "ms, " + remainingMillis() + "ms left)";
+    }
+}
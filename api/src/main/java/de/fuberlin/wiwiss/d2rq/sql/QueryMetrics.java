@@ -0,0 +1,331 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.vocab.D2RQ;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution counters: SQL statements executed, rows and fields fetched,
+ * time spent in JDBC, in building RDF nodes from result rows and in translating SPARQL algebra,
+ * the hit rate of {@link de.fuberlin.wiwiss.d2rq.jena.CachingGraph}
+ * and of the {@link de.fuberlin.wiwiss.d2rq.values.CachingTranslator}s.
+ * <p>
+ * There is one {@link #global() global} instance, which is switched off by default
+ * (it can be switched on with the {@code d2rq.metrics} system property, via {@link #setEnabled(boolean)} or through JMX),
+ * and there can be a per-query instance, stored in the ARQ {@link Context} under {@link #SYMBOL}.
+ * Per-query counters are also added to the global ones, if those are enabled.
+ * If both are off, {@link #get(ExecutionContext)} answers {@code null},
+ * and the instrumented code does not even read the clock.
+ * <p>
+ * All counters are {@link LongAdder}s, so recording is thread-safe and cheap under contention.
+ */
+@SuppressWarnings("WeakerAccess")
+public class QueryMetrics implements QueryMetricsMBean {
+    /**
+     * The context symbol under which the {@link QueryMetrics} of a query are stored.
+     */
+    public static final Symbol SYMBOL = Symbol.create(D2RQ.NS + "queryMetrics");
+    /**
+     * The JMX name of the global instance.
+     */
+    public static final String MBEAN_NAME = "de.fuberlin.wiwiss.d2rq:type=QueryMetrics";
+
+    private static final QueryMetrics GLOBAL = new QueryMetrics(null);
+    private static volatile boolean enabled = Boolean.getBoolean("d2rq.metrics");
+
+    private final QueryMetrics parent;
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder fields = new LongAdder();
+    private final LongAdder jdbcNanos = new LongAdder();
+    private final LongAdder nodeNanos = new LongAdder();
+    private final LongAdder translationNanos = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private final LongAdder translatorHits = new LongAdder();
+    private final LongAdder translatorMisses = new LongAdder();
+
+    protected QueryMetrics(QueryMetrics parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Returns the global metrics, if they are enabled.
+     *
+     * @return {@link QueryMetrics} or {@code null}
+     */
+    public static QueryMetrics global() {
+        return enabled ? GLOBAL : null;
+    }
+
+    /**
+     * Returns the global metrics, whether they are enabled or not.
+     *
+     * @return {@link QueryMetrics}, not {@code null}
+     */
+    public static QueryMetrics globalInstance() {
+        return GLOBAL;
+    }
+
+    /**
+     * Starts recording metrics for a single query.
+     * The returned instance is stored in the context, so the query execution can find it.
+     *
+     * @param context {@link Context}, not {@code null}
+     * @return {@link QueryMetrics}, a fresh per-query instance
+     */
+    public static QueryMetrics start(Context context) {
+        QueryMetrics res = new QueryMetrics(GLOBAL);
+        context.set(SYMBOL, res);
+        return res;
+    }
+
+    /**
+     * Returns the metrics to record into for the context:
+     * the per-query instance if there is one, otherwise the global one if it is enabled.
+     *
+     * @param context {@link Context}, can be {@code null}
+     * @return {@link QueryMetrics} or {@code null} if nothing is to be recorded
+     */
+    public static QueryMetrics get(Context context) {
+        Object res = context == null ? null : context.get(SYMBOL);
+        return res instanceof QueryMetrics ? (QueryMetrics) res : global();
+    }
+
+    /**
+     * Returns the metrics to record into for the execution context.
+     *
+     * @param execCxt {@link ExecutionContext}, can be {@code null}
+     * @return {@link QueryMetrics} or {@code null} if nothing is to be recorded
+     * @see #get(Context)
+     */
+    public static QueryMetrics get(ExecutionContext execCxt) {
+        return get(execCxt == null ? null : execCxt.getContext());
+    }
+
+    /**
+     * Registers the global instance with the platform MBean server under {@link #MBEAN_NAME}.
+     * Does nothing if it is already registered.
+     */
+    public static void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(GLOBAL, name);
+            }
+        } catch (JMException e) {
+            throw new D2RQException("Can't register " + MBEAN_NAME, e);
+        }
+    }
+
+    /**
+     * Records an executed SQL statement.
+     *
+     * @param nanos time spent in executing it
+     */
+    public void recordStatement(long nanos) {
+        statements.increment();
+        jdbcNanos.add(nanos);
+        if (parent != null && enabled) parent.recordStatement(nanos);
+        updateLegacyCounters();
+    }
+
+    /**
+     * Records a fetched result row.
+     *
+     * @param fieldCount number of fields in the row
+     * @param nanos      time spent in fetching it
+     */
+    public void recordRow(int fieldCount, long nanos) {
+        rows.increment();
+        fields.add(fieldCount);
+        jdbcNanos.add(nanos);
+        if (parent != null && enabled) parent.recordRow(fieldCount, nanos);
+        updateLegacyCounters();
+    }
+
+    /**
+     * Records a batch of fetched result rows.
+     *
+     * @param rowCount   number of rows in the batch
+     * @param fieldCount number of fields in each row
+     * @param nanos      time spent in fetching the whole batch
+     */
+    public void recordRows(int rowCount, int fieldCount, long nanos) {
+        rows.add(rowCount);
+        fields.add((long) rowCount * fieldCount);
+        jdbcNanos.add(nanos);
+        if (parent != null && enabled) parent.recordRows(rowCount, fieldCount, nanos);
+        updateLegacyCounters();
+    }
+
+    /**
+     * Records time spent in building RDF nodes and bindings from result rows.
+     *
+     * @param nanos long
+     */
+    public void recordNodes(long nanos) {
+        nodeNanos.add(nanos);
+        if (parent != null && enabled) parent.recordNodes(nanos);
+    }
+
+    /**
+     * Records time spent in translating a SPARQL algebra expression into SQL-backed operators.
+     *
+     * @param nanos long
+     */
+    public void recordTranslation(long nanos) {
+        translationNanos.add(nanos);
+        if (parent != null && enabled) parent.recordTranslation(nanos);
+    }
+
+    /**
+     * Records a cache lookup.
+     *
+     * @param hit {@code true} if the cache could answer
+     */
+    public void recordCacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).increment();
+        if (parent != null && enabled) parent.recordCacheLookup(hit);
+    }
+
+    /**
+     * Records a lookup in the cache of a translator.
+     *
+     * @param hit {@code true} if the cache could answer
+     */
+    public void recordTranslatorLookup(boolean hit) {
+        (hit ? translatorHits : translatorMisses).increment();
+        if (parent != null && enabled) parent.recordTranslatorLookup(hit);
+    }
+
+    @Override
+    public long getStatementCount() {
+        return statements.sum();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    @Override
+    public long getFieldCount() {
+        return fields.sum();
+    }
+
+    @Override
+    public long getJdbcTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(jdbcNanos.sum());
+    }
+
+    @Override
+    public long getNodeTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nodeNanos.sum());
+    }
+
+    @Override
+    public long getTranslationTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(translationNanos.sum());
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        long hits = cacheHits.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getTranslatorCacheHitCount() {
+        return translatorHits.sum();
+    }
+
+    @Override
+    public long getTranslatorCacheMissCount() {
+        return translatorMisses.sum();
+    }
+
+    @Override
+    public double getTranslatorCacheHitRate() {
+        long hits = translatorHits.sum();
+        long total = hits + translatorMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Answers {@code true} if the global metrics are enabled.
+     *
+     * @return boolean
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switches the global metrics on or off.
+     *
+     * @param enabled boolean
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        QueryMetrics.enabled = enabled;
+    }
+
+    @Override
+    public void reset() {
+        statements.reset();
+        rows.reset();
+        fields.reset();
+        jdbcNanos.reset();
+        nodeNanos.reset();
+        translationNanos.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        translatorHits.reset();
+        translatorMisses.reset();
+        updateLegacyCounters();
+    }
+
+    /**
+     * Copies the global counters into the deprecated static fields of {@link BeanCounter}.
+     */
+    @SuppressWarnings("deprecation")
+    private void updateLegacyCounters() {
+        if (parent != null) return;
+        BeanCounter.totalNumberOfExecutedSQLQueries = (int) statements.sum();
+        BeanCounter.totalNumberOfReturnedRows = (int) rows.sum();
+        BeanCounter.totalNumberOfReturnedFields = (int) fields.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryMetrics(statements=%d, rows=%d, fields=%d, jdbc=%dms, nodes=%dms, translation=%dms, " +
+                        "cache=%d/%d, translators=%d/%d)",
+                getStatementCount(), getRowCount(), getFieldCount(),
+                getJdbcTimeMillis(), getNodeTimeMillis(), getTranslationTimeMillis(),
+                getCacheHitCount(), getCacheHitCount() + getCacheMissCount(),
+                getTranslatorCacheHitCount(), getTranslatorCacheHitCount() + getTranslatorCacheMissCount());
+    }
+}
@@ -0,0 +1,40 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+/**
+ * The JMX management interface of {@link QueryMetrics}.
+ *
+ * @see QueryMetrics#registerMBean()
+ */
+@SuppressWarnings("unused")
+public interface QueryMetricsMBean {
+
+    long getStatementCount();
+
+    long getRowCount();
+
+    long getFieldCount();
+
+    long getJdbcTimeMillis();
+
+    long getNodeTimeMillis();
+
+    long getTranslationTimeMillis();
+
+    long getCacheHitCount();
+
+    long getCacheMissCount();
+
+    double getCacheHitRate();
+
+    long getTranslatorCacheHitCount();
+
+    long getTranslatorCacheMissCount();
+
+    double getTranslatorCacheHitRate();
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void reset();
+}
@@ -0,0 +1,370 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.vocab.D2RQ;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the read-only SQL statements of a {@link ConnectedDB primary database} across its read replicas.
+ * Each {@link SQLIterator} {@link #acquire() acquires} a database before the statement is executed
+ * and {@link #release(ConnectedDB) releases} it when the statement is closed.
+ * <p>
+ * A replica, that fails to connect or to execute a statement because of a connection error,
+ * is {@link #markFailed(ConnectedDB, Exception) marked as down} and the statement is retried on another replica,
+ * and finally on the primary; a statement tries each replica at most once.
+ * A replica that is down gets no statements until a background health check,
+ * that runs once per {@link #setRetryInterval(long) retry interval},
+ * finds it valid with {@link java.sql.Connection#isValid(int)}.
+ * The broken connection is closed as soon as the last statement, that still uses it,
+ * has been {@link #release(ConnectedDB) released} (or by the health check, if there is no such statement),
+ * so the health check validates a new one.
+ * Notice that only a statement, that has not been started yet, can be moved to another database:
+ * a connection loss in the middle of reading of the results is reported as usual.
+ * <p>
+ * A query, whose statements must see the same data as the primary (e.g. an incremental dump,
+ * that reads the watermark first), can be pinned to the primary with the {@link #PRIMARY_ONLY} context symbol.
+ *
+ * @see de.fuberlin.wiwiss.d2rq.vocab.AVC#replicaJdbcDSN
+ */
+@SuppressWarnings("WeakerAccess")
+public class ReplicaRouter implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    public static final long DEFAULT_RETRY_INTERVAL_MILLIS = 30_000;
+    public static final int HEALTH_CHECK_TIMEOUT_SECONDS = 5;
+
+    /**
+     * The context symbol that sends all statements of a query to the primary database.
+     */
+    public static final Symbol PRIMARY_ONLY = Symbol.create(D2RQ.NS + "primaryOnly");
+
+    /**
+     * A policy to choose a replica for the next statement.
+     */
+    public enum Policy {
+        /**
+         * The available replicas are used in turn.
+         */
+        ROUND_ROBIN("round-robin"),
+        /**
+         * An available replica with the least number of running statements is used.
+         */
+        LEAST_OUTSTANDING("least-outstanding"),
+        ;
+        private final String id;
+
+        Policy(String id) {
+            this.id = id;
+        }
+
+        /**
+         * @return String, the value of {@code avc:replicaRouting}
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * Parses the {@code avc:replicaRouting} value.
+         *
+         * @param id String or {@code null} for the default {@link #ROUND_ROBIN}
+         * @return {@link Policy}
+         * @throws IllegalArgumentException if the value is unknown
+         */
+        public static Policy parse(String id) throws IllegalArgumentException {
+            if (id == null) {
+                return ROUND_ROBIN;
+            }
+            for (Policy p : values()) {
+                if (p.id.equalsIgnoreCase(id.trim())) {
+                    return p;
+                }
+            }
+            throw new IllegalArgumentException("Unknown replica routing policy '" + id + "'");
+        }
+    }
+
+    private final ConnectedDB primary;
+    private final List<Replica> replicas;
+    private final Policy policy;
+    private final AtomicInteger counter = new AtomicInteger();
+    private volatile long retryInterval = DEFAULT_RETRY_INTERVAL_MILLIS;
+    private ScheduledExecutorService checker;
+
+    /**
+     * @param primary  {@link ConnectedDB} the primary database, that is used when no replica is available
+     * @param replicas List of {@link ConnectedDB}s for the read replicas, not empty
+     * @param policy   {@link Policy}
+     */
+    public ReplicaRouter(ConnectedDB primary, List<ConnectedDB> replicas, Policy policy) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("No replicas");
+        }
+        this.primary = Objects.requireNonNull(primary);
+        this.policy = Objects.requireNonNull(policy);
+        List<Replica> res = new ArrayList<>();
+        replicas.forEach(db -> res.add(new Replica(db)));
+        this.replicas = Collections.unmodifiableList(res);
+    }
+
+    /**
+     * Answers {@code true} if the error means that the database is unreachable,
+     * so the statement can be executed on another database.
+     * A {@link D2RQException} is checked by its code and by its SQL cause.
+     *
+     * @param error {@link Exception}
+     * @return boolean
+     */
+    public static boolean isConnectionFailure(Exception error) {
+        if (error instanceof D2RQException) {
+            Throwable cause = error.getCause();
+            return ((D2RQException) error).errorCode() == D2RQException.D2RQ_DB_CONNECTION_FAILED
+                    || cause instanceof SQLException && isConnectionFailure((SQLException) cause);
+        }
+        if (error instanceof SQLTransientConnectionException
+                || error instanceof SQLNonTransientConnectionException
+                || error instanceof SQLRecoverableException) {
+            return true;
+        }
+        // SQL state class 08 - connection exception
+        String state = error instanceof SQLException ? ((SQLException) error).getSQLState() : null;
+        return state != null && state.startsWith("08");
+    }
+
+    /**
+     * Pins all statements of the query with the given context to the primary database.
+     *
+     * @param context {@link Context}, not {@code null}
+     * @return the same context
+     */
+    public static Context setPrimaryOnly(Context context) {
+        context.set(PRIMARY_ONLY, true);
+        return context;
+    }
+
+    /**
+     * @param context {@link Context}, can be {@code null}
+     * @return {@code true} if the statements must not be routed to replicas
+     * @see #setPrimaryOnly(Context)
+     */
+    public static boolean isPrimaryOnly(Context context) {
+        return context != null && context.isTrue(PRIMARY_ONLY);
+    }
+
+    /**
+     * @return {@link ConnectedDB} the primary database
+     */
+    public ConnectedDB primary() {
+        return primary;
+    }
+
+    /**
+     * @return List of {@link ConnectedDB}s for the read replicas
+     */
+    public List<ConnectedDB> replicas() {
+        List<ConnectedDB> res = new ArrayList<>();
+        replicas.forEach(r -> res.add(r.db));
+        return res;
+    }
+
+    /**
+     * @return {@link Policy}
+     */
+    public Policy policy() {
+        return policy;
+    }
+
+    /**
+     * Sets the time between the health checks of a failed replica.
+     *
+     * @param millis long, non-negative
+     */
+    public void setRetryInterval(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Negative interval: " + millis);
+        }
+        this.retryInterval = millis;
+    }
+
+    /**
+     * Chooses a database for the next read-only statement.
+     * The result must be passed to {@link #release(ConnectedDB)} when the statement is closed.
+     *
+     * @return {@link ConnectedDB}, an available replica, or the primary if there is no one
+     */
+    public ConnectedDB acquire() {
+        int size = replicas.size();
+        // the rotation also breaks the ties in the least-outstanding mode
+        int start = Math.floorMod(counter.getAndIncrement(), size);
+        Replica res = null;
+        for (int i = 0; i < size; i++) {
+            Replica r = replicas.get((start + i) % size);
+            if (!r.up) continue;
+            if (policy == Policy.ROUND_ROBIN) {
+                res = r;
+                break;
+            }
+            if (res == null || r.outstanding.get() < res.outstanding.get()) {
+                res = r;
+            }
+        }
+        if (res == null) {
+            return primary;
+        }
+        res.outstanding.incrementAndGet();
+        return res.db;
+    }
+
+    /**
+     * Tells that a statement on the given database is finished.
+     *
+     * @param db {@link ConnectedDB} from {@link #acquire()}
+     */
+    public void release(ConnectedDB db) {
+        Replica r = find(db);
+        if (r != null && r.outstanding.decrementAndGet() == 0) {
+            resetIfUnused(r);
+        }
+    }
+
+    /**
+     * Marks the given replica as unavailable until a health check succeeds.
+     * The statements, that are running on the replica, are not affected.
+     *
+     * @param db    {@link ConnectedDB} from {@link #acquire()}
+     * @param error {@link Exception} the cause
+     */
+    public void markFailed(ConnectedDB db, Exception error) {
+        Replica r = find(db);
+        if (r == null) {
+            return;
+        }
+        synchronized (r) {
+            if (!r.up) {
+                return;
+            }
+            r.up = false;
+            r.broken = true;
+        }
+        LOGGER.warn("Read replica <{}> is unavailable: {}", db.getJdbcURL(), error.getMessage());
+        scheduleCheck(r);
+    }
+
+    private synchronized void scheduleCheck(Replica r) {
+        if (checker == null) {
+            checker = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread res = new Thread(task, "d2rq-replica-check");
+                res.setDaemon(true);
+                return res;
+            });
+        }
+        if (!checker.isShutdown()) {
+            checker.schedule(() -> check(r), retryInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Closes the broken connection of the replica, if no statement uses it any more.
+     */
+    private static void resetIfUnused(Replica r) {
+        synchronized (r) {
+            if (!r.broken || r.outstanding.get() != 0) {
+                return;
+            }
+            r.broken = false;
+            r.db.resetConnection();
+        }
+    }
+
+    private void check(Replica r) {
+        resetIfUnused(r);
+        boolean valid;
+        try {
+            valid = r.db.connection().isValid(HEALTH_CHECK_TIMEOUT_SECONDS);
+        } catch (SQLException | D2RQException e) {
+            valid = false;
+        }
+        if (!valid) {
+            scheduleCheck(r);
+            return;
+        }
+        LOGGER.info("Read replica <{}> is available again", r.db.getJdbcURL());
+        synchronized (r) {
+            // if the connection is still in use, it has turned out to be valid
+            r.broken = false;
+            r.up = true;
+        }
+    }
+
+    /**
+     * Answers the number of statements, that are running on the given replica.
+     *
+     * @param db {@link ConnectedDB}
+     * @return int
+     */
+    public int outstanding(ConnectedDB db) {
+        Replica r = find(db);
+        return r == null ? 0 : r.outstanding.get();
+    }
+
+    /**
+     * Answers {@code true} if the given replica can get statements now.
+     *
+     * @param db {@link ConnectedDB}
+     * @return boolean
+     */
+    public boolean isAvailable(ConnectedDB db) {
+        Replica r = find(db);
+        return r != null && r.up;
+    }
+
+    private Replica find(ConnectedDB db) {
+        for (Replica r : replicas) {
+            if (r.db == db) return r;
+        }
+        return null;
+    }
+
+    /**
+     * Stops the health checks and closes the connections to all replicas.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (checker != null) {
+                checker.shutdownNow();
+            }
+        }
+        replicas.forEach(r -> r.db.close());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReplicaRouter(%s, %d replicas)", policy.getId(), replicas.size());
+    }
+
+    private static class Replica {
+        private final ConnectedDB db;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile boolean up = true;
+        // the connection has failed and should be closed once it is not in use, guarded by this:
+        private boolean broken;
+
+        private Replica(ConnectedDB db) {
+            this.db = db;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.algebra.ProjectionSpec;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A block of consecutive result rows returned by a database query, stored column by column:
+ * an array of string values per SELECT clause entry.
+ * It allows to process a whole column at once (see {@link de.fuberlin.wiwiss.d2rq.engine.BindingMaker#makeBindings(ResultBatch)}),
+ * while each single row is still available as a {@link ResultRow} view.
+ *
+ * @see SQLIterator#nextBatch(int)
+ */
+@SuppressWarnings("WeakerAccess")
+public class ResultBatch {
+    private final List<ProjectionSpec> columns;
+    private final Map<ProjectionSpec, Integer> index;
+    private final String[][] values;
+    private final int capacity;
+    private int size;
+
+    /**
+     * @param columns  List of {@link ProjectionSpec}s in order of the SELECT list
+     * @param capacity the maximum number of rows
+     */
+    public ResultBatch(List<ProjectionSpec> columns, int capacity) {
+        this(columns, index(columns), capacity);
+    }
+
+    protected ResultBatch(List<ProjectionSpec> columns, Map<ProjectionSpec, Integer> index, int capacity) {
+        this.columns = columns;
+        this.index = index;
+        this.values = new String[columns.size()][capacity];
+        this.capacity = capacity;
+    }
+
+    private static Map<ProjectionSpec, Integer> index(List<ProjectionSpec> columns) {
+        Map<ProjectionSpec, Integer> res = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            res.putIfAbsent(columns.get(i), i);
+        }
+        return res;
+    }
+
+    /**
+     * @return List of {@link ProjectionSpec}s in order of the SELECT list
+     */
+    public List<ProjectionSpec> columns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if there are no rows
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the maximum number of rows
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Appends a row with the given values.
+     *
+     * @param row array of values in order of the SELECT list
+     * @throws IndexOutOfBoundsException if the batch is full
+     */
+    public void add(String... row) {
+        if (size == capacity) {
+            throw new IndexOutOfBoundsException("The batch is full: " + size);
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i][size] = row[i];
+        }
+        size++;
+    }
+
+    /**
+     * Appends the values of the given row.
+     *
+     * @param row {@link ResultRow}
+     */
+    public void add(ResultRow row) {
+        String[] res = new String[columns.size()];
+        for (int i = 0; i < res.length; i++) {
+            res[i] = row.get(columns.get(i));
+        }
+        add(res);
+    }
+
+    /**
+     * Returns all values of the given column.
+     * The array is shared and may be longer than the {@link #size()}, it must not be modified.
+     *
+     * @param column {@link ProjectionSpec}
+     * @return array of Strings or {@code null} if there is no such column
+     */
+    public String[] column(ProjectionSpec column) {
+        Integer i = index.get(column);
+        return i == null ? null : values[i];
+    }
+
+    /**
+     * @param row    the row number
+     * @param column {@link ProjectionSpec}
+     * @return String or {@code null}
+     */
+    public String get(int row, ProjectionSpec column) {
+        Integer i = index.get(column);
+        return i == null ? null : values[i][row];
+    }
+
+    /**
+     * Returns a {@link ResultRow} view of the given row.
+     *
+     * @param row the row number
+     * @return {@link ResultRow}
+     */
+    public ResultRow row(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        return column -> get(row, column);
+    }
+
+    /**
+     * Makes a new batch of the specified rows.
+     *
+     * @param rows  array of row numbers
+     * @param count the number of elements of the array to use
+     * @return {@link ResultBatch}
+     */
+    public ResultBatch select(int[] rows, int count) {
+        ResultBatch res = new ResultBatch(columns, index, count);
+        for (int c = 0; c < values.length; c++) {
+            for (int r = 0; r < count; r++) {
+                res.values[c][r] = values[c][rows[r]];
+            }
+        }
+        res.size = count;
+        return res;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResultBatch(%d rows x %d columns)", size, columns.size());
+    }
+}
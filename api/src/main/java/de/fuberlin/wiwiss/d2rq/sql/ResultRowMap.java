@@ -1,6 +1,7 @@
 package de.fuberlin.wiwiss.d2rq.sql;
 
 import de.fuberlin.wiwiss.d2rq.algebra.ProjectionSpec;
+import de.fuberlin.wiwiss.d2rq.sql.types.DataType;
 
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -29,6 +30,25 @@ public class ResultRowMap implements ResultRow {
         return new ResultRowMap(result);
     }
 
+    /**
+     * Reads the current row of the result set using the already known column types.
+     *
+     * @param resultSet       {@link ResultSet} positioned at a row
+     * @param projectionSpecs List of {@link ProjectionSpec}s in order of the SELECT list
+     * @param types           array of {@link DataType}s in order of the SELECT list
+     * @return {@link ResultRowMap}
+     * @throws SQLException if a value cannot be read
+     */
+    public static ResultRowMap fromResultSet(ResultSet resultSet,
+                                             List<ProjectionSpec> projectionSpecs,
+                                             DataType[] types) throws SQLException {
+        Map<ProjectionSpec, String> result = new HashMap<>();
+        for (int i = 0; i < projectionSpecs.size(); i++) {
+            result.put(projectionSpecs.get(i), types[i].value(resultSet, i + 1));
+        }
+        return new ResultRowMap(result);
+    }
+
     private final Map<ProjectionSpec, String> projectionsToValues;
 
     public ResultRowMap(Map<ProjectionSpec, String> projectionsToValues) {
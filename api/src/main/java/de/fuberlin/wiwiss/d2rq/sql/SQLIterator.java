@@ -2,17 +2,21 @@ package de.fuberlin.wiwiss.d2rq.sql;
 
 import de.fuberlin.wiwiss.d2rq.D2RQException;
 import de.fuberlin.wiwiss.d2rq.algebra.ProjectionSpec;
+import de.fuberlin.wiwiss.d2rq.sql.types.DataType;
 import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.util.Context;
 import org.apache.jena.util.iterator.ClosableIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Executes an SQL query and delivers result rows as an iterator over {@link ResultRow}s.
@@ -28,8 +32,19 @@ public class SQLIterator implements ClosableIterator<ResultRow> {
     protected final String sql;
     protected final List<ProjectionSpec> columns;
     protected final ConnectedDB database;
+    // the database that runs the statement: either the primary database or one of its read replicas
+    protected volatile ConnectedDB target;
+    protected final QueryDeadline deadline;
+    protected final QueryMetrics metrics;
+    protected final Object origin;
+    protected final boolean primaryOnly;
+    protected final boolean timed;
+    protected long jdbcNanos;
+    protected long rowCount;
     protected volatile Statement statement;
     protected ResultSet resultSet;
+    // the column types are resolved once per statement, not per row:
+    protected DataType[] columnTypes;
     protected ResultRow prefetchedRow;
     //private int numCols;
     protected boolean queryExecuted;
@@ -37,16 +52,31 @@ public class SQLIterator implements ClosableIterator<ResultRow> {
     protected volatile boolean cancelled;
 
     public SQLIterator(String sql, List<ProjectionSpec> columns, ConnectedDB db) {
+        this(sql, columns, db, null);
+    }
+
+    /**
+     * @param sql     String, the SELECT statement
+     * @param columns List of {@link ProjectionSpec}s in order of the SELECT list
+     * @param db      {@link ConnectedDB}
+     * @param context {@link Context} of the query, that may carry a {@link QueryDeadline}, {@link QueryMetrics}
+     *                the {@link SlowQueryLog#ORIGIN origin} of the statement
+     *                and the {@link ReplicaRouter#PRIMARY_ONLY} flag, can be {@code null}
+     */
+    public SQLIterator(String sql, List<ProjectionSpec> columns, ConnectedDB db, Context context) {
         this.sql = sql;
         this.columns = columns;
         this.database = db;
+        this.deadline = QueryDeadline.get(context);
+        this.metrics = QueryMetrics.get(context);
+        this.origin = context == null ? null : context.get(SlowQueryLog.ORIGIN);
+        this.primaryOnly = ReplicaRouter.isPrimaryOnly(context);
+        this.timed = metrics != null || SlowQueryLog.isEnabled();
     }
 
     @Override
     public boolean hasNext() {
-        if (cancelled) {
-            throw new QueryCancelledException();
-        }
+        checkCancelled();
         if (explicitlyClosed) {
             return false;
         }
@@ -70,21 +100,114 @@ public class SQLIterator implements ClosableIterator<ResultRow> {
         return result;
     }
 
+    /**
+     * Fetches up to {@code maxRows} next rows at once into a {@link ResultBatch column-oriented block}.
+     * Unlike the row-at-a-time {@link #next()} it does not create an object per row,
+     * and the timing and metrics are recorded once per batch.
+     * The method can be mixed with {@link #hasNext()} and {@link #next()}.
+     *
+     * @param maxRows positive int, the maximum number of rows to fetch
+     * @return {@link ResultBatch}, empty if there are no more rows
+     */
+    public ResultBatch nextBatch(int maxRows) {
+        if (maxRows <= 0) {
+            throw new IllegalArgumentException("Wrong batch size: " + maxRows);
+        }
+        checkCancelled();
+        ResultBatch res = new ResultBatch(columns, maxRows);
+        if (explicitlyClosed) {
+            return res;
+        }
+        ensureQueryExecuted();
+        if (prefetchedRow != null) {
+            res.add(prefetchedRow);
+            prefetchedRow = null;
+        }
+        fetchRows(res);
+        return res;
+    }
+
+    private synchronized void fetchRows(ResultBatch batch) {
+        if (this.resultSet == null) {
+            return;
+        }
+        try {
+            long start = timed ? System.nanoTime() : 0;
+            int count = 0;
+            DataType[] types = columnTypes();
+            String[] row = new String[types.length];
+            while (batch.size() < batch.capacity() && !cancelled) {
+                if (!this.resultSet.next()) {
+                    this.resultSet.close();
+                    this.resultSet = null;
+                    break;
+                }
+                for (int i = 0; i < types.length; i++) {
+                    row[i] = types[i].value(resultSet, i + 1);
+                }
+                batch.add(row);
+                count++;
+            }
+            if (timed) {
+                long nanos = System.nanoTime() - start;
+                jdbcNanos += nanos;
+                rowCount += count;
+                if (metrics != null && count > 0) {
+                    metrics.recordRows(count, columns.size(), nanos);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new D2RQException(ex);
+        }
+    }
+
+    private DataType[] columnTypes() throws SQLException {
+        if (columnTypes != null) {
+            return columnTypes;
+        }
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        DataType[] res = new DataType[columns.size()];
+        for (int i = 0; i < res.length; i++) {
+            int jdbcType = metaData == null ? Integer.MIN_VALUE : metaData.getColumnType(i + 1);
+            String name = metaData == null ? "UNKNOWN" : metaData.getColumnTypeName(i + 1);
+            res[i] = target().vendor().getDataType(jdbcType, name.toUpperCase(), -1);
+        }
+        return columnTypes = res;
+    }
+
+    private void checkCancelled() {
+        if (cancelled || deadline != null && deadline.isExpired()) {
+            // release the statement right away instead of waiting for the caller to close the iterator
+            close();
+            throw new QueryCancelledException();
+        }
+    }
+
     private synchronized void tryFetchNextRow() {
         if (this.resultSet == null) {
             this.prefetchedRow = null;
             return;
         }
         try {
+            long start = timed ? System.nanoTime() : 0;
             if (!this.resultSet.next()) {
+                if (timed) {
+                    jdbcNanos += System.nanoTime() - start;
+                }
                 this.resultSet.close();
                 this.resultSet = null;
                 this.prefetchedRow = null;
                 return;
             }
-            //BeanCounter.totalNumberOfReturnedRows++;
-            //BeanCounter.totalNumberOfReturnedFields += this.numCols;
-            prefetchedRow = ResultRowMap.fromResultSet(resultSet, columns, database);
+            prefetchedRow = ResultRowMap.fromResultSet(resultSet, columns, columnTypes());
+            if (timed) {
+                long nanos = System.nanoTime() - start;
+                jdbcNanos += nanos;
+                rowCount++;
+                if (metrics != null) {
+                    metrics.recordRow(columns.size(), nanos);
+                }
+            }
         } catch (SQLException ex) {
             throw new D2RQException(ex);
         }
@@ -98,34 +221,56 @@ public class SQLIterator implements ClosableIterator<ResultRow> {
         if (explicitlyClosed) return;
         if (LOGGER.isDebugEnabled())
             LOGGER.debug("Closing SQLIterator");
+        ConnectedDB db = target();
         try {
             /* JDBC 4+ requires manual closing of result sets and statements */
             if (this.resultSet != null) {
                 this.resultSet.close();
             }
-            if (this.database != null) {
-                this.database.vendor().beforeClose(this.database.connection());
+            if (db != null) {
+                db.vendor().beforeClose(db.connection());
             }
             if (this.statement != null) {
                 this.statement.close();
             }
-            if (this.database != null) {
-                this.database.vendor().afterClose(this.database.connection());
+            if (db != null) {
+                db.vendor().afterClose(db.connection());
             }
         } catch (SQLException ex) {
             throw new D2RQException(ex.getMessage() + "; query was: " + this.sql, ex);
         } finally {
             explicitlyClosed = true;
+            // the plan of a slow statement is fetched while the connection is still held
+            if (timed && statement != null && !cancelled) {
+                long millis = TimeUnit.NANOSECONDS.toMillis(jdbcNanos);
+                if (SlowQueryLog.isSlow(millis)) {
+                    SlowQueryLog.record(db, sql, origin, millis, rowCount);
+                }
+            }
+            if (db != database) {
+                database.replicaRouter().release(db);
+            }
         }
     }
 
+    private ConnectedDB target() {
+        ConnectedDB res = target;
+        return res == null ? database : res;
+    }
+
+    /**
+     * Cancels the query.
+     * If the statement is running, it is cancelled on the database side;
+     * if it has not been created yet, it never will be.
+     */
     public synchronized void cancel() {
         cancelled = true;
         if (statement != null) {
+            ConnectedDB db = target();
             try {
-                database.vendor().beforeCancel(database.connection());
+                db.vendor().beforeCancel(db.connection());
                 statement.cancel();
-                database.vendor().afterCancel(database.connection());
+                db.vendor().afterCancel(db.connection());
             } catch (SQLException ex) {
                 throw new RuntimeException(ex);
             }
@@ -145,10 +290,64 @@ public class SQLIterator implements ClosableIterator<ResultRow> {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug(sql);
         }
-        //BeanCounter.totalNumberOfExecutedSQLQueries++;
+        ReplicaRouter router = database.replicaRouter();
+        if (router == null || primaryOnly) {
+            executeQuery(database);
+            return;
+        }
+        // each replica is tried at most once, then the primary is used
+        for (int attempts = router.replicas().size(); attempts > 0; attempts--) {
+            ConnectedDB db = router.acquire();
+            target = db;
+            if (db == database) {
+                break;
+            }
+            try {
+                executeQuery(db);
+                return;
+            } catch (D2RQException ex) {
+                if (!ReplicaRouter.isConnectionFailure(ex)) {
+                    throw ex;
+                }
+                // the statement has not been started: try another replica, or, finally, the primary
+                discardStatement();
+                target = null;
+                router.release(db);
+                router.markFailed(db, ex);
+            }
+        }
+        target = database;
+        executeQuery(database);
+    }
+
+    private synchronized void discardStatement() {
+        if (statement == null) {
+            return;
+        }
         try {
-            Connection con = this.database.connection();
-            this.statement = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.close();
+        } catch (SQLException ignored) {
+            // the connection is broken anyway
+        }
+        statement = null;
+    }
+
+    private void executeQuery(ConnectedDB db) {
+        try {
+            long start = timed ? System.nanoTime() : 0;
+            Connection con = db.connection();
+            Statement st = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            synchronized (this) {
+                // published under the lock, so that a concurrent cancel() sees either no statement or this one
+                this.statement = st;
+            }
+            if (cancelled || deadline != null && deadline.isExpired()) {
+                close();
+                throw new QueryCancelledException();
+            }
+            if (deadline != null) {
+                deadline.applyTo(this.statement);
+            }
             if (database.useServerFetch()) {
                 try {
                     this.statement.setFetchSize(database.fetchSize());
@@ -156,16 +355,24 @@ public class SQLIterator implements ClosableIterator<ResultRow> {
                     /* Some drivers don't support fetch sizes, e.g. JDBC-ODBC */
                 }
             }
-            database.vendor().beforeQuery(database.connection());
+            db.vendor().beforeQuery(db.connection());
             this.resultSet = this.statement.executeQuery(this.sql);
-            database.vendor().afterQuery(database.connection());
+            db.vendor().afterQuery(db.connection());
+            if (timed) {
+                long nanos = System.nanoTime() - start;
+                jdbcNanos += nanos;
+                if (metrics != null) {
+                    metrics.recordStatement(nanos);
+                }
+            }
             if (LOGGER.isDebugEnabled())
                 LOGGER.debug("SQL result set created");
             //this.numCols = this.resultSet.getMetaData().getColumnCount();
         } catch (SQLException ex) {
-            if (cancelled) {
+            if (cancelled || deadline != null && deadline.isExpired()) {
                 if (LOGGER.isDebugEnabled())
                     LOGGER.debug("SQL query execution cancelled", ex);
+                close();
                 throw new QueryCancelledException();
             }
             throw new D2RQException(ex.getMessage() + ": " + this.sql, ex);
@@ -2,6 +2,7 @@ package de.fuberlin.wiwiss.d2rq.sql;
 
 import de.fuberlin.wiwiss.d2rq.D2RQException;
 import de.fuberlin.wiwiss.d2rq.algebra.*;
+import de.fuberlin.wiwiss.d2rq.dbschema.TableStatistics;
 import de.fuberlin.wiwiss.d2rq.expr.Conjunction;
 import de.fuberlin.wiwiss.d2rq.expr.Equality;
 import de.fuberlin.wiwiss.d2rq.expr.Expression;
@@ -86,9 +87,56 @@ public class SelectStatementBuilder {
         for (Attribute column : condition().attributes()) {
             this.mentionedTables.add(column.relationName());
         }
+        if (database.useTableStatistics() && mentionedTables.size() > 1) {
+            // the smallest table first: engines with a simple planner use the FROM order to drive nested loops
+            List<RelationName> tables = new ArrayList<>(mentionedTables);
+            tables.sort(Comparator.comparingLong(this::estimatedRowCount).thenComparing(Comparator.naturalOrder()));
+            this.mentionedTables = tables;
+        }
+    }
+
+    private long estimatedRowCount(RelationName table) {
+        long res = database.tableStatistics(aliases.originalOf(table)).rowCount();
+        return res == TableStatistics.UNKNOWN ? Long.MAX_VALUE : res;
     }
 
     public String getSQLStatement() {
+        List<String> selectList = new ArrayList<>(selectSpecs.size());
+        for (ProjectionSpec projection : selectSpecs) {
+            selectList.add(projection.toSQL(database, aliases));
+        }
+        return getSQLStatement(selectList);
+    }
+
+    /**
+     * Delivers a statement that counts the rows of the relation instead of selecting them.
+     * A relation without DISTINCT, ORDER BY and LIMIT is counted directly,
+     * otherwise the SELECT statement is wrapped into a derived table,
+     * its columns are renamed to avoid name clashes of the same column in different tables.
+     *
+     * @return String, a statement with a single numeric column
+     */
+    public String getSQLCountStatement() {
+        if (!eliminateDuplicates && orderSpecs.isEmpty() && limit == Relation.NO_LIMIT) {
+            return getSQLStatement(Collections.singletonList("COUNT(*)"));
+        }
+        List<String> selectList = new ArrayList<>(selectSpecs.size());
+        for (ProjectionSpec projection : selectSpecs) {
+            String sql = projection.toSQL(database, aliases);
+            // an expression has got its own name
+            selectList.add(projection instanceof Attribute ? sql + " AS d2rq_c" + selectList.size() : sql);
+        }
+        return "SELECT COUNT(*) FROM (" + getSQLStatement(selectList) + ") d2rq_count";
+    }
+
+    /**
+     * Delivers the SQL statement with the given SELECT list instead of the one derived from the relation.
+     * Used by the {@link UnionStatementBuilder} to align the columns of several statements.
+     *
+     * @param selectList List of SQL fragments, in order of appearance in the "SELECT x, y, z" part of the query
+     * @return String
+     */
+    String getSQLStatement(List<String> selectList) {
         StringBuilder result = new StringBuilder("SELECT ");
         if (this.eliminateDuplicates) {
             result.append("DISTINCT ");
@@ -98,13 +146,12 @@ public class SelectStatementBuilder {
             result.append(s);
             result.append(" ");
         }
-        Iterator<ProjectionSpec> it = this.selectSpecs.iterator();
+        Iterator<String> it = selectList.iterator();
         if (!it.hasNext()) {
             result.append("1");
         }
         while (it.hasNext()) {
-            ProjectionSpec projection = it.next();
-            result.append(projection.toSQL(database, aliases));
+            result.append(it.next());
             if (it.hasNext()) {
                 result.append(", ");
             }
@@ -0,0 +1,236 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.vocab.D2RQ;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.sparql.util.Symbol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A log of the SQL statements that took longer than a threshold.
+ * <p>
+ * Each entry contains the originating SPARQL query or triple pattern (see {@link #ORIGIN}),
+ * the generated SQL, the time spent in JDBC, the number of rows fetched and,
+ * if the {@link de.fuberlin.wiwiss.d2rq.sql.vendor.Vendor} supports it, the execution plan of the statement.
+ * <p>
+ * The execution plan is fetched by the query thread, over the connection of the statement,
+ * before the connection is released: a JDBC connection is not meant to be used by two threads at once.
+ * The entries are written by a background thread, so query threads never wait for the log output,
+ * and a failure of the log never breaks a query. If the log cannot keep up, entries are dropped.
+ * <p>
+ * The entries go to the logger {@code de.fuberlin.wiwiss.d2rq.sql.SlowQueryLog} at the {@code WARN} level;
+ * the log4j configuration of the tools sends that logger to the separate rolling file
+ * {@code d2rq-slow-queries.log}.
+ * <p>
+ * The log is off by default; it is switched on by setting a threshold,
+ * either with {@link #setThreshold(long)} or the {@code d2rq.slowQueryThreshold} system property (in milliseconds).
+ * The {@code d2rq.slowQueryExplain} system property (default {@code true}) controls whether plans are included.
+ */
+@SuppressWarnings("WeakerAccess")
+public class SlowQueryLog {
+    private final static Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    /**
+     * The context symbol for the origin of the SQL statements of a query,
+     * i.e. the SPARQL query, algebra expression or triple pattern. Any object, its string form is logged.
+     */
+    public static final Symbol ORIGIN = Symbol.create(D2RQ.NS + "queryOrigin");
+
+    private static final int QUEUE_SIZE = 1000;
+    private static final int MAX_PLAN_ROWS = 100;
+
+    private static volatile long threshold = Long.getLong("d2rq.slowQueryThreshold", -1);
+    private static volatile boolean explain = Boolean.parseBoolean(System.getProperty("d2rq.slowQueryExplain", "true"));
+    private static volatile ExecutorService writer;
+
+    /**
+     * Answers {@code true} if the log is on.
+     *
+     * @return boolean
+     */
+    public static boolean isEnabled() {
+        return threshold >= 0;
+    }
+
+    /**
+     * Returns the current threshold.
+     *
+     * @return long, milliseconds, negative if the log is off
+     */
+    public static long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Sets the threshold above which SQL statements are logged.
+     *
+     * @param millis long, a negative value switches the log off
+     */
+    public static void setThreshold(long millis) {
+        threshold = millis;
+    }
+
+    /**
+     * Specifies whether execution plans should be logged.
+     *
+     * @param flag boolean
+     */
+    public static void setExplain(boolean flag) {
+        explain = flag;
+    }
+
+    /**
+     * Puts the origin into the context, if the log is on.
+     *
+     * @param context {@link Context}, can be {@code null}
+     * @param origin  anything, its {@code toString()} is called only when an entry is written
+     */
+    public static void setOrigin(Context context, Object origin) {
+        if (context == null || !isEnabled()) return;
+        context.set(ORIGIN, origin);
+    }
+
+    /**
+     * Returns an execution context that carries the given origin, if the log is on.
+     * The given execution context is not changed.
+     *
+     * @param execCxt {@link ExecutionContext}, can be {@code null}
+     * @param origin  anything, its {@code toString()} is called only when an entry is written
+     * @return {@link ExecutionContext}, the same if the log is off
+     */
+    public static ExecutionContext withOrigin(ExecutionContext execCxt, Object origin) {
+        if (!isEnabled()) return execCxt;
+        if (execCxt == null) {
+            Context context = new Context();
+            context.set(ORIGIN, origin);
+            return new ExecutionContext(context, null, null, null);
+        }
+        Context context = execCxt.getContext().copy();
+        context.set(ORIGIN, origin);
+        return new ExecutionContext(context, execCxt.getActiveGraph(), execCxt.getDataset(), execCxt.getExecutor());
+    }
+
+    /**
+     * Answers {@code true} if a statement that took the given time should be logged.
+     *
+     * @param millis long
+     * @return boolean
+     */
+    public static boolean isSlow(long millis) {
+        long res = threshold;
+        return res >= 0 && millis >= res;
+    }
+
+    /**
+     * Records a slow statement.
+     * The execution plan is fetched in the calling thread, which must still hold the statement's connection;
+     * formatting and writing the entry happen in the background. This method never throws.
+     *
+     * @param database {@link ConnectedDB}
+     * @param sql      String, the statement
+     * @param origin   the origin of the statement, can be {@code null}
+     * @param millis   long, time spent in JDBC
+     * @param rows     long, number of fetched rows
+     */
+    public static void record(ConnectedDB database, String sql, Object origin, long millis, long rows) {
+        String plan = null;
+        if (explain) {
+            try {
+                plan = explain(database, sql);
+            } catch (RuntimeException e) {
+                // e.g. the connection is broken
+                if (LOGGER.isDebugEnabled())
+                    LOGGER.debug("Can't explain query: {}", e.getMessage());
+            }
+        }
+        String res = plan;
+        try {
+            writer().execute(() -> LOGGER.warn(format(sql, origin, millis, rows, res)));
+        } catch (RuntimeException e) {
+            // rejected: the log is overloaded, or the writer is being shut down
+            if (LOGGER.isDebugEnabled())
+                LOGGER.debug("Slow query log entry dropped: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Formats a log entry.
+     *
+     * @param sql    String
+     * @param origin Object, can be {@code null}
+     * @param millis long
+     * @param rows   long
+     * @param plan   String, can be {@code null}
+     * @return String
+     */
+    public static String format(String sql, Object origin, long millis, long rows, String plan) {
+        StringBuilder res = new StringBuilder();
+        res.append("Slow SQL query: ").append(millis).append(" ms, ").append(rows).append(" rows");
+        if (origin != null) {
+            res.append("\nOrigin: ").append(origin.toString().trim());
+        }
+        res.append("\nSQL: ").append(sql);
+        if (plan != null) {
+            res.append("\nPlan:\n").append(plan);
+        }
+        return res.toString();
+    }
+
+    /**
+     * Runs the vendor-specific EXPLAIN statement for the query.
+     *
+     * @param database {@link ConnectedDB}
+     * @param sql      String
+     * @return String, the plan, one row per line, or {@code null} if unsupported or failed
+     */
+    public static String explain(ConnectedDB database, String sql) {
+        String explainSQL = database.vendor().getExplainStatement(sql);
+        if (explainSQL == null) return null;
+        try (Statement statement = database.connection().createStatement();
+             ResultSet rs = statement.executeQuery(explainSQL)) {
+            int columns = rs.getMetaData().getColumnCount();
+            StringBuilder res = new StringBuilder();
+            int count = 0;
+            while (rs.next()) {
+                if (count++ == MAX_PLAN_ROWS) {
+                    res.append("...\n");
+                    break;
+                }
+                for (int i = 1; i <= columns; i++) {
+                    if (i > 1) res.append(" | ");
+                    res.append(rs.getString(i));
+                }
+                res.append("\n");
+            }
+            return res.toString();
+        } catch (SQLException e) {
+            if (LOGGER.isDebugEnabled())
+                LOGGER.debug("Can't explain query: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static ExecutorService writer() {
+        ExecutorService res = writer;
+        if (res != null) return res;
+        synchronized (SlowQueryLog.class) {
+            if (writer == null) {
+                writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+                    Thread t = new Thread(r, "d2rq-slow-query-log");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.DiscardPolicy());
+            }
+            return writer;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.algebra.*;
+import de.fuberlin.wiwiss.d2rq.expr.SQLExpression;
+import de.fuberlin.wiwiss.d2rq.sql.types.DataType;
+
+import java.util.*;
+
+/**
+ * Combines the SELECT statements of several {@link Relation}s on the same database
+ * into a single <code>SELECT ... UNION ALL SELECT ...</code> statement.
+ * <p>
+ * The first column of the statement is a discriminator that holds the index of the
+ * branch a row comes from. All other columns are shared by the branches:
+ * each branch projects its own columns into their slots and pads the rest with <code>NULL</code>s,
+ * so that a {@link ResultRow} of the combined statement can be handed to the {@link de.fuberlin.wiwiss.d2rq.engine.BindingMaker}s
+ * of the originating branch unchanged.
+ * <p>
+ * Only relations without ORDER BY and LIMIT clauses can be combined, see {@link #isCombinable(Relation)}.
+ *
+ * @see de.fuberlin.wiwiss.d2rq.algebra.UnionRelationGroup
+ */
+public class UnionStatementBuilder {
+    /**
+     * The discriminator column holding the index of the branch.
+     */
+    public static final ProjectionSpec BRANCH = new ExpressionProjectionSpec(SQLExpression.create("d2rq_branch"));
+
+    private final ConnectedDB database;
+    private final List<Relation> branches;
+    private final List<ProjectionSpec> columns = new ArrayList<>();
+
+    public UnionStatementBuilder(List<Relation> branches) throws D2RQException {
+        if (branches.isEmpty()) {
+            throw new IllegalArgumentException("Cannot create SQL for empty union");
+        }
+        this.database = branches.get(0).database();
+        this.branches = branches;
+        columns.add(BRANCH);
+        for (Relation relation : branches) {
+            if (!isCombinable(relation) || !database.equals(relation.database())) {
+                throw new IllegalArgumentException("Cannot combine relation: " + relation);
+            }
+            for (ProjectionSpec projection : relation.projections()) {
+                if (columns.contains(projection)) continue;
+                columns.add(projection);
+            }
+        }
+    }
+
+    /**
+     * Answers {@code true} if the given relation can take part in a <code>UNION ALL</code> statement.
+     * The SQL statement of such a relation must not contain ORDER BY or LIMIT clauses,
+     * since they are not allowed in the branches of a union.
+     *
+     * @param relation {@link Relation}
+     * @return boolean
+     */
+    public static boolean isCombinable(Relation relation) {
+        if (relation.isTrivial() || Relation.EMPTY.equals(relation) || relation.condition().isFalse()) {
+            return false;
+        }
+        ConnectedDB db = relation.database();
+        return db != null
+                && relation.orderSpecs().isEmpty()
+                && Relation.combineLimits(relation.limit(), db.limit()) == Relation.NO_LIMIT;
+    }
+
+    public String getSQLStatement() {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < branches.size(); i++) {
+            Relation relation = branches.get(i);
+            List<String> selectList = new ArrayList<>(columns.size());
+            selectList.add(i + " AS d2rq_branch");
+            for (int j = 1; j < columns.size(); j++) {
+                ProjectionSpec column = columns.get(j);
+                if (relation.projections().contains(column)) {
+                    selectList.add(column.toSQL(database, relation.aliases()));
+                } else {
+                    selectList.add(database.vendor().getNullExpression(columnType(column, relation.aliases())));
+                }
+            }
+            if (i > 0) {
+                result.append(" UNION ALL ");
+            }
+            result.append(new SelectStatementBuilder(relation).getSQLStatement(selectList));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the projection specs used in this query, in order of appearance
+     * in the "SELECT x, y, z" part of each branch.
+     * The first one is always the {@link #BRANCH discriminator}.
+     *
+     * @return A list of {@link ProjectionSpec}s
+     */
+    public List<ProjectionSpec> getColumnSpecs() {
+        return columns;
+    }
+
+    /**
+     * Returns the index of the branch that produced the given row.
+     *
+     * @param row {@link ResultRow} of the statement
+     * @return int, index in the list of relations
+     */
+    public static int branchOf(ResultRow row) {
+        String value = row.get(BRANCH);
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new D2RQException("Unexpected union discriminator value: " + value, e);
+        }
+    }
+
+    private DataType columnType(ProjectionSpec column, AliasMap aliases) {
+        if (!(column instanceof Attribute)) {
+            return null;
+        }
+        return database.columnType(aliases.originalOf((Attribute) column));
+    }
+
+    /**
+     * Answers {@code true} if the two relations can share the SELECT list slot of the given column.
+     * This is not the case if the same (aliased) column name refers to different physical tables.
+     *
+     * @param column {@link ProjectionSpec}
+     * @param left   {@link Relation}
+     * @param right  {@link Relation}
+     * @return boolean
+     */
+    public static boolean canShareColumn(ProjectionSpec column, Relation left, Relation right) {
+        for (Attribute attribute : column.requiredAttributes()) {
+            if (!left.aliases().originalOf(attribute).equals(right.aliases().originalOf(attribute))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,140 @@
+package de.fuberlin.wiwiss.d2rq.values;
+
+import de.fuberlin.wiwiss.d2rq.sql.QueryMetrics;
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A {@link Translator} that memoizes the results of another (possibly expensive) translator,
+ * e.g. a {@code d2rq:javaClass} that looks up a code list.
+ * Both directions are cached separately, each cache holds at most the given number of values;
+ * when a cache is full, the least recently used entry is evicted.
+ * The caches are concurrent (the same as the caches of {@link de.fuberlin.wiwiss.d2rq.jena.CachingGraph}):
+ * a large cache is split into segments with their own locks and LRU order, so the eviction order is approximate.
+ * {@code null} results are cached too, a {@code null} argument is passed to the underlying translator as is.
+ * The lookups are also counted in the global {@link QueryMetrics}, if they are enabled.
+ * <p>
+ * Since a translator defines a 1:1 mapping, it is assumed to be a pure function.
+ * This class is thread-safe if the underlying translator is thread-safe.
+ */
+@SuppressWarnings("WeakerAccess")
+public class CachingTranslator implements Translator {
+    private final Translator translator;
+    private final Cache<String, Optional<String>> rdfValues;
+    private final Cache<String, Optional<String>> dbValues;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param translator {@link Translator} to wrap, not {@code null}
+     * @param maxSize    the max number of values in each direction, positive
+     */
+    public CachingTranslator(Translator translator, int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Wrong cache size: " + maxSize);
+        }
+        this.translator = Objects.requireNonNull(translator);
+        this.rdfValues = CacheFactory.createCache(maxSize);
+        this.dbValues = CacheFactory.createCache(maxSize);
+    }
+
+    /**
+     * Answers the wrapped translator.
+     *
+     * @return {@link Translator}
+     */
+    public Translator getTranslator() {
+        return translator;
+    }
+
+    @Override
+    public String toRDFValue(String dbValue) {
+        return get(rdfValues, dbValue, translator::toRDFValue);
+    }
+
+    @Override
+    public String toDBValue(String rdfValue) {
+        return get(dbValues, rdfValue, translator::toDBValue);
+    }
+
+    private String get(Cache<String, Optional<String>> cache, String key, Function<String, String> function) {
+        if (key == null) {
+            return function.apply(null);
+        }
+        Optional<String> res = cache.getIfPresent(key);
+        record(res != null);
+        if (res != null) {
+            return res.orElse(null);
+        }
+        // the underlying translator is called without any lock
+        res = Optional.ofNullable(function.apply(key));
+        cache.put(key, res);
+        return res.orElse(null);
+    }
+
+    private void record(boolean hit) {
+        (hit ? hits : misses).increment();
+        QueryMetrics metrics = QueryMetrics.global();
+        if (metrics != null) {
+            metrics.recordTranslatorLookup(hit);
+        }
+    }
+
+    /**
+     * Answers the number of calls answered from the cache.
+     *
+     * @return long
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Answers the number of calls passed to the underlying translator.
+     *
+     * @return long
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Answers the fraction of calls answered from the cache.
+     *
+     * @return double between {@code 0} and {@code 1}
+     */
+    public double getHitRate() {
+        long hits = getHitCount();
+        long total = hits + getMissCount();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Answers the number of cached values in both directions.
+     *
+     * @return int
+     */
+    public int size() {
+        return (int) (rdfValues.size() + dbValues.size());
+    }
+
+    /**
+     * Drops all cached values and statistics.
+     */
+    public void clear() {
+        rdfValues.clear();
+        dbValues.clear();
+        hits.reset();
+        misses.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "cached(" + translator + ")";
+    }
+}
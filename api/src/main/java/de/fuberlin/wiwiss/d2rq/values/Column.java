@@ -28,6 +28,10 @@ public class Column implements ValueMaker {
         this.attributeAsSet = Collections.singleton(this.attribute);
     }
 
+    public Attribute attribute() {
+        return this.attribute;
+    }
+
     @Override
     public String makeValue(ResultRow row) {
         return row.get(this.attribute);
@@ -35,7 +35,8 @@ public class Pattern implements ValueMaker {
     private List<ColumnFunction> columnFunctions = new ArrayList<>(3);
     private List<String> literalParts = new ArrayList<>(3);
     private Set<ProjectionSpec> columnsAsSet;
-    private java.util.regex.Pattern regex;
+    // the total length of all literal parts, to presize the output of makeValue
+    private int literalLength;
 
     /**
      * Constructs a new Pattern instance from a pattern syntax string
@@ -90,15 +91,15 @@ public class Pattern implements ValueMaker {
         if (value == null) {
             return Expression.FALSE;
         }
-        Matcher match = this.regex.matcher(value);
-        if (!match.matches()) {
+        int[] groups = match(value);
+        if (groups == null) {
             return Expression.FALSE;
         }
         Collection<Expression> expressions = new ArrayList<>(columns.size());
         for (int i = 0; i < this.columns.size(); i++) {
             Attribute attribute = columns.get(i);
             ColumnFunction function = columnFunctions.get(i);
-            String attributeValue = function.decode(match.group(i + 1));
+            String attributeValue = function.decode(value.substring(groups[2 * i], groups[2 * i + 1]));
             if (attributeValue == null) {
                 return Expression.FALSE;
             }
@@ -107,6 +108,49 @@ public class Pattern implements ValueMaker {
         return Conjunction.create(expressions);
     }
 
+    /**
+     * Matches the value against the pattern the same way as the regular expression
+     * {@code \Qfirst\E(.*?)\Qliteral1\E(.*?)\Qliteral2\E...} would do,
+     * but without a regex: the literal parts are located by plain string scanning,
+     * and each column value is as short as possible.
+     *
+     * @param value String, not {@code null}
+     * @return array with the start and end positions of the column values, or {@code null} if there is no match
+     */
+    private int[] match(String value) {
+        if (!value.startsWith(firstLiteralPart)) {
+            return null;
+        }
+        if (columns.isEmpty()) {
+            return value.length() == firstLiteralPart.length() ? new int[0] : null;
+        }
+        int[] res = new int[2 * columns.size()];
+        return match(value, 0, firstLiteralPart.length(), res) ? res : null;
+    }
+
+    private boolean match(String value, int index, int start, int[] res) {
+        String literal = literalParts.get(index);
+        res[2 * index] = start;
+        if (index == literalParts.size() - 1) {
+            // the last literal part is anchored at the end of the value
+            int end = value.length() - literal.length();
+            res[2 * index + 1] = end;
+            return end >= start && value.startsWith(literal, end);
+        }
+        int end = value.indexOf(literal, start);
+        while (end >= 0) {
+            res[2 * index + 1] = end;
+            if (match(value, index + 1, end + literal.length(), res)) {
+                return true;
+            }
+            if (end == value.length()) {
+                break;
+            }
+            end = value.indexOf(literal, end + 1);
+        }
+        return false;
+    }
+
     @Override
     public Set<ProjectionSpec> projectionSpecs() {
         return this.columnsAsSet;
@@ -120,22 +164,27 @@ public class Pattern implements ValueMaker {
      */
     @Override
     public String makeValue(ResultRow row) {
-        int index = 0;
-        StringBuilder result = new StringBuilder(this.firstLiteralPart);
-        while (index < this.columns.size()) {
-            Attribute column = columns.get(index);
-            ColumnFunction function = columnFunctions.get(index);
-            String value = row.get(column);
+        int size = this.columns.size();
+        if (size == 0) {
+            return this.firstLiteralPart;
+        }
+        String[] values = new String[size];
+        int length = this.literalLength;
+        for (int index = 0; index < size; index++) {
+            String value = row.get(columns.get(index));
             if (value == null) {
                 return null;
             }
-            value = function.encode(value);
+            value = columnFunctions.get(index).encode(value);
             if (value == null) {
                 return null;
             }
-            result.append(value);
-            result.append(this.literalParts.get(index));
-            index++;
+            values[index] = value;
+            length += value.length();
+        }
+        StringBuilder result = new StringBuilder(length).append(this.firstLiteralPart);
+        for (int index = 0; index < size; index++) {
+            result.append(values[index]).append(this.literalParts.get(index));
         }
         return result.toString();
     }
@@ -204,7 +253,7 @@ public class Pattern implements ValueMaker {
         boolean matched = match.find();
         int firstLiteralEnd = matched ? match.start() : this.pattern.length();
         this.firstLiteralPart = this.pattern.substring(0, firstLiteralEnd);
-        StringBuilder regexPattern = new StringBuilder("\\Q" + this.firstLiteralPart + "\\E");
+        this.literalLength = this.firstLiteralPart.length();
         while (matched) {
             this.columns.add(SQL.parseAttribute(match.group(1)));
             this.columnFunctions.add(getColumnFunction(match.group(2)));
@@ -213,9 +262,8 @@ public class Pattern implements ValueMaker {
             int nextLiteralEnd = matched ? match.start() : this.pattern.length();
             String nextLiteralPart = this.pattern.substring(nextLiteralStart, nextLiteralEnd);
             this.literalParts.add(nextLiteralPart);
-            regexPattern.append("(.*?)\\Q").append(nextLiteralPart).append("\\E");
+            this.literalLength += nextLiteralPart.length();
         }
-        this.regex = java.util.regex.Pattern.compile(regexPattern.toString(), java.util.regex.Pattern.DOTALL);
     }
 
     public Iterator<Object> partsIterator() {
@@ -314,28 +362,109 @@ public class Pattern implements ValueMaker {
         }
     }
 
+    /**
+     * Encodes the string exactly as {@link URLEncoder#encode(String, String)} with UTF-8 does,
+     * but without intermediate buffers, and without any copying if there is nothing to encode.
+     *
+     * @param s             String, not {@code null}
+     * @param spaceChar     the replacement for a space: {@code '+'} for urlencode, {@code '_'} for urlify
+     * @param encodeLowLine if {@code true} the low line ({@code '_'}) is encoded too
+     * @return String
+     */
+    static String urlencode(String s, char spaceChar, boolean encodeLowLine) {
+        int length = s.length();
+        int i = 0;
+        while (i < length && isURLSafe(s.charAt(i), encodeLowLine)) {
+            i++;
+        }
+        if (i == length) {
+            return s;
+        }
+        StringBuilder res = new StringBuilder(length + 16).append(s, 0, i);
+        while (i < length) {
+            char c = s.charAt(i++);
+            if (isURLSafe(c, encodeLowLine)) {
+                res.append(c);
+            } else if (c == ' ') {
+                res.append(spaceChar);
+            } else if (Character.isHighSurrogate(c) && i < length && Character.isLowSurrogate(s.charAt(i))) {
+                appendUTF8(res, Character.toCodePoint(c, s.charAt(i++)));
+            } else if (Character.isSurrogate(c)) {
+                // an unpaired surrogate is replaced with '?', as the UTF-8 encoder does
+                appendUTF8(res, '?');
+            } else {
+                appendUTF8(res, c);
+            }
+        }
+        return res.toString();
+    }
+
+    private static boolean isURLSafe(char c, boolean encodeLowLine) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '*' || (c == '_' && !encodeLowLine);
+    }
+
+    /**
+     * Appends the %-encoded UTF-8 bytes of the code point.
+     *
+     * @param res       {@link StringBuilder}
+     * @param codePoint int
+     */
+    static void appendUTF8(StringBuilder res, int codePoint) {
+        if (codePoint < 0x80) {
+            appendByte(res, codePoint);
+        } else if (codePoint < 0x800) {
+            appendByte(res, 0xC0 | (codePoint >> 6));
+            appendByte(res, 0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            appendByte(res, 0xE0 | (codePoint >> 12));
+            appendByte(res, 0x80 | ((codePoint >> 6) & 0x3F));
+            appendByte(res, 0x80 | (codePoint & 0x3F));
+        } else {
+            appendByte(res, 0xF0 | (codePoint >> 18));
+            appendByte(res, 0x80 | ((codePoint >> 12) & 0x3F));
+            appendByte(res, 0x80 | ((codePoint >> 6) & 0x3F));
+            appendByte(res, 0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private static void appendByte(StringBuilder res, int b) {
+        res.append('%').append(HEX_DIGITS[(b >> 4) & 0x0F]).append(HEX_DIGITS[b & 0x0F]);
+    }
+
+    /**
+     * Decodes the string as {@link URLDecoder#decode(String, String)} with UTF-8 does.
+     * A string without escapes is returned as is.
+     *
+     * @param s String, not {@code null}
+     * @return String or {@code null} in case of broken encoding
+     */
+    static String urldecode(String s) {
+        if (s.indexOf('%') < 0 && s.indexOf('+') < 0) {
+            return s;
+        }
+        try {
+            return URLDecoder.decode(s, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException ex) {
+            // Can't happen, UTF-8 is always supported
+            throw new RuntimeException(ex);
+        } catch (IllegalArgumentException ex) {
+            // Broken encoding
+            return null;
+        }
+    }
+
     static class URLEncodeFunction implements ColumnFunction {
         @Override
         public String encode(String s) {
-            try {
-                return URLEncoder.encode(s, StandardCharsets.UTF_8.name());
-            } catch (UnsupportedEncodingException ex) {
-                // Can't happen, UTF-8 is always supported
-                throw new RuntimeException(ex);
-            }
+            return urlencode(s, '+', false);
         }
 
         @Override
         public String decode(String s) {
-            try {
-                return URLDecoder.decode(s, StandardCharsets.UTF_8.name());
-            } catch (UnsupportedEncodingException ex) {
-                // Can't happen, UTF-8 is always supported
-                throw new RuntimeException(ex);
-            } catch (IllegalArgumentException ex) {
-                // Broken encoding
-                return null;
-            }
+            return urldecode(s);
         }
 
         @Override
@@ -347,25 +476,12 @@ public class Pattern implements ValueMaker {
     static class URLifyFunction implements ColumnFunction {
         @Override
         public String encode(String s) {
-            try {
-                return URLEncoder.encode(s, StandardCharsets.UTF_8.name()).replaceAll("_", "%5F").replace('+', '_');
-            } catch (UnsupportedEncodingException ex) {
-                // Can't happen, UTF-8 is always supported
-                throw new RuntimeException(ex);
-            }
+            return urlencode(s, '_', true);
         }
 
         @Override
         public String decode(String s) {
-            try {
-                return URLDecoder.decode(s.replace('_', '+'), StandardCharsets.UTF_8.name());
-            } catch (UnsupportedEncodingException ex) {
-                // Can't happen, UTF-8 is always supported
-                throw new RuntimeException(ex);
-            } catch (IllegalArgumentException ex) {
-                // Broken encoding
-                return null;
-            }
+            return urldecode(s.replace('_', '+'));
         }
 
         @Override
@@ -382,15 +498,7 @@ public class Pattern implements ValueMaker {
 
         @Override
         public String decode(String s) {
-            try {
-                return URLDecoder.decode(s.replaceAll("%20", "+"), StandardCharsets.UTF_8.name());
-            } catch (UnsupportedEncodingException ex) {
-                // Can't happen, UTF-8 is always supported
-                throw new RuntimeException(ex);
-            } catch (IllegalArgumentException ex) {
-                // Broken encoding
-                return null;
-            }
+            return urldecode(s.indexOf('%') < 0 ? s : s.replace("%20", "+"));
         }
 
         @Override
@@ -398,4 +506,4 @@ public class Pattern implements ValueMaker {
             return "encode";
         }
     }
-}
\ No newline at end of file
+}
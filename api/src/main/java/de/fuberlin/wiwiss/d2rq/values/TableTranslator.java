@@ -0,0 +1,60 @@
+package de.fuberlin.wiwiss.d2rq.values;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A {@link Translator} backed by a static lookup table,
+ * i.e. the inline {@code d2rq:translation} entries or the CSV file of a {@code d2rq:TranslationTable}.
+ * Unlike an arbitrary {@code d2rq:javaClass} translator, the whole table is known in advance,
+ * so it can be compiled into SQL (see {@link de.fuberlin.wiwiss.d2rq.expr.TranslationCase}).
+ */
+@SuppressWarnings("WeakerAccess")
+public class TableTranslator implements Translator {
+    private final Map<String, String> translationsByDBValue = new TreeMap<>();
+    private final Map<String, String> translationsByRDFValue = new HashMap<>();
+
+    /**
+     * Creates a translator from a collection of table rows, incomplete rows are skipped.
+     *
+     * @param rows  Collection of rows
+     * @param key   {@link Function} to get the database value from a row
+     * @param value {@link Function} to get the RDF value from a row
+     * @param <X>   the type of row
+     */
+    public <X> TableTranslator(Collection<X> rows, Function<X, String> key, Function<X, String> value) {
+        for (X p : rows) {
+            String dbValue = key.apply(p);
+            String rdfValue = value.apply(p);
+            if (dbValue == null || rdfValue == null) {
+                continue;
+            }
+            translationsByDBValue.put(dbValue, rdfValue);
+            translationsByRDFValue.put(rdfValue, dbValue);
+        }
+    }
+
+    /**
+     * Answers the table as an unmodifiable map, sorted by the database values.
+     *
+     * @return Map with database values as keys and RDF values as values
+     */
+    public Map<String, String> translations() {
+        return Collections.unmodifiableMap(translationsByDBValue);
+    }
+
+    @Override
+    public String toDBValue(String rdfValue) {
+        return translationsByRDFValue.get(rdfValue);
+    }
+
+    @Override
+    public String toRDFValue(String dbValue) {
+        return dbValue == null ? null : translationsByDBValue.get(dbValue);
+    }
+
+    @Override
+    public String toString() {
+        return "table(" + translationsByDBValue.size() + ")";
+    }
+}
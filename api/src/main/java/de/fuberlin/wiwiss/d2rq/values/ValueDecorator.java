@@ -4,6 +4,7 @@ import de.fuberlin.wiwiss.d2rq.algebra.ColumnRenamer;
 import de.fuberlin.wiwiss.d2rq.algebra.OrderSpec;
 import de.fuberlin.wiwiss.d2rq.algebra.ProjectionSpec;
 import de.fuberlin.wiwiss.d2rq.expr.Expression;
+import de.fuberlin.wiwiss.d2rq.expr.TranslationCase;
 import de.fuberlin.wiwiss.d2rq.nodes.NodeSetFilter;
 import de.fuberlin.wiwiss.d2rq.sql.ResultRow;
 
@@ -80,10 +81,42 @@ public class ValueDecorator implements ValueMaker {
 
     @Override
     public void describeSelf(NodeSetFilter c) {
+        // the translator is reported even if it is done in SQL, since it drops the values missing in the table
         c.setUsesTranslator(translator);
+        Expression translated = translatedExpression();
+        if (translated != null) {
+            c.limitValuesToExpression(translated);
+            return;
+        }
         this.base.describeSelf(c);
     }
 
+    /**
+     * Answers {@code true} if the values are not taken as is from the database.
+     *
+     * @return boolean
+     */
+    public boolean usesTranslator() {
+        return !Translator.IDENTITY.equals(translator);
+    }
+
+    /**
+     * Answers the SQL expression that computes the translated values,
+     * which is possible if a static translation table is applied to a single column
+     * and the table is not too large to be inlined into the SQL (see {@link TranslationCase#MAX_INLINE_SIZE}).
+     *
+     * @return {@link TranslationCase} or {@code null}
+     */
+    public TranslationCase translatedExpression() {
+        if (!(translator instanceof TableTranslator) || !(base instanceof Column)) {
+            return null;
+        }
+        if (((TableTranslator) translator).translations().size() > TranslationCase.MAX_INLINE_SIZE) {
+            return null;
+        }
+        return new TranslationCase(((Column) base).attribute(), (TableTranslator) translator);
+    }
+
     @Override
     public Expression valueExpression(String value) {
         for (ValueConstraint constraint : constraints) {
@@ -120,7 +153,7 @@ public class ValueDecorator implements ValueMaker {
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
-        if (!this.translator.equals(Translator.IDENTITY)) {
+        if (usesTranslator()) {
             result.append(this.translator);
             result.append("(");
         }
@@ -135,7 +168,7 @@ public class ValueDecorator implements ValueMaker {
                 result.append("&&");
             }
         }
-        if (!this.translator.equals(Translator.IDENTITY)) {
+        if (usesTranslator()) {
             result.append(")");
         }
         return result.toString();
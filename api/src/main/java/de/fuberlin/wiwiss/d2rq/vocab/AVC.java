@@ -82,6 +82,88 @@ public class AVC {
      */
     public static final Property cacheMaxSize = property("maxKeysSize");
 
+    /**
+     * An addition configuration property to limit the number of SQL-backed union branches
+     * that a single basic graph pattern of a SPARQL query may be translated to.
+     * If the translation of a BGP would exceed the limit, the BGP is split into several parts,
+     * which are translated separately and joined by the query engine.
+     * The right part of the statement with this predicate
+     * must be {@code xsd:integer} literal, with positive int as value.
+     *
+     * @see D2RQ#Configuration
+     * @see de.fuberlin.wiwiss.d2rq.engine.GraphPatternTranslator
+     */
+    public static final Property maxUnionBranches = property("maxUnionBranches");
+
+    /**
+     * An addition configuration property to switch on the use of the database catalog statistics
+     * (estimated row counts and numbers of distinct values) when planning SQL queries.
+     * The statistics are used to order triple patterns and tables, so that the most selective relations come first.
+     * The right part of the statement with this predicate must be {@code xsd:boolean} literal.
+     *
+     * @see D2RQ#Configuration
+     * @see de.fuberlin.wiwiss.d2rq.dbschema.TableStatistics
+     */
+    public static final Property useTableStatistics = property("useTableStatistics");
+
+    /**
+     * An addition configuration property to set up the max number of memoized results
+     * of each custom translator ({@code d2rq:javaClass} of a {@code d2rq:TranslationTable}), in each direction.
+     * The right part of the statement with this predicate
+     * must be {@code xsd:integer} literal, with positive int as value.
+     *
+     * @see D2RQ#Configuration
+     * @see de.fuberlin.wiwiss.d2rq.values.CachingTranslator
+     */
+    public static final Property translatorCacheSize = property("translatorCacheSize");
+
+    /**
+     * An addition configuration property to switch on the on-demand compilation of the mapping.
+     * If it is {@code true}, only a structural index of the property bridges is built before the first query,
+     * and each property bridge is compiled and validated against the database
+     * the first time a query selects it, not all at once.
+     * The right part of the statement with this predicate must be {@code xsd:boolean} literal.
+     *
+     * @see D2RQ#Configuration
+     * @see de.fuberlin.wiwiss.d2rq.algebra.LazyTripleRelation
+     */
+    public static final Property lazyCompilation = property("lazyCompilation");
+
+    /**
+     * A class map property to declare a watermark column, i.e. a column (in the form {@code table.column})
+     * whose value grows with each insert or update of a row,
+     * e.g. a last-modified timestamp or a monotonically increasing key.
+     * It allows to dump only those rows of the class map that have been changed since the previous dump.
+     * The right part of the statement with this predicate must be a string literal.
+     *
+     * @see de.fuberlin.wiwiss.d2rq.map.ClassMap#setWatermarkColumn(String)
+     * @see de.fuberlin.wiwiss.d2rq.dump.IncrementalDump
+     */
+    public static final Property watermarkColumn = property("watermarkColumn");
+
+    /**
+     * A database property to declare a read replica of the database,
+     * i.e. a JDBC URL of another database server with the same schema and the same (possibly lagging) data.
+     * The read-only SQL statements, that fetch the RDF data, are spread across all replicas,
+     * while the metadata is always read from the primary {@link D2RQ#jdbcDSN d2rq:jdbcDSN}.
+     * The replicas share the credentials and the connection properties of the primary database.
+     * The right part of the statement with this predicate must be a string literal, the property may be repeated.
+     *
+     * @see de.fuberlin.wiwiss.d2rq.map.Database#addReplicaJDBCDSN(String)
+     * @see de.fuberlin.wiwiss.d2rq.sql.ReplicaRouter
+     */
+    public static final Property replicaJdbcDSN = property("replicaJdbcDSN");
+
+    /**
+     * A database property to choose how the statements are spread across the {@link #replicaJdbcDSN read replicas}:
+     * either {@code "round-robin"} (the default) or {@code "least-outstanding"}
+     * (a replica with the least number of running statements is chosen).
+     * The right part of the statement with this predicate must be a string literal.
+     *
+     * @see de.fuberlin.wiwiss.d2rq.sql.ReplicaRouter.Policy
+     */
+    public static final Property replicaRouting = property("replicaRouting");
+
     /**
      * Property-marker to indicate that a related
      * {@link de.fuberlin.wiwiss.d2rq.map.PropertyBridge PropertyBridge}
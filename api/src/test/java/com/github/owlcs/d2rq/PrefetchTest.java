@@ -0,0 +1,67 @@
+package com.github.owlcs.d2rq;
+
+import com.github.owlcs.d2rq.utils.D2RQGraphUtils;
+import com.github.owlcs.ontapi.OntManagers;
+import com.github.owlcs.ontapi.Ontology;
+import com.github.owlcs.ontapi.OntologyManager;
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLDatabase;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tests loading an ontology with the data, that is prefetched into memory.
+ */
+public class PrefetchTest {
+    private HSQLDatabase db;
+    private D2RQGraphDocumentSource source;
+
+    @Before
+    public void setUp() {
+        db = HSQLDatabase.create("prefetch",
+                "CREATE TABLE CITY (ID INT PRIMARY KEY, TITLE VARCHAR(50))",
+                "CREATE TABLE PERSON (ID INT PRIMARY KEY, NAME VARCHAR(50), CITY INT REFERENCES CITY(ID))",
+                "INSERT INTO CITY VALUES (1, 'Berlin')",
+                "INSERT INTO CITY VALUES (2, 'Paris')",
+                "INSERT INTO PERSON VALUES (1, 'Anna', 1)",
+                "INSERT INTO PERSON VALUES (2, 'Boris', 2)",
+                "INSERT INTO PERSON VALUES (3, 'Chen', NULL)");
+        source = D2RQGraphDocumentSource.create(IRI.create(db.getJdbcURL()), db.getUser(), db.getPassword());
+    }
+
+    @After
+    public void tearDown() {
+        source.close();
+        db.close(true);
+    }
+
+    private static Set<Triple> triples(Graph g) {
+        return new HashSet<>(g.find().toList());
+    }
+
+    @Test
+    public void testPrefetchedGraph() {
+        Graph expected = D2RQGraphUtils.toMemory(source.getGraph());
+        Graph actual = source.withPrefetch().getGraph();
+        Assert.assertTrue(D2RQGraphUtils.isMappingGraph(actual));
+        Assert.assertSame(source.getMapping(), D2RQGraphUtils.getMapping(actual));
+        Assert.assertEquals(triples(expected), triples(actual));
+        Assert.assertEquals(expected.size(), actual.size());
+    }
+
+    @Test
+    public void testLoadOntology() throws Exception {
+        OntologyManager m = OntManagers.createONT();
+        Ontology o = m.loadOntologyFromOntologyDocument(source.withPrefetch());
+        Assert.assertEquals(5, o.axioms(AxiomType.CLASS_ASSERTION).count());
+        Assert.assertEquals(2, o.axioms(AxiomType.OBJECT_PROPERTY_ASSERTION).count());
+    }
+}
@@ -0,0 +1,180 @@
+package de.fuberlin.wiwiss.d2rq;
+
+import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
+import de.fuberlin.wiwiss.d2rq.dbschema.DeclaredKeys;
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLDatabase;
+import de.fuberlin.wiwiss.d2rq.map.Mapping;
+import de.fuberlin.wiwiss.d2rq.map.MappingFactory;
+import de.fuberlin.wiwiss.d2rq.map.MappingHelper;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+import de.fuberlin.wiwiss.d2rq.vocab.AVC;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+
+public class MappingWatcherTest {
+
+    private HSQLDatabase db;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        db = HSQLDatabase.create("watcher",
+                "CREATE TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(50))",
+                "INSERT INTO T VALUES (1, 'one')",
+                "INSERT INTO T VALUES (2, 'two')");
+        file = Files.createTempFile("mapping", ".ttl");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        db.close(true);
+        Files.deleteIfExists(file);
+    }
+
+    private void writeMapping(String... bridges) throws IOException {
+        writeMapping(false, bridges);
+    }
+
+    private void writeMapping(boolean useTableStatistics, String... bridges) throws IOException {
+        writeMapping(useTableStatistics, 0, bridges);
+    }
+
+    private void writeMapping(boolean useTableStatistics, int fetchSize, String... bridges) throws IOException {
+        StringBuilder res = new StringBuilder()
+                .append("@prefix d2rq: <http://www.wiwiss.fu-berlin.de/suhl/bizer/D2RQ/0.1#> .\n")
+                .append("@prefix avc: <").append(AVC.NS).append("> .\n")
+                .append("@prefix ex: <http://example.org/> .\n")
+                .append("[] a d2rq:Configuration ; avc:useTableStatistics ").append(useTableStatistics).append(" .\n")
+                .append("ex:db a d2rq:Database ; d2rq:jdbcDSN \"").append(db.getJdbcURL())
+                .append("\" ; d2rq:username \"").append(db.getUser()).append("\"")
+                .append(fetchSize > 0 ? " ; d2rq:fetchSize " + fetchSize : "").append(" .\n")
+                .append("ex:T a d2rq:ClassMap ; d2rq:dataStorage ex:db ; ")
+                .append("d2rq:uriPattern \"http://example.org/t/@@T.ID@@\" ; d2rq:class ex:Thing .\n");
+        for (String b : bridges) {
+            res.append("[] a d2rq:PropertyBridge ; d2rq:belongsToClassMap ex:T ; ").append(b).append(" .\n");
+        }
+        Files.write(file, res.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private MappingWatcher createWatcher() {
+        return new MappingWatcher(file, () -> {
+            Mapping res = MappingFactory.load(file.toUri().toString());
+            res.getConfiguration().setServeVocabulary(false);
+            return res;
+        }, Mapping::getData);
+    }
+
+    private static DeclaredKeys declaredKeys(Mapping m) {
+        return MappingHelper.asConnectingMapping(m).declaredKeys();
+    }
+
+    private static ConnectedDB connection(Mapping m) {
+        return MappingHelper.getConnectedDB(m.databases().findFirst().orElseThrow(AssertionError::new));
+    }
+
+    @Test
+    public void testReloadKeepsRunningQueries() throws IOException {
+        writeMapping();
+        try (MappingWatcher watcher = createWatcher()) {
+            Graph g = watcher.getGraph();
+            Mapping first = watcher.getMapping();
+            ConnectedDB connection = connection(first);
+            Assert.assertEquals(2, g.find().toList().size());
+            Assert.assertFalse(watcher.refresh());
+
+            ExtendedIterator<Triple> running = g.find();
+            Assert.assertTrue(running.hasNext());
+
+            writeMapping("d2rq:property ex:name ; d2rq:column \"T.NAME\"");
+            Assert.assertTrue(watcher.refresh());
+            Mapping second = watcher.getMapping();
+            Assert.assertNotSame(first, second);
+            // the connection with its metadata is passed to the new mapping
+            Assert.assertSame(connection, connection(second));
+            Assert.assertTrue(connection.isConnected());
+
+            Assert.assertEquals(2, running.toList().size());
+            Assert.assertEquals(4, g.find().toList().size());
+        }
+    }
+
+    @Test
+    public void testReloadForgetsRemovedJoins() throws IOException {
+        db.executeSQL("CREATE TABLE U (ID INT PRIMARY KEY, T_ID INT, TAG VARCHAR(50))");
+        db.executeSQL("INSERT INTO U VALUES (1, 1, 'a')");
+        db.executeSQL("INSERT INTO U VALUES (2, 1, 'b')");
+        // the directed join says that U.T_ID is a key
+        writeMapping("d2rq:property ex:tag ; d2rq:column \"U.TAG\" ; d2rq:join \"T.ID => U.T_ID\"");
+        RelationName u = new RelationName(null, "U");
+        Set<String> key = Collections.singleton("T_ID");
+        try (MappingWatcher watcher = createWatcher()) {
+            ConnectedDB connection = connection(watcher.getMapping());
+            DeclaredKeys first = declaredKeys(watcher.getMapping());
+            Assert.assertTrue(first.isUnique(connection, u, key));
+            Assert.assertFalse(connection.useTableStatistics());
+
+            writeMapping(true, "d2rq:property ex:tag ; d2rq:column \"U.TAG\" ; d2rq:join \"T.ID = U.T_ID\"");
+            Assert.assertTrue(watcher.refresh());
+            Assert.assertSame(connection, connection(watcher.getMapping()));
+            Assert.assertFalse(declaredKeys(watcher.getMapping()).isUnique(connection, u, key));
+            Assert.assertTrue(declaredKeys(watcher.getMapping()).isUnique(connection, u, Collections.singleton("ID")));
+            // the connection does not keep the keys of the joins, so the previous version is unaffected
+            Assert.assertFalse(connection.tableKeys(u).isUnique(key));
+            Assert.assertTrue(first.isUnique(connection, u, key));
+            Assert.assertTrue(connection.useTableStatistics());
+            Assert.assertEquals(4, watcher.getGraph().find().toList().size());
+        }
+    }
+
+    @Test
+    public void testBrokenMappingIsIgnored() throws IOException {
+        writeMapping("d2rq:property ex:name ; d2rq:column \"T.NAME\"");
+        try (MappingWatcher watcher = createWatcher()) {
+            Graph g = watcher.getGraph();
+            Mapping first = watcher.getMapping();
+            Assert.assertEquals(4, g.find().toList().size());
+
+            writeMapping(true, "d2rq:property ex:name ; d2rq:column \"T.NO_SUCH_COLUMN\"");
+            Assert.assertFalse(watcher.refresh());
+            Assert.assertSame(first, watcher.getMapping());
+            Assert.assertTrue(connection(first).isConnected());
+            // the configuration of the broken mapping is not applied
+            Assert.assertFalse(connection(first).useTableStatistics());
+            Assert.assertEquals(4, g.find().toList().size());
+        }
+    }
+
+    @Test
+    public void testReplacedMappingIsClosedWhenQueriesAreFinished() throws IOException {
+        writeMapping(false, 10);
+        try (MappingWatcher watcher = createWatcher()) {
+            ConnectedDB first = connection(watcher.getMapping());
+            ExtendedIterator<Triple> running = watcher.getGraph().find();
+            Assert.assertTrue(running.hasNext());
+
+            // a changed fetch size does not allow to share the connection
+            writeMapping(false, 20);
+            Assert.assertTrue(watcher.reload());
+            writeMapping(false, 30);
+            Assert.assertTrue(watcher.reload());
+            Assert.assertNotSame(first, connection(watcher.getMapping()));
+            Assert.assertTrue(first.isConnected());
+
+            Assert.assertEquals(2, running.toList().size());
+            Assert.assertFalse(watcher.refresh());
+            Assert.assertFalse(first.isConnected());
+        }
+    }
+}
@@ -5,10 +5,16 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.io.StringReader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 
 /**
  * Unit tests for {@link TranslationTableParser}
@@ -56,6 +62,54 @@ public class TranslationTableParserTest {
         Assert.assertEquals(this.simpleTranslations, new HashSet<>(translations));
     }
 
+    @Test
+    public void testParseFromFileWithWindowsLineBreaks() throws IOException {
+        Path file = Files.createTempFile("translations", ".csv");
+        try {
+            Files.write(file, "db1,rdf1\r\n\"db2\",rdf2\r\nbroken\r\n".getBytes());
+            Collection<TranslationTableParser.Row> translations =
+                    new TranslationTableParser(file.toUri().toString()).parseTranslations();
+            Assert.assertEquals(this.simpleTranslations, new HashSet<>(translations));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testParseUTF8File() throws IOException {
+        Path file = Files.createTempFile("translations", ".csv");
+        try {
+            Files.write(file, "stra\u00dfe,\u0443\u043b\u0438\u0446\u0430\n".getBytes(StandardCharsets.UTF_8));
+            Collection<TranslationTableParser.Row> translations =
+                    new TranslationTableParser(file.toUri().toString()).parseTranslations();
+            Assert.assertEquals(1, translations.size());
+            TranslationTableParser.Row row = translations.iterator().next();
+            Assert.assertEquals("stra\u00dfe", row.first());
+            Assert.assertEquals("\u0443\u043b\u0438\u0446\u0430", row.second());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testMultibyteCharactersAcrossMappedRegions() throws IOException {
+        Path file = Files.createTempFile("translations", ".csv");
+        try {
+            String csv = "stra\u00dfe,\u0443\u043b\u0438\u0446\u0430\r\n\u20ac,\ud83d\ude00\r\n";
+            Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+            TranslationTableParser parser = new TranslationTableParser(file.toUri().toString());
+            Collection<TranslationTableParser.Row> expected = parser.parseTranslations();
+            Assert.assertEquals(2, expected.size());
+            for (int size = 4; size < 10; size++) {
+                List<TranslationTableParser.Row> actual = new ArrayList<>();
+                parser.parseFile(file.toFile(), size, actual);
+                Assert.assertEquals("Region size " + size, expected, actual);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @Test
     public void testParseFromFileWithProtocol() {
         URL url = TranslationTableParser.class.getResource("/csv/translationtable.csv");
@@ -0,0 +1,70 @@
+package de.fuberlin.wiwiss.d2rq.dbschema;
+
+import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLDatabase;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class DatabaseSchemaInspectorTest {
+    private HSQLDatabase db;
+    private ConnectedDB connection;
+
+    @Before
+    public void setUp() {
+        db = new HSQLDatabase("inspector");
+        connection = new ConnectedDB(db.getJdbcURL(), db.getUser(), db.getPassword());
+    }
+
+    @After
+    public void tearDown() {
+        connection.close();
+        db.close(true);
+    }
+
+    @Test
+    public void testDescribeColumnsEscapesWildcards() {
+        db.executeSQL("CREATE TABLE A_B (X INT)");
+        db.executeSQL("CREATE TABLE AXB (Y INT)");
+        RelationName table = new RelationName(null, "A_B");
+        Assert.assertEquals(Collections.singleton(new Attribute(table, "X")),
+                connection.schemaInspector().describeColumns(table).keySet());
+    }
+
+    @Test
+    public void testDescribeColumnsOfAmbiguousTable() {
+        db.executeSQL("CREATE TABLE T (ID INT)");
+        db.executeSQL("CREATE SCHEMA S2 AUTHORIZATION DBA");
+        db.executeSQL("CREATE TABLE S2.T (Z INT)");
+        DatabaseSchemaInspector inspector = connection.schemaInspector();
+        // the table without schema is found in two schemas, so nothing is answered
+        Assert.assertTrue(inspector.describeColumns(new RelationName(null, "T")).isEmpty());
+        RelationName qualified = new RelationName("S2", "T");
+        Assert.assertEquals(Collections.singleton(new Attribute(qualified, "Z")),
+                inspector.describeColumns(qualified).keySet());
+
+        // the per-column lookup is still possible
+        connection.prefetchColumnMetadata(Collections.singleton(new RelationName(null, "T")));
+        Assert.assertNotNull(connection.columnType(new Attribute(null, "T", "ID")));
+    }
+
+    @Test
+    public void testInvalidateMetadataForgetsPrefetchedColumns() {
+        db.executeSQL("CREATE TABLE T (ID INT)");
+        RelationName table = new RelationName(null, "T");
+        Attribute column = new Attribute(table, "ID");
+        connection.prefetchColumnMetadata(Collections.singleton(table));
+        Assert.assertTrue(connection.isNullable(column));
+
+        db.executeSQL("DROP TABLE T");
+        db.executeSQL("CREATE TABLE T (ID INT NOT NULL)");
+        connection.invalidateMetadata();
+        connection.prefetchColumnMetadata(Collections.singleton(table));
+        Assert.assertFalse(connection.isNullable(column));
+    }
+}
@@ -0,0 +1,73 @@
+package de.fuberlin.wiwiss.d2rq.dbschema;
+
+import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
+import de.fuberlin.wiwiss.d2rq.sql.DummyDB;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class TableKeysTest {
+
+    private static Set<String> columns(String... names) {
+        return new TreeSet<>(Arrays.asList(names));
+    }
+
+    @Test
+    public void testNoKeys() {
+        TableKeys keys = new TableKeys().addKey(Collections.emptyList());
+        Assert.assertTrue(keys.keys().isEmpty());
+        Assert.assertFalse(keys.isUnique(columns("id")));
+        Assert.assertFalse(keys.isUnique(Collections.emptySet()));
+    }
+
+    @Test
+    public void testCompositeKey() {
+        TableKeys keys = new TableKeys().addKey(Arrays.asList("a", "b")).addKey(Collections.singletonList("id"));
+        Assert.assertEquals(2, keys.keys().size());
+        Assert.assertTrue(keys.isUnique(columns("id")));
+        Assert.assertTrue(keys.isUnique(columns("a", "b")));
+        Assert.assertTrue(keys.isUnique(columns("a", "b", "c")));
+        Assert.assertFalse(keys.isUnique(columns("a")));
+        Assert.assertFalse(keys.isUnique(columns("b", "c")));
+    }
+
+    @Test
+    public void testAddKeyResetsNegativeAnswers() {
+        TableKeys keys = new TableKeys().addKey(Collections.singletonList("id"));
+        Set<String> name = columns("name");
+        Assert.assertFalse(keys.isUnique(name));
+        keys.addKey(Collections.singletonList("name")).addKey(Collections.singletonList("name"));
+        Assert.assertEquals(2, keys.keys().size());
+        Assert.assertTrue(keys.isUnique(name));
+        Assert.assertTrue(keys.isUnique(columns("id")));
+    }
+
+    @Test
+    public void testDeclaredKeysAreKeptApart() {
+        DummyDB db = DummyDB.create();
+        RelationName table = new RelationName(null, "table");
+        db.tableKeys(table).addKey(Collections.singletonList("id"));
+        DeclaredKeys first = new DeclaredKeys().declareKey(db, table, Collections.singletonList("name"));
+        DeclaredKeys second = new DeclaredKeys();
+        Assert.assertTrue(first.isUnique(db, table, columns("name")));
+        Assert.assertTrue(first.isUnique(db, table, columns("id")));
+        Assert.assertEquals(Collections.singletonList(columns("name")), first.keys(db, table).keys());
+        // the connection and the other compilation do not see the declared key
+        Assert.assertFalse(db.tableKeys(table).isUnique(columns("name")));
+        Assert.assertFalse(second.isUnique(db, table, columns("name")));
+        Assert.assertTrue(second.isUnique(db, table, columns("id")));
+        Assert.assertFalse(second.isUnique(null, table, columns("id")));
+    }
+
+    @Test
+    public void testConnectedDBCachesTableKeys() {
+        DummyDB db = DummyDB.create();
+        RelationName table = new RelationName(null, "table");
+        TableKeys keys = db.tableKeys(table);
+        Assert.assertTrue(keys.keys().isEmpty());
+        keys.addKey(Collections.singletonList("id"));
+        Assert.assertSame(keys, db.tableKeys(table));
+        Assert.assertTrue(db.tableKeys(table).isUnique(columns("id")));
+    }
+}
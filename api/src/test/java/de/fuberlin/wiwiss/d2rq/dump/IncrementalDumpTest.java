@@ -0,0 +1,157 @@
+package de.fuberlin.wiwiss.d2rq.dump;
+
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLDatabase;
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLMappingFixture;
+import de.fuberlin.wiwiss.d2rq.map.ClassMap;
+import de.fuberlin.wiwiss.d2rq.map.Mapping;
+import de.fuberlin.wiwiss.d2rq.map.MappingHelper;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Properties;
+
+public class IncrementalDumpTest {
+    private final static String EX = HSQLMappingFixture.EX;
+
+    private HSQLMappingFixture fixture;
+    private HSQLDatabase db;
+    private Mapping mapping;
+    private ClassMap things;
+
+    @Before
+    public void setUp() {
+        fixture = new HSQLMappingFixture("incremental",
+                "CREATE TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(50), VERSION INT)",
+                "CREATE TABLE U (ID INT PRIMARY KEY)",
+                "INSERT INTO T VALUES (1, 'one', 1)",
+                "INSERT INTO T VALUES (2, 'two', 2)",
+                "INSERT INTO U VALUES (1)");
+        db = fixture.getHSQLDatabase();
+        mapping = fixture.getMapping();
+        things = fixture.createClassMap("T", "Thing")
+                .setWatermarkColumn("T.VERSION");
+        fixture.createPropertyBridge(things, "name", "T.NAME");
+        fixture.createClassMap("U", "Other");
+    }
+
+    @After
+    public void tearDown() {
+        fixture.close();
+    }
+
+    private static Graph dump(IncrementalDump dump) {
+        Graph res = GraphFactory.createGraphMem();
+        dump.dump(res::add);
+        return res;
+    }
+
+    @Test
+    public void testFirstRunDumpsAll() {
+        Properties watermarks = new Properties();
+        Graph g = dump(MappingHelper.getIncrementalDump(mapping, watermarks));
+        Assert.assertEquals(5, g.size());
+        Assert.assertEquals("2", watermarks.getProperty(EX + "T"));
+        Assert.assertEquals("", watermarks.getProperty(EX + "U"));
+    }
+
+    @Test
+    public void testNextRunDumpsChangedRows() {
+        Properties watermarks = new Properties();
+        dump(MappingHelper.getIncrementalDump(mapping, watermarks));
+        Assert.assertTrue(dump(MappingHelper.getIncrementalDump(mapping, watermarks)).isEmpty());
+
+        db.executeSQL("UPDATE T SET NAME = 'uno', VERSION = 3 WHERE ID = 1");
+        db.executeSQL("INSERT INTO T VALUES (4, 'four', 4)");
+        db.executeSQL("INSERT INTO U VALUES (2)");
+        Graph g = dump(MappingHelper.getIncrementalDump(mapping, watermarks));
+        Assert.assertEquals(4, g.size());
+        Assert.assertTrue(g.contains(NodeFactory.createURI(EX + "t/1"),
+                NodeFactory.createURI(EX + "name"), NodeFactory.createLiteral("uno")));
+        Assert.assertTrue(g.contains(NodeFactory.createURI(EX + "t/4"), RDF.Nodes.type,
+                NodeFactory.createURI(EX + "Thing")));
+        Assert.assertFalse(g.contains(NodeFactory.createURI(EX + "t/2"), RDF.Nodes.type,
+                NodeFactory.createURI(EX + "Thing")));
+        Assert.assertEquals("4", watermarks.getProperty(EX + "T"));
+    }
+
+    @Test
+    public void testLateRowsWithWatermarkValueAreDumped() {
+        Properties watermarks = new Properties();
+        Assert.assertEquals(5, dump(MappingHelper.getIncrementalDump(mapping, watermarks)).size());
+        // committed after the run, but with the value of the watermark
+        db.executeSQL("INSERT INTO T VALUES (3, 'three', 2)");
+        Graph g = dump(MappingHelper.getIncrementalDump(mapping, watermarks));
+        Assert.assertEquals(2, g.size());
+        Assert.assertTrue(g.contains(NodeFactory.createURI(EX + "t/3"),
+                NodeFactory.createURI(EX + "name"), NodeFactory.createLiteral("three")));
+        Assert.assertEquals("2", watermarks.getProperty(EX + "T"));
+
+        db.executeSQL("INSERT INTO T VALUES (4, 'four', 3)");
+        db.executeSQL("INSERT INTO T VALUES (5, 'five', 2)");
+        g = dump(MappingHelper.getIncrementalDump(mapping, watermarks));
+        Assert.assertEquals(4, g.size());
+        Assert.assertFalse(g.contains(NodeFactory.createURI(EX + "t/3"), RDF.Nodes.type,
+                NodeFactory.createURI(EX + "Thing")));
+        Assert.assertTrue(g.contains(NodeFactory.createURI(EX + "t/5"),
+                NodeFactory.createURI(EX + "name"), NodeFactory.createLiteral("five")));
+        Assert.assertEquals("3", watermarks.getProperty(EX + "T"));
+    }
+
+    @Test
+    public void testReplicasAreNotUsed() {
+        // the replica lags behind the primary: it has no second row yet
+        HSQLDatabase replica = new HSQLDatabase("incremental_replica");
+        try {
+            replica.executeSQL("CREATE TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(50), VERSION INT)");
+            replica.executeSQL("CREATE TABLE U (ID INT PRIMARY KEY)");
+            replica.executeSQL("INSERT INTO T VALUES (1, 'one', 1)");
+            mapping.databases().forEach(d -> d.addReplicaJDBCDSN(replica.getJdbcURL()));
+            Properties watermarks = new Properties();
+            Graph g = dump(MappingHelper.getIncrementalDump(mapping, watermarks));
+            Assert.assertEquals(5, g.size());
+            Assert.assertTrue(g.contains(NodeFactory.createURI(EX + "t/2"),
+                    NodeFactory.createURI(EX + "name"), NodeFactory.createLiteral("two")));
+            Assert.assertEquals("2", watermarks.getProperty(EX + "T"));
+        } finally {
+            replica.close(true);
+        }
+    }
+
+    @Test
+    public void testAliasedWatermarkTable() {
+        ClassMap aliased = mapping.createClassMap(EX + "X")
+                .setDatabase(things.getDatabase())
+                .addAlias("T AS X")
+                .setURIPattern(EX + "x/@@X.ID@@")
+                .setWatermarkColumn("T.VERSION");
+        mapping.createPropertyBridge(null)
+                .setBelongsToClassMap(aliased)
+                .addProperty(ResourceFactory.createProperty(EX + "label"))
+                .setColumn("X.NAME");
+        Properties watermarks = new Properties();
+        Assert.assertEquals(7, dump(MappingHelper.getIncrementalDump(mapping, watermarks)).size());
+        Assert.assertEquals("2", watermarks.getProperty(EX + "X"));
+
+        db.executeSQL("UPDATE T SET NAME = 'uno', VERSION = 3 WHERE ID = 1");
+        Graph g = dump(MappingHelper.getIncrementalDump(mapping, watermarks));
+        Assert.assertTrue(g.contains(NodeFactory.createURI(EX + "x/1"),
+                NodeFactory.createURI(EX + "label"), NodeFactory.createLiteral("uno")));
+        Assert.assertFalse(g.contains(NodeFactory.createURI(EX + "x/2"),
+                NodeFactory.createURI(EX + "label"), NodeFactory.createLiteral("two")));
+        Assert.assertEquals("3", watermarks.getProperty(EX + "X"));
+    }
+
+    @Test(expected = D2RQException.class)
+    public void testWrongWatermarkColumn() {
+        things.setWatermarkColumn("T.MODIFIED");
+        dump(MappingHelper.getIncrementalDump(mapping, new Properties()));
+    }
+}
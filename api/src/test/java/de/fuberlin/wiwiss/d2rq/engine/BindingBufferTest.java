@@ -0,0 +1,50 @@
+package de.fuberlin.wiwiss.d2rq.engine;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.NoSuchElementException;
+
+public class BindingBufferTest {
+    private static final ArrayBinding.Vars VARS = new ArrayBinding.Vars(Collections.singleton(Var.alloc("x")));
+
+    private static Binding binding(int i) {
+        return new ArrayBinding(VARS, new Node[]{NodeFactory.createLiteral(String.valueOf(i))});
+    }
+
+    @Test
+    public void testFifoOrderWhileGrowing() {
+        BindingBuffer buffer = new BindingBuffer();
+        Deque<Binding> expected = new ArrayDeque<>();
+        int n = 0;
+        // interleave additions and removals, so that the head moves around the array before it grows
+        for (int round = 1; round <= 10; round++) {
+            for (int i = 0; i < round * 7; i++) {
+                Binding b = binding(n++);
+                buffer.add(b);
+                expected.add(b);
+            }
+            for (int i = 0; i < round * 3; i++) {
+                Assert.assertSame(expected.removeFirst(), buffer.removeFirst());
+            }
+            Assert.assertEquals(expected.size(), buffer.size());
+        }
+        while (!expected.isEmpty()) {
+            Assert.assertSame(expected.removeFirst(), buffer.removeFirst());
+        }
+        Assert.assertTrue(buffer.isEmpty());
+        try {
+            buffer.removeFirst();
+            Assert.fail("Possible to remove from empty buffer");
+        } catch (NoSuchElementException expectedError) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package de.fuberlin.wiwiss.d2rq.engine;
+
+import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.algebra.ProjectionSpec;
+import de.fuberlin.wiwiss.d2rq.nodes.NodeMaker;
+import de.fuberlin.wiwiss.d2rq.nodes.TypedNodeMaker;
+import de.fuberlin.wiwiss.d2rq.sql.ResultBatch;
+import de.fuberlin.wiwiss.d2rq.values.Column;
+import de.fuberlin.wiwiss.d2rq.values.Pattern;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.engine.binding.BindingFactory;
+import org.apache.jena.sparql.engine.binding.BindingMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BindingMakerTest {
+    private static final Attribute ID = new Attribute(null, "T", "ID");
+    private static final Attribute NAME = new Attribute(null, "T", "NAME");
+    private static final Attribute FLAG = new Attribute(null, "T", "FLAG");
+    private static final List<ProjectionSpec> COLUMNS = Arrays.asList(ID, NAME, FLAG);
+
+    private static BindingMaker createBindingMaker() {
+        Map<Var, NodeMaker> makers = new HashMap<>();
+        makers.put(Var.alloc("s"),
+                new TypedNodeMaker(TypedNodeMaker.URI, new Pattern("http://example.org/t/@@T.ID@@"), true));
+        makers.put(Var.alloc("o"), new TypedNodeMaker(TypedNodeMaker.PLAIN_LITERAL, new Column(NAME), true));
+        return new BindingMaker(makers, null);
+    }
+
+    private static ResultBatch createBatch() {
+        ResultBatch res = new ResultBatch(COLUMNS, 5);
+        res.add("1", "a", "1");
+        res.add("1", "b", "0");
+        res.add("2", null, "1");
+        res.add("1", "a", "1");
+        return res;
+    }
+
+    @Test
+    public void testBatchIsSameAsRows() {
+        ResultBatch batch = createBatch();
+        for (BindingMaker maker : Arrays.asList(createBindingMaker(), createBindingMaker().makeConditional(FLAG))) {
+            Binding[] bindings = maker.makeBindings(batch);
+            Assert.assertEquals(batch.size(), bindings.length);
+            for (int i = 0; i < batch.size(); i++) {
+                Assert.assertEquals("Row #" + i, maker.makeBinding(batch.row(i)), bindings[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testArrayBinding() {
+        ResultBatch batch = createBatch();
+        Binding binding = createBindingMaker().makeBinding(batch.row(0));
+        Assert.assertTrue(binding instanceof ArrayBinding);
+        BindingMap expected = BindingFactory.create();
+        expected.add(Var.alloc("s"), NodeFactory.createURI("http://example.org/t/1"));
+        expected.add(Var.alloc("o"), NodeFactory.createLiteral("a"));
+        Assert.assertEquals(expected, binding);
+        Assert.assertEquals(expected.hashCode(), binding.hashCode());
+        Assert.assertEquals(2, binding.size());
+        Assert.assertFalse(binding.contains(Var.alloc("x")));
+        Assert.assertNull(binding.get(Var.alloc("x")));
+    }
+
+    @Test
+    public void testNodesAreMadeOncePerBatch() {
+        ResultBatch batch = createBatch();
+        Binding[] bindings = createBindingMaker().makeBindings(batch);
+        Assert.assertNull(bindings[2]);
+        Var s = Var.alloc("s");
+        Var o = Var.alloc("o");
+        Assert.assertSame(bindings[0].get(s), bindings[1].get(s));
+        Assert.assertSame(bindings[0].get(s), bindings[3].get(s));
+        Assert.assertSame(bindings[0].get(o), bindings[3].get(o));
+        Assert.assertNotEquals(bindings[0].get(o), bindings[1].get(o));
+
+        Binding[] selected = createBindingMaker().makeConditional(FLAG).makeBindings(batch.select(new int[]{1, 3}, 2));
+        Assert.assertNull(selected[0]);
+        Assert.assertEquals(bindings[3], selected[1]);
+    }
+}
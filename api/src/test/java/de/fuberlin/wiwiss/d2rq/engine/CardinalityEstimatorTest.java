@@ -0,0 +1,76 @@
+package de.fuberlin.wiwiss.d2rq.engine;
+
+import de.fuberlin.wiwiss.d2rq.algebra.*;
+import de.fuberlin.wiwiss.d2rq.dbschema.TableStatistics;
+import de.fuberlin.wiwiss.d2rq.expr.Equality;
+import de.fuberlin.wiwiss.d2rq.expr.Expression;
+import de.fuberlin.wiwiss.d2rq.sql.DummyDB;
+import de.fuberlin.wiwiss.d2rq.sql.SelectStatementBuilder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+public class CardinalityEstimatorTest {
+    private final static RelationName fact = new RelationName(null, "fact");
+    private final static RelationName lookup = new RelationName(null, "lookup");
+    private final static Attribute factId = new Attribute(fact, "id");
+    private final static Attribute factLookup = new Attribute(fact, "lookup_id");
+    private final static Attribute lookupId = new Attribute(lookup, "id");
+    private final static Attribute lookupName = new Attribute(lookup, "name");
+
+    private DummyDB db;
+
+    private static Relation relation(DummyDB db, Expression condition, Set<Join> joins, Attribute... columns) {
+        return new RelationImpl(db, AliasMap.NO_ALIASES, condition, Expression.TRUE,
+                joins, new HashSet<>(Arrays.asList(columns)), false, OrderSpec.NONE, Relation.NO_LIMIT, Relation.NO_LIMIT);
+    }
+
+    private Relation factJoinLookup() {
+        return relation(db, Expression.TRUE,
+                Collections.singleton(new Join(factLookup, lookupId, Join.DIRECTION_RIGHT)), factId, lookupName);
+    }
+
+    @Before
+    public void setUp() {
+        db = DummyDB.create();
+        db.setTableStatistics(fact, new TableStatistics(100_000_000, Collections.singletonMap("id", 100_000_000L)));
+        db.setTableStatistics(lookup, new TableStatistics(5, Collections.singletonMap("id", 5L)));
+    }
+
+    @Test
+    public void testSingleTable() {
+        Assert.assertEquals(5, CardinalityEstimator.estimate(relation(db, Expression.TRUE,
+                Collections.emptySet(), lookupName)), 0);
+        Assert.assertEquals(1, CardinalityEstimator.estimate(relation(db, Equality.createAttributeValue(factId, "42"),
+                Collections.emptySet(), factId)), 0);
+        Assert.assertEquals(0.5, CardinalityEstimator.estimate(relation(db, Equality.createAttributeValue(lookupName, "x"),
+                Collections.emptySet(), lookupName)), 0.0001);
+    }
+
+    @Test
+    public void testForeignKeyJoin() {
+        Assert.assertEquals(100_000_000, CardinalityEstimator.estimate(factJoinLookup()), 0);
+        db.setTableStatistics(lookup, new TableStatistics(5, Collections.emptyMap()));
+        Assert.assertEquals(100_000_000, CardinalityEstimator.estimate(factJoinLookup()), 0);
+    }
+
+    @Test
+    public void testUnknownStatistics() {
+        Assert.assertEquals(CardinalityEstimator.UNKNOWN, CardinalityEstimator.estimate(relation(db, Expression.TRUE,
+                Collections.emptySet(), new Attribute(null, "other", "id"))), 0);
+        db.setUseTableStatistics(false);
+        Assert.assertEquals(CardinalityEstimator.UNKNOWN, CardinalityEstimator.estimate(factJoinLookup()), 0);
+        Assert.assertEquals(0, CardinalityEstimator.estimate(Relation.EMPTY), 0);
+    }
+
+    @Test
+    public void testSmallestTableFirstInFromClause() {
+        String sql = new SelectStatementBuilder(factJoinLookup()).getSQLStatement();
+        Assert.assertTrue(sql, sql.contains(" FROM \"lookup\", \"fact\" WHERE "));
+        db.setTableStatistics(lookup, new TableStatistics(1_000_000_000, Collections.emptyMap()));
+        sql = new SelectStatementBuilder(factJoinLookup()).getSQLStatement();
+        Assert.assertTrue(sql, sql.contains(" FROM \"fact\", \"lookup\" WHERE "));
+    }
+}
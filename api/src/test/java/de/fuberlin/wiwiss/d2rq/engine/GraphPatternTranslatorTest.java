@@ -11,6 +11,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -156,6 +157,38 @@ public class GraphPatternTranslatorTest {
         Assert.assertEquals(Equality.createAttributeEquality(t1table1id, t2table1id), r.condition());
     }
 
+    @Test
+    public void testSplitIntoBlocksWhenTooManyBranches() {
+        List<Triple> bgp = triplesToList("?x ?p ?o . ?x ex:foo ?foo");
+        Collection<TripleRelation> bridges = MapFixture.loadPropertyBridges("engine/simple.n3");
+        Assert.assertEquals(2, new GraphPatternTranslator(bgp, bridges, true).translate().size());
+
+        List<GraphPatternTranslator.Block> blocks = new GraphPatternTranslator(bgp, bridges, true, 1).translateBlocks();
+        Assert.assertEquals(2, blocks.size());
+        Assert.assertEquals(Collections.singletonList(bgp.get(1)), blocks.get(0).patterns());
+        Assert.assertEquals(1, blocks.get(0).tables().size());
+        Assert.assertEquals(Collections.singletonList(bgp.get(0)), blocks.get(1).patterns());
+        Assert.assertEquals(2, blocks.get(1).tables().size());
+
+        Assert.assertEquals(1, new GraphPatternTranslator(bgp, bridges, true, 2).translateBlocks().size());
+    }
+
+    @Test
+    public void testConnectedPatternsAreJoinedFirst() {
+        List<Triple> bgp = triplesToList("?y ex:foo ?foo . ?x rdf:type ex:Class1 . ?x ?p ?o");
+        List<GraphPatternTranslator.Block> blocks = new GraphPatternTranslator(bgp,
+                MapFixture.loadPropertyBridges("engine/simple.n3"), true, 100).translateBlocks();
+        Assert.assertEquals(1, blocks.size());
+        Assert.assertEquals(Arrays.asList(bgp.get(1), bgp.get(2), bgp.get(0)), blocks.get(0).patterns());
+    }
+
+    @Test
+    public void testNoBlocksIfNoMatch() {
+        Assert.assertTrue(new GraphPatternTranslator(
+                triplesToList("?x ?p ?o . ex:res1 rdf:type ex:Class1 . ex:res1 rdf:type ex:Class2"),
+                MapFixture.loadPropertyBridges("engine/simple.n3"), true, 1).translateBlocks().isEmpty());
+    }
+
     private NodeRelation translate1(String pattern, String mappingFile) {
         return translate1(triplesToList(pattern), mappingFile);
     }
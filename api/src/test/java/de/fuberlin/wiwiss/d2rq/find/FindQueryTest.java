@@ -0,0 +1,150 @@
+package de.fuberlin.wiwiss.d2rq.find;
+
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLDatabase;
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLMappingFixture;
+import de.fuberlin.wiwiss.d2rq.map.ClassMap;
+import de.fuberlin.wiwiss.d2rq.map.Mapping;
+import de.fuberlin.wiwiss.d2rq.map.MappingHelper;
+import de.fuberlin.wiwiss.d2rq.map.TranslationTable;
+import de.fuberlin.wiwiss.d2rq.sql.QueryMetrics;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FindQueryTest {
+    private final static String EX = HSQLMappingFixture.EX;
+
+    private HSQLMappingFixture fixture;
+    private HSQLDatabase db;
+    private Mapping mapping;
+    private ClassMap things;
+
+    @Before
+    public void setUp() {
+        fixture = new HSQLMappingFixture("findquery",
+                "CREATE TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(50), FLAG VARCHAR(5))",
+                "CREATE TABLE U (ID INT PRIMARY KEY, T_ID INT, TAG VARCHAR(50))",
+                "INSERT INTO T VALUES (1, 'one', 'true')",
+                "INSERT INTO T VALUES (2, NULL, 'x')",
+                "INSERT INTO T VALUES (3, 'three', '0')",
+                "INSERT INTO U VALUES (1, 1, 'a')",
+                "INSERT INTO U VALUES (2, 1, 'a')",
+                "INSERT INTO U VALUES (3, 3, 'b')");
+        db = fixture.getHSQLDatabase();
+        mapping = fixture.getMapping();
+        things = fixture.createClassMap("T", "Thing");
+        // NULLs are skipped
+        fixture.createPropertyBridge(things, "name", "T.NAME");
+        // 'x' is not a valid boolean
+        fixture.createPropertyBridge(things, "flag", "T.FLAG")
+                .setDatatype(XSDDatatype.XSDboolean.getURI());
+        // the joined rows are not DISTINCT, the same tag comes twice, as with find
+        fixture.createPropertyBridge(things, "tag", "U.TAG")
+                .addJoin("T.ID = U.T_ID");
+    }
+
+    @After
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    public void testSizeIsComputedByDatabase() {
+        Graph g = mapping.getData();
+        Assert.assertEquals(g.find().toList().size(), g.size());
+        // 3 types + 2 names + 2 flags + 3 tags
+        Assert.assertEquals(10, g.size());
+    }
+
+    @Test
+    public void testSizeWithDistinct() {
+        things.setContainsDuplicates(true);
+        Graph g = mapping.getData();
+        Assert.assertEquals(g.find().toList().size(), g.size());
+        Assert.assertEquals(9, g.size());
+    }
+
+    @Test
+    public void testCountAndExists() {
+        Node flag = NodeFactory.createURI(EX + "flag");
+        FindQuery flags = new FindQuery(Triple.create(Node.ANY, flag, Node.ANY),
+                MappingHelper.asConnectingMapping(mapping).compiledPropertyBridges(), null);
+        Assert.assertEquals(2, flags.count());
+        Assert.assertTrue(flags.exists());
+
+        FindQuery none = new FindQuery(Triple.create(NodeFactory.createURI(EX + "t/2"), flag, Node.ANY),
+                MappingHelper.asConnectingMapping(mapping).compiledPropertyBridges(), null);
+        Assert.assertEquals(0, none.count());
+        Assert.assertFalse(none.exists());
+    }
+
+    @Test
+    public void testCountAndExistsAreRecordedInQueryMetrics() {
+        Context context = new Context();
+        QueryMetrics metrics = QueryMetrics.start(context);
+        FindQuery names = new FindQuery(Triple.create(Node.ANY, NodeFactory.createURI(EX + "name"), Node.ANY),
+                MappingHelper.asConnectingMapping(mapping).compiledPropertyBridges(),
+                new ExecutionContext(context, null, null, null));
+        Assert.assertEquals(2, names.count());
+        Assert.assertEquals(1, metrics.getStatementCount());
+        Assert.assertTrue(names.exists());
+        Assert.assertEquals(2, metrics.getStatementCount());
+        // the COUNT row and a single probed row
+        Assert.assertEquals(2, metrics.getRowCount());
+    }
+
+    @Test
+    public void testCountWithTranslationTable() {
+        db.executeSQL("INSERT INTO U VALUES (4, 3, 'zz')");
+        // 'b' and 'zz' have no translation, the rows are skipped
+        TranslationTable table = mapping.createTranslationTable(EX + "tags").addTranslation("a", "Alpha");
+        mapping.createPropertyBridge(null)
+                .setBelongsToClassMap(things)
+                .addProperty(ResourceFactory.createProperty(EX + "translatedTag"))
+                .setColumn("U.TAG")
+                .addJoin("T.ID = U.T_ID")
+                .setTranslateWith(table);
+        Graph g = mapping.getData();
+        Node translated = NodeFactory.createURI(EX + "translatedTag");
+        Assert.assertEquals(2, g.find(Node.ANY, translated, Node.ANY).toList().size());
+        Assert.assertEquals(g.find().toList().size(), g.size());
+
+        FindQuery all = new FindQuery(Triple.create(Node.ANY, translated, Node.ANY),
+                MappingHelper.asConnectingMapping(mapping).compiledPropertyBridges(), null);
+        Assert.assertEquals(2, all.count());
+        FindQuery none = new FindQuery(Triple.create(NodeFactory.createURI(EX + "t/3"), translated, Node.ANY),
+                MappingHelper.asConnectingMapping(mapping).compiledPropertyBridges(), null);
+        Assert.assertEquals(0, none.count());
+        Assert.assertFalse(none.exists());
+        Assert.assertFalse(g.contains(NodeFactory.createURI(EX + "t/3"), translated, Node.ANY));
+    }
+
+    @Test
+    public void testContainsAndIsEmpty() {
+        Graph g = mapping.getData();
+        Assert.assertFalse(g.isEmpty());
+        Node t1 = NodeFactory.createURI(EX + "t/1");
+        Assert.assertTrue(g.contains(t1, RDF.Nodes.type, NodeFactory.createURI(EX + "Thing")));
+        Assert.assertTrue(g.contains(t1, NodeFactory.createURI(EX + "tag"), NodeFactory.createLiteral("a")));
+        Assert.assertFalse(g.contains(t1, NodeFactory.createURI(EX + "tag"), NodeFactory.createLiteral("b")));
+        Assert.assertFalse(g.contains(NodeFactory.createURI(EX + "t/2"), NodeFactory.createURI(EX + "name"),
+                Node.ANY));
+        Assert.assertTrue(g.contains(Node.ANY, NodeFactory.createURI(EX + "flag"),
+                NodeFactory.createLiteral("true", XSDDatatype.XSDboolean)));
+
+        db.executeSQL("DELETE FROM U");
+        db.executeSQL("DELETE FROM T");
+        Assert.assertTrue(g.isEmpty());
+        Assert.assertEquals(0, g.size());
+    }
+}
@@ -0,0 +1,101 @@
+package de.fuberlin.wiwiss.d2rq.find;
+
+import de.fuberlin.wiwiss.d2rq.algebra.*;
+import de.fuberlin.wiwiss.d2rq.expr.Expression;
+import de.fuberlin.wiwiss.d2rq.nodes.FixedNodeMaker;
+import de.fuberlin.wiwiss.d2rq.nodes.TypedNodeMaker;
+import de.fuberlin.wiwiss.d2rq.values.Column;
+import de.fuberlin.wiwiss.d2rq.values.Pattern;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.sparql.vocabulary.FOAF;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+public class TripleRelationIndexTest {
+    private TripleRelation personType;
+    private TripleRelation personKnows;
+    private TripleRelation personName;
+    private TripleRelation documentType;
+    private TripleRelation projectType;
+    private TripleRelationIndex index;
+
+    @Before
+    public void setUp() {
+        Relation base = new RelationImpl(null, AliasMap.NO_ALIASES,
+                Expression.TRUE, Expression.TRUE,
+                Collections.emptySet(), Collections.emptySet(),
+                false, OrderSpec.NONE, Relation.NO_LIMIT, Relation.NO_LIMIT);
+        TypedNodeMaker person = new TypedNodeMaker(TypedNodeMaker.URI,
+                new Pattern("http://test/person@@employees.ID@@"), true);
+        this.personType = new TripleRelation(base, person,
+                new FixedNodeMaker(RDF.type.asNode(), false),
+                new FixedNodeMaker(FOAF.Person.asNode(), false));
+        this.personKnows = new TripleRelation(base, person,
+                new FixedNodeMaker(FOAF.knows.asNode(), false),
+                new TypedNodeMaker(TypedNodeMaker.URI,
+                        new Pattern("http://test/person@@employees.manager@@"), true));
+        this.personName = new TripleRelation(base, person,
+                new FixedNodeMaker(FOAF.name.asNode(), false),
+                new TypedNodeMaker(TypedNodeMaker.PLAIN_LITERAL,
+                        new Column(new Attribute(null, "employees", "name")), false));
+        this.documentType = new TripleRelation(base,
+                new TypedNodeMaker(TypedNodeMaker.URI,
+                        new Column(new Attribute(null, "employees", "homepage")), false),
+                new FixedNodeMaker(RDF.type.asNode(), false),
+                new FixedNodeMaker(FOAF.Document.asNode(), false));
+        this.projectType = new TripleRelation(base,
+                new TypedNodeMaker(TypedNodeMaker.URI,
+                        new Pattern("http://test/project/@@projects.ID@@"), true),
+                new FixedNodeMaker(RDF.type.asNode(), false),
+                new FixedNodeMaker(FOAF.Project.asNode(), false));
+        this.index = new TripleRelationIndex(Arrays.asList(personType, personKnows, personName,
+                documentType, projectType));
+    }
+
+    private Collection<TripleRelation> select(Node s, Node p, Node o) {
+        return index.select(Triple.create(s, p, o));
+    }
+
+    @Test
+    public void testNoURIsSelectsAll() {
+        Assert.assertSame(index.relations(), select(Node.ANY, Node.ANY, Node.ANY));
+        Assert.assertSame(index.relations(), select(NodeFactory.createBlankNode(), Node.ANY,
+                NodeFactory.createLiteral("x")));
+    }
+
+    @Test
+    public void testSelectBySubjectPattern() {
+        Node person = NodeFactory.createURI("http://test/person1");
+        Assert.assertEquals(Arrays.asList(personType, personKnows, personName, documentType),
+                select(person, Node.ANY, Node.ANY));
+        Node project = NodeFactory.createURI("http://test/project/1");
+        Assert.assertEquals(Arrays.asList(documentType, projectType), select(project, Node.ANY, Node.ANY));
+        Node other = NodeFactory.createURI("http://other/1");
+        Assert.assertEquals(Collections.singletonList(documentType), select(other, Node.ANY, Node.ANY));
+    }
+
+    @Test
+    public void testSelectByObject() {
+        Assert.assertEquals(Collections.singletonList(personKnows),
+                select(Node.ANY, Node.ANY, NodeFactory.createURI("http://test/person2")));
+        Assert.assertEquals(Collections.singletonList(personType),
+                select(Node.ANY, Node.ANY, FOAF.Person.asNode()));
+    }
+
+    @Test
+    public void testSelectByPredicateAndSubject() {
+        Assert.assertEquals(Arrays.asList(personType, documentType, projectType),
+                select(Node.ANY, RDF.type.asNode(), Node.ANY));
+        Assert.assertEquals(Collections.singletonList(personType),
+                select(NodeFactory.createURI("http://test/person1"), RDF.type.asNode(), FOAF.Person.asNode()));
+        Assert.assertTrue(select(Node.ANY, FOAF.Person.asNode(), Node.ANY).isEmpty());
+    }
+}
@@ -36,6 +36,21 @@ public class HSQLDatabase {
         }
     }
 
+    /**
+     * Creates a database and runs the given statements, e.g. to create and fill tables.
+     *
+     * @param databaseName String, the name of the in-memory database
+     * @param statements   SQL statements
+     * @return {@link HSQLDatabase}
+     */
+    public static HSQLDatabase create(String databaseName, String... statements) {
+        HSQLDatabase res = new HSQLDatabase(databaseName);
+        for (String sql : statements) {
+            res.executeSQL(sql);
+        }
+        return res;
+    }
+
     public String getJdbcURL() {
         return jdbcURL;
     }
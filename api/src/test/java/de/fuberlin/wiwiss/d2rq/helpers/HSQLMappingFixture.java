@@ -0,0 +1,84 @@
+package de.fuberlin.wiwiss.d2rq.helpers;
+
+import de.fuberlin.wiwiss.d2rq.map.ClassMap;
+import de.fuberlin.wiwiss.d2rq.map.Database;
+import de.fuberlin.wiwiss.d2rq.map.Mapping;
+import de.fuberlin.wiwiss.d2rq.map.MappingFactory;
+import de.fuberlin.wiwiss.d2rq.map.PropertyBridge;
+import org.apache.jena.rdf.model.ResourceFactory;
+
+/**
+ * An in-memory HSQL database together with a mapping over it, built through the {@link Mapping} API.
+ * The mapping has the {@code d2rq:Database} {@code ex:db} and does not serve the vocabulary,
+ * so its data graph contains only the mapped triples.
+ * Use it in {@code @Before} and close it in {@code @After}.
+ */
+@SuppressWarnings("WeakerAccess")
+public class HSQLMappingFixture implements AutoCloseable {
+    public final static String EX = "http://example.org/";
+
+    private final HSQLDatabase db;
+    private final Mapping mapping;
+    private final Database database;
+
+    /**
+     * @param databaseName String, the name of the in-memory database
+     * @param statements   SQL statements to create and fill the tables
+     */
+    public HSQLMappingFixture(String databaseName, String... statements) {
+        this.db = HSQLDatabase.create(databaseName, statements);
+        this.mapping = MappingFactory.create();
+        this.database = mapping.createDatabase(EX + "db")
+                .setJDBCDSN(db.getJdbcURL())
+                .setUsername(db.getUser());
+        mapping.addDatabase(database);
+        mapping.getConfiguration().setServeVocabulary(false);
+    }
+
+    public HSQLDatabase getHSQLDatabase() {
+        return db;
+    }
+
+    public Mapping getMapping() {
+        return mapping;
+    }
+
+    public Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * Creates the class map {@code ex:TABLE} with the URI pattern {@code ex:table/@@TABLE.ID@@}.
+     *
+     * @param table String, the table with the {@code ID} column
+     * @param type  String, the local name of the class, can be {@code null}
+     * @return {@link ClassMap}
+     */
+    public ClassMap createClassMap(String table, String type) {
+        ClassMap res = mapping.createClassMap(EX + table)
+                .setDatabase(database)
+                .setURIPattern(EX + table.toLowerCase() + "/@@" + table + ".ID@@");
+        return type == null ? res : res.addClass(EX + type);
+    }
+
+    /**
+     * Creates an anonymous property bridge {@code ex:property} with the given column.
+     *
+     * @param classMap {@link ClassMap}
+     * @param property String, the local name of the property
+     * @param column   String, the qualified column name
+     * @return {@link PropertyBridge}
+     */
+    public PropertyBridge createPropertyBridge(ClassMap classMap, String property, String column) {
+        return mapping.createPropertyBridge(null)
+                .setBelongsToClassMap(classMap)
+                .addProperty(ResourceFactory.createProperty(EX + property))
+                .setColumn(column);
+    }
+
+    @Override
+    public void close() {
+        mapping.close();
+        db.close(true);
+    }
+}
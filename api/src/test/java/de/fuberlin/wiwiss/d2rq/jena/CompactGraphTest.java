@@ -0,0 +1,71 @@
+package de.fuberlin.wiwiss.d2rq.jena;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.mem.GraphMem;
+import org.apache.jena.shared.AddDeniedException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class CompactGraphTest {
+
+    private static Node node(Random random, String prefix, int max) {
+        return NodeFactory.createURI("http://example.org/" + prefix + random.nextInt(max));
+    }
+
+    private static Set<Triple> find(Graph g, Node s, Node p, Node o) {
+        return new HashSet<>(g.find(s, p, o).toList());
+    }
+
+    @Test
+    public void testFindAllPatterns() {
+        Random random = new Random(42);
+        GraphMem expected = new GraphMem();
+        CompactGraph.Builder builder = CompactGraph.builder();
+        for (int i = 0; i < 3000; i++) {
+            Triple t = Triple.create(node(random, "s", 100), node(random, "p", 7),
+                    random.nextBoolean() ? node(random, "s", 100) : NodeFactory.createLiteral("v" + random.nextInt(50)));
+            expected.add(t);
+            builder.add(t);
+            // duplicates are eliminated
+            builder.add(t);
+        }
+        CompactGraph actual = builder.build();
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < 300; i++) {
+            Triple t = Triple.create(node(random, "s", 110), node(random, "p", 8),
+                    random.nextBoolean() ? node(random, "s", 110) : NodeFactory.createLiteral("v" + random.nextInt(55)));
+            for (int mask = 0; mask < 8; mask++) {
+                Node s = (mask & 1) == 0 ? Node.ANY : t.getSubject();
+                Node p = (mask & 2) == 0 ? Node.ANY : t.getPredicate();
+                Node o = (mask & 4) == 0 ? Node.ANY : t.getObject();
+                Assert.assertEquals("Wrong result for " + Triple.create(s, p, o),
+                        find(expected, s, p, o), find(actual, s, p, o));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyAndReadOnly() {
+        CompactGraph g = CompactGraph.builder().build();
+        Assert.assertTrue(g.isEmpty());
+        Assert.assertFalse(g.find().hasNext());
+        Triple t = Triple.create(NodeFactory.createURI("http://example.org/s"),
+                NodeFactory.createURI("http://example.org/p"), NodeFactory.createLiteral("o"));
+        try {
+            g.add(t);
+            Assert.fail("Possible to add " + t);
+        } catch (AddDeniedException expected) {
+            // expected
+        }
+        CompactGraph copy = CompactGraph.copyOf(CompactGraph.builder().add(t).build());
+        Assert.assertEquals(1, copy.size());
+        Assert.assertTrue(copy.contains(t));
+    }
+}
@@ -0,0 +1,57 @@
+package de.fuberlin.wiwiss.d2rq.jena;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.mem.GraphMem;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SwitchableGraphTest {
+
+    private static Graph graph(String... subjects) {
+        Graph res = new GraphMem();
+        for (String s : subjects) {
+            res.add(Triple.create(NodeFactory.createURI("http://example.org/" + s),
+                    NodeFactory.createURI("http://example.org/p"), NodeFactory.createLiteral(s)));
+        }
+        return res;
+    }
+
+    @Test
+    public void testRunningIteratorReadsReplacedGraph() {
+        Graph first = graph("a", "b");
+        Graph second = graph("c");
+        SwitchableGraph g = new SwitchableGraph(first);
+        ExtendedIterator<Triple> running = g.find();
+        Assert.assertTrue(running.hasNext());
+        Assert.assertSame(first, g.set(second));
+        Assert.assertSame(second, g.get());
+        Assert.assertEquals(1, g.find().toList().size());
+        Assert.assertEquals(2, running.toList().size());
+    }
+
+    @Test
+    public void testRetireWaitsForRunningOperations() {
+        Graph first = graph("a", "b");
+        Graph second = graph("c");
+        SwitchableGraph g = new SwitchableGraph(first);
+        Assert.assertFalse("The current graph is in use", g.retire(first));
+        ExtendedIterator<Triple> exhausted = g.find();
+        ExtendedIterator<Triple> closed = g.find();
+        g.set(second);
+        Assert.assertFalse(g.retire(first));
+        Assert.assertEquals(2, exhausted.toList().size());
+        Assert.assertFalse(g.retire(first));
+        closed.next();
+        closed.close();
+        // closing twice does not release twice
+        closed.close();
+        Assert.assertTrue(g.retire(first));
+        Assert.assertTrue(g.retire(first));
+        Assert.assertFalse(g.retire(second));
+        Assert.assertEquals(1, g.size());
+        Assert.assertTrue(g.contains(Triple.ANY));
+    }
+}
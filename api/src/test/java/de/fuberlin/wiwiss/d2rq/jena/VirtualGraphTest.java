@@ -0,0 +1,76 @@
+package de.fuberlin.wiwiss.d2rq.jena;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.mem.GraphMem;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class VirtualGraphTest {
+    private static final Node S = NodeFactory.createURI("http://example.org/s");
+
+    private static Node uri(String name) {
+        return NodeFactory.createURI("http://example.org/" + name);
+    }
+
+    /**
+     * Creates a rule that produces a single triple with the given predicate and records its invocations.
+     */
+    private static VirtualGraph.DynamicTriples rule(String name, boolean declare, List<String> calls) {
+        Node p = uri(name);
+        return new VirtualGraph.DynamicTriples() {
+            @Override
+            public ExtendedIterator<Triple> list(Graph g, Triple m) {
+                calls.add(name);
+                return WrappedIterator.create(Collections.singleton(Triple.create(S, p, S)).iterator())
+                        .filterKeep(m::matches);
+            }
+
+            @Override
+            public Set<Node> predicates() {
+                return declare ? Collections.singleton(p) : null;
+            }
+        };
+    }
+
+    @Test
+    public void testPredicateDispatch() {
+        List<String> calls = new ArrayList<>();
+        VirtualGraph.DynamicTriples rules = rule("a", true, calls)
+                .andThen(rule("b", false, calls))
+                .andThen(rule("c", true, calls))
+                .andThen(rule("a", true, calls));
+        Assert.assertNull(rules.predicates());
+        Graph g = VirtualGraph.createDynamicGraph(new GraphMem(), rules);
+
+        Assert.assertEquals(2, g.find(S, uri("a"), Node.ANY).toList().size());
+        Assert.assertEquals(Arrays.asList("a", "b", "a"), calls);
+
+        calls.clear();
+        Assert.assertEquals(1, g.find(Node.ANY, uri("c"), Node.ANY).toList().size());
+        Assert.assertEquals(Arrays.asList("b", "c"), calls);
+
+        calls.clear();
+        Assert.assertFalse(g.contains(S, uri("x"), Node.ANY));
+        Assert.assertEquals(Collections.singletonList("b"), calls);
+
+        calls.clear();
+        Assert.assertEquals(4, g.find().toList().size());
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "a"), calls);
+    }
+
+    @Test
+    public void testDeclaredPredicates() {
+        List<String> calls = new ArrayList<>();
+        VirtualGraph.DynamicTriples rules = rule("a", true, calls).andThen(rule("c", true, calls));
+        Assert.assertEquals(new HashSet<>(Arrays.asList(uri("a"), uri("c"))), rules.predicates());
+        Assert.assertFalse(VirtualGraph.createDynamicGraph(new GraphMem(), rules).contains(S, uri("b"), S));
+        Assert.assertTrue(calls.isEmpty());
+    }
+}
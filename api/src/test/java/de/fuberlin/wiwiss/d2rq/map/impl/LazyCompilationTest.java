@@ -0,0 +1,181 @@
+package de.fuberlin.wiwiss.d2rq.map.impl;
+
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.algebra.Join;
+import de.fuberlin.wiwiss.d2rq.algebra.LazyTripleRelation;
+import de.fuberlin.wiwiss.d2rq.algebra.Relation;
+import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
+import de.fuberlin.wiwiss.d2rq.algebra.TripleRelation;
+import de.fuberlin.wiwiss.d2rq.dbschema.DeclaredKeys;
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLMappingFixture;
+import de.fuberlin.wiwiss.d2rq.map.ClassMap;
+import de.fuberlin.wiwiss.d2rq.map.Database;
+import de.fuberlin.wiwiss.d2rq.map.PropertyBridge;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public class LazyCompilationTest {
+    private final static String EX = HSQLMappingFixture.EX;
+
+    private HSQLMappingFixture fixture;
+    private MappingImpl mapping;
+    private Database database;
+    private ClassMap things;
+    private PropertyBridge names;
+
+    @Before
+    public void setUp() {
+        fixture = new HSQLMappingFixture("lazy",
+                "CREATE TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(50))",
+                "INSERT INTO T VALUES (1, 'one')",
+                "INSERT INTO T VALUES (2, 'two')");
+        mapping = (MappingImpl) fixture.getMapping();
+        database = fixture.getDatabase();
+        things = fixture.createClassMap("T", "Thing");
+        names = fixture.createPropertyBridge(things, "name", "T.NAME");
+    }
+
+    @After
+    public void tearDown() {
+        fixture.close();
+    }
+
+    private static Set<Triple> triples(Graph g) {
+        return new HashSet<>(g.find().toList());
+    }
+
+    private void addBrokenBridge() {
+        mapping.createPropertyBridge(null)
+                .setBelongsToClassMap(things)
+                .addProperty(ResourceFactory.createProperty(EX + "broken"))
+                .setColumn("T.NO_SUCH_COLUMN");
+    }
+
+    @Test
+    public void testSameDataAsFullCompilation() {
+        Set<Triple> expected = triples(mapping.getData());
+        Assert.assertEquals(4, expected.size());
+
+        mapping.getConfiguration().setLazyCompilation(true);
+        Collection<TripleRelation> relations = mapping.compiledPropertyBridges();
+        Assert.assertFalse(relations.isEmpty());
+        relations.forEach(r -> Assert.assertTrue(r instanceof LazyTripleRelation));
+        Assert.assertEquals(expected, triples(mapping.getData()));
+    }
+
+    @Test
+    public void testBridgeIsValidatedOnDemand() {
+        addBrokenBridge();
+        try {
+            mapping.compiledPropertyBridges();
+            Assert.fail("No validation error");
+        } catch (D2RQException e) {
+            Assert.assertEquals(D2RQException.SQL_COLUMN_NOT_FOUND, e.errorCode());
+        }
+
+        mapping.getConfiguration().setLazyCompilation(true);
+        Graph g = mapping.getData();
+        Node t1 = NodeFactory.createURI(EX + "t/1");
+        Assert.assertTrue(g.contains(t1, NodeFactory.createURI(EX + "name"), NodeFactory.createLiteral("one")));
+        Assert.assertEquals(2, g.find(Node.ANY, NodeFactory.createURI(EX + "name"), Node.ANY).toList().size());
+        try {
+            g.find(t1, NodeFactory.createURI(EX + "broken"), Node.ANY).toList();
+            Assert.fail("No validation error");
+        } catch (D2RQException e) {
+            Assert.assertEquals(D2RQException.SQL_COLUMN_NOT_FOUND, e.errorCode());
+        }
+    }
+
+    private static TripleRelation find(Collection<TripleRelation> relations, String property) {
+        Triple pattern = Triple.create(Node.ANY, NodeFactory.createURI(EX + property), Node.ANY);
+        return relations.stream().filter(r -> ((LazyTripleRelation) r).canMatch(pattern))
+                .findFirst().orElseThrow(AssertionError::new);
+    }
+
+    @Test
+    public void testCompiledBridgeIgnoresLaterMappingChanges() {
+        mapping.getConfiguration().setLazyCompilation(true);
+        TripleRelation relation = find(mapping.compiledPropertyBridges(), "name");
+
+        names.addCondition("T.ID = 1");
+        // the relation belongs to the previous compilation
+        Assert.assertTrue(relation.baseRelation().condition().isTrue());
+        TripleRelation recompiled = find(mapping.compiledPropertyBridges(), "name");
+        Assert.assertFalse(recompiled.baseRelation().condition().isTrue());
+    }
+
+    @Test
+    public void testJoinKeysAreDeclaredOnFirstUse() {
+        fixture.getHSQLDatabase().executeSQL("CREATE TABLE V (CODE VARCHAR(10), LABEL VARCHAR(50))");
+        fixture.getHSQLDatabase().executeSQL("CREATE TABLE U (ID INT PRIMARY KEY, V_CODE VARCHAR(10))");
+        ClassMap v = mapping.createClassMap(EX + "V")
+                .setDatabase(database)
+                .setURIPattern(EX + "v/@@V.CODE@@");
+        fixture.createPropertyBridge(v, "label", "V.LABEL");
+        ClassMap u = fixture.createClassMap("U", null);
+        mapping.createPropertyBridge(null)
+                .setBelongsToClassMap(u)
+                .addProperty(ResourceFactory.createProperty(EX + "v"))
+                .setRefersToClassMap(v)
+                .addJoin("U.V_CODE => V.CODE");
+
+        mapping.getConfiguration().setLazyCompilation(true);
+        TripleRelation labels = find(mapping.compiledPropertyBridges(), "label");
+        // only the bridge without the join is compiled, but the key implied by the other one is known already
+        ConnectedDB connection = labels.baseRelation().database();
+        Assert.assertTrue(mapping.declaredKeys().isUnique(connection, new RelationName(null, "V"),
+                Collections.singleton("CODE")));
+    }
+
+    @Test
+    public void testOnlySelectedBridgeIsPreparedOnDemand() {
+        fixture.getHSQLDatabase().executeSQL("CREATE TABLE V (CODE VARCHAR(10), LABEL VARCHAR(50))");
+        ConnectedDB db = mapping.getConnectedDB((DatabaseImpl) database);
+        RelationBuilder names = new RelationBuilder(db);
+        names.addProjection(new Attribute(null, "T", "NAME"));
+        RelationBuilder labels = new RelationBuilder(db);
+        labels.addProjection(new Attribute(null, "V", "LABEL"));
+        labels.addJoinCondition(new Join(new Attribute(null, "T", "NAME"), new Attribute(null, "V", "CODE"),
+                Join.DIRECTION_RIGHT));
+
+        List<RelationBuilder> prepared = new ArrayList<>();
+        List<Runnable> background = new ArrayList<>();
+        DeclaredKeys keys = new DeclaredKeys();
+        LazyCompiler compiler = new LazyCompiler(keys, background::add) {
+            @Override
+            protected void prepare(RelationBuilder builder) {
+                prepared.add(builder);
+                super.prepare(builder);
+            }
+        };
+        Supplier<Relation> first = compiler.register(names);
+        compiler.register(labels);
+
+        Assert.assertNotNull(first.get());
+        Assert.assertEquals(Collections.singletonList(names), prepared);
+        // the join keys of the other bridge are known without touching its tables
+        Assert.assertTrue(keys.isUnique(db, new RelationName(null, "V"), Collections.singleton("CODE")));
+        // the rest is prepared in the background
+        Assert.assertEquals(1, background.size());
+        background.forEach(Runnable::run);
+        Assert.assertEquals(Arrays.asList(names, labels), prepared);
+    }
+}
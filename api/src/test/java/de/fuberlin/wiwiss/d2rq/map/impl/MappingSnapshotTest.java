@@ -0,0 +1,105 @@
+package de.fuberlin.wiwiss.d2rq.map.impl;
+
+import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLMappingFixture;
+import de.fuberlin.wiwiss.d2rq.map.ClassMap;
+import de.fuberlin.wiwiss.d2rq.map.PropertyBridge;
+import de.fuberlin.wiwiss.d2rq.sql.ConnectedDB;
+import de.fuberlin.wiwiss.d2rq.vocab.D2RQ;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MappingSnapshotTest {
+    private final static String EX = HSQLMappingFixture.EX;
+
+    private HSQLMappingFixture fixture;
+    private MappingImpl mapping;
+    private ClassMap things;
+
+    @Before
+    public void setUp() {
+        fixture = new HSQLMappingFixture("snapshot", "CREATE TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(50))");
+        mapping = (MappingImpl) fixture.getMapping();
+        things = fixture.createClassMap("T", "Thing");
+        mapping.getConfiguration().setUseAllOptimizations(true).setMaxUnionBranches(7);
+    }
+
+    @After
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    public void testSnapshotIsImmutable() {
+        MappingSnapshot first = mapping.compile();
+        Assert.assertSame(first, mapping.compile());
+        Assert.assertSame(first.relations(), mapping.compiledPropertyBridges());
+        Assert.assertSame(first.index(), mapping.compiledPropertyBridgesIndex());
+        Assert.assertTrue(mapping.withAllOptimizations());
+        Assert.assertEquals(7, mapping.maxUnionBranches());
+        int size = first.relations().size();
+        try {
+            first.relations().clear();
+            Assert.fail("Possible to modify the compiled bridges");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+
+        mapping.createPropertyBridge(null)
+                .setBelongsToClassMap(things)
+                .addProperty(ResourceFactory.createProperty(EX + "name"))
+                .setColumn("T.NAME");
+        MappingSnapshot second = mapping.compile();
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(size, first.relations().size());
+        Assert.assertEquals(size + 1, second.relations().size());
+        Assert.assertEquals(size, first.index().select(Triple.ANY).size());
+    }
+
+    @Test
+    public void testClassMapRelations() {
+        mapping.createPropertyBridge(null)
+                .setBelongsToClassMap(things)
+                .addProperty(ResourceFactory.createProperty(EX + "name"))
+                .setColumn("T.NAME");
+        mapping.createClassMap(EX + "U")
+                .setDatabase(things.getDatabase())
+                .setURIPattern(EX + "u/@@T.NAME@@")
+                .addClass(EX + "Other");
+        MappingSnapshot snapshot = mapping.compile();
+        Assert.assertEquals(2, snapshot.classMapRelations().size());
+        Assert.assertEquals(snapshot.relations(), snapshot.classMapRelations().stream()
+                .flatMap(Collection::stream).collect(Collectors.toList()));
+        snapshot.classMapRelations().forEach(c -> Assert.assertFalse(c.isEmpty()));
+    }
+
+    @Test
+    public void testDeclaredKeysBelongToSnapshot() {
+        fixture.getHSQLDatabase().executeSQL("CREATE TABLE U (ID INT PRIMARY KEY, T_ID INT, TAG VARCHAR(50))");
+        PropertyBridge tags = fixture.createPropertyBridge(things, "tag", "U.TAG").addJoin("T.ID => U.T_ID");
+        RelationName table = new RelationName(null, "U");
+        Set<String> key = Collections.singleton("T_ID");
+        MappingSnapshot first = mapping.compile();
+        ConnectedDB db = first.relations().iterator().next().baseRelation().database();
+        Assert.assertTrue(first.declaredKeys().isUnique(db, table, key));
+        Assert.assertSame(first.declaredKeys(), mapping.declaredKeys());
+
+        // the join is no longer directed, so the mapping does not claim the key
+        mapping.asModel().removeAll(null, D2RQ.join, null);
+        tags.addJoin("T.ID = U.T_ID");
+        MappingSnapshot second = mapping.compile();
+        Assert.assertNotSame(first, second);
+        Assert.assertFalse(second.declaredKeys().isUnique(db, table, key));
+        Assert.assertFalse(db.tableKeys(table).isUnique(key));
+        Assert.assertTrue(first.declaredKeys().isUnique(db, table, key));
+    }
+}
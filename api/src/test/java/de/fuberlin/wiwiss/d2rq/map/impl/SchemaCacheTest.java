@@ -0,0 +1,153 @@
+package de.fuberlin.wiwiss.d2rq.map.impl;
+
+import de.fuberlin.wiwiss.d2rq.map.ClassMap;
+import de.fuberlin.wiwiss.d2rq.map.Database;
+import de.fuberlin.wiwiss.d2rq.map.MappingFactory;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.shared.AddDeniedException;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class SchemaCacheTest {
+    private final static String EX = "http://example.org/";
+
+    private MappingImpl mapping;
+    private ClassMap things;
+
+    @Before
+    public void setUp() {
+        mapping = (MappingImpl) MappingFactory.create();
+        Database database = mapping.createDatabase(EX + "db").setJDBCDSN("jdbc://x");
+        things = mapping.addDatabase(database).createClassMap(EX + "T")
+                .setDatabase(database)
+                .setURIPattern(EX + "t/@@T.ID@@")
+                .addClass(EX + "Thing");
+        mapping.createPropertyBridge(null)
+                .setBelongsToClassMap(things)
+                .addProperty(ResourceFactory.createProperty(EX + "name"))
+                .setColumn("T.NAME");
+    }
+
+    private static Set<Triple> triples(Graph g) {
+        return new HashSet<>(g.find().toList());
+    }
+
+    private void assertSchema(Graph schema) {
+        Assert.assertEquals(triples(mapping.createSchemaGraph()), triples(schema));
+        Assert.assertEquals(mapping.createSchemaGraph().size(), schema.size());
+    }
+
+    private static Triple triple(String s, Node p, Node o) {
+        return Triple.create(NodeFactory.createURI(EX + s), p, o);
+    }
+
+    @Test
+    public void testIncrementalChanges() {
+        Graph schema = mapping.getSchema();
+        Node thing = NodeFactory.createURI(EX + "Thing");
+        Assert.assertTrue(schema.contains(thing, RDF.Nodes.type, OWL.Class.asNode()));
+        assertSchema(schema);
+        SchemaCache cache = mapping.schemaCache;
+        Assert.assertNotNull(cache);
+
+        // OWL axioms do not reset the cache
+        Triple sub = triple("Person", RDFS.Nodes.subClassOf, thing);
+        Triple person = triple("Person", RDF.Nodes.type, OWL.Class.asNode());
+        schema.add(sub);
+        schema.add(person);
+        Assert.assertSame(cache, mapping.schemaCache);
+        Assert.assertTrue(schema.contains(sub));
+        assertSchema(schema);
+
+        // the triple is asserted and inferred at the same time
+        Triple declaration = Triple.create(thing, RDF.Nodes.type, OWL.Class.asNode());
+        mapping.asModel().getGraph().add(declaration);
+        mapping.asModel().getGraph().delete(declaration);
+        Assert.assertTrue(schema.contains(declaration));
+        schema.delete(sub);
+        Assert.assertSame(cache, mapping.schemaCache);
+        Assert.assertFalse(schema.contains(sub));
+        assertSchema(schema);
+
+        // D2RQ instructions reset the cache
+        things.addClass(EX + "Other");
+        Assert.assertNull(mapping.schemaCache);
+        Assert.assertTrue(schema.contains(triple("Other", RDF.Nodes.type, OWL.Class.asNode())));
+        Assert.assertNotSame(cache, mapping.schemaCache);
+        assertSchema(schema);
+    }
+
+    @Test
+    public void testHiddenTriples() {
+        Graph schema = mapping.getSchema();
+        assertSchema(schema);
+        SchemaCache cache = mapping.schemaCache;
+        // a triple about a D2RQ resource is not a part of the schema
+        Triple comment = Triple.create(things.asResource().asNode(), RDFS.Nodes.comment,
+                NodeFactory.createLiteral("x"));
+        mapping.asModel().getGraph().add(comment);
+        Assert.assertSame(cache, mapping.schemaCache);
+        Assert.assertFalse(schema.contains(comment));
+        assertSchema(schema);
+    }
+
+    @Test
+    public void testOpenIteratorIsNotAffected() {
+        Graph schema = mapping.getSchema();
+        long count = schema.find().toList().size();
+        ExtendedIterator<Triple> it = schema.find();
+        for (int i = 0; i < 5; i++) {
+            schema.add(triple("C" + i, RDF.Nodes.type, OWL.Class.asNode()));
+            schema.find(Node.ANY, RDF.Nodes.type, Node.ANY).toList();
+        }
+        Assert.assertEquals(count, it.toList().size());
+        Assert.assertEquals(count + 5, schema.size());
+        assertSchema(schema);
+    }
+
+    @Test
+    public void testPublishedGraphIsReadOnlySnapshot() {
+        Graph schema = mapping.getSchema();
+        assertSchema(schema);
+        SchemaCache cache = mapping.schemaCache;
+        Graph before = cache.getGraph();
+        Triple person = triple("Person", RDF.Nodes.type, OWL.Class.asNode());
+        schema.add(person);
+        Graph after = cache.getGraph();
+        Assert.assertSame(after, cache.getGraph());
+        Assert.assertFalse(before.contains(person));
+        Assert.assertTrue(after.contains(person));
+        Assert.assertEquals(before.size() + 1, after.size());
+        try {
+            after.add(triple("Other", RDF.Nodes.type, OWL.Class.asNode()));
+            Assert.fail("The schema graph is modifiable");
+        } catch (AddDeniedException expected) {
+            // expected
+        }
+        schema.delete(person);
+        Assert.assertTrue(after.contains(person));
+        Assert.assertFalse(cache.getGraph().contains(person));
+        Assert.assertEquals(before.size(), cache.getGraph().size());
+
+        // many changes are merged into the materialized schema
+        for (int i = 0; i < 2000; i++) {
+            schema.add(triple("C" + i, RDF.Nodes.type, OWL.Class.asNode()));
+        }
+        schema.delete(triple("C0", RDF.Nodes.type, OWL.Class.asNode()));
+        Assert.assertSame(cache, mapping.schemaCache);
+        Assert.assertEquals(before.size() + 1999, cache.getGraph().size());
+        assertSchema(schema);
+    }
+}
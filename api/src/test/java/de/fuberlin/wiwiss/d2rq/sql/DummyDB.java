@@ -1,7 +1,9 @@
 package de.fuberlin.wiwiss.d2rq.sql;
 
 import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.algebra.RelationName;
 import de.fuberlin.wiwiss.d2rq.dbschema.DatabaseSchemaInspector;
+import de.fuberlin.wiwiss.d2rq.dbschema.TableStatistics;
 import de.fuberlin.wiwiss.d2rq.map.Database;
 import de.fuberlin.wiwiss.d2rq.sql.types.DataType.GenericType;
 import de.fuberlin.wiwiss.d2rq.sql.vendor.Vendor;
@@ -15,6 +17,7 @@ public class DummyDB extends ConnectedDB {
     private final Vendor vendor;
     private int limit = Database.NO_LIMIT;
     private Map<Attribute, Boolean> nullability = new HashMap<>();
+    private Map<RelationName, TableStatistics> statistics = new HashMap<>();
 
     private DummyDB(String jdbcURL, Vendor vendor, Map<String, GenericType> types) {
         super(jdbcURL, null, null, types, Database.NO_LIMIT, Database.NO_FETCH_SIZE, null);
@@ -67,6 +70,17 @@ public class DummyDB extends ConnectedDB {
         nullability.put(column, flag);
     }
 
+    public void setTableStatistics(RelationName table, TableStatistics tableStatistics) {
+        setUseTableStatistics(true);
+        statistics.put(table, tableStatistics);
+    }
+
+    @Override
+    public TableStatistics tableStatistics(RelationName table) {
+        if (!useTableStatistics()) return TableStatistics.NONE;
+        return statistics.getOrDefault(table, TableStatistics.NONE);
+    }
+
     @Override
     public Vendor vendor() {
         return vendor;
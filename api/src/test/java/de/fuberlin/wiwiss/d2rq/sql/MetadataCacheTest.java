@@ -0,0 +1,87 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MetadataCacheTest {
+
+    @Test
+    public void testLoadsOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<String, Integer> cache = new MetadataCache<>(k -> {
+            calls.incrementAndGet();
+            return k.length();
+        });
+        Assert.assertEquals(Integer.valueOf(3), cache.get("abc"));
+        Assert.assertEquals(Integer.valueOf(3), cache.get("abc"));
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testNullValueIsCached() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<String, Integer> cache = new MetadataCache<>(k -> {
+            calls.incrementAndGet();
+            return null;
+        });
+        Assert.assertNull(cache.get("x"));
+        Assert.assertNull(cache.get("x"));
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testFailureIsNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<String, Integer> cache = new MetadataCache<>(k -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("first call fails");
+            }
+            return 42;
+        });
+        try {
+            cache.get("x");
+            Assert.fail("Exception expected");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+        Assert.assertEquals(Integer.valueOf(42), cache.get("x"));
+    }
+
+    @Test
+    public void testConcurrentRequestsLoadOnce() throws Exception {
+        int threads = 8;
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        MetadataCache<String, Integer> cache = new MetadataCache<>(k -> {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 7;
+        });
+        ExecutorService service = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> res = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                res.add(service.submit(() -> {
+                    start.await();
+                    return cache.get("column");
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> f : res) {
+                Assert.assertEquals(Integer.valueOf(7), f.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            service.shutdownNow();
+        }
+        Assert.assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,82 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.sparql.util.Context;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class QueryDeadlineTest {
+
+    private static QueryDeadline expiredDeadline() throws InterruptedException {
+        QueryDeadline res = QueryDeadline.after(1);
+        Thread.sleep(10);
+        return res;
+    }
+
+    private static Context context(QueryDeadline deadline) {
+        Context res = new Context();
+        res.set(QueryDeadline.SYMBOL, deadline);
+        return res;
+    }
+
+    @Test
+    public void testInitFromARQTimeout() {
+        Context context = new Context();
+        QueryDeadline.init(context);
+        Assert.assertNull(QueryDeadline.get(context));
+
+        context.set(ARQ.queryTimeout, "1000,60000");
+        QueryDeadline.init(context);
+        QueryDeadline deadline = QueryDeadline.get(context);
+        Assert.assertNotNull(deadline);
+        Assert.assertEquals(60000, deadline.timeoutMillis());
+        Assert.assertFalse(deadline.isExpired());
+
+        // an existing deadline is kept
+        context.set(ARQ.queryTimeout, 10);
+        QueryDeadline.init(context);
+        Assert.assertSame(deadline, QueryDeadline.get(context));
+    }
+
+    @Test
+    public void testExpiredDeadline() throws InterruptedException {
+        QueryDeadline deadline = expiredDeadline();
+        Assert.assertTrue(deadline.isExpired());
+        Assert.assertTrue(deadline.remainingMillis() < 0);
+        try {
+            deadline.check();
+            Assert.fail("Exception expected");
+        } catch (QueryCancelledException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSQLIteratorDoesNotExecuteAfterDeadline() throws InterruptedException {
+        SQLIterator it = new SQLIterator("SELECT 1", Collections.emptyList(), DummyDB.create(),
+                context(expiredDeadline()));
+        try {
+            it.hasNext();
+            Assert.fail("Exception expected");
+        } catch (QueryCancelledException expected) {
+            // expected
+        }
+        Assert.assertNull(it.statement);
+    }
+
+    @Test
+    public void testSQLIteratorDoesNotExecuteAfterCancel() {
+        SQLIterator it = new SQLIterator("SELECT 1", Collections.emptyList(), DummyDB.create());
+        it.cancel();
+        try {
+            it.hasNext();
+            Assert.fail("Exception expected");
+        } catch (QueryCancelledException expected) {
+            // expected
+        }
+        Assert.assertNull(it.statement);
+    }
+}
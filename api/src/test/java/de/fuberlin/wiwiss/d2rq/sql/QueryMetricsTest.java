@@ -0,0 +1,112 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.jena.CachingGraph;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSetFormatter;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.sparql.util.Context;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+public class QueryMetricsTest {
+    private boolean enabled;
+
+    @Before
+    public void before() {
+        enabled = QueryMetrics.globalInstance().isEnabled();
+    }
+
+    @After
+    public void after() {
+        QueryMetrics.globalInstance().setEnabled(enabled);
+    }
+
+    @Test
+    public void testNothingToRecordWhenDisabled() {
+        QueryMetrics.globalInstance().setEnabled(false);
+        Assert.assertNull(QueryMetrics.global());
+        Assert.assertNull(QueryMetrics.get(new Context()));
+        Assert.assertNull(QueryMetrics.get((Context) null));
+    }
+
+    @Test
+    public void testPerQueryMetrics() {
+        QueryMetrics.globalInstance().setEnabled(false);
+        Context context = new Context();
+        QueryMetrics metrics = QueryMetrics.start(context);
+        Assert.assertSame(metrics, QueryMetrics.get(context));
+
+        long before = QueryMetrics.globalInstance().getStatementCount();
+        metrics.recordStatement(1_000_000);
+        metrics.recordRow(3, 1_000_000);
+        metrics.recordRow(3, 1_000_000);
+        metrics.recordCacheLookup(true);
+        metrics.recordCacheLookup(false);
+        Assert.assertEquals(1, metrics.getStatementCount());
+        Assert.assertEquals(2, metrics.getRowCount());
+        Assert.assertEquals(6, metrics.getFieldCount());
+        Assert.assertEquals(3, metrics.getJdbcTimeMillis());
+        Assert.assertEquals(0.5, metrics.getCacheHitRate(), 0.0001);
+        // the global metrics are off:
+        Assert.assertEquals(before, QueryMetrics.globalInstance().getStatementCount());
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getRowCount());
+    }
+
+    @Test
+    public void testPerQueryMetricsAreAddedToGlobal() {
+        QueryMetrics.globalInstance().setEnabled(true);
+        Assert.assertSame(QueryMetrics.globalInstance(), QueryMetrics.get(new Context()));
+        long before = QueryMetrics.globalInstance().getStatementCount();
+        QueryMetrics.start(new Context()).recordStatement(0);
+        Assert.assertEquals(before + 1, QueryMetrics.globalInstance().getStatementCount());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testBeanCounterTotalsFollowGlobalMetrics() {
+        QueryMetrics.globalInstance().setEnabled(true);
+        QueryMetrics.start(new Context()).recordRow(2, 0);
+        Assert.assertEquals(QueryMetrics.globalInstance().getRowCount(), BeanCounter.totalNumberOfReturnedRows);
+        Assert.assertEquals(QueryMetrics.globalInstance().getFieldCount(), BeanCounter.totalNumberOfReturnedFields);
+        Assert.assertEquals(BeanCounter.totalNumberOfReturnedRows, BeanCounter.instance().numberOfReturnedRows);
+    }
+
+    @Test
+    public void testCachingGraphRecordsIntoQueryContext() {
+        QueryMetrics.globalInstance().setEnabled(false);
+        Graph base = GraphFactory.createGraphMem();
+        base.add(Triple.create(NodeFactory.createURI("x"), RDF.Nodes.type, RDFS.Nodes.Class));
+        Model m = ModelFactory.createModelForGraph(new CachingGraph(base));
+        for (int i = 0; i < 2; i++) {
+            try (QueryExecution exec = QueryExecutionFactory.create("SELECT * WHERE { ?s a ?o }", m)) {
+                QueryMetrics metrics = QueryMetrics.start(exec.getContext());
+                Assert.assertEquals(1, ResultSetFormatter.consume(exec.execSelect()));
+                Assert.assertEquals(i == 0 ? 0 : 1, metrics.getCacheHitCount());
+                Assert.assertEquals(i == 0 ? 1 : 0, metrics.getCacheMissCount());
+            }
+        }
+    }
+
+    @Test
+    public void testRegisterMBean() throws Exception {
+        QueryMetrics.registerMBean();
+        QueryMetrics.registerMBean();
+        Assert.assertTrue(ManagementFactory.getPlatformMBeanServer()
+                .isRegistered(new ObjectName(QueryMetrics.MBEAN_NAME)));
+    }
+}
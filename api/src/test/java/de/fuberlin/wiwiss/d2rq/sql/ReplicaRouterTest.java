@@ -0,0 +1,243 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.algebra.ProjectionSpec;
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLDatabase;
+import de.fuberlin.wiwiss.d2rq.map.Database;
+import de.fuberlin.wiwiss.d2rq.map.MappingFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ReplicaRouterTest {
+
+    private static final Attribute NAME = new Attribute(null, "T", "NAME");
+    private static final List<ProjectionSpec> COLUMNS = Collections.singletonList(NAME);
+
+    private HSQLDatabase primary;
+    private HSQLDatabase replica1;
+    private HSQLDatabase replica2;
+
+    private static HSQLDatabase createDatabase(String name) {
+        return HSQLDatabase.create(name,
+                "CREATE TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(50))",
+                "INSERT INTO T VALUES (1, '" + name + "')");
+    }
+
+    @Before
+    public void setUp() {
+        primary = createDatabase("primary");
+        replica1 = createDatabase("replica1");
+        replica2 = createDatabase("replica2");
+    }
+
+    @After
+    public void tearDown() {
+        primary.close(true);
+        replica1.close(true);
+        replica2.close(true);
+    }
+
+    private ConnectedDB connect(ReplicaRouter.Policy policy, String... replicas) {
+        ConnectedDB res = new ConnectedDB(primary.getJdbcURL(), primary.getUser(), primary.getPassword());
+        res.setReadReplicas(Arrays.asList(replicas), policy);
+        return res;
+    }
+
+    private static String select(ConnectedDB db) {
+        SQLIterator it = new SQLIterator("SELECT T.NAME FROM T", COLUMNS, db);
+        try {
+            Assert.assertTrue(it.hasNext());
+            return it.next().get(NAME);
+        } finally {
+            it.close();
+        }
+    }
+
+    @Test
+    public void testParsePolicy() {
+        Assert.assertEquals(ReplicaRouter.Policy.ROUND_ROBIN, ReplicaRouter.Policy.parse(null));
+        Assert.assertEquals(ReplicaRouter.Policy.ROUND_ROBIN, ReplicaRouter.Policy.parse("round-robin"));
+        Assert.assertEquals(ReplicaRouter.Policy.LEAST_OUTSTANDING, ReplicaRouter.Policy.parse(" Least-Outstanding "));
+        try {
+            ReplicaRouter.Policy.parse("random");
+            Assert.fail("Expected error");
+        } catch (IllegalArgumentException ex) {
+            Assert.assertTrue(ex.getMessage().contains("random"));
+        }
+    }
+
+    @Test
+    public void testConnectionFailure() {
+        Assert.assertTrue(ReplicaRouter.isConnectionFailure(new SQLNonTransientConnectionException("x")));
+        Assert.assertTrue(ReplicaRouter.isConnectionFailure(new SQLException("x", "08S01")));
+        Assert.assertFalse(ReplicaRouter.isConnectionFailure(new SQLException("x", "42000")));
+        Assert.assertTrue(ReplicaRouter.isConnectionFailure(
+                new D2RQException("x", D2RQException.D2RQ_DB_CONNECTION_FAILED)));
+        Assert.assertTrue(ReplicaRouter.isConnectionFailure(new D2RQException(new SQLException("x", "08003"))));
+        Assert.assertFalse(ReplicaRouter.isConnectionFailure(new D2RQException(new SQLException("x", "42000"))));
+    }
+
+    @Test
+    public void testRoundRobin() {
+        ConnectedDB db = connect(ReplicaRouter.Policy.ROUND_ROBIN, replica1.getJdbcURL(), replica2.getJdbcURL());
+        try {
+            Assert.assertEquals(Arrays.asList("replica1", "replica2", "replica1", "replica2"),
+                    Arrays.asList(select(db), select(db), select(db), select(db)));
+            ReplicaRouter router = db.replicaRouter();
+            router.replicas().forEach(r -> Assert.assertEquals(0, router.outstanding(r)));
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testLeastOutstanding() {
+        ConnectedDB db = connect(ReplicaRouter.Policy.LEAST_OUTSTANDING,
+                replica1.getJdbcURL(), replica2.getJdbcURL());
+        try {
+            ReplicaRouter router = db.replicaRouter();
+            ConnectedDB first = router.acquire();
+            ConnectedDB second = router.acquire();
+            Assert.assertNotSame(first, second);
+            router.release(first);
+            // the replica of the first statement is idle now
+            Assert.assertSame(first, router.acquire());
+            Assert.assertEquals(1, router.outstanding(first));
+            Assert.assertEquals(1, router.outstanding(second));
+            router.release(first);
+            router.release(second);
+            Assert.assertEquals(0, router.outstanding(first));
+            Assert.assertEquals(0, router.outstanding(second));
+        } finally {
+            db.close();
+        }
+    }
+
+    private static void awaitAvailable(ReplicaRouter router, ConnectedDB replica) throws InterruptedException {
+        for (int i = 0; i < 100 && !router.isAvailable(replica); i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(router.isAvailable(replica));
+    }
+
+    @Test
+    public void testFailover() throws InterruptedException {
+        ConnectedDB db = connect(ReplicaRouter.Policy.ROUND_ROBIN,
+                "jdbc:hsqldb:mem:missing;ifexists=true", replica1.getJdbcURL());
+        try {
+            ReplicaRouter router = db.replicaRouter();
+            ConnectedDB missing = router.replicas().get(0);
+            ConnectedDB good = router.replicas().get(1);
+            Assert.assertEquals("replica1", select(db));
+            Assert.assertEquals("replica1", select(db));
+            Assert.assertFalse(router.isAvailable(missing));
+            Assert.assertTrue(router.isAvailable(good));
+
+            router.setRetryInterval(100);
+            router.markFailed(good, new SQLNonTransientConnectionException("down"));
+            Assert.assertFalse(router.isAvailable(good));
+            // no replicas left, the primary is used
+            Assert.assertEquals("primary", select(db));
+
+            // the background health check brings the good replica back
+            awaitAvailable(router, good);
+            Assert.assertEquals("replica1", select(db));
+            Assert.assertFalse(router.isAvailable(missing));
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testEachReplicaIsTriedOnce() {
+        ConnectedDB db = connect(ReplicaRouter.Policy.ROUND_ROBIN,
+                "jdbc:hsqldb:mem:missing1;ifexists=true", "jdbc:hsqldb:mem:missing2;ifexists=true");
+        try {
+            db.replicaRouter().setRetryInterval(0);
+            Assert.assertEquals("primary", select(db));
+            Assert.assertEquals("primary", select(db));
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testFailureDoesNotBreakRunningStatements() throws Exception {
+        replica1.executeSQL("INSERT INTO T VALUES (2, 'replica1')");
+        ConnectedDB db = connect(ReplicaRouter.Policy.ROUND_ROBIN, replica1.getJdbcURL());
+        try {
+            ReplicaRouter router = db.replicaRouter();
+            router.setRetryInterval(10);
+            ConnectedDB replica = router.replicas().get(0);
+            SQLIterator running = new SQLIterator("SELECT T.NAME FROM T", COLUMNS, db);
+            Assert.assertTrue(running.hasNext());
+            Connection connection = replica.connection();
+
+            router.markFailed(replica, new SQLNonTransientConnectionException("down"));
+            awaitAvailable(router, replica);
+            // the connection is in use, so it is kept
+            Assert.assertFalse(connection.isClosed());
+            Assert.assertEquals("replica1", running.next().get(NAME));
+            Assert.assertEquals("replica1", running.next().get(NAME));
+            Assert.assertFalse(running.hasNext());
+            running.close();
+            Assert.assertEquals(0, router.outstanding(replica));
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testBrokenConnectionIsClosedOnRelease() throws SQLException {
+        replica1.executeSQL("INSERT INTO T VALUES (2, 'replica1')");
+        ConnectedDB db = connect(ReplicaRouter.Policy.ROUND_ROBIN, replica1.getJdbcURL());
+        try {
+            ReplicaRouter router = db.replicaRouter();
+            // no health check during the test
+            router.setRetryInterval(60_000);
+            ConnectedDB replica = router.replicas().get(0);
+            SQLIterator running = new SQLIterator("SELECT T.NAME FROM T", COLUMNS, db);
+            Assert.assertTrue(running.hasNext());
+            Connection connection = replica.connection();
+
+            router.markFailed(replica, new SQLNonTransientConnectionException("down"));
+            Assert.assertEquals("replica1", running.next().get(NAME));
+            Assert.assertFalse(connection.isClosed());
+            running.close();
+            // the last statement has released the replica
+            Assert.assertTrue(connection.isClosed());
+            Assert.assertNotSame(connection, replica.connection());
+        } finally {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testValidateRouting() {
+        Database d = MappingFactory.create().createDatabase("x")
+                .setJDBCDSN(primary.getJdbcURL())
+                .addReplicaJDBCDSN(replica1.getJdbcURL())
+                .setReplicaRouting("least-outstanding");
+        d.validate();
+        Assert.assertEquals(Collections.singletonList(replica1.getJdbcURL()), d.replicaJDBCDSNs()
+                .collect(Collectors.toList()));
+        d.setReplicaRouting("random");
+        try {
+            d.validate();
+            Assert.fail("Expected error");
+        } catch (D2RQException ex) {
+            Assert.assertEquals("Message: " + ex.getMessage(), D2RQException.DATABASE_INVALID_REPLICA, ex.errorCode());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.algebra.ProjectionSpec;
+import de.fuberlin.wiwiss.d2rq.helpers.HSQLDatabase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ResultBatchTest {
+    private static final Attribute ID = new Attribute(null, "T", "ID");
+    private static final Attribute NAME = new Attribute(null, "T", "NAME");
+    private static final List<ProjectionSpec> COLUMNS = Arrays.asList(ID, NAME);
+
+    private HSQLDatabase db;
+    private ConnectedDB connection;
+
+    @Before
+    public void setUp() {
+        db = HSQLDatabase.create("batch", "CREATE TABLE T (ID INT PRIMARY KEY, NAME VARCHAR(50))");
+        for (int i = 1; i <= 5; i++) {
+            db.executeSQL("INSERT INTO T VALUES (" + i + ", 'n" + i + "')");
+        }
+        connection = new ConnectedDB(db.getJdbcURL(), db.getUser(), db.getPassword());
+    }
+
+    @After
+    public void tearDown() {
+        connection.close();
+        db.close(true);
+    }
+
+    @Test
+    public void testColumns() {
+        ResultBatch batch = new ResultBatch(COLUMNS, 2);
+        Assert.assertTrue(batch.isEmpty());
+        batch.add("1", "a");
+        batch.add(new ResultRowMap(Collections.singletonMap(ID, "2")));
+        Assert.assertEquals(2, batch.size());
+        Assert.assertEquals("a", batch.column(NAME)[0]);
+        Assert.assertNull(batch.get(1, NAME));
+        Assert.assertEquals("2", batch.row(1).get(ID));
+        Assert.assertNull(batch.column(new Attribute(null, "T", "X")));
+        try {
+            batch.add("3", "c");
+            Assert.fail("Possible to add a row");
+        } catch (IndexOutOfBoundsException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFetchBatches() {
+        SQLIterator it = new SQLIterator("SELECT T.ID, T.NAME FROM T ORDER BY T.ID", COLUMNS, connection);
+        try {
+            Assert.assertTrue(it.hasNext());
+            ResultBatch first = it.nextBatch(2);
+            Assert.assertEquals(2, first.size());
+            Assert.assertEquals("1", first.get(0, ID));
+            Assert.assertEquals("n2", first.get(1, NAME));
+            Assert.assertEquals("3", it.next().get(ID));
+            ResultBatch second = it.nextBatch(10);
+            Assert.assertEquals(2, second.size());
+            Assert.assertEquals("n5", second.row(1).get(NAME));
+            Assert.assertTrue(it.nextBatch(10).isEmpty());
+            Assert.assertFalse(it.hasNext());
+        } finally {
+            it.close();
+        }
+    }
+}
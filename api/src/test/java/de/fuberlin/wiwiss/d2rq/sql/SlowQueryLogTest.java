@@ -0,0 +1,81 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.sql.vendor.Vendor;
+import org.apache.jena.sparql.engine.ExecutionContext;
+import org.apache.jena.sparql.util.Context;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SlowQueryLogTest {
+    private long threshold;
+
+    @Before
+    public void before() {
+        threshold = SlowQueryLog.getThreshold();
+    }
+
+    @After
+    public void after() {
+        SlowQueryLog.setThreshold(threshold);
+    }
+
+    @Test
+    public void testThreshold() {
+        SlowQueryLog.setThreshold(-1);
+        Assert.assertFalse(SlowQueryLog.isEnabled());
+        Assert.assertFalse(SlowQueryLog.isSlow(Long.MAX_VALUE));
+        SlowQueryLog.setThreshold(100);
+        Assert.assertTrue(SlowQueryLog.isEnabled());
+        Assert.assertFalse(SlowQueryLog.isSlow(99));
+        Assert.assertTrue(SlowQueryLog.isSlow(100));
+    }
+
+    @Test
+    public void testOrigin() {
+        SlowQueryLog.setThreshold(-1);
+        Assert.assertNull(SlowQueryLog.withOrigin(null, "x"));
+        Context context = new Context();
+        SlowQueryLog.setOrigin(context, "x");
+        Assert.assertFalse(context.isDefined(SlowQueryLog.ORIGIN));
+
+        SlowQueryLog.setThreshold(0);
+        ExecutionContext execCxt = SlowQueryLog.withOrigin(null, "y");
+        Assert.assertEquals("y", execCxt.getContext().get(SlowQueryLog.ORIGIN));
+        ExecutionContext other = SlowQueryLog.withOrigin(execCxt, "z");
+        Assert.assertEquals("z", other.getContext().get(SlowQueryLog.ORIGIN));
+        Assert.assertEquals("y", execCxt.getContext().get(SlowQueryLog.ORIGIN));
+    }
+
+    @Test
+    public void testFormat() {
+        Assert.assertEquals("Slow SQL query: 1500 ms, 3 rows\nOrigin: ?s ?p ?o\nSQL: SELECT 1\nPlan:\nscan",
+                SlowQueryLog.format("SELECT 1", " ?s ?p ?o\n", 1500, 3, "scan"));
+        Assert.assertEquals("Slow SQL query: 1500 ms, 3 rows\nSQL: SELECT 1",
+                SlowQueryLog.format("SELECT 1", null, 1500, 3, null));
+    }
+
+    @Test
+    public void testExplainStatement() {
+        Assert.assertNull(Vendor.SQL92.getExplainStatement("SELECT 1"));
+        Assert.assertNull(Vendor.Oracle.getExplainStatement("SELECT 1"));
+        Assert.assertEquals("EXPLAIN SELECT 1", Vendor.MySQL.getExplainStatement("SELECT 1"));
+        Assert.assertEquals("EXPLAIN SELECT 1", Vendor.PostgreSQL.getExplainStatement("SELECT 1"));
+        Assert.assertEquals("EXPLAIN PLAN FOR SELECT 1", Vendor.HSQLDB.getExplainStatement("SELECT 1"));
+        // no plan for a database without EXPLAIN support:
+        Assert.assertNull(SlowQueryLog.explain(DummyDB.create(), "SELECT 1"));
+    }
+
+    @Test
+    public void testRecordNeverFails() {
+        // the plan can't be fetched from an unreachable database, the caller must not notice
+        ConnectedDB db = new ConnectedDB("jdbc:hsqldb:mem:missing;ifexists=true", "sa", null);
+        try {
+            SlowQueryLog.setExplain(true);
+            SlowQueryLog.record(db, "SELECT 1", null, 1500, 1);
+        } finally {
+            db.close();
+        }
+    }
+}
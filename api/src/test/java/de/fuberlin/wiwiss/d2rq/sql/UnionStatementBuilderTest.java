@@ -0,0 +1,68 @@
+package de.fuberlin.wiwiss.d2rq.sql;
+
+import de.fuberlin.wiwiss.d2rq.algebra.*;
+import de.fuberlin.wiwiss.d2rq.algebra.AliasMap.Alias;
+import de.fuberlin.wiwiss.d2rq.expr.Expression;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+public class UnionStatementBuilderTest {
+    private final static Attribute foo_col1 = new Attribute(null, "foo", "col1");
+    private final static Attribute bar_col1 = new Attribute(null, "bar", "col1");
+
+    private static Relation relation(ConnectedDB db, AliasMap aliases, Attribute column, int limit) {
+        return new RelationImpl(db, aliases, Expression.TRUE, Expression.TRUE,
+                Collections.emptySet(), Collections.singleton(column),
+                true, OrderSpec.NONE, limit, Relation.NO_LIMIT);
+    }
+
+    @Test
+    public void testUnionWithPaddedColumns() {
+        DummyDB db = DummyDB.create();
+        Relation r1 = relation(db, AliasMap.NO_ALIASES, foo_col1, Relation.NO_LIMIT);
+        Relation r2 = relation(db, AliasMap.NO_ALIASES, bar_col1, Relation.NO_LIMIT);
+        UnionStatementBuilder builder = new UnionStatementBuilder(Arrays.asList(r1, r2));
+        Assert.assertEquals(Arrays.asList(UnionStatementBuilder.BRANCH, foo_col1, bar_col1), builder.getColumnSpecs());
+        Assert.assertEquals("SELECT 0 AS d2rq_branch, \"foo\".\"col1\", NULL FROM \"foo\""
+                        + " UNION ALL SELECT 1 AS d2rq_branch, NULL, \"bar\".\"col1\" FROM \"bar\"",
+                builder.getSQLStatement());
+    }
+
+    @Test
+    public void testBranchOfRow() {
+        ResultRow row = new ResultRowMap(Collections.singletonMap(UnionStatementBuilder.BRANCH, "1"));
+        Assert.assertEquals(1, UnionStatementBuilder.branchOf(row));
+    }
+
+    @Test
+    public void testLimitIsNotCombinable() {
+        DummyDB db = DummyDB.create();
+        Assert.assertTrue(UnionStatementBuilder.isCombinable(
+                relation(db, AliasMap.NO_ALIASES, foo_col1, Relation.NO_LIMIT)));
+        Assert.assertFalse(UnionStatementBuilder.isCombinable(
+                relation(db, AliasMap.NO_ALIASES, foo_col1, 10)));
+        db.setLimit(10);
+        Assert.assertFalse(UnionStatementBuilder.isCombinable(
+                relation(db, AliasMap.NO_ALIASES, foo_col1, Relation.NO_LIMIT)));
+    }
+
+    @Test
+    public void testAliasedColumnOfDifferentTableIsNotShared() {
+        DummyDB db = DummyDB.create();
+        AliasMap barAsFoo = new AliasMap(Collections.singleton(
+                new Alias(new RelationName(null, "bar"), new RelationName(null, "foo"))));
+        Relation r1 = relation(db, AliasMap.NO_ALIASES, foo_col1, Relation.NO_LIMIT);
+        Relation r2 = relation(db, barAsFoo, foo_col1, Relation.NO_LIMIT);
+        Assert.assertTrue(UnionStatementBuilder.canShareColumn(foo_col1, r1, r1));
+        Assert.assertFalse(UnionStatementBuilder.canShareColumn(foo_col1, r1, r2));
+
+        UnionRelationGroup union = new UnionRelationGroup();
+        union.add(r1, Collections.emptyList());
+        Assert.assertTrue(union.isCompatible(relation(db, AliasMap.NO_ALIASES, bar_col1, Relation.NO_LIMIT)));
+        Assert.assertFalse(union.isCompatible(r2));
+        Assert.assertFalse(union.isCompatible(relation(DummyDB.create("jdbc:other"), AliasMap.NO_ALIASES,
+                bar_col1, Relation.NO_LIMIT)));
+    }
+}
@@ -0,0 +1,98 @@
+package de.fuberlin.wiwiss.d2rq.values;
+
+import de.fuberlin.wiwiss.d2rq.sql.QueryMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CachingTranslatorTest {
+
+    private static class CountingTranslator implements Translator {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public String toRDFValue(String dbValue) {
+            calls.incrementAndGet();
+            return "x".equals(dbValue) ? null : "rdf-" + dbValue;
+        }
+
+        @Override
+        public String toDBValue(String rdfValue) {
+            calls.incrementAndGet();
+            return rdfValue == null ? null : rdfValue.replace("rdf-", "");
+        }
+    }
+
+    @Test
+    public void testMemoizesBothDirections() {
+        CountingTranslator base = new CountingTranslator();
+        CachingTranslator translator = new CachingTranslator(base, 10);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("rdf-1", translator.toRDFValue("1"));
+            Assert.assertEquals("1", translator.toDBValue("rdf-1"));
+            Assert.assertNull(translator.toRDFValue("x"));
+        }
+        Assert.assertEquals(3, base.calls.get());
+        Assert.assertEquals(6, translator.getHitCount());
+        Assert.assertEquals(3, translator.getMissCount());
+        Assert.assertEquals(2. / 3, translator.getHitRate(), 0.0001);
+        Assert.assertEquals(3, translator.size());
+        Assert.assertNull(translator.toDBValue(null));
+        Assert.assertEquals(4, base.calls.get());
+        translator.clear();
+        Assert.assertEquals(0, translator.size());
+        Assert.assertEquals(0, translator.getHitRate(), 0);
+    }
+
+    @Test
+    public void testBoundedSize() {
+        CountingTranslator base = new CountingTranslator();
+        CachingTranslator translator = new CachingTranslator(base, 5);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("rdf-" + i, translator.toRDFValue(String.valueOf(i)));
+        }
+        Assert.assertEquals(5, translator.size());
+        Assert.assertEquals(100, translator.getMissCount());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        CountingTranslator base = new CountingTranslator();
+        CachingTranslator translator = new CachingTranslator(base, 2);
+        translator.toRDFValue("1");
+        translator.toRDFValue("2");
+        translator.toRDFValue("1");
+        // "2" is the least recently used one
+        translator.toRDFValue("3");
+        Assert.assertEquals(3, base.calls.get());
+        translator.toRDFValue("1");
+        Assert.assertEquals(3, base.calls.get());
+        translator.toRDFValue("2");
+        Assert.assertEquals(4, base.calls.get());
+    }
+
+    @Test
+    public void testRecordsGlobalMetrics() {
+        QueryMetrics metrics = QueryMetrics.globalInstance();
+        boolean enabled = metrics.isEnabled();
+        try {
+            metrics.setEnabled(true);
+            long hits = metrics.getTranslatorCacheHitCount();
+            long misses = metrics.getTranslatorCacheMissCount();
+            CachingTranslator translator = new CachingTranslator(new CountingTranslator(), 10);
+            translator.toRDFValue("1");
+            translator.toRDFValue("1");
+            translator.toDBValue("rdf-1");
+            Assert.assertEquals(hits + 1, metrics.getTranslatorCacheHitCount());
+            Assert.assertEquals(misses + 2, metrics.getTranslatorCacheMissCount());
+        } finally {
+            metrics.setEnabled(enabled);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWrongSize() {
+        new CachingTranslator(Translator.IDENTITY, 0);
+    }
+}
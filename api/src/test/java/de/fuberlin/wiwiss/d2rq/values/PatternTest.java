@@ -10,6 +10,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.*;
 
 /**
@@ -386,6 +388,28 @@ public class PatternTest {
         assertPatternValues(p, "aaax%5Fybbb", Collections.singletonMap("table.col1", "x_y"));
     }
 
+    @Test
+    public void testPatternURLEncodeSameAsURLEncoder() throws UnsupportedEncodingException {
+        Pattern urlencode = new Pattern("@@table.col1|urlencode@@");
+        Pattern urlify = new Pattern("@@table.col1|urlify@@");
+        for (String s : Arrays.asList("plain-._*", "x y_z~!", "\u00e9\u0085\u4e2d", "\ud83d\ude00", "a\ud800b", "\udc00")) {
+            String expected = URLEncoder.encode(s, "UTF-8");
+            Assert.assertEquals(expected, urlencode.makeValue(row(s)));
+            Assert.assertEquals(expected.replace("_", "%5F").replace('+', '_'), urlify.makeValue(row(s)));
+        }
+    }
+
+    @Test
+    public void testMatchesRepeatedLiteralPart() {
+        Pattern p = new Pattern("@@table.col1@@/@@table.col2@@/x");
+        Map<String, String> map = new HashMap<>();
+        map.put("table.col1", "a");
+        map.put("table.col2", "b/x/c");
+        assertPatternValues(p, "a/b/x/c/x", map);
+        Assert.assertFalse(matches(p, "a/x"));
+        Assert.assertFalse(matches(p, "a/b/x/"));
+    }
+
     @Test
     public void testTrivialPatternFirstPart() {
         Assert.assertEquals("aaa", new Pattern("aaa").firstLiteralPart());
@@ -1,12 +1,20 @@
 package de.fuberlin.wiwiss.d2rq.values;
 
+import de.fuberlin.wiwiss.d2rq.algebra.AliasMap;
 import de.fuberlin.wiwiss.d2rq.algebra.Attribute;
+import de.fuberlin.wiwiss.d2rq.expr.Equality;
 import de.fuberlin.wiwiss.d2rq.expr.Expression;
+import de.fuberlin.wiwiss.d2rq.expr.TranslationCase;
+import de.fuberlin.wiwiss.d2rq.nodes.NodeSetConstraintBuilder;
+import de.fuberlin.wiwiss.d2rq.sql.DummyDB;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class ValueMakerTest {
     private final static Attribute foo_col1 = new Attribute(null, "foo", "col1");
@@ -94,6 +102,67 @@ public class ValueMakerTest {
         Assert.assertFalse(matches(bNodeID, null));
     }
 
+    @Test
+    public void testTranslationTableIsJoinedInSQL() {
+        TableTranslator table = new TableTranslator(Arrays.asList("1", "2"), v -> v, v -> "http://test/" + v);
+        ValueDecorator values = new ValueDecorator(new Column(foo_col1), Collections.emptyList(), table);
+        NodeSetConstraintBuilder nodes = new NodeSetConstraintBuilder();
+        values.describeSelf(nodes);
+        nodes.limitValuesToAttribute(foo_col2);
+        Assert.assertFalse(nodes.isUnsupported());
+        Assert.assertEquals("\"foo\".\"col2\" = (CASE \"foo\".\"col1\" " +
+                        "WHEN '1' THEN 'http://test/1' WHEN '2' THEN 'http://test/2' END)",
+                nodes.constraint().toSQL(DummyDB.create(), AliasMap.NO_ALIASES));
+
+        nodes = new NodeSetConstraintBuilder();
+        values.describeSelf(nodes);
+        nodes.limitValues("http://test/2");
+        Assert.assertEquals(Equality.createAttributeValue(foo_col1, "2"), nodes.constraint());
+    }
+
+    @Test
+    public void testLargeTranslationTableIsNotInlined() {
+        List<String> keys = IntStream.rangeClosed(0, TranslationCase.MAX_INLINE_SIZE)
+                .mapToObj(String::valueOf).collect(Collectors.toList());
+        TableTranslator table = new TableTranslator(keys, v -> v, v -> "http://test/" + v);
+        ValueDecorator values = new ValueDecorator(new Column(foo_col1), Collections.emptyList(), table);
+        Assert.assertNull(values.translatedExpression());
+        Assert.assertEquals("http://test/7", values.makeValue(c -> "7"));
+        NodeSetConstraintBuilder nodes = new NodeSetConstraintBuilder();
+        values.describeSelf(nodes);
+        new ValueDecorator(new Column(foo_col2), Collections.emptyList()).describeSelf(nodes);
+        Assert.assertTrue(nodes.isUnsupported());
+
+        table = new TableTranslator(keys.subList(0, TranslationCase.MAX_INLINE_SIZE), v -> v, v -> "http://test/" + v);
+        values = new ValueDecorator(new Column(foo_col1), Collections.emptyList(), table);
+        Assert.assertNotNull(values.translatedExpression());
+        nodes = new NodeSetConstraintBuilder();
+        values.describeSelf(nodes);
+        new ValueDecorator(new Column(foo_col2), Collections.emptyList()).describeSelf(nodes);
+        Assert.assertFalse(nodes.isUnsupported());
+    }
+
+    @Test
+    public void testCustomTranslatorIsNotJoinedInSQL() {
+        ValueDecorator values = new ValueDecorator(new Column(foo_col1), Collections.emptyList(), new Translator() {
+            @Override
+            public String toRDFValue(String dbValue) {
+                return dbValue;
+            }
+
+            @Override
+            public String toDBValue(String rdfValue) {
+                return rdfValue;
+            }
+        });
+        Assert.assertNull(values.translatedExpression());
+        NodeSetConstraintBuilder nodes = new NodeSetConstraintBuilder();
+        values.describeSelf(nodes);
+        new Column(foo_col2).describeSelf(nodes);
+        nodes.setUsesTranslator(Translator.IDENTITY);
+        Assert.assertTrue(nodes.isUnsupported());
+    }
+
     private boolean matches(ValueMaker valueMaker, String value) {
         return !valueMaker.valueExpression(value).isFalse();
     }
@@ -1,17 +1,32 @@
 package d2rq;
 
 import d2rq.utils.ArgDecl;
+import d2rq.utils.ParallelGZIPOutputStream;
+import d2rq.utils.ShardedOutput;
 import de.fuberlin.wiwiss.d2rq.D2RQException;
 import de.fuberlin.wiwiss.d2rq.map.Database;
 import de.fuberlin.wiwiss.d2rq.map.MapParser;
 import de.fuberlin.wiwiss.d2rq.map.Mapping;
+import de.fuberlin.wiwiss.d2rq.map.MappingHelper;
 import de.fuberlin.wiwiss.d2rq.mapgen.MappingGenerator;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.RDFWriter;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.out.NodeFmtLib;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
 import org.apache.jena.shared.NoWriterForLangException;
+import org.apache.jena.util.iterator.ExtendedIterator;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
 
 /**
  * Command line utility for dumping a database to RDF, using the
@@ -21,10 +36,16 @@ import java.nio.charset.StandardCharsets;
  */
 public class DumpTool extends CommandLineTool {
     private final static int DUMP_DEFAULT_FETCH_SIZE = 500;
+    private final static int DUMP_BUFFER_SIZE = 1 << 20;
 
     private ArgDecl baseArg = new ArgDecl(true, "b", "base");
     private ArgDecl formatArg = new ArgDecl(true, "f", "format");
     private ArgDecl outfileArg = new ArgDecl(true, "o", "out", "outfile");
+    private ArgDecl incrementalArg = new ArgDecl(true, "incremental");
+    private ArgDecl compressArg = new ArgDecl(true, "compress");
+    private ArgDecl threadsArg = new ArgDecl(true, "threads");
+    private ArgDecl shardTriplesArg = new ArgDecl(true, "shard-triples");
+    private ArgDecl shardSizeArg = new ArgDecl(true, "shard-size");
 
     DumpTool(PrintStream console) {
         super(console);
@@ -41,8 +62,19 @@ public class DumpTool extends CommandLineTool {
         console.println();
         console.println("  RDF output options:");
         console.println("    -b baseURI      Base URI for RDF output");
-        console.println("    -f format       One of N-TRIPLE (default), RDF/XML, RDF/XML-ABBREV, TURTLE");
+        console.println("    -f format       One of N-TRIPLE (default), RDF/XML, RDF/XML-ABBREV, TURTLE, RDF-THRIFT,");
+        console.println("                    RDF-PATCH (with --incremental only)");
         console.println("    -o outfile      Output file name (default: stdout)");
+        console.println("    --incremental state");
+        console.println("                    Dump only the rows changed since the run with the same state file,");
+        console.println("                    as N-TRIPLE (default) or RDF-PATCH; the class maps must declare");
+        console.println("                    avc:watermarkColumn, the first run with a new state file dumps all");
+        console.println("    --compress c    One of gzip, none (default: gzip if outfile ends with .gz)");
+        console.println("    --threads n     Number of compressing threads (default: number of processors)");
+        console.println("    --shard-triples n");
+        console.println("                    Split N-TRIPLE output into files of at most n triples each");
+        console.println("    --shard-size n  Split N-TRIPLE output into files of about n (K, M, G) uncompressed bytes;");
+        console.println("                    the shards are written next to outfile, listed in outfile.manifest");
         console.println("    --verbose       Print debug information");
         console.println();
         console.println("  Database connection options (only with jdbcURL):");
@@ -55,6 +87,11 @@ public class DumpTool extends CommandLineTool {
         cmd.add(baseArg);
         cmd.add(formatArg);
         cmd.add(outfileArg);
+        cmd.add(incrementalArg);
+        cmd.add(compressArg);
+        cmd.add(threadsArg);
+        cmd.add(shardTriplesArg);
+        cmd.add(shardSizeArg);
     }
 
     @Override
@@ -67,22 +104,68 @@ public class DumpTool extends CommandLineTool {
         if (cmd.contains(formatArg)) {
             format = cmd.getArgValue(formatArg);
         }
-        PrintStream out;
-        if (cmd.contains(outfileArg)) {
-            File f = new File(cmd.getArgValue(outfileArg));
-            LOGGER.info("Writing to {}", f);
-            out = new PrintStream(new FileOutputStream(f));
-            loader.setSystemBaseURI(MapParser.absolutizeURI(f.toURI().toString() + "#"));
-        } else {
-            LOGGER.info("Writing to stdout");
-            out = System.out;
+        File outfile = cmd.contains(outfileArg) ? new File(cmd.getArgValue(outfileArg)) : null;
+        boolean gzip = outfile != null && outfile.getName().endsWith(".gz");
+        if (cmd.contains(compressArg)) {
+            String compress = cmd.getArgValue(compressArg);
+            if (!"gzip".equalsIgnoreCase(compress) && !"none".equalsIgnoreCase(compress)) {
+                throw new D2RQException("Unknown compression '" + compress + "', must be gzip or none",
+                        D2RQException.STARTUP_UNKNOWN_FORMAT);
+            }
+            gzip = "gzip".equalsIgnoreCase(compress);
+        }
+        int threads = cmd.contains(threadsArg) ? positiveInt(threadsArg, "--threads") :
+                Runtime.getRuntime().availableProcessors();
+        long shardTriples = cmd.contains(shardTriplesArg) ? positiveNumber(shardTriplesArg, "--shard-triples") : 0;
+        long shardSize = cmd.contains(shardSizeArg) ? positiveNumber(shardSizeArg, "--shard-size") : 0;
+        boolean shard = shardTriples > 0 || shardSize > 0;
+        if (shard && (outfile == null || cmd.contains(incrementalArg) || !"N-TRIPLE".equalsIgnoreCase(format))) {
+            throw new D2RQException("Sharding requires an output file and a complete N-TRIPLE dump",
+                    D2RQException.STARTUP_UNKNOWN_FORMAT);
+        }
+        if (outfile != null) {
+            loader.setSystemBaseURI(MapParser.absolutizeURI(outfile.toURI().toString() + "#"));
         }
         if (cmd.contains(baseArg)) {
             loader.setSystemBaseURI(cmd.getArgValue(baseArg));
         }
 
         Mapping mapping = loader.setResultSizeLimit(Database.NO_LIMIT).setFetchSize(DUMP_DEFAULT_FETCH_SIZE).build();
+        if (shard) {
+            LOGGER.info("Writing to shards of {}", outfile);
+            boolean compress = gzip;
+            try (ShardedOutput out = new ShardedOutput(outfile, shardTriples, shardSize, f -> open(f, compress, threads))) {
+                ExtendedIterator<Triple> triples = mapping.getData().find();
+                try {
+                    while (triples.hasNext()) {
+                        out.writeLine(toNTriple(triples.next()));
+                    }
+                } finally {
+                    triples.close();
+                }
+                LOGGER.info("Written {} shards", out.files().size());
+            } finally {
+                mapping.close();
+            }
+            return;
+        }
+        PrintStream out;
+        if (outfile != null) {
+            LOGGER.info("Writing to {}", outfile);
+            out = new PrintStream(open(outfile, gzip, threads));
+        } else {
+            LOGGER.info("Writing to stdout");
+            out = gzip ? new PrintStream(new ParallelGZIPOutputStream(System.out, threads)) : System.out;
+        }
         try {
+            if (cmd.contains(incrementalArg)) {
+                dumpIncremental(mapping, new File(cmd.getArgValue(incrementalArg)), format, out);
+                return;
+            }
+            if (Lang.RDFTHRIFT.equals(RDFLanguages.nameToLang(format))) {
+                writeStream(mapping, out, RDFFormat.RDF_THRIFT);
+                return;
+            }
             Model d2rqModel = mapping.getDataModel();
             try {
                 RDFWriter writer = d2rqModel.getWriter(format.toUpperCase());
@@ -102,4 +185,138 @@ public class DumpTool extends CommandLineTool {
             mapping.close();
         }
     }
+
+    /**
+     * Writes all triples of the mapping in a streaming format, without building the whole model in memory.
+     *
+     * @param mapping {@link Mapping}
+     * @param out     {@link OutputStream}
+     * @param format  {@link RDFFormat}, that has a streaming writer (e.g. RDF Thrift)
+     */
+    private static void writeStream(Mapping mapping, OutputStream out, RDFFormat format) {
+        StreamRDF stream = StreamRDFWriter.getWriterStream(out, format);
+        stream.start();
+        mapping.getData().getPrefixMapping().getNsPrefixMap().forEach(stream::prefix);
+        ExtendedIterator<Triple> triples = mapping.getData().find();
+        try {
+            triples.forEachRemaining(stream::triple);
+        } finally {
+            triples.close();
+        }
+        stream.finish();
+    }
+
+    /**
+     * Opens a file for writing through a large buffer or a parallel gzip compressor,
+     * both write to the file channel in big chunks.
+     *
+     * @param file    {@link File}
+     * @param gzip    boolean to compress
+     * @param threads the number of compressing threads
+     * @return {@link OutputStream}
+     * @throws IOException if the file can't be opened
+     */
+    private static OutputStream open(File file, boolean gzip, int threads) throws IOException {
+        OutputStream res = Channels.newOutputStream(FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        return gzip ? new ParallelGZIPOutputStream(res, threads) : new BufferedOutputStream(res, DUMP_BUFFER_SIZE);
+    }
+
+    /**
+     * Parses a positive integer argument, without suffixes.
+     *
+     * @param arg  {@link ArgDecl}
+     * @param name String, the option name to report
+     * @return int
+     */
+    private int positiveInt(ArgDecl arg, String name) {
+        try {
+            int res = Integer.parseInt(cmd.getArgValue(arg).trim());
+            if (res > 0) return res;
+        } catch (NumberFormatException ex) {
+            // see below
+        }
+        throw new D2RQException("Wrong value of " + name + ": '" + cmd.getArgValue(arg) + "'",
+                D2RQException.MUST_BE_NUMERIC);
+    }
+
+    /**
+     * Parses a positive number argument, with an optional suffix {@code K}, {@code M} or {@code G}.
+     *
+     * @param arg  {@link ArgDecl}
+     * @param name String, the option name to report
+     * @return long
+     */
+    private long positiveNumber(ArgDecl arg, String name) {
+        String value = cmd.getArgValue(arg).trim();
+        // -1 for no suffix, 0 for K, 1 for M, 2 for G:
+        int unit = value.isEmpty() ? -1 : "KMG".indexOf(Character.toUpperCase(value.charAt(value.length() - 1)));
+        if (unit >= 0) {
+            value = value.substring(0, value.length() - 1);
+        }
+        try {
+            long res = Math.multiplyExact(Long.parseLong(value), 1L << (10 * (unit + 1)));
+            if (res > 0) return res;
+        } catch (NumberFormatException | ArithmeticException ex) {
+            // see below
+        }
+        throw new D2RQException("Wrong value of " + name + ": '" + cmd.getArgValue(arg) + "'",
+                D2RQException.MUST_BE_NUMERIC);
+    }
+
+    private static String toNTriple(Triple t) {
+        return NodeFmtLib.str(t.getSubject()) + " " + NodeFmtLib.str(t.getPredicate()) + " " +
+                NodeFmtLib.str(t.getObject()) + " .";
+    }
+
+    /**
+     * Writes the triples of the changed rows as N-Triples or as an RDF Patch with additions only,
+     * then saves the new watermarks into the state file.
+     * The state file is written after the output, so a failed run can be safely repeated.
+     *
+     * @param mapping {@link Mapping}
+     * @param state   {@link File} to keep the watermarks between runs
+     * @param format  String, {@code N-TRIPLE} or {@code RDF-PATCH}
+     * @param out     {@link PrintStream} to write
+     * @throws IOException if the state file can't be read or written
+     */
+    private void dumpIncremental(Mapping mapping, File state, String format, PrintStream out) throws IOException {
+        boolean patch = "RDF-PATCH".equalsIgnoreCase(format);
+        if (!patch && !"N-TRIPLE".equalsIgnoreCase(format)) {
+            throw new D2RQException("Format '" + format + "' is not supported by incremental dump",
+                    D2RQException.STARTUP_UNKNOWN_FORMAT);
+        }
+        Properties watermarks = new Properties();
+        if (state.exists()) {
+            try (InputStream in = new FileInputStream(state)) {
+                watermarks.load(in);
+            }
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (patch) {
+            writer.write("TX .\n");
+        }
+        long count;
+        try {
+            count = MappingHelper.getIncrementalDump(mapping, watermarks).dump(t -> {
+                try {
+                    writer.write(patch ? "A " : "");
+                    writer.write(toNTriple(t));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (patch) {
+            writer.write("TC .\n");
+        }
+        writer.flush();
+        try (OutputStream o = new FileOutputStream(state)) {
+            watermarks.store(o, "D2RQ incremental dump watermarks");
+        }
+        LOGGER.info("Dumped {} triples, the watermarks are saved to {}", count, state);
+    }
 }
@@ -3,15 +3,27 @@ package d2rq;
 import d2rq.utils.ArgDecl;
 import de.fuberlin.wiwiss.d2rq.D2RQException;
 import de.fuberlin.wiwiss.d2rq.engine.QueryEngineD2RQ;
+import org.apache.jena.query.ARQ;
 import org.apache.jena.query.QueryCancelledException;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.query.QueryFactory;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.ResultSetMgr;
+import org.apache.jena.riot.resultset.ResultSetLang;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
 import org.apache.jena.sparql.resultset.ResultsFormat;
 import org.apache.jena.sparql.util.QueryExecUtils;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 
 /**
  * Command line utility for executing SPARQL queries against a D2RQ-mapped database.
@@ -20,6 +32,8 @@ import java.io.PrintStream;
  */
 public class QueryTool extends CommandLineTool {
 
+    private static final String THRIFT_FORMAT = "thrift";
+
     private ArgDecl baseArg = new ArgDecl(true, "b", "base");
     private ArgDecl formatArg = new ArgDecl(true, "f", "format");
     private ArgDecl timeoutArg = new ArgDecl(true, "t", "timeout");
@@ -40,7 +54,8 @@ public class QueryTool extends CommandLineTool {
         console.println("                    A value of @file.sparql reads the query from a file.");
         console.println("  Query options:");
         console.println("    -b baseURI      Base URI for RDF output");
-        console.println("    -f format       One of text (default), xml, json, csv, tsv, srb, ttl");
+        console.println("    -f format       One of text (default), xml, json, csv, tsv, srb, ttl, thrift");
+        console.println("                    (thrift: binary SPARQL results for SELECT, RDF Thrift for CONSTRUCT/DESCRIBE)");
         console.println("    -t timeout      Query timeout in seconds");
         console.println("    --verbose       Print debug information");
         console.println();
@@ -99,13 +114,48 @@ public class QueryTool extends CommandLineTool {
             org.apache.jena.query.Query q = QueryFactory.create(query, loader.getResourceBaseURI());
             QueryExecution qe = QueryExecutionFactory.create(q, d2rqModel);
             if (timeout > 0) {
-                qe.setTimeout(Math.round(timeout * 1000));
+                long millis = Math.round(timeout * 1000);
+                qe.setTimeout(millis);
+                // picked up by the engine as the deadline for all SQL statements of the query
+                qe.getContext().set(ARQ.queryTimeout, millis);
+            }
+            if (THRIFT_FORMAT.equalsIgnoreCase(format)) {
+                executeThrift(q, qe);
+            } else {
+                QueryExecUtils.executeQuery(q, qe, ResultsFormat.lookup(format));
             }
-            QueryExecUtils.executeQuery(q, qe, ResultsFormat.lookup(format));
         } catch (QueryCancelledException ex) {
             throw new D2RQException("Query timeout", ex, D2RQException.QUERY_TIMEOUT);
         } finally {
             d2rqModel.close();
         }
     }
+
+    /**
+     * Streams the query results in a binary form:
+     * SELECT results as Thrift result set, CONSTRUCT and DESCRIBE triples as RDF Thrift.
+     *
+     * @param q  {@link org.apache.jena.query.Query}
+     * @param qe {@link QueryExecution}
+     */
+    private static void executeThrift(org.apache.jena.query.Query q, QueryExecution qe) {
+        OutputStream out = new BufferedOutputStream(System.out, 1 << 16);
+        if (q.isSelectType()) {
+            ResultSetMgr.write(out, qe.execSelect(), ResultSetLang.SPARQLResultSetThrift);
+        } else if (q.isConstructType() || q.isDescribeType()) {
+            Iterator<Triple> triples = q.isConstructType() ? qe.execConstructTriples() : qe.execDescribeTriples();
+            StreamRDF stream = StreamRDFWriter.getWriterStream(out, RDFFormat.RDF_THRIFT);
+            stream.start();
+            triples.forEachRemaining(stream::triple);
+            stream.finish();
+        } else {
+            throw new D2RQException("Format '" + THRIFT_FORMAT + "' is not supported for ASK queries",
+                    D2RQException.STARTUP_UNKNOWN_FORMAT);
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -2,15 +2,21 @@ package d2rq;
 
 import d2rq.utils.ArgDecl;
 import d2rq.utils.ServerHelper;
+import de.fuberlin.wiwiss.d2rq.D2RQException;
+import de.fuberlin.wiwiss.d2rq.MappingWatcher;
 import de.fuberlin.wiwiss.d2rq.map.Mapping;
 import org.apache.jena.fuseki.main.FusekiServer;
+import org.apache.jena.graph.Graph;
 import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import com.github.owlcs.d2rq.utils.D2RQGraphUtils;
 
 import java.io.PrintStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by @ssz on 12.01.2019.
@@ -19,10 +25,12 @@ public class ServerTool extends CommandLineTool {
 
     private static final int DEFAULT_SERVER_PORT = 2020;
     private static final String DEFAULT_BASE = "http://localhost:%d/";
+    private static final int DEFAULT_WATCH_INTERVAL = 5;
 
     private ArgDecl portArg = new ArgDecl(true, "port");
     private ArgDecl baseArg = new ArgDecl(true, "b", "base");
     private ArgDecl fastArg = new ArgDecl(false, "fast");
+    private ArgDecl watchArg = new ArgDecl(false, "watch");
 
     ServerTool(PrintStream out) {
         super(out);
@@ -41,6 +49,8 @@ public class ServerTool extends CommandLineTool {
         console.println("    --port number   Port where to start up the server (default: " + DEFAULT_SERVER_PORT + ")");
         console.println("    -b baseURI      Base URI to generate RDF dataset");
         console.println("    --fast          Use all engine optimizations (recommended)");
+        console.println("    --watch         Reload the mapping file when it is changed, every " +
+                DEFAULT_WATCH_INTERVAL + " seconds (only with mappingFile)");
         console.println("    --verbose       Print debug information");
         console.println();
         console.println("  Database connection options (only with jdbcURL):");
@@ -53,6 +63,7 @@ public class ServerTool extends CommandLineTool {
         cmd.add(portArg);
         cmd.add(baseArg);
         cmd.add(fastArg);
+        cmd.add(watchArg);
     }
 
     @Override
@@ -85,7 +96,6 @@ public class ServerTool extends CommandLineTool {
         Path webPages = ServerHelper.getSystemDirectory("/web-pages");
         LOGGER.debug("Web-pages path: {}", webPages);
 
-        Mapping m;
         Model data;
         // TODO: for some unclear to me reason the following way (Data+Schema in one GraphD2RQ) works incorrectly:
         //  unable to find a schema part for several queries,
@@ -96,9 +106,19 @@ public class ServerTool extends CommandLineTool {
         //data = m.getDataModel();
 
         // no schema in GraphD2RQ, see above
-        m = loader.setServeVocabulary(false).build();
-        // use union graph, see above
-        data = ModelFactory.createModelForGraph(D2RQGraphUtils.createUnionGraph(m.getSchema()).addGraph(m.getData()));
+        loader.setServeVocabulary(false);
+        if (cmd.contains(watchArg)) {
+            Path file = cmd.numItems() == 1 ? Paths.get(cmd.getItem(0)) : null;
+            if (file == null || !Files.isRegularFile(file)) {
+                throw new D2RQException("--watch requires a mapping file");
+            }
+            // the served graph is switched to a new mapping each time the file is changed
+            MappingWatcher watcher = new MappingWatcher(file, loader::build, ServerTool::toGraph)
+                    .start(DEFAULT_WATCH_INTERVAL, TimeUnit.SECONDS);
+            data = ModelFactory.createModelForGraph(watcher.getGraph());
+        } else {
+            data = ModelFactory.createModelForGraph(toGraph(loader.build()));
+        }
 
         FusekiServer server = ServerHelper.buildServer(webPages, port, DatasetFactory.wrap(data).asDatasetGraph());
         LOGGER.debug("Start server {}", server);
@@ -106,4 +126,9 @@ public class ServerTool extends CommandLineTool {
         console.println("The server <" + host + "> is ready to use.");
         server.join();
     }
+
+    private static Graph toGraph(Mapping m) {
+        // use union graph, see above
+        return D2RQGraphUtils.createUnionGraph(m.getSchema()).addGraph(m.getData());
+    }
 }
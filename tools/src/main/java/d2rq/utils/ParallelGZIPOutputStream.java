@@ -0,0 +1,145 @@
+package d2rq.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An output stream that compresses fixed-size blocks of data in parallel, like {@code pigz} does.
+ * Each block is compressed into a separate gzip member and the members are written in the original order,
+ * the result is a valid multi-member gzip file, that can be read by {@code gunzip}
+ * or {@link java.util.zip.GZIPInputStream}.
+ * The number of blocks in progress is limited, so the memory usage does not depend on the data size.
+ * <p>
+ * Not thread-safe, a single producer is expected.
+ */
+public class ParallelGZIPOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int maxPending;
+    private final int blockSize;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block;
+    private int count;
+    private boolean closed;
+
+    /**
+     * @param out     {@link OutputStream} to write compressed data, not {@code null}
+     * @param threads the number of compressing threads, positive
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int threads) {
+        this(out, threads, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * @param out       {@link OutputStream} to write compressed data, not {@code null}
+     * @param threads   the number of compressing threads, positive
+     * @param blockSize the size of uncompressed block, positive
+     */
+    public ParallelGZIPOutputStream(OutputStream out, int threads, int blockSize) {
+        if (threads <= 0 || blockSize <= 0) {
+            throw new IllegalArgumentException("Wrong threads number (" + threads + ") or block size (" + blockSize + ")");
+        }
+        this.out = Objects.requireNonNull(out);
+        this.blockSize = blockSize;
+        this.maxPending = threads * 2;
+        this.block = new byte[blockSize];
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread res = new Thread(r, "gzip");
+            res.setDaemon(true);
+            return res;
+        });
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        block[count++] = (byte) b;
+        if (count == blockSize) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n = Math.min(len, blockSize - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == blockSize) {
+                submitBlock();
+            }
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if (count == 0) return;
+        byte[] data = block;
+        int length = count;
+        block = new byte[blockSize];
+        count = 0;
+        pending.add(executor.submit(() -> compress(data, length)));
+        while (pending.size() > maxPending) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        try {
+            out.write(pending.poll().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            throw new IOException("Can't compress", e.getCause());
+        }
+    }
+
+    private static byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream res = new ByteArrayOutputStream(length / 3 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(res, 1 << 16)) {
+            gzip.write(data, 0, length);
+        }
+        return res.toByteArray();
+    }
+
+    /**
+     * Writes all data, which is written so far, to the underlying stream.
+     * Note: an incomplete block becomes a separate gzip member,
+     * so frequent flushes reduce the compression ratio.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void flush() throws IOException {
+        submitBlock();
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            flush();
+        } finally {
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package d2rq.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes line-based RDF (e.g. N-Triples) into a sequence of files,
+ * starting a new file when the current one reaches the limit of lines or uncompressed bytes.
+ * The files are named after the given one with a zero-based index before the extensions,
+ * e.g. {@code dump.nt.gz} becomes {@code dump-00000.nt.gz}, {@code dump-00001.nt.gz}, etc.
+ * On close, a manifest {@code dump.nt.gz.manifest} is written,
+ * one tab-separated line per file: the file name, the number of lines and the size of the file in bytes.
+ */
+public class ShardedOutput implements Closeable {
+    private final File file;
+    private final long maxLines;
+    private final long maxBytes;
+    private final Opener opener;
+    private final List<File> files = new ArrayList<>();
+    private final List<Long> lines = new ArrayList<>();
+    private OutputStream current;
+    private long currentLines;
+    private long currentBytes;
+
+    /**
+     * @param file     {@link File} to derive the names of shards and manifest from, not {@code null}
+     * @param maxLines the max number of lines in a shard, non-positive for no limit
+     * @param maxBytes the max number of uncompressed (UTF-8) bytes in a shard, non-positive for no limit
+     * @param opener   {@link Opener} to create an output stream for a file (e.g. with compression), not {@code null}
+     */
+    public ShardedOutput(File file, long maxLines, long maxBytes, Opener opener) {
+        this.file = Objects.requireNonNull(file);
+        this.maxLines = maxLines;
+        this.maxBytes = maxBytes;
+        this.opener = Objects.requireNonNull(opener);
+    }
+
+    /**
+     * Writes a line, the line is never split between shards.
+     *
+     * @param line String without line break, not {@code null}
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeLine(String line) throws IOException {
+        if (current == null
+                || (maxLines > 0 && currentLines >= maxLines)
+                || (maxBytes > 0 && currentBytes >= maxBytes)) {
+            next();
+        }
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        current.write(bytes);
+        current.write('\n');
+        currentLines++;
+        currentBytes += bytes.length + 1;
+    }
+
+    private void next() throws IOException {
+        closeCurrent();
+        File res = shardFile(file, files.size());
+        current = new BufferedOutputStream(opener.open(res), 1 << 16);
+        files.add(res);
+        currentLines = 0;
+        currentBytes = 0;
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current == null) return;
+        current.close();
+        current = null;
+        lines.add(currentLines);
+    }
+
+    /**
+     * Answers the written files.
+     *
+     * @return List of {@link File}s
+     */
+    public List<File> files() {
+        return files;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+        try (Writer manifest = new OutputStreamWriter(new FileOutputStream(file.getPath() + ".manifest"),
+                StandardCharsets.UTF_8)) {
+            for (int i = 0; i < files.size(); i++) {
+                File f = files.get(i);
+                manifest.write(f.getName() + "\t" + lines.get(i) + "\t" + f.length() + "\n");
+            }
+        }
+    }
+
+    /**
+     * Makes the name of a shard.
+     *
+     * @param file  {@link File}
+     * @param index int
+     * @return {@link File}
+     */
+    public static File shardFile(File file, int index) {
+        String name = file.getName();
+        int dot = name.indexOf('.', 1);
+        String suffix = String.format("-%05d", index);
+        name = dot < 0 ? name + suffix : name.substring(0, dot) + suffix + name.substring(dot);
+        return new File(file.getParentFile(), name);
+    }
+
+    /**
+     * Opens an output stream for a file.
+     */
+    @FunctionalInterface
+    public interface Opener {
+        OutputStream open(File file) throws IOException;
+    }
+}
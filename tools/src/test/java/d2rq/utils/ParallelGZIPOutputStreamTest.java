@@ -0,0 +1,53 @@
+package d2rq.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+public class ParallelGZIPOutputStreamTest {
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        ByteArrayOutputStream res = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            byte[] buffer = new byte[4096];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                res.write(buffer, 0, n);
+            }
+        }
+        return res.toByteArray();
+    }
+
+    @Test
+    public void testMembersAreConcatenatedInOrder() throws IOException {
+        byte[] data = new byte[100_000];
+        Random random = new Random(42);
+        for (int i = 0; i < data.length; i++) {
+            // compressible, but not trivially
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParallelGZIPOutputStream gzip = new ParallelGZIPOutputStream(out, 3, 1000)) {
+            gzip.write(data, 0, 12_345);
+            for (int i = 12_345; i < 12_400; i++) {
+                gzip.write(data[i]);
+            }
+            gzip.flush();
+            gzip.write(data, 12_400, data.length - 12_400);
+        }
+        Assert.assertArrayEquals(data, gunzip(out.toByteArray()));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ParallelGZIPOutputStream(out, 1).close();
+        Assert.assertEquals(0, out.size());
+    }
+}
@@ -0,0 +1,67 @@
+package d2rq.utils;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+public class ShardedOutputTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<String> read(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testShardFile() {
+        Assert.assertEquals("dump-00000.nt.gz", ShardedOutput.shardFile(new File("dump.nt.gz"), 0).getName());
+        Assert.assertEquals("dump-00012", ShardedOutput.shardFile(new File("dump"), 12).getName());
+        Assert.assertEquals(".dump-00001", ShardedOutput.shardFile(new File(".dump"), 1).getName());
+    }
+
+    @Test
+    public void testByteLimit() throws IOException {
+        File file = new File(folder.getRoot(), "dump.nt");
+        ShardedOutput out = new ShardedOutput(file, 0, 10, FileOutputStream::new);
+        try {
+            // 6 bytes each with the line break, "é" is 2 bytes in UTF-8
+            for (String s : Arrays.asList("aaaaa", "bbbbb", "ccccc", "dé", "eeeee")) {
+                out.writeLine(s);
+            }
+        } finally {
+            out.close();
+        }
+        List<File> files = out.files();
+        Assert.assertEquals(3, files.size());
+        Assert.assertEquals(Arrays.asList("aaaaa", "bbbbb"), read(files.get(0)));
+        Assert.assertEquals(Arrays.asList("ccccc", "dé"), read(files.get(1)));
+        Assert.assertEquals(Arrays.asList("eeeee"), read(files.get(2)));
+        Assert.assertEquals(12, files.get(0).length());
+        Assert.assertEquals(Arrays.asList("dump-00000.nt\t2\t12", "dump-00001.nt\t2\t10", "dump-00002.nt\t1\t6"),
+                read(new File(folder.getRoot(), "dump.nt.manifest")));
+    }
+
+    @Test
+    public void testLineLimit() throws IOException {
+        File file = new File(folder.getRoot(), "dump.nt");
+        ShardedOutput out = new ShardedOutput(file, 2, 0, FileOutputStream::new);
+        try {
+            for (int i = 0; i < 5; i++) {
+                out.writeLine("line " + i);
+            }
+        } finally {
+            out.close();
+        }
+        Assert.assertEquals(3, out.files().size());
+        Assert.assertEquals(Arrays.asList("line 4"), read(out.files().get(2)));
+    }
+}